@@ -0,0 +1,68 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.io.ByteStreams;
+
+import org.eclipse.openvsx.entities.ExtensionVersion;
+import org.eclipse.openvsx.entities.FileResource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExtensionProcessorBenchmark {
+
+    /** A small package (21 kB, 6 files) and a large package (390 kB, 57 files). */
+    @Param({ "util/todo-tree.zip", "vsc-material-theme.vsix" })
+    String fixture;
+
+    private byte[] content;
+
+    @Setup
+    public void setup() throws IOException {
+        try (var stream = ExtensionProcessorBenchmark.class.getResourceAsStream(fixture)) {
+            content = ByteStreams.toByteArray(stream);
+        }
+    }
+
+    @Benchmark
+    public ExtensionVersion getMetadata() {
+        try (var processor = new ExtensionProcessor(new ByteArrayInputStream(content))) {
+            return processor.getMetadata();
+        }
+    }
+
+    @Benchmark
+    public List<FileResource> getResources() {
+        try (var processor = new ExtensionProcessor(new ByteArrayInputStream(content))) {
+            return processor.getResources(processor.getMetadata());
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.entities;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExtensionVersionBenchmark {
+
+    private List<ExtensionVersion> versions;
+
+    @Setup
+    public void setup() {
+        var random = new Random(42);
+        var timestamp = LocalDateTime.parse("2020-01-01T00:00");
+        versions = new ArrayList<>(1000);
+        for (var i = 0; i < 1000; i++) {
+            var extVersion = new ExtensionVersion();
+            extVersion.setVersion(random.nextInt(3) + "." + random.nextInt(50) + "." + random.nextInt(100));
+            extVersion.setTimestamp(timestamp.plusHours(random.nextInt(10_000)));
+            versions.add(extVersion);
+        }
+        Collections.shuffle(versions, random);
+    }
+
+    /**
+     * Sort versions whose semantic version is already parsed and cached in the entity.
+     */
+    @Benchmark
+    public List<ExtensionVersion> sort() {
+        var copy = new ArrayList<>(versions);
+        copy.sort(ExtensionVersion.SORT_COMPARATOR);
+        return copy;
+    }
+
+    /**
+     * Sort freshly loaded versions, which includes parsing the version strings.
+     */
+    @Benchmark
+    public List<ExtensionVersion> sortUnparsed() {
+        var copy = new ArrayList<ExtensionVersion>(versions.size());
+        for (var extVersion : versions) {
+            var fresh = new ExtensionVersion();
+            fresh.setVersion(extVersion.getVersion());
+            fresh.setTimestamp(extVersion.getTimestamp());
+            copy.add(fresh);
+        }
+        copy.sort(ExtensionVersion.SORT_COMPARATOR);
+        return copy;
+    }
+
+}
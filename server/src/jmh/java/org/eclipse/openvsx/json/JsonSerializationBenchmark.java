@@ -0,0 +1,153 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.json;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.eclipse.openvsx.adapter.ExtensionQueryResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    private ObjectMapper mapper;
+    private ExtensionJson extension;
+    private ExtensionQueryResult queryResult;
+
+    @Setup
+    public void setup() {
+        mapper = new ObjectMapper();
+        extension = createExtension();
+        queryResult = createQueryResult(50);
+    }
+
+    @Benchmark
+    public byte[] extensionJson() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(extension);
+    }
+
+    /**
+     * A result page of the VS Code gallery query with 50 extensions.
+     */
+    @Benchmark
+    public byte[] extensionQueryResult() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(queryResult);
+    }
+
+    private ExtensionJson createExtension() {
+        var json = new ExtensionJson();
+        var url = "https://open-vsx.org/api/redhat/vscode-yaml";
+        json.namespaceUrl = "https://open-vsx.org/api/redhat";
+        json.reviewsUrl = url + "/reviews";
+        json.files = new LinkedHashMap<>();
+        json.files.put("download", url + "/0.8.0/file/redhat.vscode-yaml-0.8.0.vsix");
+        json.files.put("manifest", url + "/0.8.0/file/package.json");
+        json.files.put("icon", url + "/0.8.0/file/icon.png");
+        json.files.put("readme", url + "/0.8.0/file/README.md");
+        json.files.put("license", url + "/0.8.0/file/LICENSE");
+        json.name = "vscode-yaml";
+        json.namespace = "redhat";
+        json.version = "0.8.0";
+        json.namespaceAccess = "restricted";
+        json.allVersions = new LinkedHashMap<>();
+        json.allVersions.put("latest", url + "/latest");
+        for (var i = 80; i >= 0; i--) {
+            var version = "0." + (i / 10) + "." + (i % 10);
+            json.allVersions.put(version, url + "/" + version);
+        }
+        json.averageRating = 4.5;
+        json.downloadCount = 123456;
+        json.reviewCount = 42;
+        json.timestamp = "2020-05-01T10:00:00Z";
+        json.displayName = "YAML";
+        json.description = "YAML Language Support by Red Hat, with built-in Kubernetes syntax support";
+        json.engines = new LinkedHashMap<>();
+        json.engines.put("vscode", "^1.24.0");
+        json.categories = Arrays.asList("Programming Languages", "Linters", "Snippets", "Formatters");
+        json.tags = Arrays.asList("yaml", "kubernetes", "openshift", "schemas", "json-schema");
+        json.license = "MIT";
+        json.homepage = "https://github.com/redhat-developer/vscode-yaml";
+        json.repository = "https://github.com/redhat-developer/vscode-yaml";
+        json.bugs = "https://github.com/redhat-developer/vscode-yaml/issues";
+        json.galleryColor = "#0f0f0f";
+        json.galleryTheme = "dark";
+        return json;
+    }
+
+    private ExtensionQueryResult createQueryResult(int size) {
+        var extensions = new ArrayList<ExtensionQueryResult.Extension>(size);
+        for (var i = 0; i < size; i++) {
+            var publisher = new ExtensionQueryResult.Publisher();
+            publisher.publisherId = "publisher-" + i;
+            publisher.publisherName = "publisher" + i;
+            publisher.displayName = "Publisher " + i;
+
+            var assetUri = "https://open-vsx.org/vscode/asset/publisher" + i + "/extension" + i + "/1.0." + i;
+            var version = new ExtensionQueryResult.ExtensionVersion();
+            version.version = "1.0." + i;
+            version.lastUpdated = "2020-05-01T10:00:00Z";
+            version.assetUri = assetUri;
+            version.fallbackAssetUri = assetUri;
+            version.files = new ArrayList<>();
+            version.addFile(ExtensionQueryResult.ExtensionFile.FILE_MANIFEST, assetUri + "/Microsoft.VisualStudio.Code.Manifest");
+            version.addFile(ExtensionQueryResult.ExtensionFile.FILE_DETAILS, assetUri + "/Microsoft.VisualStudio.Services.Content.Details");
+            version.addFile(ExtensionQueryResult.ExtensionFile.FILE_ICON, assetUri + "/Microsoft.VisualStudio.Services.Icons.Default");
+            version.addFile(ExtensionQueryResult.ExtensionFile.FILE_VSIX, assetUri + "/Microsoft.VisualStudio.Services.VSIXPackage");
+            version.properties = new ArrayList<>();
+            version.addProperty(ExtensionQueryResult.Property.PROP_REPOSITORY, "https://github.com/publisher" + i + "/extension" + i);
+            version.addProperty(ExtensionQueryResult.Property.PROP_ENGINE, "^1.40.0");
+            version.addProperty(ExtensionQueryResult.Property.PROP_DEPENDENCY, "");
+            version.addProperty(ExtensionQueryResult.Property.PROP_EXTENSION_PACK, "");
+
+            var downloads = new ExtensionQueryResult.Statistic();
+            downloads.statisticName = ExtensionQueryResult.Statistic.STAT_INSTALL;
+            downloads.value = 1000 + i;
+
+            var extension = new ExtensionQueryResult.Extension();
+            extension.publisher = publisher;
+            extension.extensionId = "extension-" + i;
+            extension.extensionName = "extension" + i;
+            extension.displayName = "Extension " + i;
+            extension.shortDescription = "A description of extension " + i + " that is about as long as usual.";
+            extension.versions = List.of(version);
+            extension.statistics = List.of(downloads);
+            extensions.add(extension);
+        }
+
+        var resultItem = new ExtensionQueryResult.ResultItem();
+        resultItem.extensions = extensions;
+        resultItem.resultMetadata = new ArrayList<>();
+        var result = new ExtensionQueryResult();
+        result.results = List.of(resultItem);
+        return result;
+    }
+
+}
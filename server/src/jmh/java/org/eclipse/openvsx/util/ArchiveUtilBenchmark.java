@@ -0,0 +1,55 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.util;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.io.ByteStreams;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArchiveUtilBenchmark {
+
+    /** The first entry of the archive and the entry that is stored last. */
+    @Param({ "extension/LICENSE.txt", "extension/package.json" })
+    String entryName;
+
+    private byte[] archive;
+
+    @Setup
+    public void setup() throws IOException {
+        try (var stream = ArchiveUtilBenchmark.class.getResourceAsStream("todo-tree.zip")) {
+            archive = ByteStreams.toByteArray(stream);
+        }
+    }
+
+    @Benchmark
+    public byte[] readEntry() {
+        return ArchiveUtil.readEntry(archive, entryName);
+    }
+
+}
@@ -0,0 +1,63 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.util;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.io.ByteStreams;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+// Use the license list bundled with the SPDX library instead of downloading it
+@Fork(value = 1, jvmArgsAppend = "-DSPDXParser.OnlyUseLocalLicenses=true")
+public class LicenseDetectionBenchmark {
+
+    private LicenseDetection detection;
+    private byte[] mitLicense;
+    private byte[] unknownLicense;
+
+    @Setup
+    public void setup() throws IOException {
+        detection = new LicenseDetection();
+        try (var stream = LicenseDetectionBenchmark.class.getResourceAsStream("MIT.txt")) {
+            mitLicense = ByteStreams.toByteArray(stream);
+        }
+        unknownLicense = "This is a funny license.".getBytes("utf-8");
+    }
+
+    @Benchmark
+    public String detectMit() {
+        return detection.detectLicense(mitLicense);
+    }
+
+    /**
+     * An unknown license is compared with every license template, which is the worst case.
+     */
+    @Benchmark
+    public String detectUnknown() {
+        return detection.detectLicense(unknownLicense);
+    }
+
+}
@@ -0,0 +1,69 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.util;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SemanticVersionBenchmark {
+
+    private String[] versionStrings;
+    private SemanticVersion[] versions;
+
+    @Setup
+    public void setup() {
+        var random = new Random(42);
+        versionStrings = new String[256];
+        versions = new SemanticVersion[versionStrings.length];
+        for (var i = 0; i < versionStrings.length; i++) {
+            var version = random.nextInt(5) + "." + random.nextInt(30) + "." + random.nextInt(200);
+            if (i % 8 == 0)
+                version += "-beta." + random.nextInt(10);
+            versionStrings[i] = version;
+            versions[i] = new SemanticVersion(version);
+        }
+    }
+
+    @Benchmark
+    public SemanticVersion[] parse() {
+        var result = new SemanticVersion[versionStrings.length];
+        for (var i = 0; i < versionStrings.length; i++) {
+            result[i] = new SemanticVersion(versionStrings[i]);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int compareTo() {
+        var sum = 0;
+        for (var i = 1; i < versions.length; i++) {
+            sum += versions[i - 1].compareTo(versions[i]);
+        }
+        return sum;
+    }
+
+}
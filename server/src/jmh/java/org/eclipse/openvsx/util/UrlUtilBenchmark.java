@@ -0,0 +1,49 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlUtilBenchmark {
+
+    private String baseUrl = "https://open-vsx.org";
+    private String namespace = "redhat";
+    private String extension = "vscode-yaml";
+    private String version = "0.8.0";
+    private String fileName = "redhat.vscode-yaml-0.8.0.vsix";
+
+    @Benchmark
+    public String createApiUrl() {
+        return UrlUtil.createApiUrl(baseUrl, "api", namespace, extension, version, "file", fileName);
+    }
+
+    @Benchmark
+    public String addQuery() {
+        return UrlUtil.addQuery(baseUrl + "/api/-/search", "query", "yaml language", "category", null,
+                "size", "18", "offset", "0");
+    }
+
+}
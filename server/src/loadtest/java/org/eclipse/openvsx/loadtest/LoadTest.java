@@ -0,0 +1,184 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.loadtest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import org.eclipse.openvsx.RegistryApplication;
+import org.eclipse.openvsx.entities.PersonalAccessToken;
+import org.eclipse.openvsx.entities.UserData;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.session.Session;
+import org.springframework.session.SessionRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.elasticsearch.ElasticsearchContainer;
+
+/**
+ * Starts a registry server with a local database, fills it with generated extensions and
+ * measures throughput, latency and database queries of a configurable mix of requests.
+ * See {@link LoadTestOptions} for the available options.
+ */
+public class LoadTest {
+
+    private static final String TOKEN = "load_test_token";
+
+    public static void main(String[] args) throws Exception {
+        var options = new LoadTestOptions();
+        ElasticsearchContainer elasticsearch = null;
+        if (options.elasticsearch) {
+            elasticsearch = new ElasticsearchContainer("docker.elastic.co/elasticsearch/elasticsearch:6.8.6");
+            elasticsearch.start();
+        }
+        try (var context = startServer(options, elasticsearch)) {
+            var user = createUser(context);
+            var sessionCookie = createSession(context, user);
+            var port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            var generator = new TrafficGenerator(options, "http://localhost:" + port, TOKEN, sessionCookie);
+            System.out.println("Publishing " + options.extensions + " extensions...");
+            generator.createExtensions();
+
+            if (options.warmup > 0) {
+                System.out.println("Warming up for " + options.warmup + " seconds...");
+                generator.run(options.warmup);
+            }
+            var queryCounts = context.getBean(QueryCountFilter.class);
+            queryCounts.reset();
+            System.out.println("Measuring for " + options.duration + " seconds with "
+                    + options.concurrency + " clients...");
+            var stats = generator.run(options.duration);
+            report(options, stats, queryCounts);
+        } finally {
+            if (elasticsearch != null)
+                elasticsearch.stop();
+        }
+        System.exit(0);
+    }
+
+    private static ConfigurableApplicationContext startServer(LoadTestOptions options,
+            ElasticsearchContainer elasticsearch) {
+        var properties = new HashMap<String, Object>();
+        properties.put("server.port", 0);
+        properties.put("spring.datasource.url", options.datasourceUrl);
+        if (options.datasourceUrl.startsWith("jdbc:tc:"))
+            properties.put("spring.datasource.driver-class-name", "org.testcontainers.jdbc.ContainerDatabaseDriver");
+        properties.put("spring.datasource.username", options.datasourceUsername);
+        properties.put("spring.datasource.password", options.datasourcePassword);
+        properties.put("spring.datasource.hikari.maximum-pool-size", Math.max(options.concurrency, 10));
+        properties.put("ovsx.elasticsearch.enabled", elasticsearch != null);
+        if (elasticsearch != null)
+            properties.put("ovsx.elasticsearch.host", elasticsearch.getHttpHostAddress());
+        return new SpringApplicationBuilder(RegistryApplication.class)
+                .profiles("loadtest")
+                .properties(properties)
+                .run();
+    }
+
+    private static UserData createUser(ConfigurableApplicationContext context) {
+        var transactions = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        var entityManager = context.getBean(EntityManager.class);
+        return transactions.execute(status -> {
+            var user = new UserData();
+            user.setLoginName("load_test_user");
+            user.setRole(UserData.ROLE_PRIVILEGED);
+            entityManager.persist(user);
+            var token = new PersonalAccessToken();
+            token.setCreatedTimestamp(LocalDateTime.now());
+            token.setActive(true);
+            token.setUser(user);
+            token.setValue(TOKEN);
+            entityManager.persist(token);
+            return user;
+        });
+    }
+
+    /**
+     * Store a session with the security context of the given user, like the session of
+     * a browser that is logged in to the web UI, and return its cookie.
+     */
+    @SuppressWarnings("unchecked")
+    private static String createSession(ConfigurableApplicationContext context, UserData user) {
+        var sessions = (SessionRepository<Session>) context.getBean(SessionRepository.class);
+        var session = sessions.createSession();
+        var authentication = new UsernamePasswordAuthenticationToken(user.getLoginName(), null,
+                AuthorityUtils.createAuthorityList("ROLE_USER"));
+        session.setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY,
+                new SecurityContextImpl(authentication));
+        sessions.save(session);
+        var encodedId = Base64.getEncoder().encodeToString(session.getId().getBytes(StandardCharsets.UTF_8));
+        return "SESSION=" + encodedId;
+    }
+
+    private static void report(LoadTestOptions options, Map<Scenario, ScenarioStats> stats,
+            QueryCountFilter queryCounts) throws IOException {
+        var results = new LinkedHashMap<String, Object>();
+        System.out.println();
+        System.out.println(String.format("%-16s %9s %7s %9s %9s %9s %9s %9s %9s %9s",
+                "scenario", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "queries", "db ms"));
+        for (var entry : stats.entrySet()) {
+            var scenario = entry.getKey().getName();
+            var s = entry.getValue();
+            var count = s.getCount();
+            var throughput = (double) count / options.duration;
+            var queriesPerRequest = count > 0 ? (double) queryCounts.getQueryCount(scenario) / count : 0;
+            var queryTimePerRequest = count > 0 ? queryCounts.getQueryTime(scenario) / 1e6 / count : 0;
+            System.out.println(String.format("%-16s %9d %7d %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f",
+                    scenario, count, s.getErrors(), throughput, s.getPercentile(0.5), s.getPercentile(0.9),
+                    s.getPercentile(0.99), s.getPercentile(1), queriesPerRequest, queryTimePerRequest));
+
+            var json = new LinkedHashMap<String, Object>();
+            json.put("requests", count);
+            json.put("errors", s.getErrors());
+            json.put("throughput", throughput);
+            json.put("p50", s.getPercentile(0.5));
+            json.put("p90", s.getPercentile(0.9));
+            json.put("p99", s.getPercentile(0.99));
+            json.put("max", s.getPercentile(1));
+            json.put("queriesPerRequest", queriesPerRequest);
+            json.put("queryTimePerRequest", queryTimePerRequest);
+            json.put("bytesPerRequest", count > 0 ? s.getBytes() / count : 0);
+            results.put(scenario, json);
+        }
+
+        var report = new LinkedHashMap<String, Object>();
+        report.put("timestamp", LocalDateTime.now().toString());
+        report.put("duration", options.duration);
+        report.put("concurrency", options.concurrency);
+        report.put("extensions", options.extensions);
+        report.put("elasticsearch", options.elasticsearch);
+        report.put("scenarios", results);
+        var file = Path.of(options.report);
+        if (file.getParent() != null)
+            Files.createDirectories(file.getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), report);
+        System.out.println();
+        System.out.println("Results written to " + file.toAbsolutePath());
+    }
+
+}
@@ -0,0 +1,83 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.loadtest;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import com.google.common.base.Strings;
+
+/**
+ * Options of a load test run, read from system properties with the prefix {@code loadtest.}.
+ */
+public class LoadTestOptions {
+
+    /** Seconds during which requests are sent before the measurement starts. */
+    int warmup = getInt("warmup", 10);
+
+    /** Seconds during which requests are measured. */
+    int duration = getInt("duration", 60);
+
+    /** Number of concurrent clients. Each client sends its next request when the previous one is answered. */
+    int concurrency = getInt("concurrency", 16);
+
+    /** Milliseconds a client waits between two requests. */
+    int thinkTime = getInt("think-time", 0);
+
+    int namespaces = getInt("namespaces", 10);
+    int extensions = getInt("extensions", 200);
+
+    /** Size of the generated extension packages in bytes. */
+    int packageSize = getInt("package-size", 100_000);
+
+    /** Number of extension names in an update check, like a VS Code instance with many extensions installed. */
+    int querySize = getInt("query-size", 200);
+
+    /** Relative frequency of each scenario. */
+    Map<Scenario, Integer> mix = parseMix(getString("mix",
+            "query:30,search:15,metadata:20,metadata_session:10,download:20,publish:5"));
+
+    long seed = getInt("seed", 42);
+
+    /** Start an Elasticsearch container; otherwise search is disabled and returns empty results. */
+    boolean elasticsearch = Boolean.parseBoolean(getString("elasticsearch", "false"));
+
+    /** JDBC URL of the database; by default a Postgres container is started. */
+    String datasourceUrl = getString("datasource.url", "jdbc:tc:postgresql:12:///loadtest");
+    String datasourceUsername = getString("datasource.username", "");
+    String datasourcePassword = getString("datasource.password", "");
+
+    String report = getString("report", "build/reports/loadtest/results.json");
+
+    private static String getString(String key, String defaultValue) {
+        var value = System.getProperty("loadtest." + key);
+        return Strings.isNullOrEmpty(value) ? defaultValue : value;
+    }
+
+    private static int getInt(String key, int defaultValue) {
+        return Integer.parseInt(getString(key, Integer.toString(defaultValue)));
+    }
+
+    private static Map<Scenario, Integer> parseMix(String value) {
+        var mix = new EnumMap<Scenario, Integer>(Scenario.class);
+        for (var entry : value.split(",")) {
+            var split = entry.trim().split(":");
+            if (split.length != 2)
+                throw new IllegalArgumentException("Invalid traffic mix entry: " + entry);
+            var weight = Integer.parseInt(split[1].trim());
+            if (weight > 0)
+                mix.put(Scenario.valueOf(split[0].trim().toUpperCase()), weight);
+        }
+        if (mix.isEmpty())
+            throw new IllegalArgumentException("The traffic mix must contain at least one scenario.");
+        return mix;
+    }
+
+}
@@ -0,0 +1,77 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.loadtest;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.openvsx.web.QueryStatistics;
+import org.eclipse.openvsx.web.QueryStatisticsFilter;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Sums up the SQL statements of requests by the scenario given in a request header. This
+ * runs within the {@link QueryStatisticsFilter}, which resets the statistics of each request.
+ */
+@Component
+@Profile("loadtest")
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    public static final String SCENARIO_HEADER = "X-Load-Test-Scenario";
+
+    private final Map<String, LongAdder> queries = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> queryTime = new ConcurrentHashMap<>();
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        var scenario = request.getHeader(SCENARIO_HEADER);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            var stats = QueryStatistics.current();
+            if (scenario != null) {
+                queries.computeIfAbsent(scenario, key -> new LongAdder()).add(stats.getCount());
+                queryTime.computeIfAbsent(scenario, key -> new LongAdder()).add(stats.getNanos());
+            }
+        }
+    }
+
+    public long getQueryCount(String scenario) {
+        var count = queries.get(scenario);
+        return count != null ? count.sum() : 0;
+    }
+
+    /**
+     * Return the total time in nanoseconds spent executing the statements of the given scenario.
+     */
+    public long getQueryTime(String scenario) {
+        var time = queryTime.get(scenario);
+        return time != null ? time.sum() : 0;
+    }
+
+    public void reset() {
+        queries.clear();
+        queryTime.clear();
+    }
+
+}
@@ -0,0 +1,44 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.loadtest;
+
+/**
+ * The kinds of requests sent by a load test.
+ */
+public enum Scenario {
+
+    /** Update check of VS Code: an extension query with the names of all installed extensions. */
+    QUERY,
+
+    /** A page of search results, as requested by the web UI and the VS Code marketplace view. */
+    SEARCH,
+
+    /** Metadata of an extension, as requested by the web UI. */
+    METADATA,
+
+    /**
+     * The same requests as {@link #METADATA}, sent with the session cookie of a user who is
+     * logged in to the web UI. Public read endpoints must not load the session, so this should
+     * perform like {@link #METADATA}.
+     */
+    METADATA_SESSION,
+
+    /** Download of an extension package, through the registry API or the VS Code asset URL. */
+    DOWNLOAD,
+
+    /** Publishing a new extension version. */
+    PUBLISH;
+
+    /** Value of the {@link QueryCountFilter#SCENARIO_HEADER} header. */
+    public String getName() {
+        return name().toLowerCase();
+    }
+
+}
@@ -0,0 +1,62 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.loadtest;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencies and outcomes of the requests of one scenario.
+ */
+public class ScenarioStats {
+
+    private long[] latencies = new long[1024];
+    private int count;
+    private long errors;
+    private long bytes;
+
+    public synchronized void record(long nanos, boolean success, long responseBytes) {
+        if (count == latencies.length)
+            latencies = Arrays.copyOf(latencies, count * 2);
+        latencies[count++] = nanos;
+        if (!success)
+            errors++;
+        bytes += responseBytes;
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+
+    public synchronized long getErrors() {
+        return errors;
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Return the latency in milliseconds below which the given fraction of requests completed.
+     */
+    public synchronized double getPercentile(double fraction) {
+        if (count == 0)
+            return 0;
+        var sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        var index = (int) Math.ceil(fraction * count) - 1;
+        return toMillis(sorted[Math.max(Math.min(index, count - 1), 0)]);
+    }
+
+    private double toMillis(long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+}
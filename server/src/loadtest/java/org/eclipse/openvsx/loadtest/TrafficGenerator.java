@@ -0,0 +1,285 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import org.eclipse.openvsx.adapter.ExtensionQueryParam;
+import org.eclipse.openvsx.adapter.ExtensionQueryResult;
+import org.eclipse.openvsx.util.UrlUtil;
+
+/**
+ * Creates the extensions of a load test and sends a mix of requests to the registry.
+ */
+public class TrafficGenerator {
+
+    private static final String[] KEYWORDS = { "python", "java", "theme", "debug", "lint", "git", "docker",
+            "yaml", "snippets", "test", "markdown", "rust", "go", "format", "icons", "remote" };
+
+    private static final String VSCODE_CLIENT_ID = "VSCode 1.45.1";
+    private static final int QUERY_FLAGS = 946;
+    private static final int PREPARED_QUERIES = 32;
+
+    private final LoadTestOptions options;
+    private final String serverUrl;
+    private final String token;
+    private final String sessionCookie;
+    private final HttpClient client;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final List<String[]> catalog = new ArrayList<>();
+    private final List<byte[]> queries = new ArrayList<>();
+    private final AtomicInteger publishCounter = new AtomicInteger();
+    private final Scenario[] scenarioTable;
+
+    public TrafficGenerator(LoadTestOptions options, String serverUrl, String token, String sessionCookie) {
+        this.options = options;
+        this.serverUrl = serverUrl;
+        this.token = token;
+        this.sessionCookie = sessionCookie;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        var table = new ArrayList<Scenario>();
+        options.mix.forEach((scenario, weight) -> {
+            for (var i = 0; i < weight; i++) {
+                table.add(scenario);
+            }
+        });
+        this.scenarioTable = table.toArray(new Scenario[table.size()]);
+    }
+
+    /**
+     * Create the namespaces and publish the extensions that are used by the scenarios.
+     */
+    public void createExtensions() throws IOException, InterruptedException {
+        for (var i = 0; i < options.namespaces; i++) {
+            var body = mapper.writeValueAsBytes(mapper.createObjectNode().put("name", getNamespace(i)));
+            var request = HttpRequest.newBuilder(URI.create(url("api", "-", "namespace", "create") + "?token=" + token))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                    .build();
+            checkResponse(client.send(request, HttpResponse.BodyHandlers.ofString()));
+        }
+        var random = new Random(options.seed);
+        for (var i = 0; i < options.extensions; i++) {
+            var namespace = getNamespace(i % Math.max(options.namespaces, 1));
+            var name = "extension" + i;
+            var version = "1.0.0";
+            var request = HttpRequest.newBuilder(URI.create(url("api", "-", "publish") + "?token=" + token))
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(createPackage(namespace, name, version, random)))
+                    .build();
+            checkResponse(client.send(request, HttpResponse.BodyHandlers.ofString()));
+            catalog.add(new String[] { namespace, name, version });
+        }
+        for (var i = 0; i < PREPARED_QUERIES; i++) {
+            queries.add(createQuery(random));
+        }
+    }
+
+    /**
+     * Send requests with the configured concurrency for the given number of seconds.
+     */
+    public Map<Scenario, ScenarioStats> run(int seconds) throws InterruptedException {
+        var stats = new EnumMap<Scenario, ScenarioStats>(Scenario.class);
+        for (var scenario : options.mix.keySet()) {
+            stats.put(scenario, new ScenarioStats());
+        }
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        var workers = new ArrayList<Thread>();
+        for (var i = 0; i < options.concurrency; i++) {
+            var random = new Random(options.seed + i);
+            var worker = new Thread(() -> {
+                while (System.nanoTime() < deadline) {
+                    var scenario = scenarioTable[random.nextInt(scenarioTable.length)];
+                    execute(scenario, random, stats.get(scenario));
+                    if (options.thinkTime > 0) {
+                        try {
+                            Thread.sleep(options.thinkTime);
+                        } catch (InterruptedException exc) {
+                            return;
+                        }
+                    }
+                }
+            }, "load-test-client-" + i);
+            worker.start();
+            workers.add(worker);
+        }
+        for (var worker : workers) {
+            worker.join();
+        }
+        return stats;
+    }
+
+    private void execute(Scenario scenario, Random random, ScenarioStats stats) {
+        var request = createRequest(scenario, random);
+        var start = System.nanoTime();
+        try {
+            var response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            var success = response.statusCode() < 400;
+            if (success && scenario == Scenario.PUBLISH)
+                success = !mapper.readTree(response.body()).has("error");
+            stats.record(System.nanoTime() - start, success, response.body().length);
+        } catch (IOException exc) {
+            stats.record(System.nanoTime() - start, false, 0);
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private HttpRequest createRequest(Scenario scenario, Random random) {
+        var extension = catalog.get(random.nextInt(catalog.size()));
+        HttpRequest.Builder builder;
+        switch (scenario) {
+            case QUERY:
+                builder = HttpRequest.newBuilder(URI.create(url("vscode", "gallery", "extensionquery")))
+                        .header("Content-Type", "application/json")
+                        .header("X-Market-Client-Id", VSCODE_CLIENT_ID)
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(queries.get(random.nextInt(queries.size()))));
+                break;
+            case SEARCH:
+                var searchUrl = UrlUtil.addQuery(url("api", "-", "search"),
+                        "query", KEYWORDS[random.nextInt(KEYWORDS.length)],
+                        "size", "18", "offset", Integer.toString(18 * random.nextInt(3)));
+                builder = HttpRequest.newBuilder(URI.create(searchUrl));
+                break;
+            case METADATA:
+                builder = HttpRequest.newBuilder(URI.create(url("api", extension[0], extension[1])));
+                break;
+            case METADATA_SESSION:
+                builder = HttpRequest.newBuilder(URI.create(url("api", extension[0], extension[1])))
+                        .header("Cookie", sessionCookie);
+                break;
+            case DOWNLOAD:
+                String downloadUrl;
+                if (random.nextBoolean()) {
+                    var fileName = extension[0] + "." + extension[1] + "-" + extension[2] + ".vsix";
+                    downloadUrl = url("api", extension[0], extension[1], extension[2], "file", fileName);
+                } else {
+                    downloadUrl = url("vscode", "asset", extension[0], extension[1], extension[2],
+                            ExtensionQueryResult.ExtensionFile.FILE_VSIX);
+                }
+                builder = HttpRequest.newBuilder(URI.create(downloadUrl));
+                break;
+            case PUBLISH:
+                var version = "2.0." + publishCounter.getAndIncrement();
+                var content = createPackage(extension[0], extension[1], version, random);
+                builder = HttpRequest.newBuilder(URI.create(url("api", "-", "publish") + "?token=" + token))
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(content));
+                break;
+            default:
+                throw new IllegalArgumentException(scenario.toString());
+        }
+        return builder
+                .header(QueryCountFilter.SCENARIO_HEADER, scenario.getName())
+                .timeout(Duration.ofSeconds(60))
+                .build();
+    }
+
+    /**
+     * Create the request body of a VS Code update check. A part of the names refers to
+     * extensions that are not in the registry, like extensions installed from other sources.
+     */
+    private byte[] createQuery(Random random) throws IOException {
+        var criteria = mapper.createArrayNode();
+        criteria.add(criterion(ExtensionQueryParam.Criterion.FILTER_TARGET, "Microsoft.VisualStudio.Code"));
+        for (var i = 0; i < options.querySize; i++) {
+            String name;
+            if (random.nextInt(5) == 0) {
+                name = "unknown.extension" + random.nextInt(10_000);
+            } else {
+                var extension = catalog.get(random.nextInt(catalog.size()));
+                name = extension[0] + "." + extension[1];
+            }
+            criteria.add(criterion(ExtensionQueryParam.Criterion.FILTER_EXTENSION_NAME, name));
+        }
+        criteria.add(criterion(ExtensionQueryParam.Criterion.FILTER_EXCLUDE_WITH_FLAGS, "4096"));
+        var filter = mapper.createObjectNode();
+        filter.set("criteria", criteria);
+        filter.put("pageNumber", 1);
+        filter.put("pageSize", options.querySize);
+        filter.put("sortBy", 0);
+        filter.put("sortOrder", 0);
+        var query = mapper.createObjectNode();
+        query.set("filters", mapper.createArrayNode().add(filter));
+        query.set("assetTypes", mapper.createArrayNode());
+        query.put("flags", QUERY_FLAGS);
+        return mapper.writeValueAsBytes(query);
+    }
+
+    private ObjectNode criterion(int filterType, String value) {
+        return mapper.createObjectNode().put("filterType", filterType).put("value", value);
+    }
+
+    private byte[] createPackage(String namespace, String name, String version, Random random) {
+        try {
+            var packageJson = mapper.createObjectNode()
+                    .put("publisher", namespace)
+                    .put("name", name)
+                    .put("version", version)
+                    .put("displayName", "Extension " + name)
+                    .put("description", "Generated for load testing");
+            packageJson.putObject("engines").put("vscode", "^1.40.0");
+            packageJson.putArray("categories").add("Other");
+            packageJson.putArray("keywords")
+                    .add(KEYWORDS[random.nextInt(KEYWORDS.length)])
+                    .add(KEYWORDS[random.nextInt(KEYWORDS.length)]);
+            var bytes = new ByteArrayOutputStream();
+            try (var zip = new ZipOutputStream(bytes)) {
+                zip.putNextEntry(new ZipEntry("extension/package.json"));
+                zip.write(mapper.writeValueAsBytes(packageJson));
+                zip.putNextEntry(new ZipEntry("extension/README.md"));
+                zip.write(("# " + name + "\n\nThis extension was generated for load testing.\n")
+                        .getBytes(StandardCharsets.UTF_8));
+                // Random content is not compressed, so the package has the configured size
+                var code = new byte[options.packageSize];
+                random.nextBytes(code);
+                zip.putNextEntry(new ZipEntry("extension/out/extension.js"));
+                zip.write(code);
+            }
+            return bytes.toByteArray();
+        } catch (IOException exc) {
+            throw new RuntimeException(exc);
+        }
+    }
+
+    private void checkResponse(HttpResponse<String> response) throws IOException {
+        if (response.statusCode() >= 400 || mapper.readTree(response.body()).has("error"))
+            throw new IllegalStateException("Failed to create the test data: " + response.body());
+    }
+
+    private String getNamespace(int index) {
+        return "publisher" + index;
+    }
+
+    private String url(String... segments) {
+        return UrlUtil.createApiUrl(serverUrl, segments);
+    }
+
+}
@@ -17,21 +17,27 @@ import com.google.common.base.Strings;
 
 import org.eclipse.openvsx.entities.PersistedLog;
 import org.eclipse.openvsx.entities.UserData;
+import org.eclipse.openvsx.json.BulkheadJson;
 import org.eclipse.openvsx.json.ResultJson;
 import org.eclipse.openvsx.json.StatsJson;
 import org.eclipse.openvsx.repositories.RepositoryService;
 import org.eclipse.openvsx.search.SearchService;
+import org.eclipse.openvsx.snapshot.SnapshotService;
 import org.eclipse.openvsx.util.ErrorResultException;
 import org.eclipse.openvsx.util.TimeUtil;
+import org.eclipse.openvsx.web.BulkheadFilter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.util.Streamable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 public class AdminAPI {
@@ -48,6 +54,15 @@ public class AdminAPI {
     @Autowired
     SearchService search;
 
+    @Autowired
+    BulkImportService bulkImport;
+
+    @Autowired
+    SnapshotService snapshots;
+
+    @Autowired
+    BulkheadFilter bulkheadFilter;
+
     @GetMapping(
         path = "/admin/stats",
         produces = MediaType.APPLICATION_JSON_VALUE
@@ -64,6 +79,16 @@ public class AdminAPI {
         json.userCount = repositories.countUsers();
         json.extensionCount = repositories.countExtensions();
         json.namespaceCount = repositories.countNamespaces();
+        json.bulkheads = bulkheadFilter.getBulkheads().stream().map(bulkhead -> {
+            var bulkheadJson = new BulkheadJson();
+            bulkheadJson.name = bulkhead.getName();
+            bulkheadJson.maxConcurrent = bulkhead.getMaxConcurrent();
+            bulkheadJson.active = bulkhead.getActive();
+            bulkheadJson.waiting = bulkhead.getWaiting();
+            bulkheadJson.admitted = bulkhead.getAdmitted();
+            bulkheadJson.rejected = bulkhead.getRejected();
+            return bulkheadJson;
+        }).collect(Collectors.toList());
         return json;
     }
 
@@ -168,4 +193,63 @@ public class AdminAPI {
         }
     }
 
-}
\ No newline at end of file
+    @PostMapping(
+        path = "/admin/import",
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public ResultJson importExtensions(@RequestParam("token") String tokenValue,
+                                       @RequestParam("path") String path) {
+        var token = users.useAccessToken(tokenValue);
+        if (token == null) {
+            return ResultJson.error("Invalid access token.");
+        }
+        if (!UserData.ROLE_ADMIN.equals(token.getUser().getRole())) {
+            return ResultJson.error("Administration role is required.");
+        }
+        try {
+            return bulkImport.startImport(path, token.getUser());
+        } catch (ErrorResultException exc) {
+            return ResultJson.error(exc.getMessage());
+        }
+    }
+
+    @GetMapping(
+        path = "/admin/export",
+        produces = "application/gzip"
+    )
+    public ResponseEntity<StreamingResponseBody> exportSnapshot(@RequestParam("token") String tokenValue,
+                                                                @RequestParam(required = false) boolean blobs) {
+        var token = users.useAccessToken(tokenValue);
+        if (token == null) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Invalid access token.");
+        }
+        if (!UserData.ROLE_ADMIN.equals(token.getUser().getRole())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Administration role is required.");
+        }
+        var fileName = "openvsx-" + TimeUtil.getCurrentUTC().toLocalDate() + ".ndjson.gz";
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(output -> snapshots.exportSnapshot(output, blobs));
+    }
+
+    @PostMapping(
+        path = "/admin/import-snapshot",
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public ResultJson importSnapshot(@RequestParam("token") String tokenValue,
+                                     @RequestParam("path") String path) {
+        var token = users.useAccessToken(tokenValue);
+        if (token == null) {
+            return ResultJson.error("Invalid access token.");
+        }
+        if (!UserData.ROLE_ADMIN.equals(token.getUser().getRole())) {
+            return ResultJson.error("Administration role is required.");
+        }
+        try {
+            return snapshots.startImport(path, token.getUser());
+        } catch (ErrorResultException exc) {
+            return ResultJson.error(exc.getMessage());
+        }
+    }
+
+}
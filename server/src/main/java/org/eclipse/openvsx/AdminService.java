@@ -22,7 +22,7 @@ import org.eclipse.openvsx.entities.PersistedLog;
 import org.eclipse.openvsx.entities.UserData;
 import org.eclipse.openvsx.json.ResultJson;
 import org.eclipse.openvsx.repositories.RepositoryService;
-import org.eclipse.openvsx.search.SearchService;
+import org.eclipse.openvsx.search.SearchUpdateHandler;
 import org.eclipse.openvsx.util.ErrorResultException;
 import org.eclipse.openvsx.util.SemanticVersion;
 import org.eclipse.openvsx.util.TimeUtil;
@@ -42,7 +42,13 @@ public class AdminService {
     UserService users;
 
     @Autowired
-    SearchService search;
+    SearchUpdateHandler searchUpdates;
+
+    @Autowired
+    DependencyGraph dependencyGraph;
+
+    @Autowired
+    ChangeLogService changeLog;
 
     @Transactional(rollbackOn = ErrorResultException.class)
     public ResultJson deleteExtension(String namespaceName, String extensionName, String version, UserData admin)
@@ -88,7 +94,9 @@ public class AdminService {
             entityManager.remove(review);
         }
         entityManager.remove(extension);
-        search.removeSearchEntry(extension);
+        searchUpdates.schedule(extension);
+        dependencyGraph.removeExtension(extension);
+        changeLog.logDelete(extension);
 
         var result = ResultJson.success("Deleted " + namespace.getName() + "." + extension.getName());
         logAdminAction(admin, result);
@@ -113,6 +121,8 @@ public class AdminService {
             versions.remove(extVersion);
             extension.setPreview(getLatestVersion(versions, true));
         }
+        dependencyGraph.removeVersion(extVersion);
+        changeLog.logDelete(extVersion);
     
         var result = ResultJson.success("Deleted " + extension.getNamespace().getName() + "." + extension.getName() + " version " + extVersion.getVersion());
         logAdminAction(admin, result);
@@ -121,6 +131,7 @@ public class AdminService {
 
     private void removeExtensionVersion(ExtensionVersion extVersion) {
         repositories.findFiles(extVersion).forEach(file -> entityManager.remove(file));
+        repositories.deleteArchiveEntries(extVersion);
         entityManager.remove(extVersion);
     }
 
@@ -161,7 +172,7 @@ public class AdminService {
             result = users.addNamespaceMember(namespace, user, role);
         }
         for (var extension : repositories.findExtensions(namespace)) {
-            search.updateSearchEntry(extension);
+            searchUpdates.schedule(extension);
         }
         logAdminAction(admin, result);
         return result;
@@ -169,7 +180,8 @@ public class AdminService {
 
     @Transactional
     public void logAdminAction(UserData admin, ResultJson result) {
-        if (result.success != null) {
+        // Changes replicated from an upstream registry have no admin
+        if (result.success != null && admin != null) {
             var log = new PersistedLog();
             log.setUser(admin);
             log.setTimestamp(TimeUtil.getCurrentUTC());
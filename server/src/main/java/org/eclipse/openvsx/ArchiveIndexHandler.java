@@ -0,0 +1,190 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+
+import org.eclipse.openvsx.db.LeaderElection;
+import org.eclipse.openvsx.entities.ArchiveEntry;
+import org.eclipse.openvsx.entities.ExtensionVersion;
+import org.eclipse.openvsx.entities.FileResource;
+import org.eclipse.openvsx.jobs.JobHandler;
+import org.eclipse.openvsx.jobs.JobQueue;
+import org.eclipse.openvsx.repositories.RepositoryService;
+import org.eclipse.openvsx.util.ArchiveUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Indexes the central directory of extension packages, so single files can be served
+ * from the stored package by reading only their byte range. Packages are indexed when
+ * they are published; versions that were published before the index was introduced are
+ * processed as queued jobs. Versions are marked when they are processed, so packages
+ * without readable entries are not queued again.
+ */
+@Component
+public class ArchiveIndexHandler implements JobHandler<Long> {
+
+    public static final String TYPE = "archive-index";
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIR = 0x06054b50;
+    private static final int END_OF_CENTRAL_DIR_SIZE = 22;
+    private static final long ZIP64_MAGIC = 0xffffffffL;
+    private static final int MAX_NAME_LENGTH = 1024;
+
+    protected final Logger logger = LoggerFactory.getLogger(ArchiveIndexHandler.class);
+
+    @Autowired
+    RepositoryService repositories;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    LeaderElection leaderElection;
+
+    @Autowired
+    JobQueue jobs;
+
+    @EventListener
+    @Transactional
+    public void initArchiveIndex(ApplicationStartedEvent event) {
+        leaderElection.runExclusively(TYPE, () -> {
+            var count = new int[1];
+            repositories.findUnindexedVersionIds().forEach(id -> {
+                jobs.enqueue(TYPE, id);
+                count[0]++;
+            });
+            if (count[0] > 0)
+                logger.info("Queued archive indexing for " + count[0] + " extension versions.");
+        });
+    }
+
+    /**
+     * Store the entries of the given package and mark the version as indexed, also if no
+     * entries could be read. This must be called within a transaction.
+     */
+    public void index(ExtensionVersion extVersion, byte[] archive) {
+        for (var entry : readCentralDirectory(archive)) {
+            entry.setExtension(extVersion);
+            entityManager.persist(entry);
+        }
+        extVersion.setArchiveIndexed(true);
+    }
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    public Class<Long> getPayloadType() {
+        return Long.class;
+    }
+
+    @Override
+    public void handle(Long extVersionId) {
+        var extVersion = entityManager.find(ExtensionVersion.class, extVersionId);
+        if (extVersion == null || extVersion.isArchiveIndexed())
+            return;
+        var download = repositories.findFile(extVersion, FileResource.DOWNLOAD);
+        if (download == null)
+            extVersion.setArchiveIndexed(true);
+        else
+            index(extVersion, download.getContent());
+    }
+
+    /**
+     * Read the entries of a zip archive from its central directory. Directories and entries
+     * that cannot be served from their byte range, e.g. because they are encrypted, use an
+     * unsupported compression method or the zip64 format, are skipped. Returns an empty list
+     * if the central directory cannot be found.
+     */
+    static List<ArchiveEntry> readCentralDirectory(byte[] archive) {
+        var result = new ArrayList<ArchiveEntry>();
+        var buffer = ByteBuffer.wrap(archive).order(ByteOrder.LITTLE_ENDIAN);
+        var end = findEndOfCentralDirectory(buffer);
+        if (end < 0)
+            return result;
+        var count = Short.toUnsignedInt(buffer.getShort(end + 10));
+        var position = Integer.toUnsignedLong(buffer.getInt(end + 16));
+        var names = new HashSet<String>();
+        for (var i = 0; i < count; i++) {
+            if (position + 46 > archive.length || buffer.getInt((int) position) != CENTRAL_HEADER)
+                break;
+            var header = (int) position;
+            var flags = Short.toUnsignedInt(buffer.getShort(header + 8));
+            var method = Short.toUnsignedInt(buffer.getShort(header + 10));
+            var crc = Integer.toUnsignedLong(buffer.getInt(header + 16));
+            var compressedSize = Integer.toUnsignedLong(buffer.getInt(header + 20));
+            var size = Integer.toUnsignedLong(buffer.getInt(header + 24));
+            var nameLength = Short.toUnsignedInt(buffer.getShort(header + 28));
+            var extraLength = Short.toUnsignedInt(buffer.getShort(header + 30));
+            var commentLength = Short.toUnsignedInt(buffer.getShort(header + 32));
+            var localOffset = Integer.toUnsignedLong(buffer.getInt(header + 42));
+            position += 46 + nameLength + extraLength + commentLength;
+            if (header + 46 + nameLength > archive.length)
+                break;
+            var name = new String(archive, header + 46, nameLength, StandardCharsets.UTF_8).replace('\\', '/');
+
+            if (name.endsWith("/") || name.length() > MAX_NAME_LENGTH || (flags & 1) != 0
+                    || (method != ArchiveEntry.METHOD_STORED && method != ArchiveEntry.METHOD_DEFLATED)
+                    || compressedSize == ZIP64_MAGIC || size == ZIP64_MAGIC || localOffset == ZIP64_MAGIC
+                    || size > ArchiveUtil.MAX_ENTRY_SIZE || !names.add(name))
+                continue;
+            var dataOffset = getDataOffset(buffer, localOffset);
+            if (dataOffset < 0 || dataOffset + compressedSize > archive.length)
+                continue;
+
+            var entry = new ArchiveEntry();
+            entry.setName(name);
+            entry.setDataOffset(dataOffset);
+            entry.setCompressedSize(compressedSize);
+            entry.setSize(size);
+            entry.setMethod(method);
+            entry.setCrc(crc);
+            result.add(entry);
+        }
+        return result;
+    }
+
+    private static int findEndOfCentralDirectory(ByteBuffer buffer) {
+        var limit = Math.max(buffer.limit() - END_OF_CENTRAL_DIR_SIZE - 0xffff, 0);
+        for (var i = buffer.limit() - END_OF_CENTRAL_DIR_SIZE; i >= limit; i--) {
+            if (buffer.getInt(i) == END_OF_CENTRAL_DIR)
+                return i;
+        }
+        return -1;
+    }
+
+    private static long getDataOffset(ByteBuffer buffer, long localOffset) {
+        if (localOffset + 30 > buffer.limit() || buffer.getInt((int) localOffset) != LOCAL_HEADER)
+            return -1;
+        var header = (int) localOffset;
+        var nameLength = Short.toUnsignedInt(buffer.getShort(header + 26));
+        var extraLength = Short.toUnsignedInt(buffer.getShort(header + 28));
+        return localOffset + 30 + nameLength + extraLength;
+    }
+
+}
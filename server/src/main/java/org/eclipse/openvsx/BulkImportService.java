@@ -0,0 +1,397 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.zip.ZipFile;
+
+import com.google.common.collect.Lists;
+
+import org.eclipse.openvsx.entities.ExtensionVersion;
+import org.eclipse.openvsx.entities.FileResource;
+import org.eclipse.openvsx.entities.UserData;
+import org.eclipse.openvsx.json.ResultJson;
+import org.eclipse.openvsx.search.SearchService;
+import org.eclipse.openvsx.util.ErrorResultException;
+import org.eclipse.openvsx.util.SemanticVersion;
+import org.eclipse.openvsx.util.TimeUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StopWatch;
+
+/**
+ * Imports all extension packages found in a directory or zip archive. The packages are
+ * read on a worker pool, sorted so that referenced extensions are imported first, and
+ * stored in batches with one transaction each. The search index is rebuilt once at the end.
+ */
+@Component
+public class BulkImportService {
+
+    protected final Logger logger = LoggerFactory.getLogger(BulkImportService.class);
+
+    @Autowired
+    LocalRegistryService local;
+
+    @Autowired
+    AdminService admins;
+
+    @Autowired
+    SearchService search;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Value("${ovsx.licenses.detect:}")
+    String[] detectedLicenseIds;
+
+    @Value("${ovsx.import.max-concurrency:4}")
+    int maxConcurrency;
+
+    @Value("${ovsx.import.batch-size:50}")
+    int batchSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * Import the extension packages at the given location, which is either a directory
+     * (searched recursively for {@code .vsix} files) or a zip archive containing such files.
+     * The import runs in the background; its result is written to the admin log.
+     */
+    public ResultJson startImport(String location, UserData admin) {
+        var path = Path.of(location);
+        if (!Files.exists(path))
+            throw new ErrorResultException("File not found: " + location);
+        if (!running.compareAndSet(false, true))
+            throw new ErrorResultException("Another import is already running.");
+        var thread = new Thread(() -> {
+            try {
+                var result = importExtensions(path);
+                admins.logAdminAction(admin, result);
+            } catch (RuntimeException exc) {
+                logger.error("Import from " + location + " failed", exc);
+            } finally {
+                running.set(false);
+            }
+        }, "bulk-import");
+        thread.start();
+        return ResultJson.success("Started import from " + location);
+    }
+
+    /**
+     * Import the extension packages at the given location and wait until it is finished.
+     */
+    public ResultJson importExtensions(Path path) {
+        var stopWatch = new StopWatch();
+        stopWatch.start();
+        Path tempDir = null;
+        var executor = Executors.newFixedThreadPool(Math.max(maxConcurrency, 1));
+        try {
+            List<Path> files;
+            if (Files.isDirectory(path)) {
+                files = findPackages(path);
+            } else {
+                tempDir = Files.createTempDirectory("import_");
+                files = extractPackages(path, tempDir);
+            }
+
+            var failures = new LinkedHashMap<Path, String>();
+            var manifests = readManifests(files, executor, failures);
+            var levels = sortByDependencies(manifests, failures);
+            var imported = 0;
+            for (var level : levels) {
+                for (var batch : Lists.partition(level, Math.max(batchSize, 1))) {
+                    imported += importBatch(batch, executor, failures);
+                }
+            }
+
+            if (search.isEnabled()) {
+                new TransactionTemplate(transactionManager).execute(status -> {
+                    search.updateSearchIndex();
+                    return null;
+                });
+            }
+            stopWatch.stop();
+            failures.forEach((file, message) -> logger.warn("Could not import " + file + ": " + message));
+            logger.info("Imported " + imported + " extension versions from " + path + " in "
+                    + stopWatch.getTotalTimeMillis() + " ms");
+            var message = "Imported " + imported + " extension versions from " + path;
+            if (!failures.isEmpty())
+                message += " (" + failures.size() + " failed: "
+                        + failures.keySet().stream().map(file -> file.getFileName().toString()).collect(Collectors.joining(", "))
+                        + ")";
+            return ResultJson.success(message);
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        } finally {
+            executor.shutdownNow();
+            if (tempDir != null)
+                deleteDirectory(tempDir);
+        }
+    }
+
+    private List<Path> findPackages(Path directory) throws IOException {
+        try (var stream = Files.walk(directory)) {
+            return stream
+                    .filter(file -> Files.isRegularFile(file) && isPackage(file.getFileName().toString()))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private List<Path> extractPackages(Path archive, Path targetDir) throws IOException {
+        var files = new ArrayList<Path>();
+        try (var zipFile = new ZipFile(archive.toFile())) {
+            var entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                var entry = entries.nextElement();
+                if (entry.isDirectory() || !isPackage(entry.getName()))
+                    continue;
+                var file = targetDir.resolve(files.size() + "_" + Path.of(entry.getName()).getFileName());
+                try (var stream = zipFile.getInputStream(entry)) {
+                    Files.copy(stream, file);
+                }
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    private boolean isPackage(String fileName) {
+        return fileName.toLowerCase().endsWith(".vsix");
+    }
+
+    private void deleteDirectory(Path directory) {
+        try (var stream = Files.walk(directory)) {
+            stream.sorted(Collections.reverseOrder()).forEach(file -> file.toFile().delete());
+        } catch (IOException exc) {
+            logger.warn("Could not delete " + directory, exc);
+        }
+    }
+
+    private List<Manifest> readManifests(List<Path> files, ExecutorService executor, Map<Path, String> failures) {
+        var futures = new ArrayList<Future<Manifest>>(files.size());
+        for (var file : files) {
+            futures.add(executor.submit(() -> {
+                try (var stream = Files.newInputStream(file); var processor = new ExtensionProcessor(stream)) {
+                    var manifest = new Manifest(file);
+                    manifest.key = (processor.getNamespace() + "." + processor.getExtensionName()).toLowerCase();
+                    manifest.version = processor.getVersion();
+                    manifest.references = new ArrayList<>();
+                    processor.getExtensionDependencies().forEach(ref -> manifest.references.add(ref.toLowerCase()));
+                    processor.getBundledExtensions().forEach(ref -> manifest.references.add(ref.toLowerCase()));
+                    return manifest;
+                }
+            }));
+        }
+        var manifests = new ArrayList<Manifest>(files.size());
+        for (var i = 0; i < files.size(); i++) {
+            var manifest = await(futures.get(i), files.get(i), failures);
+            if (manifest != null)
+                manifests.add(manifest);
+        }
+        return manifests;
+    }
+
+    /**
+     * Group the packages into levels such that each package references only extensions
+     * of preceding levels or extensions that are not part of the import.
+     */
+    private List<List<Manifest>> sortByDependencies(List<Manifest> manifests, Map<Path, String> failures) {
+        var byExtension = new LinkedHashMap<String, List<Manifest>>();
+        manifests.forEach(manifest -> byExtension.computeIfAbsent(manifest.key, key -> new ArrayList<>()).add(manifest));
+
+        // Kahn's algorithm applied to extensions, since any version satisfies a reference
+        var inDegree = new HashMap<String, Integer>();
+        var referencedBy = new HashMap<String, List<String>>();
+        byExtension.forEach((key, versions) -> {
+            var targets = versions.stream()
+                    .flatMap(manifest -> manifest.references.stream())
+                    .filter(target -> !target.equals(key) && byExtension.containsKey(target))
+                    .distinct()
+                    .collect(Collectors.toList());
+            inDegree.put(key, targets.size());
+            targets.forEach(target -> referencedBy.computeIfAbsent(target, t -> new ArrayList<>()).add(key));
+        });
+        var levels = new ArrayList<List<Manifest>>();
+        var current = byExtension.keySet().stream()
+                .filter(key -> inDegree.get(key) == 0)
+                .collect(Collectors.toList());
+        while (!current.isEmpty()) {
+            var level = new ArrayList<Manifest>();
+            var next = new ArrayList<String>();
+            for (var key : current) {
+                var versions = byExtension.remove(key);
+                versions.sort((m1, m2) -> compareVersions(m1.version, m2.version));
+                level.addAll(versions);
+                for (var source : referencedBy.getOrDefault(key, Collections.emptyList())) {
+                    if (inDegree.merge(source, -1, Integer::sum) == 0)
+                        next.add(source);
+                }
+            }
+            levels.add(level);
+            current = next;
+        }
+        // The remaining extensions are part of a reference cycle
+        byExtension.values().forEach(versions -> versions.forEach(manifest ->
+                failures.put(manifest.file, "Cyclic reference of " + manifest.key)));
+        return levels;
+    }
+
+    private int compareVersions(String v1, String v2) {
+        try {
+            return new SemanticVersion(v1).compareTo(new SemanticVersion(v2));
+        } catch (RuntimeException exc) {
+            return String.valueOf(v1).compareTo(String.valueOf(v2));
+        }
+    }
+
+    private int importBatch(List<Manifest> batch, ExecutorService executor, Map<Path, String> failures) {
+        // Extract metadata and resources in parallel, then store them in a single transaction
+        var futures = new ArrayList<Future<Prepared>>(batch.size());
+        for (var manifest : batch) {
+            futures.add(executor.submit(prepare(manifest)));
+        }
+        var prepared = new ArrayList<Prepared>(batch.size());
+        try {
+            for (var i = 0; i < batch.size(); i++) {
+                var result = await(futures.get(i), batch.get(i).file, failures);
+                if (result != null)
+                    prepared.add(result);
+            }
+            if (prepared.isEmpty())
+                return 0;
+            var timestamp = TimeUtil.getCurrentUTC();
+            var transactions = new TransactionTemplate(transactionManager);
+            try {
+                transactions.execute(status -> {
+                    for (var item : prepared) {
+                        local.importExtension(item.processor, item.metadata, item.resources, timestamp);
+                    }
+                    return null;
+                });
+                return prepared.size();
+            } catch (RuntimeException exc) {
+                // Import the packages one by one to isolate the failing ones
+                return importSingle(prepared, transactions, timestamp, failures);
+            }
+        } finally {
+            futures.forEach(this::closeProcessor);
+        }
+    }
+
+    private int importSingle(List<Prepared> prepared, TransactionTemplate transactions, LocalDateTime timestamp,
+            Map<Path, String> failures) {
+        var imported = 0;
+        for (var item : prepared) {
+            try {
+                transactions.execute(status -> {
+                    // The entities of the failed batch cannot be reused
+                    local.importExtension(item.processor, item.processor.getMetadata(), null, timestamp);
+                    return null;
+                });
+                imported++;
+            } catch (RuntimeException exc) {
+                if (!(exc instanceof ErrorResultException))
+                    logger.error("Could not import " + item.file, exc);
+                failures.put(item.file, exc.getMessage());
+            }
+        }
+        return imported;
+    }
+
+    private Callable<Prepared> prepare(Manifest manifest) {
+        return () -> {
+            try (var stream = Files.newInputStream(manifest.file)) {
+                var processor = new ExtensionProcessor(stream, Arrays.asList(detectedLicenseIds));
+                try {
+                    var metadata = processor.getMetadata();
+                    return new Prepared(manifest.file, processor, metadata, processor.getResources(metadata));
+                } catch (RuntimeException exc) {
+                    processor.close();
+                    throw exc;
+                }
+            }
+        };
+    }
+
+    private void closeProcessor(Future<Prepared> future) {
+        try {
+            future.get().processor.close();
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException exc) {
+            // The processor was already closed
+        }
+    }
+
+    private <T> T await(Future<T> future, Path file, Map<Path, String> failures) {
+        try {
+            return future.get();
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            throw new ErrorResultException("Import was interrupted.");
+        } catch (ExecutionException exc) {
+            var cause = exc.getCause();
+            if (!(cause instanceof ErrorResultException))
+                logger.error("Could not read " + file, cause);
+            failures.put(file, cause.getMessage());
+            return null;
+        }
+    }
+
+    private static class Manifest {
+        final Path file;
+        String key;
+        String version;
+        List<String> references;
+
+        Manifest(Path file) {
+            this.file = file;
+        }
+    }
+
+    private static class Prepared {
+        final Path file;
+        final ExtensionProcessor processor;
+        final ExtensionVersion metadata;
+        final List<FileResource> resources;
+
+        Prepared(Path file, ExtensionProcessor processor, ExtensionVersion metadata, List<FileResource> resources) {
+            this.file = file;
+            this.processor = processor;
+            this.metadata = metadata;
+            this.resources = resources;
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx;
+
+import static org.eclipse.openvsx.util.UrlUtil.createApiUrl;
+
+import javax.persistence.EntityManager;
+
+import org.eclipse.openvsx.entities.ChangeLogEntry;
+import org.eclipse.openvsx.entities.Extension;
+import org.eclipse.openvsx.entities.ExtensionVersion;
+import org.eclipse.openvsx.entities.Namespace;
+import org.eclipse.openvsx.json.ChangeListJson;
+import org.eclipse.openvsx.repositories.RepositoryService;
+import org.eclipse.openvsx.util.TimeUtil;
+import org.eclipse.openvsx.util.UrlUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records changes of the registry content so they can be replayed by mirrors and clients.
+ * Entries must be added within the transaction that makes the change, preferably as its
+ * last database operation.
+ */
+@Component
+public class ChangeLogService {
+
+    /**
+     * Key of the transaction-level advisory lock that serializes writers of the change log.
+     * Since entry ids are assigned while holding the lock, they increase in commit order
+     * and readers never miss an entry that is committed after they have passed its id.
+     */
+    private static final long LOCK_KEY = 0x6f7673786c6f67L;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    RepositoryService repositories;
+
+    public void logPublish(ExtensionVersion extVersion) {
+        var extension = extVersion.getExtension();
+        log(ChangeLogEntry.PUBLISH, extension.getNamespace(), extension, extVersion.getVersion());
+    }
+
+    public void logDelete(Extension extension) {
+        log(ChangeLogEntry.DELETE, extension.getNamespace(), extension, null);
+    }
+
+    public void logDelete(ExtensionVersion extVersion) {
+        var extension = extVersion.getExtension();
+        log(ChangeLogEntry.DELETE, extension.getNamespace(), extension, extVersion.getVersion());
+    }
+
+    public void logReviews(Extension extension) {
+        log(ChangeLogEntry.REVIEW, extension.getNamespace(), extension, null);
+    }
+
+    public void logNamespace(Namespace namespace) {
+        log(ChangeLogEntry.NAMESPACE, namespace, null, null);
+    }
+
+    private void log(String type, Namespace namespace, Extension extension, String version) {
+        entityManager.createNativeQuery("SELECT count(*) FROM pg_advisory_xact_lock(:key)")
+                .setParameter("key", LOCK_KEY)
+                .getSingleResult();
+        var entry = new ChangeLogEntry();
+        entry.setTimestamp(TimeUtil.getCurrentUTC());
+        entry.setType(type);
+        entry.setNamespace(namespace.getName());
+        if (extension != null)
+            entry.setExtension(extension.getName());
+        entry.setVersion(version);
+        entityManager.persist(entry);
+    }
+
+    public ChangeListJson getChanges(long since, int limit) {
+        var serverUrl = UrlUtil.getBaseUrl();
+        var json = new ChangeListJson();
+        json.cursor = since;
+        json.changes = repositories.findChangesAfter(since, limit).map(entry -> {
+            var change = entry.toChangeJson();
+            if (change.extension == null)
+                change.url = createApiUrl(serverUrl, "api", change.namespace);
+            else
+                change.url = createApiUrl(serverUrl, "api", change.namespace, change.extension);
+            json.cursor = Math.max(json.cursor, change.id);
+            return change;
+        }).toList();
+        return json;
+    }
+
+}
@@ -0,0 +1,350 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.eclipse.openvsx.entities.Extension;
+import org.eclipse.openvsx.entities.ExtensionVersion;
+import org.eclipse.openvsx.repositories.RepositoryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.util.Pair;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StopWatch;
+
+/**
+ * In-memory index of the dependencies and bundled extensions of all extension versions.
+ * The index is loaded from the database on first use and updated when a transaction that
+ * publishes or deletes extensions is committed.
+ *
+ * <p>Changes made by other server instances are not reflected until they are encountered
+ * during a resolution: the latest versions of all extensions that take part in a resolution
+ * are checked against the database, and the resolution is repeated if any of them changed.</p>
+ */
+@Component
+public class DependencyGraph {
+
+    protected final ReadWriteLock rwLock = new ReentrantReadWriteLock();
+    protected final Logger logger = LoggerFactory.getLogger(DependencyGraph.class);
+
+    @Autowired
+    RepositoryService repositories;
+
+    private volatile boolean initialized;
+    /** Extension version id to node. */
+    private final Map<Long, Node> versions = new HashMap<>();
+    /** Extension id to the id of its latest version. */
+    private final Map<Long, Long> latestVersions = new HashMap<>();
+
+    private void ensureInitialized() {
+        if (initialized)
+            return;
+        try {
+            rwLock.writeLock().lock();
+            if (initialized)
+                return;
+            var stopWatch = new StopWatch();
+            stopWatch.start();
+            var dependencies = new HashMap<Long, List<Long>>();
+            repositories.findAllVersionDependencyIds().forEach(pair ->
+                dependencies.computeIfAbsent(pair.source, id -> new ArrayList<>()).add(pair.target)
+            );
+            var bundledExtensions = new HashMap<Long, List<Long>>();
+            repositories.findAllVersionBundledExtensionIds().forEach(pair ->
+                bundledExtensions.computeIfAbsent(pair.source, id -> new ArrayList<>()).add(pair.target)
+            );
+            repositories.findAllVersionExtensionIds().forEach(pair ->
+                putNode(pair.source, new Node(pair.target,
+                        toArray(dependencies.get(pair.source)), toArray(bundledExtensions.get(pair.source))))
+            );
+            repositories.findAllLatestVersionIds().forEach(pair ->
+                latestVersions.put(pair.source, pair.target)
+            );
+            initialized = true;
+            stopWatch.stop();
+            logger.info("Initialized dependency graph with " + versions.size() + " extension versions in "
+                    + stopWatch.getTotalTimeMillis() + " ms");
+        } finally {
+            rwLock.writeLock().unlock();
+        }
+    }
+
+    private static long[] toArray(Collection<Long> ids) {
+        if (ids == null)
+            return new long[0];
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Add a published extension version to the index once the current transaction is committed.
+     */
+    public void addVersion(ExtensionVersion extVersion) {
+        var versionId = extVersion.getId();
+        var node = toNode(extVersion);
+        var extension = extVersion.getExtension();
+        var latest = extension.getLatest();
+        var latestId = latest != null ? latest.getId() : null;
+        afterCommit(() -> update(() -> {
+            putNode(versionId, node);
+            updateLatest(node.extensionId, latestId);
+        }));
+    }
+
+    /**
+     * Remove a deleted extension version from the index once the current transaction is committed.
+     * The latest version of the extension must already be updated.
+     */
+    public void removeVersion(ExtensionVersion extVersion) {
+        var versionId = extVersion.getId();
+        var extension = extVersion.getExtension();
+        var latest = extension.getLatest();
+        var latestId = latest != null ? latest.getId() : null;
+        var extensionId = extension.getId();
+        afterCommit(() -> update(() -> {
+            removeNode(versionId);
+            updateLatest(extensionId, latestId);
+        }));
+    }
+
+    /**
+     * Remove a deleted extension with all its versions from the index once the current
+     * transaction is committed.
+     */
+    public void removeExtension(Extension extension) {
+        var extensionId = extension.getId();
+        afterCommit(() -> update(() -> {
+            versions.values().removeIf(node -> node.extensionId == extensionId);
+            latestVersions.remove(extensionId);
+        }));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void update(Runnable action) {
+        // Changes before initialization are picked up when the index is loaded
+        if (!initialized)
+            return;
+        try {
+            rwLock.writeLock().lock();
+            action.run();
+        } finally {
+            rwLock.writeLock().unlock();
+        }
+    }
+
+    private Node toNode(ExtensionVersion extVersion) {
+        var dependencies = extVersion.getDependencies();
+        var bundledExtensions = extVersion.getBundledExtensions();
+        return new Node(extVersion.getExtension().getId(),
+                dependencies != null ? dependencies.stream().mapToLong(Extension::getId).toArray() : new long[0],
+                bundledExtensions != null ? bundledExtensions.stream().mapToLong(Extension::getId).toArray() : new long[0]);
+    }
+
+    private void putNode(long versionId, Node node) {
+        versions.put(versionId, node);
+    }
+
+    private void removeNode(long versionId) {
+        versions.remove(versionId);
+    }
+
+    private void updateLatest(long extensionId, Long latestId) {
+        if (latestId != null)
+            latestVersions.put(extensionId, latestId);
+        else
+            latestVersions.remove(extensionId);
+    }
+
+    /**
+     * Compute the transitive closure of dependencies and bundled extensions of the given
+     * extension version. Referenced extensions are resolved to their latest version.
+     */
+    public Resolution resolve(ExtensionVersion root) {
+        ensureInitialized();
+        if (!contains(root.getId())) {
+            var rootNode = toNode(root);
+            update(() -> putNode(root.getId(), rootNode));
+        }
+        var resolution = traverse(root.getId());
+        var checked = new HashSet<Long>();
+        while (true) {
+            // The index is only updated by writes of this server instance, so the latest versions
+            // of all referenced extensions are checked against the database
+            var unchecked = new HashSet<Long>(resolution.missingExtensions);
+            resolution.versions.values().forEach(node -> unchecked.add(node.extensionId));
+            unchecked.removeAll(checked);
+            if (unchecked.isEmpty() || !refreshLatest(unchecked))
+                break;
+            checked.addAll(unchecked);
+            resolution = traverse(root.getId());
+        }
+        return resolution;
+    }
+
+    /**
+     * Update the latest versions of the given extensions from the database.
+     * Returns {@code true} if any of them has changed.
+     */
+    private boolean refreshLatest(Collection<Long> extensionIds) {
+        var latest = new HashMap<Long, Long>();
+        repositories.findLatestVersionIds(extensionIds).forEach(pair -> latest.put(pair.source, pair.target));
+        var changed = new ArrayList<Long>();
+        var unknownVersions = new ArrayList<Long>();
+        try {
+            rwLock.readLock().lock();
+            for (var extensionId : extensionIds) {
+                var latestId = latest.get(extensionId);
+                if (!Objects.equals(latestVersions.get(extensionId), latestId))
+                    changed.add(extensionId);
+                if (latestId != null && !versions.containsKey(latestId)) {
+                    changed.add(extensionId);
+                    unknownVersions.add(latestId);
+                }
+            }
+        } finally {
+            rwLock.readLock().unlock();
+        }
+        if (changed.isEmpty())
+            return false;
+        var nodes = new HashMap<Long, Node>();
+        if (!unknownVersions.isEmpty())
+            repositories.findVersions(unknownVersions).forEach(extVersion -> nodes.put(extVersion.getId(), toNode(extVersion)));
+        update(() -> {
+            nodes.forEach(this::putNode);
+            changed.forEach(extensionId -> updateLatest(extensionId, latest.get(extensionId)));
+        });
+        return true;
+    }
+
+    private boolean contains(long versionId) {
+        try {
+            rwLock.readLock().lock();
+            return versions.containsKey(versionId);
+        } finally {
+            rwLock.readLock().unlock();
+        }
+    }
+
+    private Resolution traverse(long rootId) {
+        try {
+            rwLock.readLock().lock();
+            var resolution = new Resolution();
+            var root = versions.get(rootId);
+            if (root == null)
+                return resolution;
+            // Depth-first search: true while an extension is on the stack, false when it's done
+            var visiting = new HashMap<Long, Boolean>();
+            var stack = new ArrayDeque<Frame>();
+            visiting.put(root.extensionId, true);
+            stack.push(new Frame(rootId, root));
+            while (!stack.isEmpty()) {
+                var frame = stack.peek();
+                if (frame.hasNext()) {
+                    var target = frame.next();
+                    var state = visiting.get(target);
+                    if (state == null) {
+                        var targetId = latestVersions.get(target);
+                        var targetNode = targetId != null ? versions.get(targetId) : null;
+                        if (targetNode == null) {
+                            resolution.missingExtensions.add(target);
+                            visiting.put(target, false);
+                        } else {
+                            visiting.put(target, true);
+                            stack.push(new Frame(targetId, targetNode));
+                        }
+                    } else if (state) {
+                        resolution.cycles.add(Pair.of(frame.node.extensionId, target));
+                    }
+                } else {
+                    stack.pop();
+                    visiting.put(frame.node.extensionId, false);
+                    resolution.versions.put(frame.versionId, frame.node);
+                }
+            }
+            return resolution;
+        } finally {
+            rwLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Dependencies and bundled extensions of an extension version, given by extension ids.
+     */
+    public static class Node {
+        public final long extensionId;
+        public final long[] dependencies;
+        public final long[] bundledExtensions;
+
+        Node(long extensionId, long[] dependencies, long[] bundledExtensions) {
+            this.extensionId = extensionId;
+            this.dependencies = dependencies;
+            this.bundledExtensions = bundledExtensions;
+        }
+    }
+
+    private static class Frame {
+        final long versionId;
+        final Node node;
+        int index;
+
+        Frame(long versionId, Node node) {
+            this.versionId = versionId;
+            this.node = node;
+        }
+
+        boolean hasNext() {
+            return index < node.dependencies.length + node.bundledExtensions.length;
+        }
+
+        long next() {
+            var i = index++;
+            if (i < node.dependencies.length)
+                return node.dependencies[i];
+            return node.bundledExtensions[i - node.dependencies.length];
+        }
+    }
+
+    public static class Resolution {
+        /** Resolved versions by id, ordered so that each version comes after everything it references. */
+        public final Map<Long, Node> versions = new LinkedHashMap<>();
+        /** References (source extension id, target extension id) that close a cycle. */
+        public final List<Pair<Long, Long>> cycles = new ArrayList<>();
+        /** Referenced extensions that have no known version. */
+        public final Set<Long> missingExtensions = new LinkedHashSet<>();
+    }
+
+}
@@ -0,0 +1,79 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PreDestroy;
+
+import org.eclipse.openvsx.entities.Extension;
+import org.eclipse.openvsx.repositories.RepositoryService;
+import org.eclipse.openvsx.search.SearchUpdateHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Counts the downloads of extensions in memory and adds them to the database in batches,
+ * so a download does not need to update the extension row and queue a search update.
+ * Counts that were not written yet are lost if the node stops unexpectedly.
+ */
+@Component
+public class DownloadCountService {
+
+    protected final Logger logger = LoggerFactory.getLogger(DownloadCountService.class);
+
+    @Autowired
+    RepositoryService repositories;
+
+    @Autowired
+    SearchUpdateHandler searchUpdates;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private final Map<Long, Integer> pendingCounts = new ConcurrentHashMap<>();
+
+    public void increment(Extension extension) {
+        pendingCounts.merge(extension.getId(), 1, Integer::sum);
+    }
+
+    @Scheduled(fixedDelayString = "${ovsx.downloads.flush-interval:10000}")
+    @PreDestroy
+    public void flush() {
+        var counts = new HashMap<Long, Integer>();
+        for (var extensionId : pendingCounts.keySet()) {
+            var count = pendingCounts.remove(extensionId);
+            if (count != null)
+                counts.put(extensionId, count);
+        }
+        if (counts.isEmpty())
+            return;
+        try {
+            new TransactionTemplate(transactionManager).execute(status -> {
+                counts.forEach((extensionId, count) -> {
+                    if (repositories.addDownloadCount(extensionId, count) > 0)
+                        searchUpdates.schedule(extensionId);
+                });
+                return null;
+            });
+        } catch (RuntimeException exc) {
+            logger.warn("Could not update download counts, retrying with the next flush", exc);
+            counts.forEach((extensionId, count) -> pendingCounts.merge(extensionId, count, Integer::sum));
+        }
+    }
+
+}
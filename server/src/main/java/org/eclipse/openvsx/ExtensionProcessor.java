@@ -23,14 +23,17 @@ import java.util.zip.ZipFile;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
 import com.google.common.io.ByteStreams;
 import com.google.common.io.Files;
 
 import org.eclipse.openvsx.entities.ExtensionVersion;
 import org.eclipse.openvsx.entities.FileResource;
+import org.eclipse.openvsx.jfr.PublishStageEvent;
 import org.eclipse.openvsx.util.ArchiveUtil;
 import org.eclipse.openvsx.util.ErrorResultException;
 import org.eclipse.openvsx.util.LicenseDetection;
+import org.eclipse.openvsx.util.VersionRange;
 import org.elasticsearch.common.Strings;
 import org.springframework.data.util.Pair;
 
@@ -47,6 +50,7 @@ public class ExtensionProcessor implements AutoCloseable {
     private final InputStream inputStream;
     private final List<String> detectedLicenseIds;
     private byte[] content;
+    private File tempFile;
     private ZipFile zipFile;
     private JsonNode packageJson;
     private JsonNode packageNlsJson;
@@ -69,17 +73,23 @@ public class ExtensionProcessor implements AutoCloseable {
                 throw new RuntimeException(exc);
             }
         }
+        if (tempFile != null) {
+            tempFile.delete();
+        }
     }
 
     private void readInputStream() {
         if (zipFile != null) {
             return;
         }
+        var event = new PublishStageEvent();
+        event.begin();
         try {
             content = ByteStreams.toByteArray(inputStream);
-            var tempFile = File.createTempFile("extension_", ".vsix");
+            tempFile = File.createTempFile("extension_", ".vsix");
             Files.write(content, tempFile);
             zipFile = new ZipFile(tempFile);
+            commit(event, PublishStageEvent.READ, content.length);
         } catch (ZipException exc) {
             throw new ErrorResultException("Could not read zip file: " + exc.getMessage());
         } catch (EOFException exc) {
@@ -94,6 +104,8 @@ public class ExtensionProcessor implements AutoCloseable {
             return;
         }
         readInputStream();
+        var event = new PublishStageEvent();
+        event.begin();
 
         // Read package.json
         var bytes = ArchiveUtil.readEntry(zipFile, PACKAGE_JSON);
@@ -122,6 +134,20 @@ public class ExtensionProcessor implements AutoCloseable {
                 throw new RuntimeException(exc);
             }
         }
+        commit(event, PublishStageEvent.PARSE, 0);
+    }
+
+    private void commit(PublishStageEvent event, String stage, long size) {
+        if (event.shouldCommit()) {
+            event.stage = stage;
+            if (packageJson != null) {
+                event.namespace = packageJson.path("publisher").asText();
+                event.extension = packageJson.path("name").asText();
+                event.version = packageJson.path("version").asText();
+            }
+            event.size = size;
+            event.commit();
+        }
     }
 
     public String getExtensionName() {
@@ -134,6 +160,11 @@ public class ExtensionProcessor implements AutoCloseable {
         return packageJson.path("publisher").asText();
     }
 
+    public String getVersion() {
+        loadPackageJson();
+        return packageJson.path("version").textValue();
+    }
+
     public List<String> getExtensionDependencies() {
         loadPackageJson();
         var result = getStringList(packageJson.path("extensionDependencies"));
@@ -154,6 +185,7 @@ public class ExtensionProcessor implements AutoCloseable {
         extension.setDisplayName(getNlsValue(packageJson.path("displayName")));
         extension.setDescription(getNlsValue(packageJson.path("description")));
         extension.setEngines(getEngines(packageJson.path("engines")));
+        extension.setVscodeEngineRange(VersionRange.parse(packageJson.path("engines").path("vscode").textValue()));
         extension.setCategories(getStringList(packageJson.path("categories")));
         extension.setTags(getStringList(packageJson.path("keywords")));
         extension.setLicense(packageJson.path("license").textValue());
@@ -232,11 +264,20 @@ public class ExtensionProcessor implements AutoCloseable {
         return resources;
     }
 
+    /**
+     * Read the raw bytes of the extension package.
+     */
+    public byte[] getContent() {
+        readInputStream();
+        return content;
+    }
+
     public FileResource getBinary(ExtensionVersion extension) {
         var binary = new FileResource();
         binary.setExtension(extension);
         binary.setType(FileResource.DOWNLOAD);
         binary.setContent(content);
+        binary.setSha256(Hashing.sha256().hashBytes(content).toString());
         return binary;
     }
 
@@ -269,6 +310,14 @@ public class ExtensionProcessor implements AutoCloseable {
 
     public FileResource getLicense(ExtensionVersion extension) {
         readInputStream();
+        var event = new PublishStageEvent();
+        event.begin();
+        var license = readLicense(extension);
+        commit(event, PublishStageEvent.LICENSE, license != null ? license.getContent().length : 0);
+        return license;
+    }
+
+    private FileResource readLicense(ExtensionVersion extension) {
         var license = new FileResource();
         license.setExtension(extension);
         license.setType(FileResource.LICENSE);
@@ -9,10 +9,15 @@
  ********************************************************************************/
 package org.eclipse.openvsx;
 
+import java.util.List;
+
+import org.eclipse.openvsx.json.DependencyClosureJson;
 import org.eclipse.openvsx.json.ExtensionJson;
 import org.eclipse.openvsx.json.NamespaceJson;
+import org.eclipse.openvsx.json.QueryResultJson;
 import org.eclipse.openvsx.json.ReviewListJson;
 import org.eclipse.openvsx.json.SearchResultJson;
+import org.eclipse.openvsx.util.FileContent;
 
 /**
  * Declaration of the registry API methods that can be accessed without authentication.
@@ -25,8 +30,24 @@ public interface IExtensionRegistry {
 
     ExtensionJson getExtension(String namespace, String extension, String version);
 
+    ExtensionJson getCompatibleExtension(String namespace, String extension, String engineVersion);
+
+    DependencyClosureJson resolveDependencies(String namespace, String extension, String version);
+
+    QueryResultJson query(List<String> identifiers);
+
     byte[] getFile(String namespace, String extension, String version, String fileName);
 
+    /**
+     * Access a file, preferring a gzip compressed variant if {@code acceptGzip} is set.
+     * If a {@code size} is given and the file is the icon, a thumbnail that is at least
+     * as large is returned instead.
+     */
+    default FileContent getFile(String namespace, String extension, String version, String fileName,
+            Integer size, boolean acceptGzip) {
+        return new FileContent(getFile(namespace, extension, version, fileName), null);
+    }
+
     ReviewListJson getReviews(String namespace, String extension);
 
     SearchResultJson search(String query, String category, int size, int offset, String sortOrder, String sortBy);
@@ -0,0 +1,243 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx;
+
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.imageio.ImageIO;
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+
+import org.eclipse.openvsx.db.LeaderElection;
+import org.eclipse.openvsx.entities.ExtensionVersion;
+import org.eclipse.openvsx.entities.FileResource;
+import org.eclipse.openvsx.jobs.JobHandler;
+import org.eclipse.openvsx.jobs.JobQueue;
+import org.eclipse.openvsx.repositories.RepositoryService;
+import org.eclipse.openvsx.util.UrlUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Generates thumbnails of extension icons, so pages that show many extensions need not
+ * load the packaged icons, which can be large. A thumbnail is stored for each of the
+ * {@link #SIZES} in PNG format; if the icon already fits a size, it is stored unscaled
+ * for that size. Thumbnails of icons that cannot be decoded are stored with empty content,
+ * so the original icon is served and the icon is not processed again. Icons that were
+ * published before thumbnails were introduced are processed on startup.
+ */
+@Component
+public class IconThumbnailHandler implements JobHandler<Long> {
+
+    public static final String TYPE = "icon-thumbnails";
+
+    /** Edge lengths of the generated thumbnails in ascending order. */
+    public static final int[] SIZES = { 64, 128 };
+
+    /** Size of the icons that are linked in search results and gallery queries. */
+    public static final int LISTING_SIZE = 128;
+
+    /** Icons with more pixels are not decoded, because a small file can expand to a huge image. */
+    static final long MAX_PIXELS = 4096 * 4096;
+
+    private static final byte[] PNG_SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n' };
+
+    protected final Logger logger = LoggerFactory.getLogger(IconThumbnailHandler.class);
+
+    @Autowired
+    RepositoryService repositories;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    LeaderElection leaderElection;
+
+    @Autowired
+    JobQueue jobs;
+
+    @EventListener
+    @Transactional
+    public void initThumbnails(ApplicationStartedEvent event) {
+        leaderElection.runExclusively(TYPE, () -> {
+            var count = new int[1];
+            repositories.findVersionIdsWithoutThumbnails(getThumbnailTypes()).forEach(id -> {
+                jobs.enqueue(TYPE, id);
+                count[0]++;
+            });
+            if (count[0] > 0)
+                logger.info("Queued icon thumbnails for " + count[0] + " extension versions.");
+        });
+    }
+
+    /**
+     * The resource type of the thumbnail that is used for the given size, or {@code null}
+     * if the original icon is used.
+     */
+    public static String getThumbnailType(int size) {
+        for (var thumbnailSize : SIZES) {
+            if (size <= thumbnailSize)
+                return FileResource.ICON + "-" + thumbnailSize;
+        }
+        return null;
+    }
+
+    /**
+     * The resource types of all thumbnails.
+     */
+    public static List<String> getThumbnailTypes() {
+        return Arrays.stream(SIZES).mapToObj(size -> FileResource.ICON + "-" + size).collect(Collectors.toList());
+    }
+
+    /**
+     * Add the size parameter to the URL of an icon. Returns {@code null} if there is no icon.
+     */
+    public static String getThumbnailUrl(String iconUrl, int size) {
+        if (iconUrl == null)
+            return null;
+        return UrlUtil.addQuery(iconUrl, "size", Integer.toString(size));
+    }
+
+    /**
+     * Schedule the generation of thumbnails for the icon of the given extension version.
+     * This must be called within the transaction that stores the icon.
+     */
+    public void schedule(ExtensionVersion extVersion) {
+        jobs.enqueue(TYPE, extVersion.getId());
+    }
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    public Class<Long> getPayloadType() {
+        return Long.class;
+    }
+
+    @Override
+    public void handle(Long extVersionId) {
+        var extVersion = entityManager.find(ExtensionVersion.class, extVersionId);
+        if (extVersion == null)
+            return;
+        var icon = repositories.findFile(extVersion, FileResource.ICON);
+        if (icon == null)
+            return;
+        var image = readImage(icon.getContent(), extVersion);
+        for (var size : SIZES) {
+            var type = getThumbnailType(size);
+            if (repositories.findFile(extVersion, type) != null)
+                continue;
+            var thumbnail = new FileResource();
+            thumbnail.setExtension(extVersion);
+            thumbnail.setType(type);
+            if (image == null)
+                // The original icon is served instead
+                thumbnail.setContent(new byte[0]);
+            else if (image.getWidth() > size || image.getHeight() > size)
+                thumbnail.setContent(writePng(scale(image, size)));
+            else if (isPng(icon.getContent()))
+                thumbnail.setContent(icon.getContent());
+            else
+                thumbnail.setContent(writePng(image));
+            entityManager.persist(thumbnail);
+        }
+    }
+
+    /**
+     * Decode an icon. The dimensions are read from the image header first, so images that
+     * would take too much memory are not decoded. Returns {@code null} if the icon format
+     * is not supported or the image is too large.
+     */
+    private BufferedImage readImage(byte[] content, ExtensionVersion extVersion) {
+        try (var input = ImageIO.createImageInputStream(new ByteArrayInputStream(content))) {
+            var readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                logger.warn("Unsupported icon format of " + getName(extVersion));
+                return null;
+            }
+            var reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                var width = reader.getWidth(0);
+                var height = reader.getHeight(0);
+                if ((long) width * height > MAX_PIXELS) {
+                    logger.warn("Icon of " + getName(extVersion) + " is too large: " + width + "x" + height);
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException exc) {
+            logger.warn("Failed to read icon of " + getName(extVersion) + ": " + exc.getMessage());
+            return null;
+        }
+    }
+
+    private static boolean isPng(byte[] content) {
+        return content.length >= PNG_SIGNATURE.length
+                && Arrays.equals(content, 0, PNG_SIGNATURE.length, PNG_SIGNATURE, 0, PNG_SIGNATURE.length);
+    }
+
+    private String getName(ExtensionVersion extVersion) {
+        var extension = extVersion.getExtension();
+        return extension.getNamespace().getName() + "." + extension.getName() + " v" + extVersion.getVersion();
+    }
+
+    /**
+     * Scale the image to fit into a square of the given size. The image is halved in
+     * multiple steps, because bilinear interpolation ignores most pixels otherwise.
+     */
+    static BufferedImage scale(BufferedImage image, int size) {
+        var factor = Math.min((double) size / image.getWidth(), (double) size / image.getHeight());
+        var targetWidth = Math.max((int) Math.round(image.getWidth() * factor), 1);
+        var targetHeight = Math.max((int) Math.round(image.getHeight() * factor), 1);
+        var result = image;
+        var width = image.getWidth();
+        var height = image.getHeight();
+        do {
+            width = Math.max(width / 2, targetWidth);
+            height = Math.max(height / 2, targetHeight);
+            var step = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            var graphics = step.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(result, 0, 0, width, height, null);
+            graphics.dispose();
+            result = step;
+        } while (width != targetWidth || height != targetHeight);
+        return result;
+    }
+
+    private byte[] writePng(BufferedImage image) {
+        try {
+            var bytes = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", bytes);
+            return bytes.toByteArray();
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+    }
+
+}
@@ -12,19 +12,31 @@ package org.eclipse.openvsx;
 import static org.eclipse.openvsx.util.UrlUtil.createApiUrl;
 
 import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipException;
 
 import javax.persistence.EntityManager;
 import javax.transaction.Transactional;
 
 import com.google.common.base.Joiner;
+import com.google.common.base.Stopwatch;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.eclipse.openvsx.entities.ArchiveEntry;
 import org.eclipse.openvsx.entities.Extension;
 import org.eclipse.openvsx.entities.ExtensionReview;
 import org.eclipse.openvsx.entities.ExtensionVersion;
@@ -33,8 +45,14 @@ import org.eclipse.openvsx.entities.Namespace;
 import org.eclipse.openvsx.entities.NamespaceMembership;
 import org.eclipse.openvsx.entities.PersonalAccessToken;
 import org.eclipse.openvsx.entities.UserData;
+import org.eclipse.openvsx.jfr.FileServeEvent;
+import org.eclipse.openvsx.jfr.PublishEvent;
+import org.eclipse.openvsx.jfr.PublishStageEvent;
+import org.eclipse.openvsx.json.DependencyClosureJson;
 import org.eclipse.openvsx.json.ExtensionJson;
+import org.eclipse.openvsx.json.ExtensionReferenceJson;
 import org.eclipse.openvsx.json.NamespaceJson;
+import org.eclipse.openvsx.json.QueryResultJson;
 import org.eclipse.openvsx.json.ResultJson;
 import org.eclipse.openvsx.json.ReviewJson;
 import org.eclipse.openvsx.json.ReviewListJson;
@@ -43,12 +61,18 @@ import org.eclipse.openvsx.json.SearchResultJson;
 import org.eclipse.openvsx.repositories.RepositoryService;
 import org.eclipse.openvsx.search.ExtensionSearch;
 import org.eclipse.openvsx.search.SearchService;
+import org.eclipse.openvsx.search.SearchUpdateHandler;
+import org.eclipse.openvsx.util.ArchiveUtil;
 import org.eclipse.openvsx.util.CollectionUtil;
 import org.eclipse.openvsx.util.ErrorResultException;
+import org.eclipse.openvsx.util.FileContent;
 import org.eclipse.openvsx.util.NotFoundException;
 import org.eclipse.openvsx.util.SemanticVersion;
 import org.eclipse.openvsx.util.TimeUtil;
 import org.eclipse.openvsx.util.UrlUtil;
+import org.eclipse.openvsx.util.VersionRange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
@@ -59,7 +83,12 @@ import org.springframework.web.server.ResponseStatusException;
 
 @Component
 public class LocalRegistryService implements IExtensionRegistry {
- 
+
+    /** Metrics type of files that are read from the package. */
+    private static final String ARCHIVE_ENTRY_TYPE = "archive-entry";
+
+    protected final Logger logger = LoggerFactory.getLogger(LocalRegistryService.class);
+
     @Autowired
     EntityManager entityManager;
 
@@ -72,9 +101,33 @@ public class LocalRegistryService implements IExtensionRegistry {
     @Autowired
     SearchService search;
 
+    @Autowired
+    SearchUpdateHandler searchUpdates;
+
+    @Autowired
+    DownloadCountService downloadCounts;
+
+    @Autowired
+    IconThumbnailHandler iconThumbnails;
+
+    @Autowired
+    ArchiveIndexHandler archiveIndex;
+
+    @Autowired
+    ResourceCompressionHandler resourceCompression;
+
     @Autowired
     ExtensionValidator validator;
 
+    @Autowired
+    DependencyGraph dependencyGraph;
+
+    @Autowired
+    ChangeLogService changeLog;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
     @Value("${ovsx.licenses.detect:}")
     String[] detectedLicenseIds;
 
@@ -116,6 +169,187 @@ public class LocalRegistryService implements IExtensionRegistry {
         return toJson(extVersion);
     }
 
+    @Override
+    public ExtensionJson getCompatibleExtension(String namespace, String extensionName, String engineVersion) {
+        var extension = repositories.findExtension(extensionName, namespace);
+        if (extension == null)
+            throw new NotFoundException();
+        var version = VersionRange.parseVersion(engineVersion);
+        var extVersion = ExtensionVersion.findLatest(repositories.findCompatibleVersions(extension, version));
+        if (extVersion == null)
+            throw new NotFoundException();
+        return toJson(extVersion);
+    }
+
+    @Override
+    public DependencyClosureJson resolveDependencies(String namespace, String extensionName, String version) {
+        var root = findVersion(namespace, extensionName, version);
+        if (root == null)
+            throw new NotFoundException();
+        var resolution = dependencyGraph.resolve(root);
+        var extVersions = new HashMap<Long, ExtensionVersion>();
+        repositories.findVersions(resolution.versions.keySet()).forEach(ev -> extVersions.put(ev.getId(), ev));
+        var extensions = new HashMap<Long, Extension>();
+        extVersions.values().forEach(ev -> extensions.put(ev.getExtension().getId(), ev.getExtension()));
+
+        var serverUrl = UrlUtil.getBaseUrl();
+        var json = new DependencyClosureJson();
+        json.extensions = new ArrayList<>(resolution.versions.size());
+        resolution.versions.forEach((versionId, node) -> {
+            var extVersion = extVersions.get(versionId);
+            if (extVersion == null)
+                return;
+            var entry = new DependencyClosureJson.Entry();
+            var extension = extVersion.getExtension();
+            entry.namespace = extension.getNamespace().getName();
+            entry.name = extension.getName();
+            entry.version = extVersion.getVersion();
+            entry.url = createApiUrl(serverUrl, "api", entry.namespace, entry.name, entry.version);
+            entry.files = new LinkedHashMap<>();
+            entry.files.put(FileResource.DOWNLOAD, createApiUrl(serverUrl, "api", entry.namespace, entry.name, entry.version, "file", extVersion.getExtensionFileName()));
+            entry.files.put(FileResource.MANIFEST, createApiUrl(serverUrl, "api", entry.namespace, entry.name, entry.version, "file", "package.json"));
+            if (node.dependencies.length > 0)
+                entry.dependencies = toReferences(node.dependencies, extensions, serverUrl);
+            if (node.bundledExtensions.length > 0)
+                entry.bundledExtensions = toReferences(node.bundledExtensions, extensions, serverUrl);
+            json.extensions.add(entry);
+        });
+        if (!resolution.cycles.isEmpty()) {
+            json.cycles = CollectionUtil.map(resolution.cycles, cycle ->
+                    getQualifiedName(extensions.get(cycle.getFirst())) + " -> " + getQualifiedName(extensions.get(cycle.getSecond())));
+        }
+        return json;
+    }
+
+    private List<ExtensionReferenceJson> toReferences(long[] extensionIds, Map<Long, Extension> extensions, String serverUrl) {
+        var result = new ArrayList<ExtensionReferenceJson>(extensionIds.length);
+        for (var extensionId : extensionIds) {
+            var extension = extensions.get(extensionId);
+            if (extension != null) {
+                var ref = new ExtensionReferenceJson();
+                ref.namespace = extension.getNamespace().getName();
+                ref.extension = extension.getName();
+                ref.url = createApiUrl(serverUrl, "api", ref.namespace, ref.extension);
+                result.add(ref);
+            }
+        }
+        return result;
+    }
+
+    private String getQualifiedName(Extension extension) {
+        if (extension == null)
+            return "?";
+        return extension.getNamespace().getName() + "." + extension.getName();
+    }
+
+    @Override
+    public QueryResultJson query(List<String> identifiers) {
+        var parsed = new ArrayList<String[]>(identifiers.size());
+        var names = new HashSet<String>();
+        var namespaceNames = new HashSet<String>();
+        for (var identifier : identifiers) {
+            var split = parseIdentifier(identifier);
+            parsed.add(split);
+            namespaceNames.add(split[0].toLowerCase());
+            names.add(split[1].toLowerCase());
+        }
+
+        // Load all required data with a fixed number of queries
+        var extensions = new HashMap<String, Extension>();
+        repositories.findExtensions(names, namespaceNames).forEach(extension -> {
+            var key = extension.getNamespace().getName().toLowerCase() + "." + extension.getName().toLowerCase();
+            extensions.put(key, extension);
+        });
+        var versions = new HashMap<Long, List<ExtensionVersion>>();
+        var reviewCounts = new HashMap<Long, Long>();
+        var ownerCounts = new HashMap<Long, Long>();
+        var members = new HashMap<Long, Set<Long>>();
+        if (!extensions.isEmpty()) {
+            repositories.findVersionsByExtensions(extensions.values()).forEach(extVersion -> {
+                versions.computeIfAbsent(extVersion.getExtension().getId(), id -> new ArrayList<>()).add(extVersion);
+            });
+            repositories.countActiveReviews(extensions.values()).forEach(count -> reviewCounts.put(count.id, count.count));
+            var namespaces = new HashSet<Namespace>();
+            extensions.values().forEach(extension -> namespaces.add(extension.getNamespace()));
+            repositories.countMemberships(namespaces, NamespaceMembership.ROLE_OWNER)
+                    .forEach(count -> ownerCounts.put(count.id, count.count));
+            namespaces.removeIf(namespace -> !ownerCounts.containsKey(namespace.getId()));
+            if (!namespaces.isEmpty()) {
+                repositories.findMemberIds(namespaces).forEach(pair ->
+                    members.computeIfAbsent(pair.source, id -> new HashSet<>()).add(pair.target)
+                );
+            }
+        }
+
+        var selected = new ArrayList<ExtensionVersion>(parsed.size());
+        var selectedVersions = new HashSet<ExtensionVersion>();
+        for (var split : parsed) {
+            var extension = extensions.get(split[0].toLowerCase() + "." + split[1].toLowerCase());
+            var extVersions = extension != null ? versions.getOrDefault(extension.getId(), Collections.emptyList()) : null;
+            var extVersion = extension != null ? findVersion(extension, extVersions, split[2]) : null;
+            selected.add(extVersion);
+            if (extVersion != null)
+                selectedVersions.add(extVersion);
+        }
+        var hashes = new HashMap<Long, String>();
+        if (!selectedVersions.isEmpty()) {
+            repositories.findFileHashes(selectedVersions, FileResource.DOWNLOAD)
+                    .forEach(hash -> hashes.put(hash.id, hash.sha256));
+        }
+
+        var json = new QueryResultJson();
+        json.extensions = new ArrayList<>(parsed.size());
+        for (var i = 0; i < parsed.size(); i++) {
+            var split = parsed.get(i);
+            var extVersion = selected.get(i);
+            if (extVersion == null) {
+                json.extensions.add(ExtensionJson.error("Extension not found: " + split[0] + "." + split[1]
+                        + (split[2] != null ? " version " + split[2] : "")));
+            } else {
+                var extension = extVersion.getExtension();
+                var namespaceId = extension.getNamespace().getId();
+                var owners = ownerCounts.getOrDefault(namespaceId, 0l);
+                var access = owners == 0 ? NamespaceJson.PUBLIC_ACCESS : NamespaceJson.RESTRICTED_ACCESS;
+                var unrelatedPublisher = owners > 0 && extVersion.getPublishedWith() != null
+                        && !members.getOrDefault(namespaceId, Collections.emptySet())
+                                .contains(extVersion.getPublishedWith().getUser().getId());
+                var entry = toJson(extVersion, access, unrelatedPublisher, reviewCounts.getOrDefault(extension.getId(), 0l),
+                        versions.getOrDefault(extension.getId(), Collections.emptyList()));
+                entry.downloadSha256 = hashes.get(extVersion.getId());
+                json.extensions.add(entry);
+            }
+        }
+        return json;
+    }
+
+    /**
+     * Split an identifier of the form {@code namespace.extension[@version]}.
+     */
+    private String[] parseIdentifier(String identifier) {
+        if (identifier == null)
+            throw new ErrorResultException("Invalid extension identifier: null");
+        var versionIndex = identifier.lastIndexOf('@');
+        var qualifiedName = versionIndex >= 0 ? identifier.substring(0, versionIndex) : identifier;
+        var version = versionIndex >= 0 ? identifier.substring(versionIndex + 1) : null;
+        var nameIndex = qualifiedName.indexOf('.');
+        if (nameIndex <= 0 || nameIndex == qualifiedName.length() - 1 || version != null && version.isEmpty())
+            throw new ErrorResultException("Invalid extension identifier: " + identifier
+                    + "\nExpected format: 'namespace.extension' or 'namespace.extension@version'");
+        return new String[] { qualifiedName.substring(0, nameIndex), qualifiedName.substring(nameIndex + 1), version };
+    }
+
+    private ExtensionVersion findVersion(Extension extension, List<ExtensionVersion> versions, String version) {
+        if (version == null || "latest".equals(version))
+            return extension.getLatest();
+        if ("preview".equals(version))
+            return extension.getPreview();
+        for (var extVersion : versions) {
+            if (extVersion.getVersion().equals(version))
+                return extVersion;
+        }
+        return null;
+    }
+
     private ExtensionVersion findVersion(String namespace, String extensionName, String version) {
         if ("latest".equals(version)) {
             var extension = repositories.findExtension(extensionName, namespace);
@@ -135,18 +369,84 @@ public class LocalRegistryService implements IExtensionRegistry {
     @Override
     @Transactional
     public byte[] getFile(String namespace, String extensionName, String version, String fileName) {
+        return getFile(namespace, extensionName, version, fileName, null, false).getBytes();
+    }
+
+    @Override
+    @Transactional
+    public FileContent getFile(String namespace, String extensionName, String version, String fileName,
+            Integer size, boolean acceptGzip) {
+        var event = new FileServeEvent();
+        event.begin();
         var extVersion = findVersion(namespace, extensionName, version);
         if (extVersion == null)
             throw new NotFoundException();
         var resource = getFile(extVersion, fileName);
-        if (resource == null)
+        if (resource == null) {
+            // Other files are read from the package using the archive index
+            var entry = repositories.findArchiveEntry(extVersion, "extension/" + fileName);
+            if (entry == null)
+                throw new NotFoundException();
+            return recordFileServed(event, extVersion, ARCHIVE_ENTRY_TYPE, getFile(extVersion, entry, acceptGzip));
+        }
+        var provisional = false;
+        if (size != null && resource.getType().equals(FileResource.ICON)) {
+            var thumbnailType = IconThumbnailHandler.getThumbnailType(size);
+            var thumbnail = thumbnailType != null ? repositories.findFile(extVersion, thumbnailType) : null;
+            if (thumbnail != null && thumbnail.getContent().length > 0)
+                return recordFileServed(event, extVersion, thumbnail.getType(), FileContent.thumbnail(thumbnail.getContent()));
+            // The thumbnail is generated in the background, or the icon cannot be scaled
+            provisional = thumbnailType != null && thumbnail == null;
+        }
+        if (resource.getType().equals(FileResource.DOWNLOAD))
+            downloadCounts.increment(extVersion.getExtension());
+        var gzipContent = acceptGzip ? resourceCompression.getCompressedContent(resource) : null;
+        var content = gzipContent != null
+                ? new FileContent(gzipContent, FileContent.GZIP, provisional)
+                : new FileContent(resource.getContent(), null, provisional);
+        return recordFileServed(event, extVersion, resource.getType(), content);
+    }
+
+    private FileContent getFile(ExtensionVersion extVersion, ArchiveEntry entry, boolean acceptGzip) {
+        var data = repositories.findFileRange(extVersion, FileResource.DOWNLOAD, entry.getDataOffset(),
+                entry.getCompressedSize());
+        if (data == null)
             throw new NotFoundException();
-        if (resource.getType().equals(FileResource.DOWNLOAD)) {
+        if (entry.getMethod() == ArchiveEntry.METHOD_STORED)
+            return new FileContent(data, null);
+        if (acceptGzip)
+            return new FileContent(ArchiveUtil.toGzip(data, entry.getCrc(), entry.getSize()), FileContent.GZIP);
+        try {
+            return new FileContent(ArchiveUtil.inflate(data, entry.getSize()), null);
+        } catch (ZipException exc) {
+            // The entry was indexed from the stored package, so this is not the client's fault
             var extension = extVersion.getExtension();
-            extension.setDownloadCount(extension.getDownloadCount() + 1);
-            search.updateSearchEntry(extension);
+            logger.error("Corrupt archive entry " + entry.getName() + " in " + extension.getNamespace().getName()
+                    + "." + extension.getName() + " v" + extVersion.getVersion(), exc);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR);
         }
-        return resource.getContent();
+    }
+
+    private FileContent recordFileServed(FileServeEvent event, ExtensionVersion extVersion, String type,
+            FileContent content) {
+        var encoding = content.getEncoding() != null ? content.getEncoding() : "identity";
+        DistributionSummary.builder("ovsx.files.served")
+                .baseUnit("bytes")
+                .tags("endpoint", "api", "type", type, "encoding", encoding)
+                .register(meterRegistry)
+                .record(content.getBytes().length);
+        if (event.shouldCommit()) {
+            var extension = extVersion.getExtension();
+            event.endpoint = "api";
+            event.namespace = extension.getNamespace().getName();
+            event.extension = extension.getName();
+            event.version = extVersion.getVersion();
+            event.type = type;
+            event.encoding = content.getEncoding();
+            event.size = content.getBytes().length;
+            event.commit();
+        }
+        return content;
     }
 
     private FileResource getFile(ExtensionVersion extVersion, String fileName) {
@@ -227,34 +527,183 @@ public class LocalRegistryService implements IExtensionRegistry {
         namespace = new Namespace();
         namespace.setName(json.name);
         entityManager.persist(namespace);
+        changeLog.logNamespace(namespace);
         return ResultJson.success("Created namespace " + namespace.getName());
     }
 
     @Transactional(rollbackOn = ErrorResultException.class)
     public ExtensionJson publish(InputStream content, String tokenValue) throws ErrorResultException {
+        var event = new PublishEvent();
+        event.begin();
+        var total = Stopwatch.createStarted();
+        var outcome = "failed";
         try (var processor = new ExtensionProcessor(content, Arrays.asList(detectedLicenseIds))) {
             var token = users.useAccessToken(tokenValue);
             if (token == null) {
                 throw new ErrorResultException("Invalid access token.");
             }
-            var extVersion = createExtensionVersion(processor, token.getUser(), token);
-            processor.getResources(extVersion).forEach(resource -> entityManager.persist(resource));
-            processor.getExtensionDependencies().forEach(dep -> addDependency(dep, extVersion));
-            processor.getBundledExtensions().forEach(dep -> addBundledExtension(dep, extVersion));
+            var stopwatch = Stopwatch.createStarted();
+            var metadata = processor.getMetadata();
+            recordStage("extract", stopwatch);
+            if (event.isEnabled()) {
+                event.namespace = processor.getNamespace();
+                event.extension = processor.getExtensionName();
+                event.version = processor.getVersion();
+            }
 
-            search.updateSearchEntry(extVersion.getExtension());
+            stopwatch.reset().start();
+            var stageEvent = new PublishStageEvent();
+            stageEvent.begin();
+            var extVersion = createExtensionVersion(processor, metadata, token.getUser(), token,
+                    TimeUtil.getCurrentUTC());
+            storeExtensionVersion(processor, extVersion, processor.getResources(extVersion));
+            searchUpdates.schedule(extVersion.getExtension());
+            recordStage(PublishStageEvent.PERSIST, stopwatch, stageEvent, processor);
+            outcome = "succeeded";
             return toJson(extVersion);
+        } finally {
+            meterRegistry.timer("ovsx.publish", "mode", "sync", "outcome", outcome)
+                    .record(total.elapsed(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+            if (event.shouldCommit()) {
+                event.mode = "sync";
+                event.outcome = outcome;
+                event.commit();
+            }
+        }
+    }
+
+    private void recordStage(String stage, Stopwatch stopwatch) {
+        meterRegistry.timer("ovsx.publish.stage", "mode", "sync", "stage", stage)
+                .record(stopwatch.elapsed(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+    }
+
+    private void recordStage(String stage, Stopwatch stopwatch, PublishStageEvent event, ExtensionProcessor processor) {
+        recordStage(stage, stopwatch);
+        if (event.shouldCommit()) {
+            event.stage = stage;
+            event.namespace = processor.getNamespace();
+            event.extension = processor.getExtensionName();
+            event.version = processor.getVersion();
+            event.commit();
         }
     }
 
-    private ExtensionVersion createExtensionVersion(ExtensionProcessor processor, UserData user, PersonalAccessToken token) {
+    /**
+     * Check the access token, the publisher and the extension name of a package before
+     * it is queued for publishing. The checks are repeated when the package is published.
+     * Returns the access token, which must be passed when the package is published.
+     */
+    public PersonalAccessToken checkPublish(ExtensionProcessor processor, String tokenValue) throws ErrorResultException {
+        var token = users.useAccessToken(tokenValue);
+        if (token == null) {
+            throw new ErrorResultException("Invalid access token.");
+        }
         var namespaceName = processor.getNamespace();
         var namespace = repositories.findNamespace(namespaceName);
         if (namespace == null) {
             throw new ErrorResultException("Unknown publisher: " + namespaceName
                     + "\nUse the 'create-namespace' command to create a namespace corresponding to your publisher name.");
         }
-        if (!users.hasPublishPermission(user, namespace)) {
+        if (!users.hasPublishPermission(token.getUser(), namespace)) {
+            throw new ErrorResultException("Insufficient access rights for publisher: " + namespace.getName());
+        }
+        var nameIssue = validator.validateExtensionName(processor.getExtensionName());
+        if (nameIssue.isPresent()) {
+            throw new ErrorResultException(nameIssue.get().toString());
+        }
+        return token;
+    }
+
+    /**
+     * Publish an extension version whose metadata and resources were extracted in advance,
+     * using the token that was returned by {@link #checkPublish}. This must be called within
+     * a transaction; the search index is updated when the transaction is committed.
+     */
+    public ExtensionVersion publish(ExtensionProcessor processor, ExtensionVersion metadata,
+            List<FileResource> resources, PersonalAccessToken token) throws ErrorResultException {
+        if (token == null || !token.isActive()) {
+            throw new ErrorResultException("Invalid access token.");
+        }
+        var extVersion = createExtensionVersion(processor, metadata, token.getUser(), token,
+                TimeUtil.getCurrentUTC());
+        storeExtensionVersion(processor, extVersion, resources);
+        searchUpdates.schedule(extVersion.getExtension());
+        return extVersion;
+    }
+
+    /**
+     * Import an extension package that was published to another registry. The namespace
+     * is created if necessary, and no publish permission is checked. The search index is
+     * updated when the transaction is committed.
+     */
+    @Transactional(rollbackOn = ErrorResultException.class)
+    public ExtensionJson importExtension(InputStream content, LocalDateTime timestamp) throws ErrorResultException {
+        try (var processor = new ExtensionProcessor(content, Arrays.asList(detectedLicenseIds))) {
+            var extVersion = importExtension(processor, processor.getMetadata(), null, timestamp);
+            searchUpdates.schedule(extVersion.getExtension());
+            return toJson(extVersion);
+        }
+    }
+
+    /**
+     * Import an extension version whose metadata was extracted by the given processor.
+     * If no resources are given, they are extracted as well. This must be called within
+     * a transaction, and the search index is not updated.
+     */
+    public ExtensionVersion importExtension(ExtensionProcessor processor, ExtensionVersion metadata,
+            List<FileResource> resources, LocalDateTime timestamp) {
+        importNamespace(processor.getNamespace());
+        var extVersion = createExtensionVersion(processor, metadata, null, null, timestamp);
+        storeExtensionVersion(processor, extVersion, resources != null ? resources : processor.getResources(extVersion));
+        return extVersion;
+    }
+
+    /**
+     * Create a namespace that exists in another registry, unless it already exists.
+     */
+    @Transactional(rollbackOn = ErrorResultException.class)
+    public Namespace importNamespace(String namespaceName) {
+        var namespace = repositories.findNamespace(namespaceName);
+        if (namespace != null)
+            return namespace;
+        var namespaceIssue = validator.validateNamespace(namespaceName);
+        if (namespaceIssue.isPresent()) {
+            throw new ErrorResultException(namespaceIssue.get().toString());
+        }
+        namespace = new Namespace();
+        namespace.setName(namespaceName);
+        entityManager.persist(namespace);
+        changeLog.logNamespace(namespace);
+        return namespace;
+    }
+
+    private void storeExtensionVersion(ExtensionProcessor processor, ExtensionVersion extVersion,
+            List<FileResource> resources) {
+        resources.forEach(resource -> entityManager.persist(resource));
+        if (resources.stream().anyMatch(resource -> resource.getType().equals(FileResource.ICON)))
+            iconThumbnails.schedule(extVersion);
+        if (resources.stream().anyMatch(resource -> ResourceCompressionHandler.TYPES.contains(resource.getType())))
+            resourceCompression.schedule(extVersion);
+        resources.stream()
+                .filter(resource -> resource.getType().equals(FileResource.DOWNLOAD))
+                .findFirst()
+                .ifPresent(download -> archiveIndex.index(extVersion, download.getContent()));
+        processor.getExtensionDependencies().forEach(dep -> addDependency(dep, extVersion));
+        processor.getBundledExtensions().forEach(dep -> addBundledExtension(dep, extVersion));
+        dependencyGraph.addVersion(extVersion);
+        changeLog.logPublish(extVersion);
+    }
+
+    private ExtensionVersion createExtensionVersion(ExtensionProcessor processor, ExtensionVersion extVersion,
+            UserData user, PersonalAccessToken token, LocalDateTime timestamp) {
+        var namespaceName = processor.getNamespace();
+        var namespace = repositories.findNamespace(namespaceName);
+        if (namespace == null) {
+            throw new ErrorResultException("Unknown publisher: " + namespaceName
+                    + "\nUse the 'create-namespace' command to create a namespace corresponding to your publisher name.");
+        }
+        // Imported extensions have no user
+        if (user != null && !users.hasPublishPermission(user, namespace)) {
             throw new ErrorResultException("Insufficient access rights for publisher: " + namespace.getName());
         }
 
@@ -263,11 +712,10 @@ public class LocalRegistryService implements IExtensionRegistry {
         if (nameIssue.isPresent()) {
             throw new ErrorResultException(nameIssue.get().toString());
         }
-        var extVersion = processor.getMetadata();
         if (extVersion.getDisplayName() != null && extVersion.getDisplayName().trim().isEmpty()) {
             extVersion.setDisplayName(null);
         }
-        extVersion.setTimestamp(TimeUtil.getCurrentUTC());
+        extVersion.setTimestamp(timestamp);
         extVersion.setPublishedWith(token);
         entityManager.persist(extVersion);
 
@@ -389,7 +837,8 @@ public class LocalRegistryService implements IExtensionRegistry {
         extReview.setRating(review.rating);
         entityManager.persist(extReview);
         extension.setAverageRating(computeAverageRating(extension));
-        search.updateSearchEntry(extension);
+        changeLog.logReviews(extension);
+        searchUpdates.schedule(extension);
         return ResultJson.success("Added review for " + extension.getNamespace().getName() + "." + extension.getName());
     }
 
@@ -413,7 +862,8 @@ public class LocalRegistryService implements IExtensionRegistry {
             extReview.setActive(false);
         }
         extension.setAverageRating(computeAverageRating(extension));
-        search.updateSearchEntry(extension);
+        changeLog.logReviews(extension);
+        searchUpdates.schedule(extension);
         return ResultJson.success("Deleted review for " + extension.getNamespace().getName() + "." + extension.getName());
     }
 
@@ -440,7 +890,9 @@ public class LocalRegistryService implements IExtensionRegistry {
         entry.url = createApiUrl(serverUrl, "api", entry.namespace, entry.name);
         entry.files = new LinkedHashMap<>();
         entry.files.put(FileResource.DOWNLOAD, createApiUrl(serverUrl, "api", entry.namespace, entry.name, entry.version, "file", extVer.getExtensionFileName()));
-        entry.files.put(FileResource.ICON, createApiUrl(serverUrl, "api", entry.namespace, entry.name, entry.version, "file", extVer.getIconFileName()));
+        entry.files.put(FileResource.ICON, IconThumbnailHandler.getThumbnailUrl(
+                createApiUrl(serverUrl, "api", entry.namespace, entry.name, entry.version, "file", extVer.getIconFileName()),
+                IconThumbnailHandler.LISTING_SIZE));
         var allVersions = Lists.newArrayList(repositories.findVersions(extension));
         Collections.sort(allVersions, ExtensionVersion.SORT_COMPARATOR);
         entry.allVersions = CollectionUtil.map(allVersions, ev -> toVersionReference(ev, entry, serverUrl));
@@ -459,16 +911,27 @@ public class LocalRegistryService implements IExtensionRegistry {
 
     private ExtensionJson toJson(ExtensionVersion extVersion) {
         var extension = extVersion.getExtension();
+        var access = getAccessString(extension.getNamespace());
+        var unrelatedPublisher = NamespaceJson.RESTRICTED_ACCESS.equals(access) && isUnrelatedPublisher(extVersion);
+        var json = toJson(extVersion, access, unrelatedPublisher,
+                repositories.countActiveReviews(extension), repositories.findVersions(extension));
+        json.downloadSha256 = repositories.findFileHash(extVersion, FileResource.DOWNLOAD);
+        return json;
+    }
+
+    private ExtensionJson toJson(ExtensionVersion extVersion, String namespaceAccess, boolean unrelatedPublisher,
+            long reviewCount, Iterable<ExtensionVersion> versions) {
+        var extension = extVersion.getExtension();
         var json = extVersion.toExtensionJson();
         json.versionAlias = new ArrayList<>(2);
         if (extVersion == extension.getLatest())
             json.versionAlias.add("latest");
         if (extVersion == extension.getPreview())
             json.versionAlias.add("preview");
-        json.namespaceAccess = getAccessString(extension.getNamespace());
+        json.namespaceAccess = namespaceAccess;
         if (NamespaceJson.RESTRICTED_ACCESS.equals(json.namespaceAccess))
-            json.unrelatedPublisher = isUnrelatedPublisher(extVersion);
-        json.reviewCount = repositories.countActiveReviews(extension);
+            json.unrelatedPublisher = unrelatedPublisher;
+        json.reviewCount = reviewCount;
         var serverUrl = UrlUtil.getBaseUrl();
         json.namespaceUrl = createApiUrl(serverUrl, "api", json.namespace);
         json.reviewsUrl = createApiUrl(serverUrl, "api", json.namespace, json.name, "reviews");
@@ -478,7 +941,7 @@ public class LocalRegistryService implements IExtensionRegistry {
             json.allVersions.put("latest", createApiUrl(serverUrl, "api", json.namespace, json.name, "latest"));
         if (extension.getPreview() != null)
             json.allVersions.put("preview", createApiUrl(serverUrl, "api", json.namespace, json.name, "preview"));
-        var allVersions = Lists.newArrayList(repositories.findVersions(extension));
+        var allVersions = Lists.newArrayList(versions);
         Collections.sort(allVersions, ExtensionVersion.SORT_COMPARATOR);
         for (var ev : allVersions) {
             String url = createApiUrl(serverUrl, "api", json.namespace, json.name, ev.getVersion());
@@ -14,35 +14,53 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URLConnection;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
+import javax.servlet.http.HttpServletRequest;
+
 import com.google.common.collect.Iterables;
 
+import org.eclipse.openvsx.json.ChangeListJson;
+import org.eclipse.openvsx.json.DependencyClosureJson;
 import org.eclipse.openvsx.json.ExtensionJson;
 import org.eclipse.openvsx.json.NamespaceJson;
+import org.eclipse.openvsx.json.PublishJobJson;
+import org.eclipse.openvsx.json.QueryParamJson;
+import org.eclipse.openvsx.json.QueryResultJson;
 import org.eclipse.openvsx.json.ResultJson;
 import org.eclipse.openvsx.json.ReviewJson;
 import org.eclipse.openvsx.json.ReviewListJson;
 import org.eclipse.openvsx.json.SearchEntryJson;
 import org.eclipse.openvsx.json.SearchResultJson;
+import org.eclipse.openvsx.json.UploadJson;
+import org.eclipse.openvsx.publish.PublishService;
+import org.eclipse.openvsx.upload.UploadService;
+import org.eclipse.openvsx.util.CollectionUtil;
 import org.eclipse.openvsx.util.ErrorResultException;
+import org.eclipse.openvsx.util.FileContent;
 import org.eclipse.openvsx.util.NotFoundException;
 import org.eclipse.openvsx.util.UrlUtil;
 import org.elasticsearch.common.Strings;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.HandlerMapping;
 
 import io.swagger.annotations.ApiImplicitParam;
 import io.swagger.annotations.ApiImplicitParams;
@@ -59,6 +77,7 @@ public class RegistryAPI {
 
     private final static int REVIEW_TITLE_SIZE = 255;
     private final static int REVIEW_COMMENT_SIZE = 2048;
+    private final static int MAX_CHANGES_LIMIT = 1000;
 
     @Autowired
     LocalRegistryService local;
@@ -66,6 +85,18 @@ public class RegistryAPI {
     @Autowired
     UpstreamRegistryService upstream;
 
+    @Autowired
+    ChangeLogService changeLog;
+
+    @Autowired
+    UploadService uploads;
+
+    @Autowired
+    PublishService publishJobs;
+
+    @Value("${ovsx.query.max-size:100}")
+    int maxQuerySize;
+
     protected Iterable<IExtensionRegistry> getRegistries() {
         var registries = new ArrayList<IExtensionRegistry>();
         registries.add(local);
@@ -152,6 +183,65 @@ public class RegistryAPI {
         return ExtensionJson.error("Extension not found: " + namespace + "." + extension + " version " + version);
     }
 
+    @GetMapping(
+        path = "/api/{namespace}/{extension}/compatible",
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    @CrossOrigin
+    @ApiOperation("Provides metadata of the latest version of an extension that is compatible with the given engine version")
+    @ApiResponses({
+        @ApiResponse(
+            code = 200,
+            message = "The 'error' property indicates whether the request failed"
+        )
+    })
+    public ExtensionJson getCompatibleExtension(@PathVariable @ApiParam(value = "Extension namespace", example = "redhat")
+                                                String namespace,
+                                                @PathVariable @ApiParam(value = "Extension name", example = "java")
+                                                String extension,
+                                                @RequestParam @ApiParam(value = "VS Code engine version of the host application", example = "1.45.1")
+                                                String engineVersion) {
+        for (var registry : getRegistries()) {
+            try {
+                return registry.getCompatibleExtension(namespace, extension, engineVersion);
+            } catch (NotFoundException exc) {
+                // Try the next registry
+            } catch (ErrorResultException exc) {
+                return ExtensionJson.error(exc.getMessage());
+            }
+        }
+        return ExtensionJson.error("No version of " + namespace + "." + extension
+                + " is compatible with engine version " + engineVersion);
+    }
+
+    @GetMapping(
+        path = "/api/{namespace}/{extension}/{version}/resolve",
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    @CrossOrigin
+    @ApiOperation("Provides the transitive closure of dependencies and bundled extensions of a specific version of an extension")
+    @ApiResponses({
+        @ApiResponse(
+            code = 200,
+            message = "The 'error' property indicates whether the request failed"
+        )
+    })
+    public DependencyClosureJson resolveDependencies(@PathVariable @ApiParam(value = "Extension namespace", example = "redhat")
+                                                     String namespace,
+                                                     @PathVariable @ApiParam(value = "Extension name", example = "java")
+                                                     String extension,
+                                                     @PathVariable @ApiParam(value = "Extension version", example = "0.65.0")
+                                                     String version) {
+        for (var registry : getRegistries()) {
+            try {
+                return registry.resolveDependencies(namespace, extension, version);
+            } catch (NotFoundException exc) {
+                // Try the next registry
+            }
+        }
+        return DependencyClosureJson.error("Extension not found: " + namespace + "." + extension + " version " + version);
+    }
+
     @GetMapping("/api/{namespace}/{extension}/{version}/file/{fileName:.+}")
     @CrossOrigin
     @ApiOperation("Access a file packaged by an extension")
@@ -172,12 +262,28 @@ public class RegistryAPI {
                                           @PathVariable @ApiParam(value = "Extension version", example = "0.65.0")
                                           String version,
                                           @PathVariable @ApiParam(value = "Name of the file to access", example = "LICENSE.txt")
-                                          String fileName) {
+                                          String fileName,
+                                          @RequestParam(required = false)
+                                          @ApiParam(value = "Minimal edge length of the image if the file is the icon; a smaller PNG thumbnail is returned when available; ignored for other files", example = "64")
+                                          Integer size,
+                                          @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+                                          @ApiParam(value = "Content encodings accepted by the client", example = "gzip")
+                                          String acceptEncoding) {
+        var acceptGzip = FileContent.acceptsGzip(acceptEncoding);
         for (var registry : getRegistries()) {
             try {
-                var content = registry.getFile(namespace, extension, version, fileName);
+                var content = registry.getFile(namespace, extension, version, fileName, size, acceptGzip);
                 var headers = getFileResponseHeaders(fileName);
-                return new ResponseEntity<>(content, headers, HttpStatus.OK);
+                if (content.isProvisional()) {
+                    // Clients should pick up the thumbnail once it is generated
+                    headers.setCacheControl(CacheControl.maxAge(1, TimeUnit.HOURS));
+                } else if (content.isThumbnail()) {
+                    headers.setContentType(MediaType.IMAGE_PNG);
+                    headers.setCacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().getHeaderValue() + ", immutable");
+                }
+                if (content.getEncoding() != null)
+                    headers.set(HttpHeaders.CONTENT_ENCODING, content.getEncoding());
+                return new ResponseEntity<>(content.getBytes(), headers, HttpStatus.OK);
             } catch (NotFoundException exc) {
                 // Try the next registry
             }
@@ -185,6 +291,35 @@ public class RegistryAPI {
         throw new NotFoundException();
     }
 
+    @GetMapping("/api/{namespace}/{extension}/{version}/file/**")
+    @CrossOrigin
+    @ApiOperation("Access a file in a subfolder of an extension package")
+    @ApiResponses({
+        @ApiResponse(
+            code = 200,
+            message = "The file content is returned"
+        ),
+        @ApiResponse(
+            code = 404,
+            message = "The specified file could not be found"
+        )
+    })
+    public ResponseEntity<byte[]> getNestedFile(HttpServletRequest request,
+                                                @PathVariable @ApiParam(value = "Extension namespace", example = "redhat")
+                                                String namespace,
+                                                @PathVariable @ApiParam(value = "Extension name", example = "java")
+                                                String extension,
+                                                @PathVariable @ApiParam(value = "Extension version", example = "0.65.0")
+                                                String version,
+                                                @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+                                                @ApiParam(value = "Content encodings accepted by the client", example = "gzip")
+                                                String acceptEncoding) {
+        var pattern = (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        var path = (String) request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
+        var fileName = new AntPathMatcher().extractPathWithinPattern(pattern, path);
+        return getFile(namespace, extension, version, fileName, null, acceptEncoding);
+    }
+
     private HttpHeaders getFileResponseHeaders(String fileName) {
         var headers = new HttpHeaders();
         MediaType fileType = getFileType(fileName);
@@ -193,6 +328,12 @@ public class RegistryAPI {
         headers.setCacheControl(CacheControl.maxAge(30, TimeUnit.DAYS));
         if (fileName.endsWith(".vsix")) {
             headers.add("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
+        } else {
+            // Text files may be served with a precompressed variant
+            headers.setVary(Arrays.asList(HttpHeaders.ACCEPT_ENCODING));
+            // Packaged files must not run scripts in the context of the registry
+            headers.set("Content-Security-Policy", "sandbox");
+            headers.set("X-Content-Type-Options", "nosniff");
         }
         return headers;
     }
@@ -297,6 +438,97 @@ public class RegistryAPI {
         return result;
     }
 
+    @GetMapping(
+        path = "/api/-/changes",
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    @CrossOrigin
+    @ApiOperation("Provides changes of the registry content in the order they were committed")
+    @ApiResponses({
+        @ApiResponse(
+            code = 200,
+            message = "The 'error' property indicates whether the request failed"
+        )
+    })
+    public ChangeListJson getChanges(
+            @RequestParam(defaultValue = "0")
+            @ApiParam(value = "Cursor returned by a previous request, or 0 to start from the beginning", allowableValues = "range[0,infinity]")
+            long since,
+            @RequestParam(defaultValue = "100")
+            @ApiParam(value = "Maximal number of changes to return", allowableValues = "range[1,1000]")
+            int limit
+        ) {
+        if (since < 0) {
+            return ChangeListJson.error("The parameter 'since' must not be negative.");
+        }
+        if (limit < 1 || limit > MAX_CHANGES_LIMIT) {
+            return ChangeListJson.error("The parameter 'limit' must be between 1 and " + MAX_CHANGES_LIMIT + ".");
+        }
+        return changeLog.getChanges(since, limit);
+    }
+
+    @PostMapping(
+        path = "/api/-/query",
+        consumes = MediaType.APPLICATION_JSON_VALUE,
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    @CrossOrigin
+    @ApiOperation("Provides metadata of multiple extensions with a single request")
+    @ApiResponses({
+        @ApiResponse(
+            code = 200,
+            message = "The 'error' property indicates whether the request failed"
+        )
+    })
+    public QueryResultJson query(@RequestBody(required = false) @ApiParam("Identifiers of the requested extensions")
+                                 QueryParamJson param) {
+        if (param == null || param.extensions == null) {
+            return QueryResultJson.error("Missing required property 'extensions'.");
+        }
+        if (param.extensions.size() > maxQuerySize) {
+            return QueryResultJson.error("Too many extensions requested: " + param.extensions.size()
+                    + " (the maximum is " + maxQuerySize + ")");
+        }
+
+        var result = new QueryResultJson();
+        result.extensions = new ArrayList<>(param.extensions.size());
+        // Indices of the entries that have not been found yet
+        var pending = new ArrayList<Integer>(param.extensions.size());
+        for (var i = 0; i < param.extensions.size(); i++) {
+            result.extensions.add(null);
+            pending.add(i);
+        }
+        for (var registry : getRegistries()) {
+            if (pending.isEmpty()) {
+                break;
+            }
+            try {
+                var subResult = registry.query(CollectionUtil.map(pending, param.extensions::get));
+                if (subResult.error != null || subResult.extensions == null) {
+                    continue;
+                }
+                var iter = pending.iterator();
+                for (var json : subResult.extensions) {
+                    if (!iter.hasNext()) {
+                        break;
+                    }
+                    var index = iter.next();
+                    if (json.error == null || result.extensions.get(index) == null) {
+                        result.extensions.set(index, json);
+                    }
+                    if (json.error == null) {
+                        iter.remove();
+                    }
+                }
+            } catch (NotFoundException exc) {
+                // Try the next registry
+            } catch (ErrorResultException exc) {
+                return QueryResultJson.error(exc.getMessage());
+            }
+        }
+        return result;
+    }
+
     private int mergeSearchResults(SearchResultJson result, List<SearchEntryJson> entries, int limit) {
         var previousResult = Iterables.limit(result.extensions, result.extensions.size());
         var entriesIter = entries.iterator();
@@ -386,6 +618,172 @@ public class RegistryAPI {
         }
     }
 
+    @PostMapping(
+        path = "/api/-/publish/async",
+        consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    @ApiOperation("Publish an extension in the background by uploading a vsix file")
+    @ApiImplicitParams({
+        @ApiImplicitParam(
+            name = "content",
+            paramType = "body",
+            value = "Uploaded vsix file to publish",
+            required = true
+        )
+    })
+    @ApiResponses({
+        @ApiResponse(
+            code = 202,
+            message = "The extension was accepted for publishing; poll the returned URL for the result"
+        ),
+        @ApiResponse(
+            code = 200,
+            message = "The extension could not be accepted for publishing",
+            examples = @Example(@ExampleProperty(value="{ \"error\": \"Invalid access token.\" }", mediaType = "application/json"))
+        )
+    })
+    public ResponseEntity<PublishJobJson> publishAsync(InputStream content,
+                                                       @RequestParam @ApiParam("A personal access token") String token) {
+        try {
+            var json = publishJobs.submit(content, token);
+            return new ResponseEntity<>(json, location(json.url), HttpStatus.ACCEPTED);
+        } catch (ErrorResultException exc) {
+            return ResponseEntity.ok(PublishJobJson.error(exc.getMessage()));
+        }
+    }
+
+    @GetMapping(
+        path = "/api/-/publish/{jobId}",
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    @ApiOperation("Get the state of an extension that is published in the background")
+    @ApiResponses({
+        @ApiResponse(
+            code = 200,
+            message = "The state of the publish job is returned in JSON format"
+        ),
+        @ApiResponse(
+            code = 404,
+            message = "The publish job does not exist or has expired"
+        )
+    })
+    public ResponseEntity<PublishJobJson> getPublishJob(@PathVariable @ApiParam("Identifier of the publish job") String jobId) {
+        try {
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noStore())
+                    .body(publishJobs.getJob(jobId));
+        } catch (NotFoundException exc) {
+            return new ResponseEntity<>(PublishJobJson.error("Publish job not found: " + jobId), HttpStatus.NOT_FOUND);
+        }
+    }
+
+    @PostMapping(
+        path = "/api/-/publish/upload",
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    @ApiOperation("Start a chunked upload of a vsix file, which can be resumed if interrupted")
+    @ApiResponses({
+        @ApiResponse(
+            code = 201,
+            message = "Successfully created the upload session"
+        ),
+        @ApiResponse(
+            code = 200,
+            message = "The upload session could not be created",
+            examples = @Example(@ExampleProperty(value="{ \"error\": \"Invalid access token.\" }", mediaType = "application/json"))
+        )
+    })
+    public ResponseEntity<UploadJson> startUpload(@RequestParam @ApiParam("A personal access token") String token) {
+        try {
+            var json = uploads.createSession(token);
+            return new ResponseEntity<>(json, location(json.url), HttpStatus.CREATED);
+        } catch (ErrorResultException exc) {
+            return ResponseEntity.ok(UploadJson.error(exc.getMessage()));
+        }
+    }
+
+    @GetMapping(
+        path = "/api/-/publish/upload/{id}",
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    @ApiOperation("Get the state of a chunked upload")
+    public ResponseEntity<UploadJson> getUpload(@PathVariable @ApiParam("Identifier of the upload session") String id,
+                                                @RequestParam @ApiParam("A personal access token") String token) {
+        try {
+            return ResponseEntity.ok(uploads.getSession(id, token));
+        } catch (ErrorResultException exc) {
+            return new ResponseEntity<>(UploadJson.error(exc.getMessage()), HttpStatus.NOT_FOUND);
+        }
+    }
+
+    @PutMapping(
+        path = "/api/-/publish/upload/{id}",
+        consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    @ApiOperation("Upload a chunk of a vsix file")
+    @ApiImplicitParams({
+        @ApiImplicitParam(
+            name = "content",
+            paramType = "body",
+            value = "Chunk of the vsix file",
+            required = true
+        )
+    })
+    @ApiResponses({
+        @ApiResponse(
+            code = 200,
+            message = "The chunk was appended, or it could not be received"
+        ),
+        @ApiResponse(
+            code = 409,
+            message = "The offset does not match the number of bytes received so far",
+            examples = @Example(@ExampleProperty(value="{ \"error\": \"Expected a chunk at offset 1048576, got 0.\", \"offset\": 1048576 }", mediaType = "application/json"))
+        )
+    })
+    public ResponseEntity<UploadJson> uploadChunk(InputStream content,
+                                                  @PathVariable @ApiParam("Identifier of the upload session") String id,
+                                                  @RequestParam @ApiParam("Position of the chunk in the vsix file") long offset,
+                                                  @RequestParam @ApiParam("A personal access token") String token) {
+        try {
+            var json = uploads.appendChunk(id, offset, content, token);
+            if (json.error != null)
+                return new ResponseEntity<>(json, HttpStatus.CONFLICT);
+            return ResponseEntity.ok(json);
+        } catch (ErrorResultException exc) {
+            return ResponseEntity.ok(UploadJson.error(exc.getMessage()));
+        }
+    }
+
+    @PostMapping(
+        path = "/api/-/publish/upload/{id}/finish",
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    @ApiOperation("Publish an extension from a completed chunked upload")
+    @ApiResponses({
+        @ApiResponse(
+            code = 201,
+            message = "Successfully published the extension"
+        ),
+        @ApiResponse(
+            code = 200,
+            message = "The extension could not be published",
+            examples = @Example(@ExampleProperty(value="{ \"error\": \"Invalid access token.\" }", mediaType = "application/json"))
+        )
+    })
+    public ResponseEntity<ExtensionJson> finishUpload(@PathVariable @ApiParam("Identifier of the upload session") String id,
+                                                      @RequestParam @ApiParam("A personal access token") String token) {
+        try {
+            var json = uploads.finish(id, token);
+            var serverUrl = UrlUtil.getBaseUrl();
+            var url = UrlUtil.createApiUrl(serverUrl, "api", json.namespace, json.name, json.version);
+            return new ResponseEntity<>(json, location(url), HttpStatus.CREATED);
+        } catch (ErrorResultException exc) {
+            return ResponseEntity.ok(ExtensionJson.error(exc.getMessage()));
+        }
+    }
+
     @PostMapping(
         path = "/api/{namespace}/{extension}/review",
         consumes = MediaType.APPLICATION_JSON_VALUE,
@@ -0,0 +1,139 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+
+import org.eclipse.openvsx.db.LeaderElection;
+import org.eclipse.openvsx.entities.ExtensionVersion;
+import org.eclipse.openvsx.entities.FileResource;
+import org.eclipse.openvsx.jobs.JobHandler;
+import org.eclipse.openvsx.jobs.JobQueue;
+import org.eclipse.openvsx.repositories.RepositoryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stores gzip compressed variants of text resources, so they need not be compressed
+ * whenever they are served. Resources are compressed once, at maximum level, in a queued
+ * job after they are published; resources that were published before the variants were
+ * introduced are processed the same way. If compression is not worthwhile, an empty
+ * variant is stored, so the resource is not processed again.
+ */
+@Component
+public class ResourceCompressionHandler implements JobHandler<Long> {
+
+    public static final String TYPE = "resource-compression";
+
+    /** Resource types that are stored with a compressed variant. */
+    public static final List<String> TYPES = Arrays.asList(FileResource.MANIFEST, FileResource.README,
+            FileResource.LICENSE);
+
+    /** Text resources smaller than this are not worth a compressed variant. */
+    private static final int MIN_COMPRESS_SIZE = 512;
+
+    protected final Logger logger = LoggerFactory.getLogger(ResourceCompressionHandler.class);
+
+    @Autowired
+    RepositoryService repositories;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    LeaderElection leaderElection;
+
+    @Autowired
+    JobQueue jobs;
+
+    @EventListener
+    @Transactional
+    public void initCompressedResources(ApplicationStartedEvent event) {
+        leaderElection.runExclusively(TYPE, () -> {
+            var count = new int[1];
+            repositories.findUncompressedVersionIds(TYPES).forEach(id -> {
+                jobs.enqueue(TYPE, id);
+                count[0]++;
+            });
+            if (count[0] > 0)
+                logger.info("Queued resource compression for " + count[0] + " extension versions.");
+        });
+    }
+
+    /**
+     * Schedule the compression of the text resources of the given extension version.
+     * This must be called within the transaction that stores the resources.
+     */
+    public void schedule(ExtensionVersion extVersion) {
+        jobs.enqueue(TYPE, extVersion.getId());
+    }
+
+    /**
+     * Read the compressed variant of a resource. Returns {@code null} if the resource
+     * has no variant, because it is not compressed yet or compression is not worthwhile.
+     */
+    public byte[] getCompressedContent(FileResource resource) {
+        if (!TYPES.contains(resource.getType()))
+            return null;
+        var gzipContent = repositories.findGzipContent(resource);
+        return gzipContent != null && gzipContent.length > 0 ? gzipContent : null;
+    }
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    public Class<Long> getPayloadType() {
+        return Long.class;
+    }
+
+    @Override
+    public void handle(Long extVersionId) {
+        var extVersion = entityManager.find(ExtensionVersion.class, extVersionId);
+        if (extVersion == null)
+            return;
+        repositories.findUncompressedFiles(extVersion, TYPES)
+                .forEach(resource -> repositories.updateGzipContent(resource, compress(resource.getContent())));
+    }
+
+    /**
+     * Compress the given content. Returns an empty array if the compressed variant
+     * does not save enough space.
+     */
+    static byte[] compress(byte[] content) {
+        if (content.length < MIN_COMPRESS_SIZE)
+            return new byte[0];
+        var bytes = new ByteArrayOutputStream(content.length / 2);
+        try (var gzip = new GZIPOutputStream(bytes) {{ def.setLevel(Deflater.BEST_COMPRESSION); }}) {
+            gzip.write(content);
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+        if (bytes.size() >= content.length * 0.9)
+            return new byte[0];
+        return bytes.toByteArray();
+    }
+
+}
@@ -12,10 +12,16 @@ package org.eclipse.openvsx;
 import static org.eclipse.openvsx.util.UrlUtil.addQuery;
 import static org.eclipse.openvsx.util.UrlUtil.createApiUrl;
 
+import java.net.URI;
 import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
 
 import com.google.common.base.Strings;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
@@ -29,8 +35,11 @@ import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
+import org.eclipse.openvsx.json.DependencyClosureJson;
 import org.eclipse.openvsx.json.ExtensionJson;
 import org.eclipse.openvsx.json.NamespaceJson;
+import org.eclipse.openvsx.json.QueryParamJson;
+import org.eclipse.openvsx.json.QueryResultJson;
 import org.eclipse.openvsx.json.ReviewListJson;
 import org.eclipse.openvsx.json.SearchResultJson;
 import org.eclipse.openvsx.util.NotFoundException;
@@ -41,6 +50,9 @@ public class UpstreamRegistryService implements IExtensionRegistry {
     @Autowired
     RestTemplate restTemplate;
 
+    @Autowired
+    MeterRegistry meterRegistry;
+
     @Value("${ovsx.upstream.url:}")
     String upstreamUrl;
 
@@ -50,35 +62,41 @@ public class UpstreamRegistryService implements IExtensionRegistry {
 
     @Override
     public NamespaceJson getNamespace(String namespace) {
-        try {
-            String requestUrl = createApiUrl(upstreamUrl, "api", namespace);
-            return restTemplate.getForObject(requestUrl, NamespaceJson.class);
-        } catch (RestClientException exc) {
-            handleError(exc);
-            throw exc;
-        }
+        String requestUrl = createApiUrl(upstreamUrl, "api", namespace);
+        return execute("getNamespace", () -> restTemplate.getForObject(requestUrl, NamespaceJson.class));
     }
 
     @Override
     public ExtensionJson getExtension(String namespace, String extension) {
-        try {
-            String requestUrl = createApiUrl(upstreamUrl, "api", namespace, extension);
-            return restTemplate.getForObject(requestUrl, ExtensionJson.class);
-        } catch (RestClientException exc) {
-            handleError(exc);
-            throw exc;
-        }
+        String requestUrl = createApiUrl(upstreamUrl, "api", namespace, extension);
+        return execute("getExtension", () -> restTemplate.getForObject(requestUrl, ExtensionJson.class));
     }
 
     @Override
     public ExtensionJson getExtension(String namespace, String extension, String version) {
-        try {
-            String requestUrl = createApiUrl(upstreamUrl, "api", namespace, extension, version);
-            return restTemplate.getForObject(requestUrl, ExtensionJson.class);
-        } catch (RestClientException exc) {
-            handleError(exc);
-            throw exc;
-        }
+        String requestUrl = createApiUrl(upstreamUrl, "api", namespace, extension, version);
+        return execute("getExtension", () -> restTemplate.getForObject(requestUrl, ExtensionJson.class));
+    }
+
+    @Override
+    public ExtensionJson getCompatibleExtension(String namespace, String extension, String engineVersion) {
+        String requestUrl = addQuery(createApiUrl(upstreamUrl, "api", namespace, extension, "compatible"),
+                "engineVersion", engineVersion);
+        return execute("getCompatibleExtension", () -> restTemplate.getForObject(requestUrl, ExtensionJson.class));
+    }
+
+    @Override
+    public DependencyClosureJson resolveDependencies(String namespace, String extension, String version) {
+        String requestUrl = createApiUrl(upstreamUrl, "api", namespace, extension, version, "resolve");
+        return execute("resolveDependencies", () -> restTemplate.getForObject(requestUrl, DependencyClosureJson.class));
+    }
+
+    @Override
+    public QueryResultJson query(List<String> identifiers) {
+        String requestUrl = createApiUrl(upstreamUrl, "api", "-", "query");
+        var param = new QueryParamJson();
+        param.extensions = identifiers;
+        return execute("query", () -> restTemplate.postForObject(requestUrl, param, QueryResultJson.class));
     }
 
     @Override
@@ -89,39 +107,71 @@ public class UpstreamRegistryService implements IExtensionRegistry {
     private byte[] getFile(String url) {
         var headers = new HttpHeaders();
         headers.setAccept(Arrays.asList(MediaType.APPLICATION_OCTET_STREAM));
-        var response = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<String>(headers), byte[].class);
-        switch (response.getStatusCode()) {
-            case OK:
-                return response.getBody();
-            case NOT_FOUND:
-                throw new NotFoundException();
-            default:
-                throw new ResponseStatusException(response.getStatusCode(),
-                        "Upstream registry responded with status \"" + response.getStatusCode().getReasonPhrase() + "\".");
-        }
+        return time("getFile", () -> {
+            var response = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<String>(headers), byte[].class);
+            switch (response.getStatusCode()) {
+                case OK:
+                    return response.getBody();
+                case NOT_FOUND:
+                    throw new NotFoundException();
+                default:
+                    throw new ResponseStatusException(response.getStatusCode(),
+                            "Upstream registry responded with status \"" + response.getStatusCode().getReasonPhrase() + "\".");
+            }
+        });
     }
 
     @Override
     public ReviewListJson getReviews(String namespace, String extension) {
-        try {
-            String requestUrl = createApiUrl(upstreamUrl, "api", namespace, extension, "reviews");
-            return restTemplate.getForObject(requestUrl, ReviewListJson.class);
-        } catch (RestClientException exc) {
-            handleError(exc);
-            throw exc;
-        }
+        String requestUrl = createApiUrl(upstreamUrl, "api", namespace, extension, "reviews");
+        return execute("getReviews", () -> restTemplate.getForObject(requestUrl, ReviewListJson.class));
     }
 
 	@Override
 	public SearchResultJson search(String query, String category, int size, int offset, String sortOrder, String sortBy) {
-		try {
-            var searchUrl = createApiUrl(upstreamUrl, "api", "-", "search");
-            var requestUrl = addQuery(searchUrl, "query", query, "category", category,
-                    "size", Integer.toString(size), "offset", Integer.toString(offset));
-            return restTemplate.getForObject(requestUrl, SearchResultJson.class);
-        } catch (RestClientException exc) {
-            handleError(exc);
+        var searchUrl = createApiUrl(upstreamUrl, "api", "-", "search");
+        var requestUrl = addQuery(searchUrl, "query", query, "category", category,
+                "size", Integer.toString(size), "offset", Integer.toString(offset));
+        return execute("search", () -> restTemplate.getForObject(requestUrl, SearchResultJson.class));
+    }
+
+    private <T> T execute(String operation, Supplier<T> request) {
+        return time(operation, () -> {
+            try {
+                return request.get();
+            } catch (RestClientException exc) {
+                handleError(exc);
+                throw exc;
+            }
+        });
+    }
+
+    /**
+     * Measure a request to the upstream registry. The outcome is derived from the exception
+     * thrown by the request, if any.
+     */
+    private <T> T time(String operation, Supplier<T> request) {
+        var sample = Timer.start(meterRegistry);
+        var outcome = "error";
+        try {
+            var result = request.get();
+            outcome = "success";
+            return result;
+        } catch (NotFoundException exc) {
+            outcome = "not_found";
             throw exc;
+        } finally {
+            sample.stop(meterRegistry.timer("ovsx.upstream.requests",
+                    "operation", operation, "outcome", outcome, "registry", getRegistryHost()));
+        }
+    }
+
+    private String getRegistryHost() {
+        try {
+            var host = URI.create(upstreamUrl).getHost();
+            return host != null ? host : "unknown";
+        } catch (IllegalArgumentException exc) {
+            return "unknown";
         }
     }
     
@@ -155,6 +155,7 @@ public class UserAPI {
             return ResultJson.error("Token does not exist.");
         }
         token.setActive(false);
+        users.invalidateAccessToken(token.getValue());
         return ResultJson.success("Deleted access token for user " + user.getLoginName() + ".");
     }
 
@@ -9,11 +9,22 @@
  ********************************************************************************/
 package org.eclipse.openvsx;
 
+import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
 import javax.transaction.Transactional;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+
 import org.eclipse.openvsx.entities.PersonalAccessToken;
 import org.eclipse.openvsx.entities.Namespace;
 import org.eclipse.openvsx.entities.NamespaceMembership;
@@ -23,9 +34,13 @@ import org.eclipse.openvsx.repositories.RepositoryService;
 import org.eclipse.openvsx.util.ErrorResultException;
 import org.eclipse.openvsx.util.TimeUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Component
 public class UserService {
@@ -38,6 +53,40 @@ public class UserService {
     @Autowired
     RepositoryService repositories;
 
+    @Autowired
+    ChangeLogService changeLog;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    /**
+     * Seconds for which access tokens and publish permissions are cached. Changes made
+     * through this instance take effect immediately; changes made through other instances
+     * take effect when the cache entries expire.
+     */
+    @Value("${ovsx.auth.cache-ttl:30}")
+    long cacheTtl;
+
+    private Cache<String, PersonalAccessToken> tokenCache;
+    private Cache<String, Boolean> permissionCache;
+    private final Map<Long, LocalDateTime> pendingAccesses = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        tokenCache = CacheBuilder.newBuilder()
+                .expireAfterWrite(cacheTtl, TimeUnit.SECONDS)
+                .maximumSize(10_000)
+                .recordStats()
+                .build();
+        permissionCache = CacheBuilder.newBuilder()
+                .expireAfterWrite(cacheTtl, TimeUnit.SECONDS)
+                .maximumSize(100_000)
+                .recordStats()
+                .build();
+        GuavaCacheMetrics.monitor(meterRegistry, tokenCache, "access-tokens");
+        GuavaCacheMetrics.monitor(meterRegistry, permissionCache, "publish-permissions");
+    }
+
     public OAuth2User getOAuth2Principal() {
         var authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication != null) {
@@ -90,16 +139,59 @@ public class UserService {
         return user;
     }
 
+    /**
+     * Resolve an active access token and record its use. The access timestamps are
+     * written in batches by {@link #flushAccessTimestamps()}.
+     */
     @Transactional
     public PersonalAccessToken useAccessToken(String tokenValue) {
-        var token = repositories.findAccessToken(tokenValue);
-        if (token == null || !token.isActive()) {
+        if (tokenValue == null) {
             return null;
         }
-        token.setAccessedTimestamp(TimeUtil.getCurrentUTC());
+        var token = tokenCache.getIfPresent(tokenValue);
+        if (token == null) {
+            token = repositories.findAccessToken(tokenValue);
+            if (token == null || !token.isActive()) {
+                return null;
+            }
+            tokenCache.put(tokenValue, token);
+        }
+        pendingAccesses.put(token.getId(), TimeUtil.getCurrentUTC());
         return token;
     }
 
+    /**
+     * Resolve an active access token from the cache only, so made-up token values do not
+     * cause database queries. Returns {@code null} if the token has not been resolved by
+     * {@link #useAccessToken(String)} recently.
+     */
+    public PersonalAccessToken findCachedAccessToken(String tokenValue) {
+        if (tokenValue == null) {
+            return null;
+        }
+        return tokenCache.getIfPresent(tokenValue);
+    }
+
+    /**
+     * Remove an access token from the cache after it has been deactivated.
+     */
+    public void invalidateAccessToken(String tokenValue) {
+        if (tokenValue != null) {
+            afterCommit(() -> tokenCache.invalidate(tokenValue));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ovsx.auth.access-flush-interval:60000}")
+    @Transactional
+    public void flushAccessTimestamps() {
+        for (var tokenId : pendingAccesses.keySet()) {
+            var timestamp = pendingAccesses.remove(tokenId);
+            if (timestamp != null) {
+                repositories.updateAccessedTimestamp(tokenId, timestamp);
+            }
+        }
+    }
+
     public String generateTokenValue() {
         String value;
         do {
@@ -113,13 +205,22 @@ public class UserService {
             // Privileged users can publish to every namespace.
             return true;
         }
+        var key = user.getId() + ":" + namespace.getId();
+        var permission = permissionCache.getIfPresent(key);
+        if (permission == null) {
+            permission = computePublishPermission(user, namespace);
+            permissionCache.put(key, permission);
+        }
+        return permission;
+    }
 
+    private boolean computePublishPermission(UserData user, Namespace namespace) {
         var ownerships = repositories.findMemberships(namespace, NamespaceMembership.ROLE_OWNER);
         if (ownerships.isEmpty()) {
             // If the namespace has no owner, everyone has publish permission to it.
             return true;
         }
-        if (ownerships.stream().anyMatch(m -> m.getUser().equals(user))) {
+        if (ownerships.stream().anyMatch(m -> m.getUser().getId() == user.getId())) {
             // The requesting user is an owner of the namespace.
             return true;
         }
@@ -132,6 +233,27 @@ public class UserService {
         return membership.getRole().equalsIgnoreCase(NamespaceMembership.ROLE_CONTRIBUTOR);
     }
 
+    /**
+     * Remove the cached publish permissions for a namespace after its memberships have changed.
+     */
+    public void invalidatePermissions(Namespace namespace) {
+        var suffix = ":" + namespace.getId();
+        afterCommit(() -> permissionCache.asMap().keySet().removeIf(key -> key.endsWith(suffix)));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
     @Transactional(rollbackOn = ErrorResultException.class)
     public ResultJson setNamespaceMember(UserData requestingUser, String namespaceName, String provider, String userLogin, String role) {
         var namespace = repositories.findNamespace(namespaceName);
@@ -158,6 +280,8 @@ public class UserService {
             throw new ErrorResultException("User " + user.getLoginName() + " is not a member of " + namespace.getName() + ".");
         }
         entityManager.remove(membership);
+        changeLog.logNamespace(namespace);
+        invalidatePermissions(namespace);
         return ResultJson.success("Removed " + user.getLoginName() + " from namespace " + namespace.getName() + ".");
     }
 
@@ -173,6 +297,8 @@ public class UserService {
                 throw new ErrorResultException("User " + user.getLoginName() + " already has the role " + role + ".");
             }
             membership.setRole(role);
+            changeLog.logNamespace(namespace);
+            invalidatePermissions(namespace);
             return ResultJson.success("Changed role of " + user.getLoginName() + " in " + namespace.getName() + " to " + role + ".");
         }
         membership = new NamespaceMembership();
@@ -180,6 +306,8 @@ public class UserService {
         membership.setUser(user);
         membership.setRole(role);
         entityManager.persist(membership);
+        changeLog.logNamespace(namespace);
+        invalidatePermissions(namespace);
         return ResultJson.success("Added " + user.getLoginName() + " as " + role + " of " + namespace.getName() + ".");
     }
 
@@ -18,8 +18,11 @@ import static org.eclipse.openvsx.adapter.ExtensionQueryResult.Statistic.*;
 
 import java.net.URLConnection;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -28,16 +31,26 @@ import javax.transaction.Transactional;
 
 import com.google.common.collect.Lists;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.eclipse.openvsx.DownloadCountService;
+import org.eclipse.openvsx.IconThumbnailHandler;
+import org.eclipse.openvsx.ResourceCompressionHandler;
 import org.eclipse.openvsx.entities.Extension;
 import org.eclipse.openvsx.entities.ExtensionVersion;
 import org.eclipse.openvsx.entities.FileResource;
+import org.eclipse.openvsx.jfr.ExtensionQueryEvent;
+import org.eclipse.openvsx.jfr.FileServeEvent;
 import org.eclipse.openvsx.repositories.RepositoryService;
 import org.eclipse.openvsx.search.ExtensionSearch;
 import org.eclipse.openvsx.search.SearchService;
 import org.eclipse.openvsx.util.CollectionUtil;
 import org.eclipse.openvsx.util.ErrorResultException;
+import org.eclipse.openvsx.util.FileContent;
 import org.eclipse.openvsx.util.NotFoundException;
 import org.eclipse.openvsx.util.UrlUtil;
+import org.eclipse.openvsx.util.VersionRange;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
@@ -54,6 +67,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
@@ -62,6 +76,8 @@ import org.springframework.web.servlet.ModelAndView;
 @RestController
 public class VSCodeAdapter {
 
+    private static final String VSCODE_CLIENT_PREFIX = "VSCode ";
+
     @Autowired
     EntityManager entityManager;
 
@@ -71,6 +87,15 @@ public class VSCodeAdapter {
     @Autowired
     SearchService search;
 
+    @Autowired
+    DownloadCountService downloadCounts;
+
+    @Autowired
+    ResourceCompressionHandler resourceCompression;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
     @Value("${ovsx.webui.url:}")
     String webuiUrl;
 
@@ -83,7 +108,20 @@ public class VSCodeAdapter {
         produces = MediaType.APPLICATION_JSON_VALUE
     )
     @CrossOrigin
-    public ExtensionQueryResult extensionQuery(@RequestBody ExtensionQueryParam param) {
+    public ExtensionQueryResult extensionQuery(@RequestBody ExtensionQueryParam param,
+                                               @RequestHeader(value = "X-Market-Client-Id", required = false) String clientId) {
+        var event = new ExtensionQueryEvent();
+        event.begin();
+        var result = extensionQuery(param, getEngineVersion(clientId));
+        if (event.shouldCommit()) {
+            describeQuery(event, param);
+            event.resultCount = result.results.get(0).extensions.size();
+            event.commit();
+        }
+        return result;
+    }
+
+    private ExtensionQueryResult extensionQuery(ExtensionQueryParam param, Long engineVersion) {
         String queryString = null;
         String category = null;
         PageRequest pageRequest;
@@ -99,12 +137,12 @@ public class VSCodeAdapter {
             var extensionIds = filter.findCriteria(FILTER_EXTENSION_ID);
             if (!extensionIds.isEmpty()) {
                 // Find extensions by identifier
-                return findExtensionsById(extensionIds, param.flags);
+                return findExtensionsById(extensionIds, param.flags, engineVersion);
             }
             var extensionNames = filter.findCriteria(FILTER_EXTENSION_NAME);
             if (!extensionNames.isEmpty()) {
                 // Find extensions by qualified name
-                return findExtensionsByName(extensionNames, param.flags);
+                return findExtensionsByName(extensionNames, param.flags, engineVersion);
             }
     
             queryString = filter.findCriterion(FILTER_SEARCH_TEXT);
@@ -121,40 +159,76 @@ public class VSCodeAdapter {
         }
         try {
             var searchResult = search.search(queryString, category, pageRequest, sortOrder, sortBy);
-            return findExtensions(searchResult, param.flags);
+            return findExtensions(searchResult, param.flags, engineVersion);
         } catch (ErrorResultException exc) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, exc.getMessage(), exc);
         }
     }
 
-    private ExtensionQueryResult findExtensionsById(List<String> ids, int flags) {
-        var extensions = new ArrayList<ExtensionQueryResult.Extension>(ids.size());
+    private ExtensionQueryResult findExtensionsById(List<String> ids, int flags, Long engineVersion) {
+        var extensions = new ArrayList<Extension>(ids.size());
         for (var uuid : ids) {
             try {
                 var primaryKey = Long.parseLong(uuid.startsWith(idPrefix) ? uuid.substring(idPrefix.length()) : uuid);
                 var extension = entityManager.find(Extension.class, primaryKey);
                 if (extension != null) {
-                    extensions.add(toQueryExtension(extension, flags));
+                    extensions.add(extension);
                 }
             } catch (NumberFormatException exc) {
                 // Invalid UUID format - skip this extension
             }
         }
-        return toQueryResult(extensions);
+        return toQueryResult(toQueryExtensions(extensions, flags, engineVersion));
     }
 
-    private ExtensionQueryResult findExtensionsByName(List<String> names, int flags) {
-        var extensions = new ArrayList<ExtensionQueryResult.Extension>(names.size());
+    private ExtensionQueryResult findExtensionsByName(List<String> names, int flags, Long engineVersion) {
+        var extensions = new ArrayList<Extension>(names.size());
         for (var qualifiedName : names) {
             var split = qualifiedName.split("\\.");
             if (split.length == 2) {
                 var extension = repositories.findExtension(split[1], split[0]);
                 if (extension != null) {
-                    extensions.add(toQueryExtension(extension, flags));
+                    extensions.add(extension);
                 }
             }
         }
-        return toQueryResult(extensions);
+        return toQueryResult(toQueryExtensions(extensions, flags, engineVersion));
+    }
+
+    private void describeQuery(ExtensionQueryEvent event, ExtensionQueryParam param) {
+        event.flags = param.flags;
+        if (param.filters == null || param.filters.isEmpty()) {
+            event.queryType = "search";
+            return;
+        }
+        var filter = param.filters.get(0);
+        var extensionIds = filter.findCriteria(FILTER_EXTENSION_ID);
+        var extensionNames = filter.findCriteria(FILTER_EXTENSION_NAME);
+        if (!extensionIds.isEmpty()) {
+            event.queryType = "id";
+            event.criteria = extensionIds.size();
+        } else if (!extensionNames.isEmpty()) {
+            event.queryType = "name";
+            event.criteria = extensionNames.size();
+        } else {
+            event.queryType = "search";
+            event.query = filter.findCriterion(FILTER_SEARCH_TEXT);
+            if (event.query == null)
+                event.query = filter.findCriterion(FILTER_TAG);
+        }
+    }
+
+    /**
+     * VS Code identifies itself with a client id such as {@code VSCode 1.45.1}.
+     */
+    private Long getEngineVersion(String clientId) {
+        if (clientId == null || !clientId.startsWith(VSCODE_CLIENT_PREFIX))
+            return null;
+        try {
+            return VersionRange.parseVersion(clientId.substring(VSCODE_CLIENT_PREFIX.length()));
+        } catch (ErrorResultException exc) {
+            return null;
+        }
     }
 
     private ExtensionQueryResult toQueryResult(List<ExtensionQueryResult.Extension> extensions) {
@@ -174,14 +248,10 @@ public class VSCodeAdapter {
         return result;
     }
 
-    private ExtensionQueryResult findExtensions(Page<ExtensionSearch> searchResult, int flags) {
+    private ExtensionQueryResult findExtensions(Page<ExtensionSearch> searchResult, int flags, Long engineVersion) {
         var resultItem = new ExtensionQueryResult.ResultItem();
-        resultItem.extensions = CollectionUtil.map(searchResult.getContent(), es -> {
-            var extension = entityManager.find(Extension.class, es.id);
-            if (extension == null)
-                return null;
-            return toQueryExtension(extension, flags);
-        });
+        var extensions = CollectionUtil.map(searchResult.getContent(), es -> entityManager.find(Extension.class, es.id));
+        resultItem.extensions = toQueryExtensions(extensions, flags, engineVersion);
 
         var countMetadataItem = new ExtensionQueryResult.ResultMetadataItem();
         countMetadataItem.name = "TotalCount";
@@ -224,20 +294,64 @@ public class VSCodeAdapter {
     public ResponseEntity<byte[]> getFile(@PathVariable String namespace,
                                           @PathVariable String extensionName,
                                           @PathVariable String version,
-                                          @PathVariable String assetType) {
+                                          @PathVariable String assetType,
+                                          @RequestParam(required = false) Integer size,
+                                          @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        var event = new FileServeEvent();
+        event.begin();
         var extVersion = repositories.findVersion(version, extensionName, namespace);
         if (extVersion == null)
             throw new NotFoundException();
         var fileNameAndResource = getFile(extVersion, assetType);
         if (fileNameAndResource == null)
             throw new NotFoundException();
-        if (fileNameAndResource.getSecond().getType().equals(FileResource.DOWNLOAD)) {
-            var extension = extVersion.getExtension();
-            extension.setDownloadCount(extension.getDownloadCount() + 1);
-            search.updateSearchEntry(extension);
+        var resource = fileNameAndResource.getSecond();
+        var provisional = false;
+        var isThumbnail = false;
+        if (size != null && resource.getType().equals(FileResource.ICON)) {
+            var thumbnailType = IconThumbnailHandler.getThumbnailType(size);
+            var thumbnail = thumbnailType != null ? repositories.findFile(extVersion, thumbnailType) : null;
+            if (thumbnail != null && thumbnail.getContent().length > 0) {
+                resource = thumbnail;
+                isThumbnail = true;
+            } else {
+                // The thumbnail is generated in the background, or the icon cannot be scaled
+                provisional = thumbnailType != null && thumbnail == null;
+            }
+        }
+        if (resource.getType().equals(FileResource.DOWNLOAD))
+            downloadCounts.increment(extVersion.getExtension());
+        var content = resource.getContent();
+        String encoding = null;
+        var gzipContent = FileContent.acceptsGzip(acceptEncoding) ? resourceCompression.getCompressedContent(resource) : null;
+        if (gzipContent != null) {
+            content = gzipContent;
+            encoding = FileContent.GZIP;
+        }
+        DistributionSummary.builder("ovsx.files.served")
+                .baseUnit("bytes")
+                .tags("endpoint", "vscode", "type", resource.getType(), "encoding", encoding != null ? encoding : "identity")
+                .register(meterRegistry)
+                .record(content.length);
+        if (event.shouldCommit()) {
+            event.endpoint = "vscode";
+            event.namespace = namespace;
+            event.extension = extensionName;
+            event.version = version;
+            event.type = resource.getType();
+            event.encoding = encoding;
+            event.size = content.length;
+            event.commit();
         }
-        var content = fileNameAndResource.getSecond().getContent();
         var headers = getFileResponseHeaders(fileNameAndResource.getFirst());
+        if (provisional) {
+            headers.setCacheControl(CacheControl.maxAge(1, TimeUnit.HOURS));
+        } else if (isThumbnail) {
+            headers.setContentType(MediaType.IMAGE_PNG);
+            headers.setCacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().getHeaderValue() + ", immutable");
+        }
+        if (encoding != null)
+            headers.set(HttpHeaders.CONTENT_ENCODING, encoding);
         return new ResponseEntity<>(content, headers, HttpStatus.OK);
     }
     
@@ -282,6 +396,9 @@ public class VSCodeAdapter {
         headers.setCacheControl(CacheControl.maxAge(30, TimeUnit.DAYS));
         if (fileName.endsWith(".vsix")) {
             headers.add("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
+        } else {
+            // Text files may be served with a precompressed variant
+            headers.setVary(Arrays.asList(HttpHeaders.ACCEPT_ENCODING));
         }
         return headers;
     }
@@ -315,7 +432,55 @@ public class VSCodeAdapter {
         return new ModelAndView("redirect:" + UrlUtil.createApiUrl(serverUrl, "vscode", "asset", namespace, extension, version, FILE_VSIX), model);
     }
 
-    private ExtensionQueryResult.Extension toQueryExtension(Extension extension, int flags) {
+    private List<ExtensionQueryResult.Extension> toQueryExtensions(List<Extension> extensions, int flags, Long engineVersion) {
+        Map<Long, ExtensionVersion> compatibleVersions = Collections.emptyMap();
+        if (engineVersion != null && test(flags, FLAG_INCLUDE_LATEST_VERSION_ONLY))
+            compatibleVersions = findCompatibleVersions(extensions, engineVersion);
+        var result = new ArrayList<ExtensionQueryResult.Extension>(extensions.size());
+        for (var extension : extensions) {
+            result.add(toQueryExtension(extension, flags, compatibleVersions.get(extension.getId())));
+        }
+        return result;
+    }
+
+    /**
+     * Find the newest versions that the client is able to install for all extensions whose
+     * latest version is not compatible. The sort order of versions cannot be expressed in SQL,
+     * so only the properties that determine it are loaded for all candidates with one query,
+     * and the selected versions are loaded with another.
+     */
+    private Map<Long, ExtensionVersion> findCompatibleVersions(List<Extension> extensions, long engineVersion) {
+        var extensionIds = extensions.stream()
+                .filter(extension -> !isCompatible(extension.getLatest(), engineVersion))
+                .map(Extension::getId)
+                .collect(Collectors.toList());
+        if (extensionIds.isEmpty())
+            return Collections.emptyMap();
+        var candidates = new HashMap<Long, List<ExtensionVersion>>();
+        repositories.findCompatibleVersionRefs(extensionIds, engineVersion).forEach(ref ->
+            candidates.computeIfAbsent(ref.extensionId, id -> new ArrayList<>()).add(ref.toExtensionVersion())
+        );
+        if (candidates.isEmpty())
+            return Collections.emptyMap();
+        var versionIds = candidates.values().stream()
+                .map(versions -> ExtensionVersion.findLatest(versions).getId())
+                .collect(Collectors.toList());
+        var result = new HashMap<Long, ExtensionVersion>();
+        repositories.findVersions(versionIds).forEach(extVersion -> result.put(extVersion.getExtension().getId(), extVersion));
+        return result;
+    }
+
+    private boolean isCompatible(ExtensionVersion extVersion, long engineVersion) {
+        var min = extVersion.getVscodeEngineMin();
+        var max = extVersion.getVscodeEngineMax();
+        return min != null && max != null && min <= engineVersion && max > engineVersion;
+    }
+
+    /**
+     * Convert an extension to the query result. The given compatible version is offered
+     * instead of the latest version if it is not {@code null}.
+     */
+    private ExtensionQueryResult.Extension toQueryExtension(Extension extension, int flags, ExtensionVersion compatible) {
         var queryExt = new ExtensionQueryResult.Extension();
         var namespace = extension.getNamespace();
         queryExt.publisher = new ExtensionQueryResult.Publisher();
@@ -329,7 +494,9 @@ public class VSCodeAdapter {
         queryExt.shortDescription = latest.getDescription();
 
         if (test(flags, FLAG_INCLUDE_LATEST_VERSION_ONLY)) {
-            queryExt.versions = Lists.newArrayList(toQueryVersion(latest, flags));
+            // Offer the newest version that the client is able to install
+            var version = compatible != null ? compatible : latest;
+            queryExt.versions = Lists.newArrayList(toQueryVersion(version, flags));
         } else if (test(flags, FLAG_INCLUDE_VERSIONS) || test(flags, FLAG_INCLUDE_VERSION_PROPERTIES)) {
             var allVersions = Lists.newArrayList(repositories.findVersions(extension));
             Collections.sort(allVersions, ExtensionVersion.SORT_COMPARATOR);
@@ -377,8 +544,9 @@ public class VSCodeAdapter {
                     UrlUtil.createApiUrl(serverUrl, "api", namespace, extensionName, extVer.getVersion(), "file", extVer.getReadmeFileName()));
             queryVer.addFile(FILE_LICENSE,
                     UrlUtil.createApiUrl(serverUrl, "api", namespace, extensionName, extVer.getVersion(), "file", extVer.getLicenseFileName()));
-            queryVer.addFile(FILE_ICON,
-                    UrlUtil.createApiUrl(serverUrl, "api", namespace, extensionName, extVer.getVersion(), "file", extVer.getIconFileName()));
+            queryVer.addFile(FILE_ICON, IconThumbnailHandler.getThumbnailUrl(
+                    UrlUtil.createApiUrl(serverUrl, "api", namespace, extensionName, extVer.getVersion(), "file", extVer.getIconFileName()),
+                    IconThumbnailHandler.LISTING_SIZE));
             queryVer.addFile(FILE_VSIX,
                     UrlUtil.createApiUrl(serverUrl, "api", namespace, extensionName, extVer.getVersion(), "file", extVer.getExtensionFileName()));
         }
@@ -0,0 +1,55 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.db;
+
+import javax.transaction.Transactional;
+
+import org.eclipse.openvsx.repositories.RepositoryService;
+import org.eclipse.openvsx.util.VersionRange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Computes the engine version ranges of extension versions that were published
+ * before the ranges were stored.
+ */
+@Component
+public class EngineRangeInitializer {
+
+    protected final Logger logger = LoggerFactory.getLogger(EngineRangeInitializer.class);
+
+    @Autowired
+    RepositoryService repositories;
+
+    @Autowired
+    LeaderElection leaderElection;
+
+    @EventListener
+    @Transactional
+    public void initEngineRanges(ApplicationStartedEvent event) {
+        leaderElection.runExclusively("engine-ranges", () -> {
+            var count = new int[1];
+            repositories.findVersionsWithoutEngineRange().forEach(extVersion -> {
+                var engines = extVersion.getEnginesMap();
+                var vscodeEngine = engines != null ? engines.get("vscode") : null;
+                extVersion.setVscodeEngineRange(VersionRange.parse(vscodeEngine));
+                count[0]++;
+            });
+
+            if (count[0] > 0)
+                logger.info("Initialized engine ranges of " + count[0] + " extension versions.");
+        });
+    }
+
+}
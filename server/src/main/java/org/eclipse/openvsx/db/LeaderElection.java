@@ -0,0 +1,178 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.db;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+import com.google.common.hash.Hashing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Designates one node of a cluster to run each singleton task, e.g. mirroring an upstream
+ * registry. The leadership of a task is a session-level Postgres advisory lock held on a
+ * dedicated connection. It is released when the node stops or loses its connection, so
+ * another node can take over the next time it checks its leadership. One-shot tasks, e.g.
+ * initializing data on startup, lock their task only while they run.
+ */
+@Component
+public class LeaderElection {
+
+    protected final Logger logger = LoggerFactory.getLogger(LeaderElection.class);
+
+    @Autowired
+    DataSource dataSource;
+
+    /** If disabled, every node considers itself the leader of all tasks. */
+    @Value("${ovsx.cluster.leader-election:true}")
+    boolean enabled;
+
+    private final Set<String> tasks = new LinkedHashSet<>();
+    private Connection connection;
+
+    /**
+     * Check whether this node is the leader of the given recurring task, and try to become
+     * the leader if no other node is. The leadership is kept until the node stops.
+     */
+    public synchronized boolean isLeader(String task) {
+        if (!enabled || tasks.contains(task))
+            return true;
+        try {
+            if (tryLock(getConnection(), getLockKey(task))) {
+                tasks.add(task);
+                logger.info("This node is now the leader of task " + task);
+                return true;
+            }
+        } catch (SQLException exc) {
+            logger.warn("Could not acquire the leadership of task " + task, exc);
+            reset();
+        }
+        return false;
+    }
+
+    /**
+     * Run a one-shot task unless another node is running it at the same time. The lock is
+     * held on a separate connection and released when the task is finished, so nodes that
+     * start later run the task again. Returns whether the task was run.
+     */
+    public boolean runExclusively(String task, Runnable action) {
+        if (!enabled) {
+            action.run();
+            return true;
+        }
+        var key = getLockKey(task);
+        try (var connection = dataSource.getConnection()) {
+            connection.setAutoCommit(true);
+            if (!tryLock(connection, key))
+                return false;
+            try {
+                action.run();
+            } finally {
+                try (var statement = connection.prepareStatement("SELECT pg_advisory_unlock(?)")) {
+                    statement.setLong(1, key);
+                    statement.execute();
+                }
+            }
+            return true;
+        } catch (SQLException exc) {
+            logger.warn("Could not lock task " + task, exc);
+            return false;
+        }
+    }
+
+    private boolean tryLock(Connection connection, long key) throws SQLException {
+        try (var statement = connection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+            statement.setLong(1, key);
+            try (var result = statement.executeQuery()) {
+                return result.next() && result.getBoolean(1);
+            }
+        }
+    }
+
+    /**
+     * Verify that the locks of all tasks led by this node are still held. This keeps the
+     * connection alive and releases the leadership early if the connection is lost.
+     */
+    @Scheduled(fixedDelayString = "${ovsx.cluster.renew-interval:10000}")
+    public synchronized void renew() {
+        if (connection == null)
+            return;
+        try (var statement = connection.prepareStatement(
+                "SELECT count(*) FROM pg_locks WHERE locktype = 'advisory' AND pid = pg_backend_pid() AND granted")) {
+            try (var result = statement.executeQuery()) {
+                if (!result.next() || result.getLong(1) < tasks.size()) {
+                    logger.warn("Advisory locks of the connection were lost");
+                    reset();
+                }
+            }
+        } catch (SQLException exc) {
+            logger.warn("Lost the connection that holds the leadership locks: " + exc.getMessage());
+            reset();
+        }
+    }
+
+    /**
+     * Release the leadership of all tasks, e.g. before the node is shut down.
+     */
+    @PreDestroy
+    public synchronized void release() {
+        reset();
+    }
+
+    public synchronized Set<String> getTasks() {
+        return Set.copyOf(tasks);
+    }
+
+    private Connection getConnection() throws SQLException {
+        if (connection == null) {
+            connection = dataSource.getConnection();
+            connection.setAutoCommit(true);
+        }
+        return connection;
+    }
+
+    private void reset() {
+        if (!tasks.isEmpty()) {
+            logger.info("Released the leadership of tasks " + tasks);
+            tasks.clear();
+        }
+        if (connection != null) {
+            try (var statement = connection.createStatement()) {
+                // The connection may be returned to a pool, so the session is not necessarily closed
+                statement.execute("SELECT pg_advisory_unlock_all()");
+            } catch (SQLException exc) {
+                // The locks are released by the server when the session ends
+            }
+            try {
+                connection.close();
+            } catch (SQLException exc) {
+                logger.warn("Could not close the leadership connection", exc);
+            }
+            connection = null;
+        }
+    }
+
+    static long getLockKey(String task) {
+        return Hashing.sha256().hashString("ovsx-task:" + task, StandardCharsets.UTF_8).asLong();
+    }
+
+}
@@ -11,9 +11,13 @@ package org.eclipse.openvsx.db;
 
 import java.util.Arrays;
 
+import javax.persistence.EntityManager;
 import javax.transaction.Transactional;
 
+import org.eclipse.openvsx.entities.ExtensionVersion;
 import org.eclipse.openvsx.entities.FileResource;
+import org.eclipse.openvsx.jobs.JobHandler;
+import org.eclipse.openvsx.jobs.JobQueue;
 import org.eclipse.openvsx.repositories.RepositoryService;
 import org.eclipse.openvsx.util.LicenseDetection;
 import org.slf4j.Logger;
@@ -24,39 +28,76 @@ import org.springframework.boot.context.event.ApplicationStartedEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+/**
+ * Detects the license type of extension versions that were published before the license
+ * detection was introduced or extended. The versions are processed as queued jobs, so
+ * the work is shared by all nodes and does not delay the startup.
+ */
 @Component
-public class LicenseInitializer {
+public class LicenseInitializer implements JobHandler<Long> {
+
+    public static final String TYPE = "license-detection";
 
     protected final Logger logger = LoggerFactory.getLogger(LicenseInitializer.class);
 
     @Autowired
     RepositoryService repositories;
 
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    LeaderElection leaderElection;
+
+    @Autowired
+    JobQueue jobs;
+
     @Value("${ovsx.licenses.detect:}")
     String[] detectLicenseIds;
 
     @EventListener
     @Transactional
     public void initExtensionLicenses(ApplicationStartedEvent event) {
-        var detection = new LicenseDetection(Arrays.asList(detectLicenseIds));
-        var undetected = new int[1];
-        repositories.findVersionsByLicense(null).forEach(extVersion -> {
-            var license = repositories.findFile(extVersion, FileResource.LICENSE);
-            if (license != null) {
-                var detectedId = detection.detectLicense(license.getContent());
-                if (detectedId == null) {
-                    undetected[0]++;
-                } else {
-                    extVersion.setLicense(detectedId);
-                    var extension = extVersion.getExtension();
-                    logger.info("License of " + extension.getNamespace().getName() + "." + extension.getName()
-                            + " v" + extVersion.getVersion() + " set to " + detectedId);
-                }
-            }
+        leaderElection.runExclusively("license-detection", () -> {
+            var count = new int[1];
+            repositories.findVersionsByLicense(null).forEach(extVersion -> {
+                jobs.enqueue(TYPE, extVersion.getId());
+                count[0]++;
+            });
+            if (count[0] > 0)
+                logger.info("Queued license detection for " + count[0] + " extension versions.");
         });
+    }
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
 
-        if (undetected[0] > 0)
-            logger.warn("Failed to detect license type for " + undetected[0] + " extensions.");
+    @Override
+    public Class<Long> getPayloadType() {
+        return Long.class;
+    }
+
+    @Override
+    public void handle(Long extVersionId) {
+        var extVersion = entityManager.find(ExtensionVersion.class, extVersionId);
+        if (extVersion == null || extVersion.getLicense() != null)
+            return;
+        var license = repositories.findFile(extVersion, FileResource.LICENSE);
+        if (license == null)
+            return;
+        var detection = new LicenseDetection(Arrays.asList(detectLicenseIds));
+        var detectedId = detection.detectLicense(license.getContent());
+        var extension = extVersion.getExtension();
+        if (detectedId == null) {
+            logger.warn("Failed to detect license type of " + extension.getNamespace().getName() + "."
+                    + extension.getName() + " v" + extVersion.getVersion());
+        } else {
+            extVersion.setLicense(detectedId);
+            logger.info("License of " + extension.getNamespace().getName() + "." + extension.getName()
+                    + " v" + extVersion.getVersion() + " set to " + detectedId);
+        }
     }
 
-}
\ No newline at end of file
+}
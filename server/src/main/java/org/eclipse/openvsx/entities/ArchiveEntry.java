@@ -0,0 +1,115 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.entities;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+
+/**
+ * A file in the package of an extension version, taken from the central directory of
+ * the zip archive. The entry data can be read from the stored package without opening
+ * the archive.
+ */
+@Entity
+public class ArchiveEntry {
+
+    public static final int METHOD_STORED = 0;
+    public static final int METHOD_DEFLATED = 8;
+
+    @Id
+    @GeneratedValue
+    long id;
+
+    @ManyToOne
+    ExtensionVersion extension;
+
+    @Column(length = 1024)
+    String name;
+
+    /** Position of the entry data in the archive, after its local header. */
+    long dataOffset;
+
+    long compressedSize;
+
+    long size;
+
+    int method;
+
+    long crc;
+
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public ExtensionVersion getExtension() {
+        return extension;
+    }
+
+    public void setExtension(ExtensionVersion extension) {
+        this.extension = extension;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getDataOffset() {
+        return dataOffset;
+    }
+
+    public void setDataOffset(long dataOffset) {
+        this.dataOffset = dataOffset;
+    }
+
+    public long getCompressedSize() {
+        return compressedSize;
+    }
+
+    public void setCompressedSize(long compressedSize) {
+        this.compressedSize = compressedSize;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public int getMethod() {
+        return method;
+    }
+
+    public void setMethod(int method) {
+        this.method = method;
+    }
+
+    public long getCrc() {
+        return crc;
+    }
+
+    public void setCrc(long crc) {
+        this.crc = crc;
+    }
+
+}
@@ -0,0 +1,112 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.entities;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+
+import org.eclipse.openvsx.json.ChangeJson;
+import org.eclipse.openvsx.util.TimeUtil;
+
+/**
+ * A change of the registry content. Entries refer to namespaces and extensions by name
+ * so they remain valid after the referenced entities have been deleted.
+ */
+@Entity
+public class ChangeLogEntry {
+
+    public static final String PUBLISH = "publish";
+    public static final String DELETE = "delete";
+    public static final String REVIEW = "review";
+    public static final String NAMESPACE = "namespace";
+
+    @Id
+    @GeneratedValue
+    long id;
+
+    LocalDateTime timestamp;
+
+    @Column(length = 32)
+    String type;
+
+    String namespace;
+
+    String extension;
+
+    String version;
+
+
+    /**
+     * Convert to a JSON object.
+     */
+    public ChangeJson toChangeJson() {
+        var json = new ChangeJson();
+        json.id = this.getId();
+        json.timestamp = TimeUtil.toUTCString(this.getTimestamp());
+        json.type = this.getType();
+        json.namespace = this.getNamespace();
+        json.extension = this.getExtension();
+        json.version = this.getVersion();
+        return json;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(LocalDateTime timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public void setNamespace(String namespace) {
+        this.namespace = namespace;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public void setExtension(String extension) {
+        this.extension = extension;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+}
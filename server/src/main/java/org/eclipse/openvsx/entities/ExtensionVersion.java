@@ -15,7 +15,7 @@ import java.util.List;
 import java.util.Map;
 
 import javax.persistence.Column;
-import javax.persistence.ElementCollection;
+import javax.persistence.Convert;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
@@ -26,12 +26,15 @@ import javax.persistence.OneToOne;
 import javax.persistence.Transient;
 
 import org.apache.jena.ext.com.google.common.collect.Maps;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.ColumnTransformer;
 import org.eclipse.openvsx.json.ExtensionJson;
 import org.eclipse.openvsx.json.ExtensionReferenceJson;
 import org.eclipse.openvsx.json.SearchEntryJson;
 import org.eclipse.openvsx.util.CollectionUtil;
 import org.eclipse.openvsx.util.SemanticVersion;
 import org.eclipse.openvsx.util.TimeUtil;
+import org.eclipse.openvsx.util.VersionRange;
 
 @Entity
 public class ExtensionVersion {
@@ -76,13 +79,23 @@ public class ExtensionVersion {
     @Column(length = 2048)
     String description;
 
-    @ElementCollection
+    @Column(columnDefinition = "jsonb")
+    @Convert(converter = ListOfStringConverter.class)
+    @ColumnTransformer(write = "?::jsonb")
     List<String> engines;
 
-    @ElementCollection
+    Long vscodeEngineMin;
+
+    Long vscodeEngineMax;
+
+    @Column(columnDefinition = "jsonb")
+    @Convert(converter = ListOfStringConverter.class)
+    @ColumnTransformer(write = "?::jsonb")
     List<String> categories;
 
-    @ElementCollection
+    @Column(columnDefinition = "jsonb")
+    @Convert(converter = ListOfStringConverter.class)
+    @ColumnTransformer(write = "?::jsonb")
     List<String> tags;
 
     String license;
@@ -104,13 +117,35 @@ public class ExtensionVersion {
 
     String qna;
 
+    /** Whether the central directory of the package has been read into archive entries. */
+    boolean archiveIndexed;
+
+    // Batch fetching avoids one query per version when many versions are serialized at once
     @ManyToMany
+    @BatchSize(size = 100)
     List<Extension> dependencies;
 
     @ManyToMany
+    @BatchSize(size = 100)
     List<Extension> bundledExtensions;
 
 
+    /**
+     * Select the latest of the given versions. Preview versions are considered
+     * only if there is no other version.
+     */
+    public static ExtensionVersion findLatest(Iterable<ExtensionVersion> versions) {
+        ExtensionVersion latest = null;
+        for (var extVersion : versions) {
+            if (latest == null
+                    || latest.isPreview() && !extVersion.isPreview()
+                    || latest.isPreview() == extVersion.isPreview() && SORT_COMPARATOR.compare(extVersion, latest) < 0) {
+                latest = extVersion;
+            }
+        }
+        return latest;
+    }
+
     /**
      * Convert to a JSON object without URLs.
      */
@@ -311,6 +346,27 @@ public class ExtensionVersion {
 		this.engines = engines;
 	}
 
+    public Long getVscodeEngineMin() {
+        return vscodeEngineMin;
+    }
+
+    public void setVscodeEngineMin(Long vscodeEngineMin) {
+        this.vscodeEngineMin = vscodeEngineMin;
+    }
+
+    public Long getVscodeEngineMax() {
+        return vscodeEngineMax;
+    }
+
+    public void setVscodeEngineMax(Long vscodeEngineMax) {
+        this.vscodeEngineMax = vscodeEngineMax;
+    }
+
+    public void setVscodeEngineRange(VersionRange range) {
+        this.vscodeEngineMin = range.getMin();
+        this.vscodeEngineMax = range.getMax();
+    }
+
 	public List<String> getCategories() {
 		return categories;
 	}
@@ -399,4 +455,12 @@ public class ExtensionVersion {
 		this.bundledExtensions = bundledExtensions;
 	}
 
+	public boolean isArchiveIndexed() {
+		return archiveIndexed;
+	}
+
+	public void setArchiveIndexed(boolean archiveIndexed) {
+		this.archiveIndexed = archiveIndexed;
+	}
+
 }
\ No newline at end of file
@@ -34,8 +34,12 @@ public class FileResource {
     @Column(length = 32)
     String type;
 
+    // The gzip_content column is not mapped, so precompressed variants are only loaded when they are served
     byte[] content;
 
+    @Column(length = 64)
+    String sha256;
+
 
     public long getId() {
         return id;
@@ -68,5 +72,13 @@ public class FileResource {
 	public void setContent(byte[] content) {
 		this.content = content;
 	}
-    
-}
\ No newline at end of file
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+}
@@ -0,0 +1,54 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.entities;
+
+import java.io.IOException;
+import java.util.List;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Stores a list of strings as a JSON array in a single {@code jsonb} column,
+ * so the list is loaded together with its owning row.
+ */
+@Converter
+public class ListOfStringConverter implements AttributeConverter<List<String>, String> {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<List<String>> LIST_TYPE = new TypeReference<List<String>>() {};
+
+    @Override
+    public String convertToDatabaseColumn(List<String> list) {
+        if (list == null)
+            return null;
+        try {
+            return MAPPER.writeValueAsString(list);
+        } catch (JsonProcessingException exc) {
+            throw new RuntimeException(exc);
+        }
+    }
+
+    @Override
+    public List<String> convertToEntityAttribute(String json) {
+        if (json == null)
+            return null;
+        try {
+            return MAPPER.readValue(json, LIST_TYPE);
+        } catch (IOException exc) {
+            throw new RuntimeException(exc);
+        }
+    }
+
+}
@@ -0,0 +1,55 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.entities;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Stores a map of numbers as a JSON object in a single text column. Unlike {@code jsonb},
+ * the text column keeps the order of the keys.
+ */
+@Converter
+public class MapOfLongConverter implements AttributeConverter<Map<String, Long>, String> {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<LinkedHashMap<String, Long>> MAP_TYPE = new TypeReference<LinkedHashMap<String, Long>>() {};
+
+    @Override
+    public String convertToDatabaseColumn(Map<String, Long> map) {
+        if (map == null)
+            return null;
+        try {
+            return MAPPER.writeValueAsString(map);
+        } catch (JsonProcessingException exc) {
+            throw new RuntimeException(exc);
+        }
+    }
+
+    @Override
+    public Map<String, Long> convertToEntityAttribute(String json) {
+        if (json == null)
+            return null;
+        try {
+            return MAPPER.readValue(json, MAP_TYPE);
+        } catch (IOException exc) {
+            throw new RuntimeException(exc);
+        }
+    }
+
+}
@@ -0,0 +1,145 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.entities;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+
+/**
+ * State of an extension package that is published in the background. The package itself
+ * is stored in the {@code content} column, which is not mapped, so polling the state of
+ * a job does not load it.
+ */
+@Entity
+public class PublishJob {
+
+    public static final String STATUS_QUEUED = "queued";
+    public static final String STATUS_RUNNING = "running";
+    public static final String STATUS_SUCCEEDED = "succeeded";
+    public static final String STATUS_FAILED = "failed";
+
+    @Id
+    @Column(length = 36)
+    String id;
+
+    String namespace;
+
+    String name;
+
+    String version;
+
+    @Column(length = 32)
+    String status;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    PersonalAccessToken token;
+
+    /** Duration of each completed processing stage in milliseconds. */
+    @Column(length = 2048)
+    @Convert(converter = MapOfLongConverter.class)
+    Map<String, Long> stages = new LinkedHashMap<>();
+
+    @Column(length = 2048)
+    String error;
+
+    LocalDateTime created;
+
+    LocalDateTime finished;
+
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public void setNamespace(String namespace) {
+        this.namespace = namespace;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public PersonalAccessToken getToken() {
+        return token;
+    }
+
+    public void setToken(PersonalAccessToken token) {
+        this.token = token;
+    }
+
+    public Map<String, Long> getStages() {
+        return stages;
+    }
+
+    public void setStages(Map<String, Long> stages) {
+        this.stages = stages;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public LocalDateTime getCreated() {
+        return created;
+    }
+
+    public void setCreated(LocalDateTime created) {
+        this.created = created;
+    }
+
+    public LocalDateTime getFinished() {
+        return finished;
+    }
+
+    public void setFinished(LocalDateTime finished) {
+        this.finished = finished;
+    }
+
+}
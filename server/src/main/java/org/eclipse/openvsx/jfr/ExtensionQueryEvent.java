@@ -0,0 +1,43 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("org.eclipse.openvsx.ExtensionQuery")
+@Label("Extension Query")
+@Description("A gallery query of the VS Code adapter")
+@Category({ "Open VSX", "VS Code Adapter" })
+@StackTrace(false)
+public class ExtensionQueryEvent extends Event {
+
+    /** One of {@code id}, {@code name} or {@code search}. */
+    @Label("Query Type")
+    public String queryType;
+
+    @Label("Criteria")
+    @Description("Number of extension identifiers or names to look up")
+    public int criteria;
+
+    @Label("Query")
+    public String query;
+
+    @Label("Flags")
+    public int flags;
+
+    @Label("Result Count")
+    public int resultCount;
+
+}
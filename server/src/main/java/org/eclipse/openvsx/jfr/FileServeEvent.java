@@ -0,0 +1,51 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("org.eclipse.openvsx.FileServe")
+@Label("File Serve")
+@Description("Loading a file of an extension version to be sent to a client")
+@Category({ "Open VSX", "Files" })
+@StackTrace(false)
+public class FileServeEvent extends Event {
+
+    /** Either {@code api} or {@code vscode}. */
+    @Label("Endpoint")
+    public String endpoint;
+
+    @Label("Namespace")
+    public String namespace;
+
+    @Label("Extension")
+    public String extension;
+
+    @Label("Version")
+    public String version;
+
+    @Label("File Type")
+    public String type;
+
+    /** The content encoding, or {@code null} if the raw content was served. */
+    @Label("Encoding")
+    public String encoding;
+
+    @Label("Size")
+    @DataAmount
+    public long size;
+
+}
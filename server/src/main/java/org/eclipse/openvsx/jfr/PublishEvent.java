@@ -0,0 +1,41 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("org.eclipse.openvsx.Publish")
+@Label("Publish")
+@Description("Publishing an extension version, either synchronously or as a queued job")
+@Category({ "Open VSX", "Publish" })
+@StackTrace(false)
+public class PublishEvent extends Event {
+
+    @Label("Mode")
+    public String mode;
+
+    @Label("Namespace")
+    public String namespace;
+
+    @Label("Extension")
+    public String extension;
+
+    @Label("Version")
+    public String version;
+
+    @Label("Outcome")
+    public String outcome;
+
+}
@@ -0,0 +1,48 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("org.eclipse.openvsx.PublishStage")
+@Label("Publish Stage")
+@Description("A stage of processing an extension package: read, parse, license or persist")
+@Category({ "Open VSX", "Publish" })
+@StackTrace(false)
+public class PublishStageEvent extends Event {
+
+    public static final String READ = "read";
+    public static final String PARSE = "parse";
+    public static final String LICENSE = "license";
+    public static final String PERSIST = "persist";
+
+    @Label("Stage")
+    public String stage;
+
+    @Label("Namespace")
+    public String namespace;
+
+    @Label("Extension")
+    public String extension;
+
+    @Label("Version")
+    public String version;
+
+    @Label("Size")
+    @DataAmount
+    public long size;
+
+}
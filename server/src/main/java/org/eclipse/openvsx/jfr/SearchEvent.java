@@ -0,0 +1,50 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("org.eclipse.openvsx.Search")
+@Label("Search")
+@Description("A query to the search index")
+@Category({ "Open VSX", "Search" })
+@StackTrace(false)
+public class SearchEvent extends Event {
+
+    @Label("Query")
+    public String query;
+
+    @Label("Category")
+    public String category;
+
+    @Label("Sort By")
+    public String sortBy;
+
+    @Label("Sort Order")
+    public String sortOrder;
+
+    @Label("Offset")
+    public long offset;
+
+    @Label("Page Size")
+    public int size;
+
+    @Label("Result Count")
+    public int resultCount;
+
+    @Label("Total Hits")
+    public long totalHits;
+
+}
@@ -0,0 +1,29 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.jobs;
+
+/**
+ * Executes queued jobs of one type. Handlers are discovered as Spring beans. A job is
+ * executed within a transaction that also removes it from the queue, so its database
+ * changes are committed exactly once; other side effects must be idempotent, because
+ * a job is retried when it fails or its worker is lost.
+ */
+public interface JobHandler<T> {
+
+    String getType();
+
+    /**
+     * The class the job payloads are deserialized to. Payloads are stored as JSON.
+     */
+    Class<T> getPayloadType();
+
+    void handle(T payload);
+
+}
@@ -0,0 +1,329 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.jobs;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Stopwatch;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.eclipse.openvsx.entities.QueuedJob;
+import org.eclipse.openvsx.repositories.RepositoryService;
+import org.eclipse.openvsx.util.TimeUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Executes deferred work that is stored in the database. Every node polls the queue and
+ * claims due jobs with {@code FOR UPDATE SKIP LOCKED}, so the jobs are distributed among
+ * the nodes without being executed twice. Failed jobs are retried with an exponential
+ * backoff until the maximum number of attempts is reached; then they are kept with
+ * status {@code dead}. Jobs of a node that stopped while executing them are retried
+ * when the configured timeout has passed.
+ */
+@Component
+public class JobQueue {
+
+    protected final Logger logger = LoggerFactory.getLogger(JobQueue.class);
+
+    private static final String[] STATUSES = {
+        QueuedJob.STATUS_PENDING, QueuedJob.STATUS_RUNNING, QueuedJob.STATUS_DEAD
+    };
+
+    @Autowired
+    RepositoryService repositories;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    ObjectProvider<JobHandler<?>> handlerProvider;
+
+    @Value("${ovsx.jobs.enabled:true}")
+    boolean enabled;
+
+    @Value("${ovsx.jobs.workers:2}")
+    int workers;
+
+    @Value("${ovsx.jobs.max-attempts:5}")
+    int maxAttempts;
+
+    /** Milliseconds before the first retry of a failed job; the delay is doubled with every attempt. */
+    @Value("${ovsx.jobs.retry-delay:10000}")
+    long retryDelay;
+
+    @Value("${ovsx.jobs.max-retry-delay:3600000}")
+    long maxRetryDelay;
+
+    /** Seconds after which a running job is assumed to be lost. */
+    @Value("${ovsx.jobs.timeout:600}")
+    long timeout;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+    private final Map<String, AtomicLong> depth = new ConcurrentHashMap<>();
+    private final AtomicLong oldestPendingAge = new AtomicLong();
+    private Map<String, JobHandler<?>> handlers;
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        for (var status : STATUSES) {
+            var count = new AtomicLong();
+            depth.put(status, count);
+            Gauge.builder("ovsx.jobs.depth", count, AtomicLong::get)
+                    .tag("status", status)
+                    .register(meterRegistry);
+        }
+        Gauge.builder("ovsx.jobs.oldest", oldestPendingAge, AtomicLong::get)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("ovsx.jobs.workers", activeWorkers, AtomicInteger::get)
+                .register(meterRegistry);
+    }
+
+    public void enqueue(String type, Object payload) {
+        enqueue(type, payload, 0);
+    }
+
+    /**
+     * Add a job to the queue. This must be called within a transaction, so the job is
+     * visible to the workers only when the changes it depends on are committed. Jobs
+     * with higher priority are executed first. Nothing is added if an identical job
+     * is already pending.
+     */
+    public void enqueue(String type, Object payload, int priority) {
+        String json;
+        try {
+            json = mapper.writeValueAsString(payload);
+        } catch (JsonProcessingException exc) {
+            throw new IllegalArgumentException("Could not serialize payload of " + type + " job", exc);
+        }
+        if (repositories.hasPendingJob(type, json)) {
+            return;
+        }
+        var now = TimeUtil.getCurrentUTC();
+        var job = new QueuedJob();
+        job.setType(type);
+        job.setPayload(json);
+        job.setPriority(priority);
+        job.setStatus(QueuedJob.STATUS_PENDING);
+        job.setMaxAttempts(maxAttempts);
+        job.setCreated(now);
+        job.setScheduled(now);
+        entityManager.persist(job);
+    }
+
+    /**
+     * Claim due jobs for the idle workers. A worker keeps claiming jobs until the queue
+     * is empty, so this only needs to pick up work that was added in the meantime.
+     */
+    @Scheduled(fixedDelayString = "${ovsx.jobs.poll-interval:1000}")
+    public void poll() {
+        if (!enabled) {
+            return;
+        }
+        var idle = workers - activeWorkers.get();
+        if (idle <= 0) {
+            return;
+        }
+        for (var job : claim(idle)) {
+            activeWorkers.incrementAndGet();
+            getExecutor().execute(() -> work(job));
+        }
+    }
+
+    private void work(QueuedJob job) {
+        try {
+            while (job != null) {
+                process(job);
+                var next = claim(1);
+                job = next.isEmpty() ? null : next.get(0);
+            }
+        } catch (RuntimeException exc) {
+            logger.error("Job worker failed", exc);
+        } finally {
+            activeWorkers.decrementAndGet();
+        }
+    }
+
+    private List<QueuedJob> claim(int limit) {
+        var now = TimeUtil.getCurrentUTC();
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            var jobs = repositories.lockDueJobs(now, limit).toList();
+            for (var job : jobs) {
+                meterRegistry.timer("ovsx.jobs.wait", "type", job.getType())
+                        .record(Duration.between(job.getScheduled(), now));
+                job.setStatus(QueuedJob.STATUS_RUNNING);
+                job.setStarted(now);
+                job.setAttempts(job.getAttempts() + 1);
+            }
+            return jobs;
+        });
+    }
+
+    /**
+     * Execute a claimed job and remove it from the queue, or schedule a retry if it fails.
+     */
+    void process(QueuedJob job) {
+        var stopwatch = Stopwatch.createStarted();
+        var outcome = "succeeded";
+        try {
+            var handler = getHandler(job.getType());
+            if (handler == null) {
+                outcome = fail(job, "No handler for job type " + job.getType(), true);
+                return;
+            }
+            Runnable action;
+            try {
+                action = prepare(handler, job.getPayload());
+            } catch (IOException exc) {
+                outcome = fail(job, "Invalid payload: " + exc.getMessage(), true);
+                return;
+            }
+            new TransactionTemplate(transactionManager).execute(status -> {
+                action.run();
+                var entity = repositories.findQueuedJob(job.getId());
+                if (entity != null) {
+                    entityManager.remove(entity);
+                }
+                return null;
+            });
+            meterRegistry.timer("ovsx.jobs.latency", "type", job.getType())
+                    .record(Duration.between(job.getCreated(), TimeUtil.getCurrentUTC()));
+        } catch (RuntimeException exc) {
+            logger.warn("Job " + job.getId() + " of type " + job.getType() + " failed", exc);
+            outcome = fail(job, exc.toString(), false);
+        } finally {
+            meterRegistry.timer("ovsx.jobs.execution", "type", job.getType(), "outcome", outcome)
+                    .record(stopwatch.elapsed(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private <T> Runnable prepare(JobHandler<T> handler, String payload) throws IOException {
+        var value = mapper.readValue(payload, handler.getPayloadType());
+        return () -> handler.handle(value);
+    }
+
+    private String fail(QueuedJob job, String error, boolean permanent) {
+        try {
+            return new TransactionTemplate(transactionManager).execute(status -> {
+                var entity = repositories.findQueuedJob(job.getId());
+                if (entity == null) {
+                    return "failed";
+                }
+                entity.setError(error.length() > 2048 ? error.substring(0, 2048) : error);
+                if (permanent || entity.getAttempts() >= entity.getMaxAttempts()) {
+                    entity.setStatus(QueuedJob.STATUS_DEAD);
+                    logger.error("Job " + entity.getId() + " of type " + entity.getType() + " is dead after "
+                            + entity.getAttempts() + " attempts: " + error);
+                    return "dead";
+                }
+                entity.setStatus(QueuedJob.STATUS_PENDING);
+                entity.setScheduled(TimeUtil.getCurrentUTC().plus(getRetryDelay(entity.getAttempts())));
+                return "retried";
+            });
+        } catch (RuntimeException exc) {
+            // The job is retried when its timeout has passed
+            logger.error("Could not update failed job " + job.getId(), exc);
+            return "failed";
+        }
+    }
+
+    Duration getRetryDelay(int attempts) {
+        var delay = retryDelay << Math.min(Math.max(attempts - 1, 0), 20);
+        return Duration.ofMillis(Math.min(delay, maxRetryDelay));
+    }
+
+    /**
+     * Retry jobs that exceeded the timeout and update the queue metrics.
+     */
+    @Scheduled(fixedDelayString = "${ovsx.jobs.check-interval:30000}")
+    public void checkJobs() {
+        if (!enabled) {
+            return;
+        }
+        var now = TimeUtil.getCurrentUTC();
+        var startedBefore = now.minusSeconds(timeout);
+        new TransactionTemplate(transactionManager).execute(status -> {
+            var count = repositories.retryStaleJobs(startedBefore, now) + repositories.killStaleJobs(startedBefore);
+            if (count > 0) {
+                logger.warn("Recovered " + count + " jobs that were running for more than " + timeout + " seconds");
+            }
+            for (var entry : depth.entrySet()) {
+                entry.getValue().set(repositories.countQueuedJobs(entry.getKey()));
+            }
+            var oldest = repositories.findOldestQueuedJob(QueuedJob.STATUS_PENDING);
+            oldestPendingAge.set(oldest != null ? getAge(oldest.getScheduled(), now) : 0);
+            return null;
+        });
+    }
+
+    private long getAge(LocalDateTime timestamp, LocalDateTime now) {
+        return Math.max(Duration.between(timestamp, now).toSeconds(), 0);
+    }
+
+    private synchronized JobHandler<?> getHandler(String type) {
+        if (handlers == null) {
+            handlers = handlerProvider.orderedStream()
+                    .collect(Collectors.toMap(JobHandler::getType, Function.identity()));
+        }
+        return handlers.get(type);
+    }
+
+    private synchronized ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            var threads = Math.max(workers, 1);
+            executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>());
+        }
+        return executor;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (executor != null)
+            executor.shutdownNow();
+    }
+
+}
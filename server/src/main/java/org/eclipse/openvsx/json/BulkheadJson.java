@@ -0,0 +1,26 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.json;
+
+public class BulkheadJson {
+
+    public String name;
+
+    public int maxConcurrent;
+
+    public int active;
+
+    public int waiting;
+
+    public long admitted;
+
+    public long rejected;
+
+}
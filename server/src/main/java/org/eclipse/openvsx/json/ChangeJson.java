@@ -0,0 +1,52 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.json;
+
+import javax.validation.constraints.NotNull;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+@ApiModel(
+    value = "Change",
+    description = "A change of the registry content"
+)
+@JsonInclude(Include.NON_NULL)
+public class ChangeJson {
+
+    @ApiModelProperty("Sequence number of the change")
+    @NotNull
+    public long id;
+
+    @ApiModelProperty("Date and time when the change was made (ISO-8601)")
+    @NotNull
+    public String timestamp;
+
+    @ApiModelProperty(value = "Kind of change", allowableValues = "publish,delete,review,namespace")
+    @NotNull
+    public String type;
+
+    @ApiModelProperty("Name of the affected namespace")
+    @NotNull
+    public String namespace;
+
+    @ApiModelProperty("Name of the affected extension, if any")
+    public String extension;
+
+    @ApiModelProperty("Affected version, if any; a deletion without version removed the whole extension")
+    public String version;
+
+    @ApiModelProperty("URL to get the current metadata of the affected namespace or extension")
+    public String url;
+
+}
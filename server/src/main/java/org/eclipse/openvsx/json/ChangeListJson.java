@@ -0,0 +1,43 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.json;
+
+import java.util.List;
+
+import javax.validation.constraints.NotNull;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+@ApiModel(
+    value = "ChangeList",
+    description = "Changes of the registry content in the order they were committed"
+)
+@JsonInclude(Include.NON_NULL)
+public class ChangeListJson extends ResultJson {
+
+    public static ChangeListJson error(String message) {
+        var result = new ChangeListJson();
+        result.error = message;
+        return result;
+    }
+
+    @ApiModelProperty("Changes following the requested cursor")
+    @NotNull
+    public List<ChangeJson> changes;
+
+    @ApiModelProperty("Cursor to pass as 'since' parameter to get the subsequent changes")
+    @NotNull
+    public long cursor;
+
+}
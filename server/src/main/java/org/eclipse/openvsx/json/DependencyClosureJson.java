@@ -0,0 +1,78 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.json;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.validation.constraints.NotNull;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+@ApiModel(
+    value = "DependencyClosure",
+    description = "All extensions required to install an extension"
+)
+@JsonInclude(Include.NON_NULL)
+public class DependencyClosureJson extends ResultJson {
+
+    public static DependencyClosureJson error(String message) {
+        var result = new DependencyClosureJson();
+        result.error = message;
+        return result;
+    }
+
+    @ApiModelProperty("The requested extension and all its transitive dependencies and bundled extensions, "
+            + "ordered so that each extension comes after the extensions it references")
+    @NotNull
+    public List<Entry> extensions;
+
+    @ApiModelProperty("References that form a cycle, in the format 'namespace.extension -> namespace.extension'")
+    public List<String> cycles;
+
+    @ApiModel(
+        value = "DependencyClosureEntry",
+        description = "A resolved extension version"
+    )
+    @JsonInclude(Include.NON_NULL)
+    public static class Entry {
+
+        @ApiModelProperty("URL to get metadata of the resolved version")
+        @NotNull
+        public String url;
+
+        @ApiModelProperty("Map of file types (download, manifest) to their respective URLs")
+        public Map<String, String> files;
+
+        @ApiModelProperty("Namespace of the extension")
+        @NotNull
+        public String namespace;
+
+        @ApiModelProperty("Name of the extension")
+        @NotNull
+        public String name;
+
+        @ApiModelProperty("Resolved version")
+        @NotNull
+        public String version;
+
+        @ApiModelProperty("List of direct dependencies")
+        public List<ExtensionReferenceJson> dependencies;
+
+        @ApiModelProperty("List of directly bundled extensions")
+        public List<ExtensionReferenceJson> bundledExtensions;
+
+    }
+
+}
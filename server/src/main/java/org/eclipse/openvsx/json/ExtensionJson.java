@@ -45,6 +45,9 @@ public class ExtensionJson extends ResultJson {
     @ApiModelProperty("Map of file types (download, manifest, icon, readme, license) to their respective URLs")
     public Map<String, String> files;
 
+    @ApiModelProperty("SHA-256 hash of the extension package in hexadecimal format (not included in bulk queries)")
+    public String downloadSha256;
+
     @ApiModelProperty("Name of the extension")
     @NotNull
     public String name;
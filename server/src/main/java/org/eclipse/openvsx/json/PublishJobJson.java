@@ -0,0 +1,72 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.json;
+
+import java.util.Map;
+
+import javax.validation.constraints.NotNull;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+@ApiModel(
+    value = "PublishJob",
+    description = "State of an extension package that is published asynchronously"
+)
+@JsonInclude(Include.NON_NULL)
+public class PublishJobJson extends ResultJson {
+
+    public static PublishJobJson error(String message) {
+        var result = new PublishJobJson();
+        result.error = message;
+        return result;
+    }
+
+    @ApiModelProperty("Identifier of the publish job")
+    @NotNull
+    public String id;
+
+    @ApiModelProperty(value = "State of the publish job", allowableValues = "queued,running,succeeded,failed")
+    @NotNull
+    public String status;
+
+    @ApiModelProperty("Name of the namespace")
+    @NotNull
+    public String namespace;
+
+    @ApiModelProperty("Name of the extension")
+    @NotNull
+    public String name;
+
+    @ApiModelProperty("Version of the extension")
+    @NotNull
+    public String version;
+
+    @ApiModelProperty("URL to poll for the state of the publish job")
+    @NotNull
+    public String url;
+
+    @ApiModelProperty("URL of the published extension version, available when the job has succeeded")
+    public String extensionUrl;
+
+    @ApiModelProperty("Time when the job was accepted")
+    @NotNull
+    public String created;
+
+    @ApiModelProperty("Time when the job was finished")
+    public String finished;
+
+    @ApiModelProperty("Duration of each completed processing stage in milliseconds")
+    public Map<String, Long> stages;
+
+}
@@ -0,0 +1,34 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.json;
+
+import java.util.List;
+
+import javax.validation.constraints.NotNull;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+@ApiModel(
+    value = "QueryParam",
+    description = "Identifiers of extensions whose metadata shall be returned"
+)
+@JsonInclude(Include.NON_NULL)
+public class QueryParamJson {
+
+    @ApiModelProperty(value = "List of extension identifiers in the format 'namespace.extension' or 'namespace.extension@version'",
+            example = "[\"redhat.java\", \"redhat.vscode-yaml@0.8.0\"]")
+    @NotNull
+    public List<String> extensions;
+
+}
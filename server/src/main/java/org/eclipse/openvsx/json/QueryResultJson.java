@@ -0,0 +1,40 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.json;
+
+import java.util.List;
+
+import javax.validation.constraints.NotNull;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+@ApiModel(
+    value = "QueryResult",
+    description = "Metadata of multiple extensions"
+)
+@JsonInclude(Include.NON_NULL)
+public class QueryResultJson extends ResultJson {
+
+    public static QueryResultJson error(String message) {
+        var result = new QueryResultJson();
+        result.error = message;
+        return result;
+    }
+
+    @ApiModelProperty("Metadata of the requested extensions in the same order as the query; "
+            + "the 'error' property of an entry indicates that the extension was not found")
+    @NotNull
+    public List<ExtensionJson> extensions;
+
+}
@@ -9,6 +9,8 @@
  ********************************************************************************/
 package org.eclipse.openvsx.json;
 
+import java.util.List;
+
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;;
 
@@ -27,4 +29,6 @@ public class StatsJson extends ResultJson {
 
     public long namespaceCount;
 
+    public List<BulkheadJson> bulkheads;
+
 }
\ No newline at end of file
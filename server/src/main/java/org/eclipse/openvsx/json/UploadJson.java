@@ -0,0 +1,49 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.json;
+
+import javax.validation.constraints.NotNull;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+@ApiModel(
+    value = "Upload",
+    description = "State of a chunked upload of an extension package"
+)
+@JsonInclude(Include.NON_NULL)
+public class UploadJson extends ResultJson {
+
+    public static UploadJson error(String message) {
+        var result = new UploadJson();
+        result.error = message;
+        return result;
+    }
+
+    @ApiModelProperty("Identifier of the upload session")
+    @NotNull
+    public String id;
+
+    @ApiModelProperty("Number of bytes received so far; the next chunk must start at this offset")
+    @NotNull
+    public long offset;
+
+    @ApiModelProperty("Time when the upload session expires unless more data is received")
+    @NotNull
+    public String expires;
+
+    @ApiModelProperty("URL to which chunks are uploaded")
+    @NotNull
+    public String url;
+
+}
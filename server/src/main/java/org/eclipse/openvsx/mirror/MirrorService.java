@@ -0,0 +1,376 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.mirror;
+
+import static org.eclipse.openvsx.util.UrlUtil.addQuery;
+import static org.eclipse.openvsx.util.UrlUtil.createApiUrl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+
+import com.google.common.base.Strings;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
+
+import org.eclipse.openvsx.AdminService;
+import org.eclipse.openvsx.ChangeLogService;
+import org.eclipse.openvsx.LocalRegistryService;
+import org.eclipse.openvsx.db.LeaderElection;
+import org.eclipse.openvsx.entities.ChangeLogEntry;
+import org.eclipse.openvsx.entities.FileResource;
+import org.eclipse.openvsx.entities.MirrorCheckpoint;
+import org.eclipse.openvsx.json.ChangeJson;
+import org.eclipse.openvsx.json.ChangeListJson;
+import org.eclipse.openvsx.json.ExtensionJson;
+import org.eclipse.openvsx.repositories.RepositoryService;
+import org.eclipse.openvsx.search.SearchService;
+import org.eclipse.openvsx.util.ErrorResultException;
+import org.eclipse.openvsx.util.TimeUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Replicates the content of the upstream registry by replaying its change feed. Extension
+ * packages are downloaded in parallel and verified against the hash published by the
+ * upstream registry, then imported one by one in the order of the feed. Changes that
+ * cannot be applied, e.g. because of a hash mismatch, are logged and skipped. The position in
+ * the feed is stored with each applied change, so an interrupted run resumes where it stopped.
+ */
+@Component
+public class MirrorService {
+
+    protected final Logger logger = LoggerFactory.getLogger(MirrorService.class);
+
+    @Autowired
+    RestTemplate restTemplate;
+
+    @Autowired
+    LocalRegistryService local;
+
+    @Autowired
+    AdminService admins;
+
+    @Autowired
+    ChangeLogService changeLog;
+
+    @Autowired
+    RepositoryService repositories;
+
+    @Autowired
+    SearchService search;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    LeaderElection leaderElection;
+
+    @Value("${ovsx.mirror.enabled:false}")
+    boolean enabled;
+
+    @Value("${ovsx.upstream.url:}")
+    String upstreamUrl;
+
+    @Value("${ovsx.mirror.max-concurrency:4}")
+    int maxConcurrency;
+
+    @Value("${ovsx.mirror.page-size:100}")
+    int pageSize;
+
+    private ExecutorService executor;
+
+    public boolean isEnabled() {
+        return enabled && !Strings.isNullOrEmpty(upstreamUrl);
+    }
+
+    @Scheduled(initialDelayString = "${ovsx.mirror.initial-delay:10000}", fixedDelayString = "${ovsx.mirror.interval:300000}")
+    public void scheduledSync() {
+        if (!isEnabled() || !leaderElection.isLeader("mirror"))
+            return;
+        try {
+            var count = sync();
+            if (count > 0)
+                logger.info("Applied " + count + " changes from " + upstreamUrl);
+        } catch (RuntimeException exc) {
+            logger.error("Failed to mirror " + upstreamUrl, exc);
+        }
+    }
+
+    /**
+     * Apply all changes of the upstream registry since the last checkpoint.
+     * Returns the number of applied changes.
+     */
+    public synchronized int sync() {
+        var checkpoint = repositories.findMirrorCheckpoint(upstreamUrl);
+        var cursor = checkpoint != null ? checkpoint.getCursor() : 0;
+        var count = 0;
+        while (true) {
+            var page = fetchChanges(cursor);
+            if (page.changes == null || page.changes.isEmpty())
+                return count;
+            count += applyChanges(page.changes);
+            cursor = page.cursor;
+            if (page.changes.size() < pageSize)
+                return count;
+        }
+    }
+
+    private ChangeListJson fetchChanges(long cursor) {
+        var requestUrl = addQuery(createApiUrl(upstreamUrl, "api", "-", "changes"),
+                "since", Long.toString(cursor), "limit", Integer.toString(pageSize));
+        var json = restTemplate.getForObject(requestUrl, ChangeListJson.class);
+        if (json.error != null)
+            throw new ErrorResultException("Upstream registry responded with error: " + json.error);
+        return json;
+    }
+
+    private int applyChanges(List<ChangeJson> changes) {
+        var downloads = new HashMap<Long, Future<Download>>();
+        try {
+            for (var i = 0; i < changes.size(); i++) {
+                var change = changes.get(i);
+                if (isPublish(change) && !isDeletedLater(change, changes, i)
+                        && repositories.findVersion(change.version, change.extension, change.namespace) == null) {
+                    downloads.put(change.id, getExecutor().submit(() -> download(change)));
+                }
+            }
+            var transactions = new TransactionTemplate(transactionManager);
+            for (var change : changes) {
+                try {
+                    var download = downloads.containsKey(change.id) ? await(downloads.get(change.id)) : null;
+                    transactions.execute(status -> {
+                        applyChange(change, download);
+                        saveCheckpoint(change.id);
+                        return null;
+                    });
+                } catch (ErrorResultException | HttpClientErrorException exc) {
+                    // The change cannot be applied in this registry, so retrying would not help
+                    logger.warn("Skipped change " + change.id + " (" + change.type + " " + getName(change) + "): "
+                            + exc.getMessage());
+                    transactions.execute(status -> {
+                        saveCheckpoint(change.id);
+                        return null;
+                    });
+                }
+            }
+            return changes.size();
+        } finally {
+            downloads.values().forEach(this::deleteFile);
+        }
+    }
+
+    private boolean isPublish(ChangeJson change) {
+        return ChangeLogEntry.PUBLISH.equals(change.type) && change.extension != null && change.version != null;
+    }
+
+    /**
+     * Check whether a published version is deleted by a subsequent change, so it needs not be downloaded.
+     */
+    private boolean isDeletedLater(ChangeJson change, List<ChangeJson> changes, int index) {
+        for (var i = index + 1; i < changes.size(); i++) {
+            var other = changes.get(i);
+            if (ChangeLogEntry.DELETE.equals(other.type)
+                    && change.namespace.equalsIgnoreCase(other.namespace)
+                    && change.extension.equalsIgnoreCase(other.extension)
+                    && (other.version == null || other.version.equals(change.version)))
+                return true;
+        }
+        return false;
+    }
+
+    private Download download(ChangeJson change) throws IOException {
+        ExtensionJson json;
+        try {
+            var requestUrl = createApiUrl(upstreamUrl, "api", change.namespace, change.extension, change.version);
+            json = restTemplate.getForObject(requestUrl, ExtensionJson.class);
+        } catch (HttpClientErrorException exc) {
+            if (exc.getStatusCode() == HttpStatus.NOT_FOUND)
+                // The version has been deleted in the meantime
+                return null;
+            throw exc;
+        }
+        var fileUrl = json.files != null ? json.files.get(FileResource.DOWNLOAD) : null;
+        if (fileUrl == null)
+            throw new ErrorResultException("Missing download URL: " + getName(change));
+
+        var file = Files.createTempFile("mirror-", ".vsix");
+        try {
+            var hash = restTemplate.execute(fileUrl, HttpMethod.GET, null, response -> {
+                try (var stream = new HashingInputStream(Hashing.sha256(), response.getBody())) {
+                    Files.copy(stream, file, StandardCopyOption.REPLACE_EXISTING);
+                    return stream.hash().toString();
+                }
+            });
+            if (json.downloadSha256 == null) {
+                logger.warn("No hash available for " + getName(change) + ", skipping verification.");
+            } else if (!json.downloadSha256.equalsIgnoreCase(hash)) {
+                throw new ErrorResultException("Hash mismatch for " + getName(change)
+                        + ": expected " + json.downloadSha256 + ", got " + hash);
+            }
+            var timestamp = json.timestamp != null ? TimeUtil.fromUTCString(json.timestamp) : TimeUtil.getCurrentUTC();
+            return new Download(file, timestamp);
+        } catch (RuntimeException exc) {
+            Files.deleteIfExists(file);
+            throw exc;
+        }
+    }
+
+    private Download await(Future<Download> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            throw new ErrorResultException("Mirroring was interrupted.");
+        } catch (ExecutionException exc) {
+            if (exc.getCause() instanceof RuntimeException)
+                throw (RuntimeException) exc.getCause();
+            if (exc.getCause() instanceof IOException)
+                // Transfer errors are not specific to the change, so the next run retries it
+                throw new UncheckedIOException((IOException) exc.getCause());
+            throw new ErrorResultException("Download failed: " + exc.getCause().getMessage());
+        }
+    }
+
+    private void deleteFile(Future<Download> future) {
+        try {
+            var download = future.get();
+            if (download != null)
+                Files.deleteIfExists(download.file);
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | IOException exc) {
+            // The download failed or the file is already gone
+        }
+    }
+
+    private void applyChange(ChangeJson change, Download download) {
+        try {
+            switch (change.type) {
+                case ChangeLogEntry.PUBLISH:
+                    if (download != null) {
+                        try (var stream = Files.newInputStream(download.file)) {
+                            local.importExtension(stream, download.timestamp);
+                        }
+                    }
+                    break;
+                case ChangeLogEntry.DELETE:
+                    applyDelete(change);
+                    break;
+                case ChangeLogEntry.REVIEW:
+                    applyReviews(change);
+                    break;
+                case ChangeLogEntry.NAMESPACE:
+                    local.importNamespace(change.namespace);
+                    break;
+                default:
+                    logger.warn("Unknown change type: " + change.type);
+            }
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+    }
+
+    private void applyDelete(ChangeJson change) {
+        if (change.version == null) {
+            if (repositories.findExtension(change.extension, change.namespace) != null)
+                admins.deleteExtension(change.namespace, change.extension, null, null);
+        } else {
+            if (repositories.findVersion(change.version, change.extension, change.namespace) != null)
+                admins.deleteExtension(change.namespace, change.extension, change.version, null);
+        }
+    }
+
+    private void applyReviews(ChangeJson change) {
+        var extension = repositories.findExtension(change.extension, change.namespace);
+        if (extension == null)
+            return;
+        ExtensionJson json;
+        try {
+            json = restTemplate.getForObject(createApiUrl(upstreamUrl, "api", change.namespace, change.extension),
+                    ExtensionJson.class);
+        } catch (HttpClientErrorException exc) {
+            if (exc.getStatusCode() == HttpStatus.NOT_FOUND)
+                return;
+            throw exc;
+        }
+        extension.setAverageRating(json.averageRating);
+        changeLog.logReviews(extension);
+        search.updateSearchEntry(extension);
+    }
+
+    private void saveCheckpoint(long cursor) {
+        var checkpoint = repositories.findMirrorCheckpoint(upstreamUrl);
+        if (checkpoint == null) {
+            checkpoint = new MirrorCheckpoint();
+            checkpoint.setUrl(upstreamUrl);
+            entityManager.persist(checkpoint);
+        }
+        checkpoint.setCursor(cursor);
+        checkpoint.setTimestamp(TimeUtil.getCurrentUTC());
+    }
+
+    private String getName(ChangeJson change) {
+        var name = change.namespace;
+        if (change.extension != null)
+            name += "." + change.extension;
+        if (change.version != null)
+            name += " version " + change.version;
+        return name;
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null)
+            executor = Executors.newFixedThreadPool(Math.max(maxConcurrency, 1));
+        return executor;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (executor != null)
+            executor.shutdownNow();
+    }
+
+    private static class Download {
+        final Path file;
+        final LocalDateTime timestamp;
+
+        Download(Path file, LocalDateTime timestamp) {
+            this.file = file;
+            this.timestamp = timestamp;
+        }
+    }
+
+}
@@ -0,0 +1,290 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.publish;
+
+import static org.eclipse.openvsx.util.UrlUtil.createApiUrl;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+
+import com.google.common.base.Stopwatch;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.eclipse.openvsx.ExtensionProcessor;
+import org.eclipse.openvsx.LocalRegistryService;
+import org.eclipse.openvsx.entities.PublishJob;
+import org.eclipse.openvsx.jfr.PublishEvent;
+import org.eclipse.openvsx.jfr.PublishStageEvent;
+import org.eclipse.openvsx.jobs.JobHandler;
+import org.eclipse.openvsx.jobs.JobQueue;
+import org.eclipse.openvsx.json.PublishJobJson;
+import org.eclipse.openvsx.repositories.RepositoryService;
+import org.eclipse.openvsx.util.ErrorResultException;
+import org.eclipse.openvsx.util.NotFoundException;
+import org.eclipse.openvsx.util.TimeUtil;
+import org.eclipse.openvsx.util.UrlUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Publishes extension packages in the background. A package is accepted as soon as its
+ * manifest passes the basic checks; it is stored with the state of the job and published
+ * by the workers of the {@link JobQueue}, so bursts of publish requests cannot occupy all
+ * request threads and database connections, and the state can be polled from any server
+ * instance until it expires.
+ */
+@Component
+public class PublishService implements JobHandler<String> {
+
+    public static final String TYPE = "publish";
+
+    /** Publishing is visible to users, so it is executed before other jobs. */
+    private static final int PRIORITY = 20;
+
+    private static final String[] STATUSES = { PublishJob.STATUS_QUEUED, PublishJob.STATUS_RUNNING };
+
+    protected final Logger logger = LoggerFactory.getLogger(PublishService.class);
+
+    @Autowired
+    LocalRegistryService local;
+
+    @Autowired
+    RepositoryService repositories;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    JobQueue jobs;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Value("${ovsx.licenses.detect:}")
+    String[] detectedLicenseIds;
+
+    /** Maximal number of queued packages; further packages are rejected. */
+    @Value("${ovsx.publish.queue-size:100}")
+    int queueSize;
+
+    /** Seconds for which the state of a finished job is kept. */
+    @Value("${ovsx.publish.job-retention:3600}")
+    long jobRetention;
+
+    private final Map<String, AtomicLong> counts = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        for (var status : STATUSES) {
+            var count = new AtomicLong();
+            counts.put(status, count);
+            Gauge.builder("ovsx.publish.jobs", count, AtomicLong::get)
+                    .tag("status", status)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Check the given extension package and queue it for publishing.
+     */
+    public PublishJobJson submit(InputStream content, String tokenValue) throws ErrorResultException {
+        var stopwatch = Stopwatch.createStarted();
+        try (var processor = new ExtensionProcessor(content, Arrays.asList(detectedLicenseIds))) {
+            var token = local.checkPublish(processor, tokenValue);
+            var job = new PublishJob();
+            job.setId(UUID.randomUUID().toString());
+            job.setNamespace(processor.getNamespace());
+            job.setName(processor.getExtensionName());
+            job.setVersion(processor.getVersion());
+            job.setStatus(PublishJob.STATUS_QUEUED);
+            job.setToken(token);
+            job.setCreated(TimeUtil.getCurrentUTC());
+            addStage(job, "validate", stopwatch.elapsed(TimeUnit.NANOSECONDS));
+            new TransactionTemplate(transactionManager).execute(status -> {
+                if (repositories.countPublishJobs(PublishJob.STATUS_QUEUED) >= queueSize)
+                    throw new ErrorResultException("Too many extensions are being published. Please try again later.");
+                entityManager.persist(job);
+                // The content column is not mapped, so the row must exist before it is written
+                entityManager.flush();
+                repositories.updatePublishJobContent(job.getId(), processor.getContent());
+                jobs.enqueue(TYPE, job.getId(), PRIORITY);
+                return null;
+            });
+            return toJson(job);
+        }
+    }
+
+    public PublishJobJson getJob(String id) {
+        var job = repositories.findPublishJob(id);
+        if (job == null)
+            throw new NotFoundException();
+        return toJson(job);
+    }
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    public Class<String> getPayloadType() {
+        return String.class;
+    }
+
+    /**
+     * Publish a queued package. The steps are executed in separate transactions, so the
+     * state of the job is visible while it is running, and the job is marked as failed
+     * if the package is rejected.
+     */
+    @Override
+    public void handle(String jobId) {
+        var transactions = new TransactionTemplate(transactionManager);
+        transactions.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        var content = transactions.execute(status -> {
+            var job = repositories.findPublishJob(jobId);
+            // A job that is still running was interrupted by a restart, so it is executed again
+            if (job == null || job.getFinished() != null)
+                return null;
+            addStage(job, "queue", Duration.between(job.getCreated(), TimeUtil.getCurrentUTC()).toNanos());
+            job.setStatus(PublishJob.STATUS_RUNNING);
+            return repositories.findPublishJobContent(jobId);
+        });
+        if (content == null)
+            return;
+
+        var event = new PublishEvent();
+        event.begin();
+        var total = Stopwatch.createStarted();
+        var stages = new LinkedHashMap<String, Long>();
+        String error = null;
+        try (var processor = new ExtensionProcessor(new ByteArrayInputStream(content), Arrays.asList(detectedLicenseIds))) {
+            var stopwatch = Stopwatch.createStarted();
+            var metadata = processor.getMetadata();
+            var resources = processor.getResources(metadata);
+            stages.put("extract", stopwatch.elapsed(TimeUnit.NANOSECONDS));
+
+            stopwatch.reset().start();
+            var stageEvent = new PublishStageEvent();
+            stageEvent.begin();
+            transactions.execute(status -> {
+                var job = repositories.findPublishJob(jobId);
+                return local.publish(processor, metadata, resources, job.getToken());
+            });
+            stages.put(PublishStageEvent.PERSIST, stopwatch.elapsed(TimeUnit.NANOSECONDS));
+            commit(stageEvent, PublishStageEvent.PERSIST, processor);
+        } catch (ErrorResultException exc) {
+            error = exc.getMessage();
+        } catch (RuntimeException exc) {
+            logger.error("Publish job " + jobId + " failed", exc);
+            error = "An internal error occurred while publishing the extension.";
+        }
+
+        var failure = error;
+        var job = transactions.execute(status -> {
+            var entity = repositories.findPublishJob(jobId);
+            stages.forEach((stage, nanos) -> addStage(entity, stage, nanos));
+            entity.setStatus(failure == null ? PublishJob.STATUS_SUCCEEDED : PublishJob.STATUS_FAILED);
+            entity.setError(failure);
+            entity.setFinished(TimeUtil.getCurrentUTC());
+            repositories.deletePublishJobContent(jobId);
+            return entity;
+        });
+        if (failure == null)
+            logger.info("Published " + job.getNamespace() + "." + job.getName() + " version " + job.getVersion()
+                    + " " + job.getStages());
+        meterRegistry.timer("ovsx.publish", "mode", "async", "outcome", job.getStatus())
+                .record(total.elapsed(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        if (event.shouldCommit()) {
+            event.mode = "async";
+            event.namespace = job.getNamespace();
+            event.extension = job.getName();
+            event.version = job.getVersion();
+            event.outcome = job.getStatus();
+            event.commit();
+        }
+    }
+
+    private void addStage(PublishJob job, String stage, long nanos) {
+        // Replace the map, so the change is detected when the job is flushed
+        var stages = new LinkedHashMap<>(job.getStages());
+        stages.put(stage, TimeUnit.NANOSECONDS.toMillis(nanos));
+        job.setStages(stages);
+        meterRegistry.timer("ovsx.publish.stage", "mode", "async", "stage", stage)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void commit(PublishStageEvent event, String stage, ExtensionProcessor processor) {
+        if (event.shouldCommit()) {
+            event.stage = stage;
+            event.namespace = processor.getNamespace();
+            event.extension = processor.getExtensionName();
+            event.version = processor.getVersion();
+            event.commit();
+        }
+    }
+
+    /**
+     * Remove the state of expired jobs and update the job metrics.
+     */
+    @Scheduled(fixedDelayString = "${ovsx.publish.gc-interval:60000}")
+    public void collectGarbage() {
+        var threshold = TimeUtil.getCurrentUTC().minusSeconds(jobRetention);
+        new TransactionTemplate(transactionManager).execute(status -> {
+            repositories.deletePublishJobs(threshold);
+            for (var entry : counts.entrySet()) {
+                entry.getValue().set(repositories.countPublishJobs(entry.getKey()));
+            }
+            return null;
+        });
+    }
+
+    private PublishJobJson toJson(PublishJob job) {
+        var json = new PublishJobJson();
+        json.id = job.getId();
+        json.status = job.getStatus();
+        json.namespace = job.getNamespace();
+        json.name = job.getName();
+        json.version = job.getVersion();
+        var serverUrl = UrlUtil.getBaseUrl();
+        json.url = createApiUrl(serverUrl, "api", "-", "publish", job.getId());
+        if (PublishJob.STATUS_SUCCEEDED.equals(json.status))
+            json.extensionUrl = createApiUrl(serverUrl, "api", job.getNamespace(), job.getName(), job.getVersion());
+        json.created = TimeUtil.toUTCString(job.getCreated());
+        if (job.getFinished() != null)
+            json.finished = TimeUtil.toUTCString(job.getFinished());
+        json.stages = job.getStages();
+        json.error = job.getError();
+        return json;
+    }
+
+}
@@ -0,0 +1,28 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.repositories;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+
+import org.eclipse.openvsx.entities.ArchiveEntry;
+import org.eclipse.openvsx.entities.ExtensionVersion;
+
+public interface ArchiveEntryRepository extends Repository<ArchiveEntry, Long> {
+
+    ArchiveEntry findByExtensionAndName(ExtensionVersion extVersion, String name);
+
+    @Modifying
+    @Query("delete from ArchiveEntry e where e.extension = :extension")
+    int deleteByExtension(@Param("extension") ExtensionVersion extVersion);
+
+}
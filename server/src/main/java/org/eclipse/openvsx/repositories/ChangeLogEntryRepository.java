@@ -0,0 +1,25 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.repositories;
+
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.Repository;
+
+import org.eclipse.openvsx.entities.ChangeLogEntry;
+
+public interface ChangeLogEntryRepository extends Repository<ChangeLogEntry, Long> {
+
+    List<ChangeLogEntry> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+    ChangeLogEntry findFirstByOrderByIdDesc();
+
+}
@@ -9,7 +9,13 @@
  ********************************************************************************/
 package org.eclipse.openvsx.repositories;
 
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.repository.Repository;
 import org.springframework.data.util.Streamable;
 
@@ -28,9 +34,26 @@ public interface ExtensionRepository extends Repository<Extension, Long> {
 
     Streamable<Extension> findAll();
 
+    @Query("select e from Extension e join fetch e.namespace n where lower(e.name) in :names and lower(n.name) in :namespaces")
+    Streamable<Extension> findByNamesAndNamespaceNames(@Param("names") Collection<String> names,
+            @Param("namespaces") Collection<String> namespaces);
+
     long count();
 
+    @Query("select e from Extension e join fetch e.namespace where e.id > :id order by e.id")
+    List<Extension> findAfter(@Param("id") long id, Pageable page);
+
     @Query("select max(e.downloadCount) from Extension e")
     int getMaxDownloadCount();
 
-}
\ No newline at end of file
+    @Query("select new org.eclipse.openvsx.repositories.IdPair(e.id, e.latest.id) from Extension e where e.latest is not null")
+    Streamable<IdPair> findAllLatestIds();
+
+    @Query("select new org.eclipse.openvsx.repositories.IdPair(e.id, e.latest.id) from Extension e where e.id in :ids and e.latest is not null")
+    Streamable<IdPair> findLatestIds(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("update Extension e set e.downloadCount = e.downloadCount + ?2 where e.id = ?1")
+    int addDownloadCount(long id, int count);
+
+}
@@ -9,7 +9,13 @@
  ********************************************************************************/
 package org.eclipse.openvsx.repositories;
 
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.util.Streamable;
 
 import org.eclipse.openvsx.entities.Extension;
@@ -26,4 +32,12 @@ public interface ExtensionReviewRepository extends Repository<ExtensionReview, L
 
     long countByExtensionAndActiveTrue(Extension extension);
 
+    @Query("select new org.eclipse.openvsx.repositories.IdCount(r.extension.id, count(r)) from ExtensionReview r"
+            + " where r.active = true and r.extension in :extensions group by r.extension.id")
+    Streamable<IdCount> countActiveByExtensions(@Param("extensions") Collection<Extension> extensions);
+
+    @Query("select r from ExtensionReview r join fetch r.extension e join fetch e.namespace join fetch r.user"
+            + " where r.id > :id order by r.id")
+    List<ExtensionReview> findAfter(@Param("id") long id, Pageable page);
+
 }
\ No newline at end of file
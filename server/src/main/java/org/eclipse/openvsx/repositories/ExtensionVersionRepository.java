@@ -9,11 +9,15 @@
  ********************************************************************************/
 package org.eclipse.openvsx.repositories;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.repository.Repository;
 import org.springframework.data.util.Streamable;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 import org.eclipse.openvsx.entities.Extension;
 import org.eclipse.openvsx.entities.ExtensionVersion;
@@ -22,6 +26,8 @@ public interface ExtensionVersionRepository extends Repository<ExtensionVersion,
 
     Streamable<ExtensionVersion> findByExtension(Extension extension);
 
+    Streamable<ExtensionVersion> findByExtensionIn(Collection<Extension> extensions);
+
     Streamable<ExtensionVersion> findByExtensionAndPreview(Extension extension, boolean preview);
 
     ExtensionVersion findByVersionAndExtension(String version, Extension extension);
@@ -32,11 +38,39 @@ public interface ExtensionVersionRepository extends Repository<ExtensionVersion,
 
     Streamable<ExtensionVersion> findByDependencies(Extension extension);
 
+    @Query("select ev from ExtensionVersion ev join fetch ev.extension e join fetch e.namespace where ev.id in :ids")
+    Streamable<ExtensionVersion> findByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select new org.eclipse.openvsx.repositories.IdPair(ev.id, ev.extension.id) from ExtensionVersion ev")
+    Streamable<IdPair> findAllExtensionIds();
+
+    @Query("select new org.eclipse.openvsx.repositories.IdPair(ev.id, d.id) from ExtensionVersion ev join ev.dependencies d")
+    Streamable<IdPair> findAllDependencyIds();
+
+    @Query("select new org.eclipse.openvsx.repositories.IdPair(ev.id, b.id) from ExtensionVersion ev join ev.bundledExtensions b")
+    Streamable<IdPair> findAllBundledExtensionIds();
+
     Streamable<ExtensionVersion> findByLicense(String license);
 
+    Streamable<ExtensionVersion> findByExtensionAndVscodeEngineMinLessThanEqualAndVscodeEngineMaxGreaterThan(Extension extension, long min, long max);
+
+    @Query("select new org.eclipse.openvsx.repositories.VersionRef(ev.id, ev.extension.id, ev.version, ev.preview, ev.timestamp)"
+            + " from ExtensionVersion ev where ev.extension.id in :extensionIds"
+            + " and ev.vscodeEngineMin <= :engineVersion and ev.vscodeEngineMax > :engineVersion")
+    Streamable<VersionRef> findCompatibleRefs(@Param("extensionIds") Collection<Long> extensionIds,
+            @Param("engineVersion") long engineVersion);
+
+    Streamable<ExtensionVersion> findByVscodeEngineMinIsNull();
+
+    @Query("select ev.id from ExtensionVersion ev where ev.archiveIndexed = false")
+    Streamable<Long> findUnindexedIds();
+
     Streamable<ExtensionVersion> findAll();
 
     @Query("select min(ev.timestamp) from ExtensionVersion ev")
     LocalDateTime getOldestTimestamp();
 
-}
\ No newline at end of file
+    @Query("select ev from ExtensionVersion ev join fetch ev.extension e join fetch e.namespace where ev.id > :id order by ev.id")
+    List<ExtensionVersion> findAfter(@Param("id") long id, Pageable page);
+
+}
@@ -9,7 +9,12 @@
  ********************************************************************************/
 package org.eclipse.openvsx.repositories;
 
+import java.util.Collection;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.util.Streamable;
 import org.eclipse.openvsx.entities.ExtensionVersion;
 import org.eclipse.openvsx.entities.FileResource;
@@ -20,4 +25,39 @@ public interface FileResourceRepository extends Repository<FileResource, Long> {
 
     FileResource findByExtensionAndType(ExtensionVersion extVersion, String type);
 
-}
\ No newline at end of file
+    @Query("select f.sha256 from FileResource f where f.extension = :extension and f.type = :type")
+    String findSha256(@Param("extension") ExtensionVersion extVersion, @Param("type") String type);
+
+    @Query("select new org.eclipse.openvsx.repositories.IdHash(f.extension.id, f.sha256) from FileResource f"
+            + " where f.extension in :extensions and f.type = :type")
+    Streamable<IdHash> findSha256(@Param("extensions") Collection<ExtensionVersion> extVersions, @Param("type") String type);
+
+    /**
+     * Read a byte range of a file without loading its whole content. The offset is zero-based.
+     */
+    @Query(value = "select substring(content from cast(:offset as integer) + 1 for cast(:length as integer))"
+            + " from file_resource where extension_id = :extension and type = :type", nativeQuery = true)
+    byte[] findContentRange(@Param("extension") long extVersionId, @Param("type") String type,
+            @Param("offset") long offset, @Param("length") long length);
+
+    @Query(value = "select gzip_content from file_resource where id = ?1", nativeQuery = true)
+    byte[] findGzipContent(long id);
+
+    @Modifying
+    @Query(value = "update file_resource set gzip_content = ?2 where id = ?1", nativeQuery = true)
+    int updateGzipContent(long id, byte[] gzipContent);
+
+    @Query(value = "select * from file_resource where extension_id = ?1 and type in ?2 and gzip_content is null",
+            nativeQuery = true)
+    Streamable<FileResource> findUncompressed(long extVersionId, Collection<String> types);
+
+    @Query(value = "select distinct extension_id from file_resource where type in ?1 and gzip_content is null",
+            nativeQuery = true)
+    Streamable<Number> findUncompressedVersionIds(Collection<String> types);
+
+    @Query(value = "select distinct f.extension_id from file_resource f where f.type = 'icon' and"
+            + " (select count(*) from file_resource t where t.extension_id = f.extension_id and t.type in ?1) < ?2",
+            nativeQuery = true)
+    Streamable<Number> findVersionIdsWithoutThumbnails(Collection<String> thumbnailTypes, int count);
+
+}
@@ -0,0 +1,25 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.repositories;
+
+/**
+ * A count grouped by entity id.
+ */
+public class IdCount {
+
+    public final long id;
+    public final long count;
+
+    public IdCount(long id, long count) {
+        this.id = id;
+        this.count = count;
+    }
+
+}
@@ -0,0 +1,25 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.repositories;
+
+/**
+ * A file hash by the id of the extension version the file belongs to.
+ */
+public class IdHash {
+
+    public final long id;
+    public final String sha256;
+
+    public IdHash(long id, String sha256) {
+        this.id = id;
+        this.sha256 = sha256;
+    }
+
+}
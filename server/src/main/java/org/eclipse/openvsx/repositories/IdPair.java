@@ -0,0 +1,26 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.repositories;
+
+/**
+ * A relation between two entities given by their ids. Used to load relations
+ * in bulk without fetching the entities themselves.
+ */
+public class IdPair {
+
+    public final long source;
+    public final long target;
+
+    public IdPair(long source, long target) {
+        this.source = source;
+        this.target = target;
+    }
+
+}
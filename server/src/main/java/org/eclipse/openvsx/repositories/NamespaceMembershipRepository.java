@@ -9,7 +9,13 @@
  ********************************************************************************/
 package org.eclipse.openvsx.repositories;
 
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.util.Streamable;
 import org.eclipse.openvsx.entities.Namespace;
 import org.eclipse.openvsx.entities.NamespaceMembership;
@@ -25,9 +31,20 @@ public interface NamespaceMembershipRepository extends Repository<NamespaceMembe
 
     long countByNamespaceAndRoleIgnoreCase(Namespace namespace, String role);
 
+    @Query("select new org.eclipse.openvsx.repositories.IdCount(m.namespace.id, count(m)) from NamespaceMembership m"
+            + " where lower(m.role) = lower(:role) and m.namespace in :namespaces group by m.namespace.id")
+    Streamable<IdCount> countByNamespacesAndRole(@Param("namespaces") Collection<Namespace> namespaces, @Param("role") String role);
+
+    @Query("select new org.eclipse.openvsx.repositories.IdPair(m.namespace.id, m.user.id) from NamespaceMembership m"
+            + " where m.namespace in :namespaces")
+    Streamable<IdPair> findUserIdsByNamespaces(@Param("namespaces") Collection<Namespace> namespaces);
+
     Streamable<NamespaceMembership> findByNamespace(Namespace namespace);
 
     Streamable<NamespaceMembership> findByUser(UserData user);
 
     Streamable<NamespaceMembership> findByUserAndRoleIgnoreCaseOrderByNamespaceName(UserData user, String role);
+
+    @Query("select m from NamespaceMembership m join fetch m.namespace join fetch m.user where m.id > :id order by m.id")
+    List<NamespaceMembership> findAfter(@Param("id") long id, Pageable page);
 }
\ No newline at end of file
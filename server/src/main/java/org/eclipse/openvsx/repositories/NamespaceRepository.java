@@ -9,6 +9,9 @@
  ********************************************************************************/
 package org.eclipse.openvsx.repositories;
 
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.Repository;
 
 import org.eclipse.openvsx.entities.Namespace;
@@ -21,4 +24,6 @@ public interface NamespaceRepository extends Repository<Namespace, Long> {
 
     long count();
 
+    List<Namespace> findByIdGreaterThanOrderByIdAsc(long id, Pageable page);
+
 }
\ No newline at end of file
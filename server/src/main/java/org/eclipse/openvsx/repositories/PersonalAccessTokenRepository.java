@@ -9,6 +9,10 @@
  ********************************************************************************/
 package org.eclipse.openvsx.repositories;
 
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
 import org.springframework.data.util.Streamable;
 import org.eclipse.openvsx.entities.PersonalAccessToken;
@@ -22,4 +26,9 @@ public interface PersonalAccessTokenRepository extends Repository<PersonalAccess
 
     PersonalAccessToken findByValue(String value);
 
+    @Modifying
+    @Query("update PersonalAccessToken t set t.accessedTimestamp = ?2 where t.id = ?1"
+            + " and (t.accessedTimestamp is null or t.accessedTimestamp < ?2)")
+    int updateAccessedTimestamp(long id, LocalDateTime timestamp);
+
 }
\ No newline at end of file
@@ -0,0 +1,41 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.repositories;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+
+import org.eclipse.openvsx.entities.PublishJob;
+
+public interface PublishJobRepository extends Repository<PublishJob, String> {
+
+    PublishJob findById(String id);
+
+    long countByStatus(String status);
+
+    @Query(value = "select content from publish_job where id = ?1", nativeQuery = true)
+    byte[] findContent(String id);
+
+    @Modifying
+    @Query(value = "update publish_job set content = ?2 where id = ?1", nativeQuery = true)
+    int updateContent(String id, byte[] content);
+
+    @Modifying
+    @Query(value = "update publish_job set content = null where id = ?1", nativeQuery = true)
+    int deleteContent(String id);
+
+    @Modifying
+    @Query("delete from PublishJob j where j.finished < ?1")
+    int deleteFinishedBefore(LocalDateTime finished);
+
+}
@@ -0,0 +1,48 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.repositories;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+
+import org.eclipse.openvsx.entities.QueuedJob;
+
+public interface QueuedJobRepository extends Repository<QueuedJob, Long> {
+
+    QueuedJob findById(long id);
+
+    boolean existsByTypeAndPayloadAndStatus(String type, String payload, String status);
+
+    long countByStatus(String status);
+
+    QueuedJob findFirstByStatusOrderByScheduledAsc(String status);
+
+    /**
+     * Lock the pending jobs that are due, skipping jobs that are locked by other workers.
+     */
+    @Query(value = "select * from queued_job where status = 'pending' and scheduled <= ?1"
+            + " order by priority desc, scheduled limit ?2 for update skip locked", nativeQuery = true)
+    List<QueuedJob> findDueForUpdate(LocalDateTime now, int limit);
+
+    @Modifying
+    @Query("update QueuedJob j set j.status = 'pending', j.scheduled = ?2, j.error = 'Timed out'"
+            + " where j.status = 'running' and j.started < ?1 and j.attempts < j.maxAttempts")
+    int retryStaleJobs(LocalDateTime startedBefore, LocalDateTime scheduled);
+
+    @Modifying
+    @Query("update QueuedJob j set j.status = 'dead', j.error = 'Timed out'"
+            + " where j.status = 'running' and j.started < ?1 and j.attempts >= j.maxAttempts")
+    int killStaleJobs(LocalDateTime startedBefore);
+
+}
@@ -10,19 +10,28 @@
 package org.eclipse.openvsx.repositories;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.util.Streamable;
 import org.springframework.stereotype.Component;
 import org.eclipse.openvsx.entities.PersistedLog;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
+import org.eclipse.openvsx.entities.ArchiveEntry;
+import org.eclipse.openvsx.entities.ChangeLogEntry;
 import org.eclipse.openvsx.entities.Extension;
 import org.eclipse.openvsx.entities.ExtensionReview;
 import org.eclipse.openvsx.entities.ExtensionVersion;
 import org.eclipse.openvsx.entities.FileResource;
+import org.eclipse.openvsx.entities.MirrorCheckpoint;
 import org.eclipse.openvsx.entities.PersonalAccessToken;
 import org.eclipse.openvsx.entities.Namespace;
 import org.eclipse.openvsx.entities.NamespaceMembership;
+import org.eclipse.openvsx.entities.PublishJob;
+import org.eclipse.openvsx.entities.QueuedJob;
+import org.eclipse.openvsx.entities.UploadSession;
 import org.eclipse.openvsx.entities.UserData;
 
 @Component
@@ -32,11 +41,17 @@ public class RepositoryService {
     @Autowired ExtensionRepository extensionRepo;
     @Autowired ExtensionVersionRepository extensionVersionRepo;
     @Autowired FileResourceRepository fileResourceRepo;
+    @Autowired ArchiveEntryRepository archiveEntryRepo;
     @Autowired ExtensionReviewRepository extensionReviewRepo;
     @Autowired UserDataRepository userDataRepo;
     @Autowired NamespaceMembershipRepository membershipRepo;
     @Autowired PersonalAccessTokenRepository tokenRepo;
     @Autowired PersistedLogRepository persistedLogRepo;
+    @Autowired ChangeLogEntryRepository changeLogRepo;
+    @Autowired MirrorCheckpointRepository mirrorCheckpointRepo;
+    @Autowired QueuedJobRepository queuedJobRepo;
+    @Autowired PublishJobRepository publishJobRepo;
+    @Autowired UploadSessionRepository uploadSessionRepo;
 
     public Namespace findNamespace(String name) {
         return namespaceRepo.findByNameIgnoreCase(name);
@@ -58,6 +73,13 @@ public class RepositoryService {
         return extensionRepo.findByNamespaceOrderByNameAsc(namespace);
     }
 
+    /**
+     * Find all extensions whose name and namespace name are contained in the given lower-case sets.
+     */
+    public Streamable<Extension> findExtensions(Collection<String> names, Collection<String> namespaces) {
+        return extensionRepo.findByNamesAndNamespaceNames(names, namespaces);
+    }
+
     public Streamable<Extension> findAllExtensions() {
         return extensionRepo.findAll();
     }
@@ -70,6 +92,14 @@ public class RepositoryService {
         return extensionRepo.getMaxDownloadCount();
     }
 
+    public Streamable<IdPair> findAllLatestVersionIds() {
+        return extensionRepo.findAllLatestIds();
+    }
+
+    public Streamable<IdPair> findLatestVersionIds(Collection<Long> extensionIds) {
+        return extensionRepo.findLatestIds(extensionIds);
+    }
+
     public ExtensionVersion findVersion(String version, Extension extension) {
         return extensionVersionRepo.findByVersionAndExtension(version, extension);
     }
@@ -82,10 +112,46 @@ public class RepositoryService {
          return extensionVersionRepo.findByExtension(extension);
     }
 
+    public Streamable<ExtensionVersion> findVersionsByExtensions(Collection<Extension> extensions) {
+         return extensionVersionRepo.findByExtensionIn(extensions);
+    }
+
     public Streamable<ExtensionVersion> findVersions(Extension extension, boolean preview) {
          return extensionVersionRepo.findByExtensionAndPreview(extension, preview);
     }
 
+    public Streamable<ExtensionVersion> findCompatibleVersions(Extension extension, long engineVersion) {
+        return extensionVersionRepo.findByExtensionAndVscodeEngineMinLessThanEqualAndVscodeEngineMaxGreaterThan(extension, engineVersion, engineVersion);
+    }
+
+    public Streamable<VersionRef> findCompatibleVersionRefs(Collection<Long> extensionIds, long engineVersion) {
+        return extensionVersionRepo.findCompatibleRefs(extensionIds, engineVersion);
+    }
+
+    public Streamable<ExtensionVersion> findVersionsWithoutEngineRange() {
+        return extensionVersionRepo.findByVscodeEngineMinIsNull();
+    }
+
+    public Streamable<Long> findUnindexedVersionIds() {
+        return extensionVersionRepo.findUnindexedIds();
+    }
+
+    public Streamable<ExtensionVersion> findVersions(Collection<Long> ids) {
+        return extensionVersionRepo.findByIdIn(ids);
+    }
+
+    public Streamable<IdPair> findAllVersionExtensionIds() {
+        return extensionVersionRepo.findAllExtensionIds();
+    }
+
+    public Streamable<IdPair> findAllVersionDependencyIds() {
+        return extensionVersionRepo.findAllDependencyIds();
+    }
+
+    public Streamable<IdPair> findAllVersionBundledExtensionIds() {
+        return extensionVersionRepo.findAllBundledExtensionIds();
+    }
+
     public Streamable<ExtensionVersion> findBundledExtensionsReference(Extension extension) {
         return extensionVersionRepo.findByBundledExtensions(extension);
     }
@@ -114,6 +180,47 @@ public class RepositoryService {
         return fileResourceRepo.findByExtensionAndType(extVersion, type);
     }
 
+    public String findFileHash(ExtensionVersion extVersion, String type) {
+        return fileResourceRepo.findSha256(extVersion, type);
+    }
+
+    public Streamable<IdHash> findFileHashes(Collection<ExtensionVersion> extVersions, String type) {
+        return fileResourceRepo.findSha256(extVersions, type);
+    }
+
+    public byte[] findFileRange(ExtensionVersion extVersion, String type, long offset, long length) {
+        return fileResourceRepo.findContentRange(extVersion.getId(), type, offset, length);
+    }
+
+    public byte[] findGzipContent(FileResource resource) {
+        return fileResourceRepo.findGzipContent(resource.getId());
+    }
+
+    public void updateGzipContent(FileResource resource, byte[] gzipContent) {
+        fileResourceRepo.updateGzipContent(resource.getId(), gzipContent);
+    }
+
+    public Streamable<FileResource> findUncompressedFiles(ExtensionVersion extVersion, Collection<String> types) {
+        return fileResourceRepo.findUncompressed(extVersion.getId(), types);
+    }
+
+    public Streamable<Long> findUncompressedVersionIds(Collection<String> types) {
+        return fileResourceRepo.findUncompressedVersionIds(types).map(Number::longValue);
+    }
+
+    public Streamable<Long> findVersionIdsWithoutThumbnails(Collection<String> thumbnailTypes) {
+        return fileResourceRepo.findVersionIdsWithoutThumbnails(thumbnailTypes, thumbnailTypes.size())
+                .map(Number::longValue);
+    }
+
+    public ArchiveEntry findArchiveEntry(ExtensionVersion extVersion, String name) {
+        return archiveEntryRepo.findByExtensionAndName(extVersion, name);
+    }
+
+    public int deleteArchiveEntries(ExtensionVersion extVersion) {
+        return archiveEntryRepo.deleteByExtension(extVersion);
+    }
+
     public Streamable<ExtensionReview> findActiveReviews(Extension extension) {
         return extensionReviewRepo.findByExtensionAndActiveTrue(extension);
     }
@@ -130,6 +237,10 @@ public class RepositoryService {
         return extensionReviewRepo.countByExtensionAndActiveTrue(extension);
     }
 
+    public Streamable<IdCount> countActiveReviews(Collection<Extension> extensions) {
+        return extensionReviewRepo.countActiveByExtensions(extensions);
+    }
+
     public UserData findUserByProviderId(String provider, String providerId) {
         return userDataRepo.findByProviderAndProviderId(provider, providerId);
     }
@@ -162,6 +273,14 @@ public class RepositoryService {
         return membershipRepo.countByNamespaceAndRoleIgnoreCase(namespace, role);
     }
 
+    public Streamable<IdCount> countMemberships(Collection<Namespace> namespaces, String role) {
+        return membershipRepo.countByNamespacesAndRole(namespaces, role);
+    }
+
+    public Streamable<IdPair> findMemberIds(Collection<Namespace> namespaces) {
+        return membershipRepo.findUserIdsByNamespaces(namespaces);
+    }
+
     public Streamable<NamespaceMembership> findMemberships(UserData user, String role) {
         return membershipRepo.findByUserAndRoleIgnoreCaseOrderByNamespaceName(user, role);
     }
@@ -182,6 +301,10 @@ public class RepositoryService {
         return tokenRepo.findById(id);
     }
 
+    public int updateAccessedTimestamp(long tokenId, LocalDateTime timestamp) {
+        return tokenRepo.updateAccessedTimestamp(tokenId, timestamp);
+    }
+
     public Streamable<PersistedLog> findAllPersistedLogs() {
         return persistedLogRepo.findByOrderByTimestampAsc();
     }
@@ -190,4 +313,117 @@ public class RepositoryService {
         return persistedLogRepo.findByTimestampAfterOrderByTimestampAsc(dateTime);
     }
 
-}
\ No newline at end of file
+    public MirrorCheckpoint findMirrorCheckpoint(String url) {
+        return mirrorCheckpointRepo.findByUrl(url);
+    }
+
+    public Streamable<ChangeLogEntry> findChangesAfter(long id, int limit) {
+        return Streamable.of(changeLogRepo.findByIdGreaterThanOrderByIdAsc(id, PageRequest.of(0, limit)));
+    }
+
+    public long getMaxChangeId() {
+        var entry = changeLogRepo.findFirstByOrderByIdDesc();
+        return entry != null ? entry.getId() : 0;
+    }
+
+    public Streamable<Namespace> findNamespacesAfter(long id, int limit) {
+        return Streamable.of(namespaceRepo.findByIdGreaterThanOrderByIdAsc(id, PageRequest.of(0, limit)));
+    }
+
+    public int addDownloadCount(long extensionId, int count) {
+        return extensionRepo.addDownloadCount(extensionId, count);
+    }
+
+    public Streamable<Extension> findExtensionsAfter(long id, int limit) {
+        return Streamable.of(extensionRepo.findAfter(id, PageRequest.of(0, limit)));
+    }
+
+    public Streamable<ExtensionVersion> findVersionsAfter(long id, int limit) {
+        return Streamable.of(extensionVersionRepo.findAfter(id, PageRequest.of(0, limit)));
+    }
+
+    public Streamable<NamespaceMembership> findMembershipsAfter(long id, int limit) {
+        return Streamable.of(membershipRepo.findAfter(id, PageRequest.of(0, limit)));
+    }
+
+    public Streamable<ExtensionReview> findReviewsAfter(long id, int limit) {
+        return Streamable.of(extensionReviewRepo.findAfter(id, PageRequest.of(0, limit)));
+    }
+
+    public QueuedJob findQueuedJob(long id) {
+        return queuedJobRepo.findById(id);
+    }
+
+    public boolean hasPendingJob(String type, String payload) {
+        return queuedJobRepo.existsByTypeAndPayloadAndStatus(type, payload, QueuedJob.STATUS_PENDING);
+    }
+
+    public long countQueuedJobs(String status) {
+        return queuedJobRepo.countByStatus(status);
+    }
+
+    public QueuedJob findOldestQueuedJob(String status) {
+        return queuedJobRepo.findFirstByStatusOrderByScheduledAsc(status);
+    }
+
+    public Streamable<QueuedJob> lockDueJobs(LocalDateTime now, int limit) {
+        return Streamable.of(queuedJobRepo.findDueForUpdate(now, limit));
+    }
+
+    public int retryStaleJobs(LocalDateTime startedBefore, LocalDateTime scheduled) {
+        return queuedJobRepo.retryStaleJobs(startedBefore, scheduled);
+    }
+
+    public int killStaleJobs(LocalDateTime startedBefore) {
+        return queuedJobRepo.killStaleJobs(startedBefore);
+    }
+
+    public PublishJob findPublishJob(String id) {
+        return publishJobRepo.findById(id);
+    }
+
+    public long countPublishJobs(String status) {
+        return publishJobRepo.countByStatus(status);
+    }
+
+    public byte[] findPublishJobContent(String id) {
+        return publishJobRepo.findContent(id);
+    }
+
+    public void updatePublishJobContent(String id, byte[] content) {
+        publishJobRepo.updateContent(id, content);
+    }
+
+    public void deletePublishJobContent(String id) {
+        publishJobRepo.deleteContent(id);
+    }
+
+    public int deletePublishJobs(LocalDateTime finishedBefore) {
+        return publishJobRepo.deleteFinishedBefore(finishedBefore);
+    }
+
+    public UploadSession findUploadSession(String id) {
+        return uploadSessionRepo.findById(id);
+    }
+
+    public int updateUploadSessionSize(String id, long offset, long size, LocalDateTime expires) {
+        return uploadSessionRepo.updateSize(id, offset, size, expires);
+    }
+
+    public void insertUploadChunk(String id, long offset, byte[] content) {
+        uploadSessionRepo.insertChunk(id, offset, content);
+    }
+
+    public List<byte[]> findUploadChunks(String id) {
+        return uploadSessionRepo.findChunks(id);
+    }
+
+    public int deleteUploadSession(String id) {
+        return uploadSessionRepo.deleteById(id);
+    }
+
+    public int deleteUploadSessions(LocalDateTime expiredBefore) {
+        return uploadSessionRepo.deleteExpiredBefore(expiredBefore);
+    }
+
+}
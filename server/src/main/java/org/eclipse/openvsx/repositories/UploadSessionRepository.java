@@ -0,0 +1,48 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.repositories;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+
+import org.eclipse.openvsx.entities.UploadSession;
+
+public interface UploadSessionRepository extends Repository<UploadSession, String> {
+
+    UploadSession findById(String id);
+
+    /**
+     * Advance the size of a session, provided that no other chunk was received since it was read.
+     */
+    @Modifying
+    @Query("update UploadSession s set s.size = ?3, s.expires = ?4 where s.id = ?1 and s.size = ?2")
+    int updateSize(String id, long offset, long size, LocalDateTime expires);
+
+    @Modifying
+    @Query(value = "insert into upload_chunk (session_id, chunk_offset, content) values (?1, ?2, ?3)", nativeQuery = true)
+    int insertChunk(String id, long offset, byte[] content);
+
+    @Query(value = "select content from upload_chunk where session_id = ?1 order by chunk_offset", nativeQuery = true)
+    List<byte[]> findChunks(String id);
+
+    /** Delete a session; its chunks are deleted by the database. */
+    @Modifying
+    @Query("delete from UploadSession s where s.id = ?1")
+    int deleteById(String id);
+
+    @Modifying
+    @Query("delete from UploadSession s where s.expires < ?1")
+    int deleteExpiredBefore(LocalDateTime expires);
+
+}
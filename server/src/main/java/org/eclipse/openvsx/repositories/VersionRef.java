@@ -0,0 +1,49 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.repositories;
+
+import java.time.LocalDateTime;
+
+import org.eclipse.openvsx.entities.ExtensionVersion;
+
+/**
+ * The properties of an extension version that determine its sort order. Used to select
+ * versions in bulk without fetching the entities themselves.
+ */
+public class VersionRef {
+
+    public final long id;
+    public final long extensionId;
+    public final String version;
+    public final boolean preview;
+    public final LocalDateTime timestamp;
+
+    public VersionRef(long id, long extensionId, String version, boolean preview, LocalDateTime timestamp) {
+        this.id = id;
+        this.extensionId = extensionId;
+        this.version = version;
+        this.preview = preview;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Create a detached extension version that can be compared with
+     * {@link ExtensionVersion#SORT_COMPARATOR}.
+     */
+    public ExtensionVersion toExtensionVersion() {
+        var extVersion = new ExtensionVersion();
+        extVersion.setId(id);
+        extVersion.setVersion(version);
+        extVersion.setPreview(preview);
+        extVersion.setTimestamp(timestamp);
+        return extVersion;
+    }
+
+}
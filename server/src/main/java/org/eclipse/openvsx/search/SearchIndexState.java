@@ -0,0 +1,37 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.search;
+
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Field;
+
+/**
+ * Marker stored next to the extensions index, telling up to which change log entry
+ * the index contents are consistent with the database.
+ */
+@Document(indexName = "extensions-state")
+public class SearchIndexState {
+
+    public static final String ID = "extensions";
+
+    public String id;
+
+    /** Version of the index contents, see {@link SearchService#INDEX_VERSION}. */
+    @Field(index = false)
+    public int version;
+
+    /** Id of the last change log entry that is reflected in the index. */
+    @Field(index = false)
+    public long changeId;
+
+    @Field(index = false)
+    public long timestamp;
+
+}
@@ -11,6 +11,10 @@ package org.eclipse.openvsx.search;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -20,8 +24,13 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Strings;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.eclipse.openvsx.db.LeaderElection;
+import org.eclipse.openvsx.entities.ChangeLogEntry;
 import org.eclipse.openvsx.entities.Extension;
 import org.eclipse.openvsx.entities.NamespaceMembership;
+import org.eclipse.openvsx.jfr.SearchEvent;
 import org.eclipse.openvsx.repositories.RepositoryService;
 import org.eclipse.openvsx.util.ErrorResultException;
 import org.eclipse.openvsx.util.TimeUtil;
@@ -36,8 +45,11 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.event.ApplicationStartedEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.query.GetQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
 import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
 import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
 import org.springframework.stereotype.Component;
@@ -46,6 +58,12 @@ import org.springframework.util.StopWatch;
 @Component
 public class SearchService {
 
+    /**
+     * Version of the index contents. Increase this when the entries or their relevance
+     * computation are changed, so the index is rebuilt on the next startup.
+     */
+    public static final int INDEX_VERSION = 1;
+
     protected final ReadWriteLock rwLock = new ReentrantReadWriteLock();
     protected final Logger logger = LoggerFactory.getLogger(SearchService.class);
 
@@ -55,9 +73,22 @@ public class SearchService {
     @Autowired
     ElasticsearchOperations searchOperations;
 
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    LeaderElection leaderElection;
+
     @Value("${ovsx.elasticsearch.enabled:true}")
     boolean enableSearch;
 
+    /** Rebuild the index on startup even if it is consistent with the database. */
+    @Value("${ovsx.elasticsearch.clear-on-start:false}")
+    boolean clearOnStart;
+
+    @Value("${ovsx.elasticsearch.change-batch-size:1000}")
+    int changeBatchSize;
+
     @Value("${ovsx.elasticsearch.relevance.rating:1.0}")
     double ratingRelevance;
     @Value("${ovsx.elasticsearch.relevance.downloads:1.0}")
@@ -79,34 +110,141 @@ public class SearchService {
         if (!isEnabled()) {
             return;
         }
-        var stopWatch = new StopWatch();
-        stopWatch.start();
-        updateSearchIndex();
-        stopWatch.stop();
-        logger.info("Initialized search index in " + stopWatch.getTotalTimeMillis() + " ms");
+        var initialized = leaderElection.runExclusively("search-index", () -> {
+            var stopWatch = new StopWatch();
+            stopWatch.start();
+            var state = clearOnStart ? null : getIndexState();
+            if (state == null || state.version != INDEX_VERSION || !searchOperations.indexExists(ExtensionSearch.class)) {
+                updateSearchIndex();
+                stopWatch.stop();
+                logger.info("Initialized search index in " + stopWatch.getTotalTimeMillis() + " ms");
+            } else {
+                var count = replayChanges(state.changeId);
+                stopWatch.stop();
+                logger.info("Updated search index with " + count + " changes in " + stopWatch.getTotalTimeMillis() + " ms");
+            }
+        });
+        if (!initialized) {
+            logger.info("The search index is initialized by another node");
+        }
     }
 
     public void updateSearchIndex() {
         try {
             rwLock.writeLock().lock();
+            // Changes committed while the index is built are replayed on the next startup
+            var changeId = repositories.getMaxChangeId();
             if (searchOperations.indexExists(ExtensionSearch.class)) {
                 searchOperations.deleteIndex(ExtensionSearch.class);
             }
             searchOperations.createIndex(ExtensionSearch.class);
             var allExtensions = repositories.findAllExtensions();
-            if (allExtensions.isEmpty()) {
-                return;
+            if (!allExtensions.isEmpty()) {
+                var stats = new SearchStats();
+                var indexQueries = allExtensions.map(extension ->
+                    new IndexQueryBuilder()
+                        .withObject(toSearchEntry(extension, stats))
+                        .build()
+                ).toList();
+                searchOperations.bulkIndex(indexQueries);
             }
+            saveIndexState(changeId);
+        } finally {
+            rwLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Update the entries of all extensions that were changed after the given change log
+     * entry, and remove entries of deleted extensions. Returns the number of changes.
+     */
+    protected int replayChanges(long changeId) {
+        var changed = new LinkedHashSet<List<String>>();
+        var deleted = new LinkedHashSet<List<String>>();
+        var count = 0;
+        var changes = repositories.findChangesAfter(changeId, changeBatchSize).toList();
+        while (!changes.isEmpty()) {
+            for (var change : changes) {
+                if (change.getExtension() != null) {
+                    var key = Arrays.asList(change.getNamespace(), change.getExtension());
+                    changed.add(key);
+                    if (ChangeLogEntry.DELETE.equals(change.getType()) && change.getVersion() == null)
+                        deleted.add(key);
+                }
+                changeId = change.getId();
+            }
+            count += changes.size();
+            changes = repositories.findChangesAfter(changeId, changeBatchSize).toList();
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        try {
+            rwLock.writeLock().lock();
             var stats = new SearchStats();
-            var indexQueries = allExtensions.map(extension ->
-                new IndexQueryBuilder()
-                    .withObject(toSearchEntry(extension, stats))
-                    .build()
-            ).toList();
-            searchOperations.bulkIndex(indexQueries);
+            var indexQueries = new ArrayList<IndexQuery>();
+            for (var key : changed) {
+                var extension = repositories.findExtension(key.get(1), key.get(0));
+                if (extension != null && extension.getLatest() != null) {
+                    indexQueries.add(new IndexQueryBuilder()
+                            .withObject(toSearchEntry(extension, stats))
+                            .build());
+                } else {
+                    deleted.add(key);
+                }
+            }
+            if (!indexQueries.isEmpty()) {
+                searchOperations.bulkIndex(indexQueries);
+            }
+            for (var key : deleted) {
+                removeStaleEntries(key.get(0), key.get(1));
+            }
+            saveIndexState(changeId);
         } finally {
             rwLock.writeLock().unlock();
         }
+        return count;
+    }
+
+    /**
+     * Remove entries with the given name that do not correspond to an existing extension.
+     * The ids of deleted extensions are not recorded, so the entries are found by name.
+     */
+    private void removeStaleEntries(String namespace, String extensionName) {
+        var query = new NativeSearchQueryBuilder()
+                .withIndices("extensions")
+                .withQuery(QueryBuilders.boolQuery()
+                        .must(QueryBuilders.matchQuery("namespace", namespace))
+                        .must(QueryBuilders.matchQuery("name", extensionName)))
+                .withPageable(PageRequest.of(0, 100))
+                .build();
+        var extension = repositories.findExtension(extensionName, namespace);
+        for (var entry : searchOperations.queryForList(query, ExtensionSearch.class)) {
+            if (namespace.equalsIgnoreCase(entry.namespace) && extensionName.equalsIgnoreCase(entry.name)
+                    && (extension == null || extension.getId() != entry.id)) {
+                searchOperations.delete(ExtensionSearch.class, Long.toString(entry.id));
+            }
+        }
+    }
+
+    private SearchIndexState getIndexState() {
+        if (!searchOperations.indexExists(SearchIndexState.class)) {
+            return null;
+        }
+        return searchOperations.queryForObject(GetQuery.getById(SearchIndexState.ID), SearchIndexState.class);
+    }
+
+    private void saveIndexState(long changeId) {
+        var state = new SearchIndexState();
+        state.id = SearchIndexState.ID;
+        state.version = INDEX_VERSION;
+        state.changeId = changeId;
+        state.timestamp = System.currentTimeMillis();
+        searchOperations.index(new IndexQueryBuilder()
+                .withId(state.id)
+                .withObject(state)
+                .build());
     }
 
     public void updateSearchEntry(Extension extension) {
@@ -126,12 +264,16 @@ public class SearchService {
     }
 
     public void removeSearchEntry(Extension extension) {
+        removeSearchEntry(extension.getId());
+    }
+
+    public void removeSearchEntry(long extensionId) {
         if (!isEnabled()) {
             return;
         }
         try {
             rwLock.writeLock().lock();
-            searchOperations.delete(ExtensionSearch.class, Long.toString(extension.getId()));
+            searchOperations.delete(ExtensionSearch.class, Long.toString(extensionId));
         } finally {
             rwLock.writeLock().unlock();
         }
@@ -203,6 +345,8 @@ public class SearchService {
     }
 
     public Page<ExtensionSearch> search(String queryString, String category, Pageable pageRequest, String sortOrder, String sortBy) {
+        var event = new SearchEvent();
+        event.begin();
         var queryBuilder = new NativeSearchQueryBuilder()
                 .withIndices("extensions")
                 .withPageable(pageRequest);
@@ -257,12 +401,26 @@ public class SearchService {
                     "sortBy parameter must be 'relevance', 'timestamp', 'averageRating' or 'downloadCount'");
         }
         
-        try {
-            rwLock.readLock().lock();
-            return searchOperations.queryForPage(queryBuilder.build(), ExtensionSearch.class);
-        } finally {
-            rwLock.readLock().unlock();
+        var result = meterRegistry.timer("ovsx.search", "sortBy", sortBy).record(() -> {
+            try {
+                rwLock.readLock().lock();
+                return searchOperations.queryForPage(queryBuilder.build(), ExtensionSearch.class);
+            } finally {
+                rwLock.readLock().unlock();
+            }
+        });
+        if (event.shouldCommit()) {
+            event.query = queryString;
+            event.category = category;
+            event.sortBy = sortBy;
+            event.sortOrder = sortOrder;
+            event.offset = pageRequest.getOffset();
+            event.size = pageRequest.getPageSize();
+            event.resultCount = result.getNumberOfElements();
+            event.totalHits = result.getTotalElements();
+            event.commit();
         }
+        return result;
     }
 
     protected class SearchStats {
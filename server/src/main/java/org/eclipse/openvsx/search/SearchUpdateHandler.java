@@ -0,0 +1,74 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.search;
+
+import javax.persistence.EntityManager;
+
+import org.eclipse.openvsx.entities.Extension;
+import org.eclipse.openvsx.jobs.JobHandler;
+import org.eclipse.openvsx.jobs.JobQueue;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Updates search entries in the background, so requests that change an extension do
+ * not wait for the search engine. The entry is removed if the extension no longer exists.
+ */
+@Component
+public class SearchUpdateHandler implements JobHandler<Long> {
+
+    public static final String TYPE = "search-update";
+
+    /** Search updates are visible to users, so they are executed before other jobs. */
+    private static final int PRIORITY = 10;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    SearchService search;
+
+    @Autowired
+    JobQueue jobs;
+
+    /**
+     * Schedule an update of the search entry of the given extension. This must be called
+     * within the transaction that changes the extension.
+     */
+    public void schedule(Extension extension) {
+        schedule(extension.getId());
+    }
+
+    public void schedule(long extensionId) {
+        if (search.isEnabled()) {
+            jobs.enqueue(TYPE, extensionId, PRIORITY);
+        }
+    }
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    public Class<Long> getPayloadType() {
+        return Long.class;
+    }
+
+    @Override
+    public void handle(Long extensionId) {
+        var extension = entityManager.find(Extension.class, extensionId);
+        if (extension != null && extension.getLatest() != null)
+            search.updateSearchEntry(extension);
+        else
+            search.removeSearchEntry(extensionId);
+    }
+
+}
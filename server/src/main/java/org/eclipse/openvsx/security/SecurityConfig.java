@@ -12,10 +12,17 @@ package org.eclipse.openvsx.security;
 import org.eclipse.openvsx.util.UrlUtil;
 import org.elasticsearch.common.Strings;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.builders.WebSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.web.context.NullSecurityContextRepository;
+import org.springframework.security.web.context.request.async.WebAsyncManagerIntegrationFilter;
+import org.springframework.security.web.savedrequest.NullRequestCache;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
 
 @EnableWebSecurity
 public class SecurityConfig extends WebSecurityConfigurerAdapter {
@@ -54,8 +61,9 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
         }
 
         // Publishing is done only via explicit access tokens, so we don't need CSRF protection here.
+        // The same holds for querying, which does not modify anything.
         http.csrf()
-            .ignoringAntMatchers("/api/-/publish", "/api/-/namespace/create", "/admin/**", "/vscode/**");
+            .ignoringAntMatchers("/api/-/publish/**", "/api/-/namespace/create", "/api/-/query", "/admin/**", "/vscode/**");
     }
 
     @Override
@@ -64,4 +72,34 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
             .antMatchers("/v2/api-docs", "/swagger-resources/**", "/swagger-ui/**", "/webjars/**");
     }
 
-}
\ No newline at end of file
+    /**
+     * Public read endpoints are used anonymously by IDEs and make up most of the traffic.
+     * They are handled by a separate filter chain that never loads or creates an HTTP session,
+     * and that hides the session from the request handlers, so these requests don't touch the
+     * session store even if they carry a session cookie.
+     */
+    @Configuration
+    @Order(1)
+    public static class PublicApiSecurityConfig extends WebSecurityConfigurerAdapter {
+
+        @Override
+        protected void configure(HttpSecurity http) throws Exception {
+            http.requestMatcher(new OrRequestMatcher(
+                    new AntPathRequestMatcher("/api/**", "GET"),
+                    new AntPathRequestMatcher("/vscode/**"),
+                    new AntPathRequestMatcher("/sitemap.xml", "GET"),
+                    new AntPathRequestMatcher("/actuator/**", "GET")))
+                .authorizeRequests()
+                    .anyRequest().permitAll();
+            http.securityContext()
+                .securityContextRepository(new NullSecurityContextRepository());
+            http.requestCache()
+                .requestCache(new NullRequestCache());
+            http.sessionManagement().disable();
+            http.csrf().disable();
+            http.addFilterBefore(new SessionlessRequestFilter(), WebAsyncManagerIntegrationFilter.class);
+        }
+
+    }
+
+}
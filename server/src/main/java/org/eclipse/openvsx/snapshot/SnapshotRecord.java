@@ -0,0 +1,73 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.snapshot;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+/**
+ * A line of a catalog snapshot. Which fields are present depends on the record type.
+ */
+@JsonInclude(Include.NON_NULL)
+public class SnapshotRecord {
+
+    public static final String NAMESPACE = "namespace";
+    public static final String EXTENSION = "extension";
+    public static final String VERSION = "version";
+    public static final String BLOB = "blob";
+    public static final String MEMBERSHIP = "membership";
+    public static final String REVIEW = "review";
+
+    public String type;
+
+    public String namespace;
+
+    public String extension;
+
+    public String version;
+
+    /** Publication time of a version or time of a review. */
+    public String timestamp;
+
+    /** SHA-256 hash of a blob or of the package of a version. */
+    public String sha256;
+
+    /** Content of a blob, encoded in Base64. */
+    public byte[] content;
+
+    public Integer downloadCount;
+
+    public Double averageRating;
+
+    /** Authentication provider of the user of a membership or review. */
+    public String provider;
+
+    public String providerId;
+
+    public String loginName;
+
+    public String fullName;
+
+    public String avatarUrl;
+
+    public String providerUrl;
+
+    /** Role of a namespace membership. */
+    public String role;
+
+    public Boolean active;
+
+    public String title;
+
+    public String comment;
+
+    public Integer rating;
+
+}
@@ -0,0 +1,565 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.snapshot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.persistence.EntityManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.google.common.hash.Hashing;
+
+import org.eclipse.openvsx.AdminService;
+import org.eclipse.openvsx.ExtensionProcessor;
+import org.eclipse.openvsx.LocalRegistryService;
+import org.eclipse.openvsx.UserService;
+import org.eclipse.openvsx.entities.ExtensionReview;
+import org.eclipse.openvsx.entities.FileResource;
+import org.eclipse.openvsx.entities.NamespaceMembership;
+import org.eclipse.openvsx.entities.UserData;
+import org.eclipse.openvsx.json.ResultJson;
+import org.eclipse.openvsx.repositories.RepositoryService;
+import org.eclipse.openvsx.search.SearchService;
+import org.eclipse.openvsx.util.ErrorResultException;
+import org.eclipse.openvsx.util.TimeUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Exports and imports the catalog as a stream of gzip compressed JSON lines. Namespaces
+ * come first, followed by the namespace memberships, so imported namespaces are not open
+ * to every publisher, then the extension versions in order of publication, each optionally
+ * preceded by a blob record with its package, the download counts and ratings of the
+ * extensions, and finally the reviews the ratings are computed from. Users are identified
+ * by their authentication provider and exported with their public profile only. Both
+ * directions hold at most one page of metadata and one package in memory.
+ */
+@Component
+public class SnapshotService {
+
+    protected final Logger logger = LoggerFactory.getLogger(SnapshotService.class);
+
+    private static final int PAGE_SIZE = 100;
+
+    @Autowired
+    RepositoryService repositories;
+
+    @Autowired
+    LocalRegistryService local;
+
+    @Autowired
+    AdminService admins;
+
+    @Autowired
+    UserService users;
+
+    @Autowired
+    SearchService search;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Value("${ovsx.licenses.detect:}")
+    String[] detectedLicenseIds;
+
+    @Value("${ovsx.import.batch-size:50}")
+    int batchSize;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final AtomicBoolean importRunning = new AtomicBoolean();
+
+    public void exportSnapshot(OutputStream output, boolean includeBlobs) throws IOException {
+        var transactions = new TransactionTemplate(transactionManager);
+        transactions.setReadOnly(true);
+        try (var writer = mapper.writer().withRootValueSeparator("\n").writeValues(new GZIPOutputStream(output))) {
+            var cursor = new long[1];
+            do {
+                cursor[0] = transactions.execute(status -> exportNamespaces(writer, cursor[0]));
+            } while (cursor[0] > 0);
+            do {
+                cursor[0] = transactions.execute(status -> exportMemberships(writer, cursor[0]));
+            } while (cursor[0] > 0);
+            do {
+                cursor[0] = transactions.execute(status -> exportVersions(writer, cursor[0], includeBlobs));
+            } while (cursor[0] > 0);
+            do {
+                cursor[0] = transactions.execute(status -> exportExtensions(writer, cursor[0]));
+            } while (cursor[0] > 0);
+            do {
+                cursor[0] = transactions.execute(status -> exportReviews(writer, cursor[0]));
+            } while (cursor[0] > 0);
+        }
+    }
+
+    /**
+     * Write a page of namespaces and return the id of the last one, or 0 if there are no more.
+     */
+    private long exportNamespaces(SequenceWriter writer, long after) {
+        var last = 0L;
+        for (var namespace : repositories.findNamespacesAfter(after, PAGE_SIZE)) {
+            var record = new SnapshotRecord();
+            record.type = SnapshotRecord.NAMESPACE;
+            record.namespace = namespace.getName();
+            write(writer, record);
+            last = namespace.getId();
+        }
+        return last;
+    }
+
+    private long exportMemberships(SequenceWriter writer, long after) {
+        var last = 0L;
+        for (var membership : repositories.findMembershipsAfter(after, PAGE_SIZE)) {
+            var record = new SnapshotRecord();
+            record.type = SnapshotRecord.MEMBERSHIP;
+            record.namespace = membership.getNamespace().getName();
+            setUser(record, membership.getUser());
+            record.role = membership.getRole();
+            write(writer, record);
+            last = membership.getId();
+        }
+        return last;
+    }
+
+    private long exportVersions(SequenceWriter writer, long after, boolean includeBlobs) {
+        var last = 0L;
+        for (var extVersion : repositories.findVersionsAfter(after, PAGE_SIZE)) {
+            var extension = extVersion.getExtension();
+            var record = new SnapshotRecord();
+            record.type = SnapshotRecord.VERSION;
+            record.namespace = extension.getNamespace().getName();
+            record.extension = extension.getName();
+            record.version = extVersion.getVersion();
+            record.timestamp = TimeUtil.toUTCString(extVersion.getTimestamp());
+            record.sha256 = repositories.findFileHash(extVersion, FileResource.DOWNLOAD);
+            if (includeBlobs || record.sha256 == null) {
+                var resource = repositories.findFile(extVersion, FileResource.DOWNLOAD);
+                if (resource != null) {
+                    var content = resource.getContent();
+                    if (record.sha256 == null)
+                        record.sha256 = Hashing.sha256().hashBytes(content).toString();
+                    if (includeBlobs) {
+                        var blob = new SnapshotRecord();
+                        blob.type = SnapshotRecord.BLOB;
+                        blob.sha256 = record.sha256;
+                        blob.content = content;
+                        write(writer, blob);
+                    }
+                    // Release the content before loading the next package
+                    entityManager.detach(resource);
+                }
+            }
+            write(writer, record);
+            last = extVersion.getId();
+        }
+        return last;
+    }
+
+    private long exportExtensions(SequenceWriter writer, long after) {
+        var last = 0L;
+        for (var extension : repositories.findExtensionsAfter(after, PAGE_SIZE)) {
+            var record = new SnapshotRecord();
+            record.type = SnapshotRecord.EXTENSION;
+            record.namespace = extension.getNamespace().getName();
+            record.extension = extension.getName();
+            record.downloadCount = extension.getDownloadCount();
+            record.averageRating = extension.getAverageRating();
+            write(writer, record);
+            last = extension.getId();
+        }
+        return last;
+    }
+
+    private long exportReviews(SequenceWriter writer, long after) {
+        var last = 0L;
+        for (var review : repositories.findReviewsAfter(after, PAGE_SIZE)) {
+            var extension = review.getExtension();
+            var record = new SnapshotRecord();
+            record.type = SnapshotRecord.REVIEW;
+            record.namespace = extension.getNamespace().getName();
+            record.extension = extension.getName();
+            setUser(record, review.getUser());
+            record.timestamp = TimeUtil.toUTCString(review.getTimestamp());
+            record.active = review.isActive();
+            record.title = review.getTitle();
+            record.comment = review.getComment();
+            record.rating = review.getRating();
+            write(writer, record);
+            last = review.getId();
+        }
+        return last;
+    }
+
+    /**
+     * Add the public profile of a user to a record. The email address and the role of
+     * the user are not exported.
+     */
+    private void setUser(SnapshotRecord record, UserData user) {
+        record.provider = user.getProvider();
+        record.providerId = user.getProviderId();
+        record.loginName = user.getLoginName();
+        record.fullName = user.getFullName();
+        record.avatarUrl = user.getAvatarUrl();
+        record.providerUrl = user.getProviderUrl();
+    }
+
+    private void write(SequenceWriter writer, SnapshotRecord record) {
+        try {
+            writer.write(record);
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+    }
+
+    /**
+     * Import the snapshot file at the given location in the background.
+     * The result is written to the admin log.
+     */
+    public ResultJson startImport(String location, UserData admin) {
+        var path = Path.of(location);
+        if (!Files.isRegularFile(path))
+            throw new ErrorResultException("File not found: " + location);
+        if (!importRunning.compareAndSet(false, true))
+            throw new ErrorResultException("Another snapshot import is already running.");
+        var thread = new Thread(() -> {
+            try (var stream = Files.newInputStream(path)) {
+                var result = importSnapshot(stream);
+                admins.logAdminAction(admin, result);
+            } catch (IOException | RuntimeException exc) {
+                logger.error("Import of snapshot " + location + " failed", exc);
+            } finally {
+                importRunning.set(false);
+            }
+        }, "snapshot-import");
+        thread.start();
+        return ResultJson.success("Started import of snapshot " + location);
+    }
+
+    public ResultJson importSnapshot(InputStream input) throws IOException {
+        var state = new ImportState();
+        try (var records = mapper.readerFor(SnapshotRecord.class).<SnapshotRecord>readValues(new GZIPInputStream(input))) {
+            while (records.hasNext()) {
+                var record = records.next();
+                if (record.type == null)
+                    continue;
+                switch (record.type) {
+                    case SnapshotRecord.NAMESPACE:
+                        flush(state);
+                        importNamespace(record, state);
+                        break;
+                    case SnapshotRecord.MEMBERSHIP:
+                        flush(state);
+                        importMembership(record, state);
+                        break;
+                    case SnapshotRecord.BLOB:
+                        storeBlob(record, state);
+                        break;
+                    case SnapshotRecord.VERSION:
+                        addVersion(record, state);
+                        break;
+                    case SnapshotRecord.EXTENSION:
+                        flush(state);
+                        importStatistics(record, state);
+                        break;
+                    case SnapshotRecord.REVIEW:
+                        flush(state);
+                        importReview(record, state);
+                        break;
+                    default:
+                        logger.warn("Unknown snapshot record type: " + record.type);
+                }
+            }
+            flush(state);
+            // Versions may reference extensions that were published later
+            var deferred = new ArrayList<>(state.deferred);
+            state.deferred.clear();
+            importSingle(deferred, state, false);
+
+            if (search.isEnabled()) {
+                new TransactionTemplate(transactionManager).execute(status -> {
+                    search.updateSearchIndex();
+                    return null;
+                });
+            }
+        } finally {
+            state.deleteFiles();
+        }
+
+        state.failures.forEach((name, message) -> logger.warn("Could not import " + name + ": " + message));
+        var message = "Imported " + state.imported + " extension versions";
+        if (state.memberships > 0)
+            message += ", " + state.memberships + " namespace memberships";
+        if (state.reviews > 0)
+            message += ", " + state.reviews + " reviews";
+        message += " from snapshot";
+        if (state.skipped > 0)
+            message += ", skipped " + state.skipped + " existing versions";
+        if (!state.failures.isEmpty())
+            message += " (" + state.failures.size() + " failed: " + String.join(", ", state.failures.keySet()) + ")";
+        return ResultJson.success(message);
+    }
+
+    private void importNamespace(SnapshotRecord record, ImportState state) {
+        try {
+            new TransactionTemplate(transactionManager).execute(status -> local.importNamespace(record.namespace));
+        } catch (ErrorResultException exc) {
+            state.failures.put(record.namespace, exc.getMessage());
+        }
+    }
+
+    private void importMembership(SnapshotRecord record, ImportState state) {
+        var imported = new TransactionTemplate(transactionManager).execute(status -> {
+            var namespace = repositories.findNamespace(record.namespace);
+            if (namespace == null)
+                return false;
+            var user = importUser(record);
+            if (repositories.findMembership(user, namespace) != null)
+                return false;
+            var membership = new NamespaceMembership();
+            membership.setNamespace(namespace);
+            membership.setUser(user);
+            membership.setRole(record.role);
+            entityManager.persist(membership);
+            users.invalidatePermissions(namespace);
+            return true;
+        });
+        if (imported)
+            state.memberships++;
+    }
+
+    private void importReview(SnapshotRecord record, ImportState state) {
+        var imported = new TransactionTemplate(transactionManager).execute(status -> {
+            var extension = repositories.findExtension(record.extension, record.namespace);
+            if (extension == null)
+                return false;
+            var user = importUser(record);
+            var timestamp = record.timestamp != null ? TimeUtil.fromUTCString(record.timestamp) : TimeUtil.getCurrentUTC();
+            // Reviews that were imported before are identified by their user and time
+            if (repositories.findAllReviews(extension).stream()
+                    .anyMatch(r -> r.getUser().getId() == user.getId() && r.getTimestamp().equals(timestamp)))
+                return false;
+            var review = new ExtensionReview();
+            review.setExtension(extension);
+            review.setUser(user);
+            review.setTimestamp(timestamp);
+            review.setActive(record.active == null || record.active);
+            review.setTitle(record.title);
+            review.setComment(record.comment);
+            review.setRating(record.rating != null ? record.rating : 0);
+            entityManager.persist(review);
+            return true;
+        });
+        if (imported)
+            state.reviews++;
+    }
+
+    /**
+     * Find the user of a membership or review record, or create it if it does not exist yet.
+     */
+    private UserData importUser(SnapshotRecord record) {
+        UserData user = null;
+        if (record.providerId != null)
+            user = repositories.findUserByProviderId(record.provider, record.providerId);
+        if (user == null)
+            user = repositories.findUserByLoginName(record.provider, record.loginName);
+        if (user == null) {
+            user = new UserData();
+            user.setProvider(record.provider);
+            user.setProviderId(record.providerId);
+            user.setLoginName(record.loginName);
+            user.setFullName(record.fullName);
+            user.setAvatarUrl(record.avatarUrl);
+            user.setProviderUrl(record.providerUrl);
+            entityManager.persist(user);
+        }
+        return user;
+    }
+
+    private void storeBlob(SnapshotRecord record, ImportState state) throws IOException {
+        state.deleteBlob();
+        if (record.content == null)
+            return;
+        var hash = Hashing.sha256().hashBytes(record.content).toString();
+        if (record.sha256 != null && !record.sha256.equalsIgnoreCase(hash)) {
+            state.failures.put("blob " + record.sha256, "Hash mismatch: got " + hash);
+            return;
+        }
+        state.blobFile = Files.createTempFile("snapshot_", ".vsix");
+        Files.write(state.blobFile, record.content);
+        state.blobHash = hash;
+    }
+
+    private void addVersion(SnapshotRecord record, ImportState state) {
+        var name = record.namespace + "." + record.extension + "@" + record.version;
+        if (repositories.findVersion(record.version, record.extension, record.namespace) != null) {
+            state.skipped++;
+        } else if (state.blobFile != null && state.blobHash.equalsIgnoreCase(record.sha256)) {
+            state.batch.add(new PendingVersion(name, record, state.blobFile));
+            state.blobFile = null;
+            if (state.batch.size() >= Math.max(batchSize, 1))
+                flush(state);
+        } else {
+            state.failures.put(name, "The package is not included in the snapshot.");
+        }
+        state.deleteBlob();
+    }
+
+    private void importStatistics(SnapshotRecord record, ImportState state) {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            var extension = repositories.findExtension(record.extension, record.namespace);
+            if (extension != null) {
+                if (record.downloadCount != null)
+                    extension.setDownloadCount(record.downloadCount);
+                extension.setAverageRating(record.averageRating);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Import the pending versions in a single transaction. If that fails, they are
+     * imported one by one to isolate the failing ones.
+     */
+    private void flush(ImportState state) {
+        if (state.batch.isEmpty())
+            return;
+        var batch = new ArrayList<>(state.batch);
+        state.batch.clear();
+        var processors = new ArrayList<ExtensionProcessor>(batch.size());
+        try {
+            new TransactionTemplate(transactionManager).execute(status -> {
+                for (var pending : batch) {
+                    var processor = openProcessor(pending);
+                    processors.add(processor);
+                    local.importExtension(processor, processor.getMetadata(), null, getTimestamp(pending));
+                }
+                return null;
+            });
+            state.imported += batch.size();
+            batch.forEach(pending -> state.delete(pending.file));
+        } catch (RuntimeException exc) {
+            processors.forEach(ExtensionProcessor::close);
+            processors.clear();
+            importSingle(batch, state, true);
+        } finally {
+            processors.forEach(ExtensionProcessor::close);
+        }
+    }
+
+    private void importSingle(List<PendingVersion> versions, ImportState state, boolean defer) {
+        for (var pending : versions) {
+            try {
+                new TransactionTemplate(transactionManager).execute(status -> {
+                    try (var processor = openProcessor(pending)) {
+                        local.importExtension(processor, processor.getMetadata(), null, getTimestamp(pending));
+                    }
+                    return null;
+                });
+                state.imported++;
+                state.delete(pending.file);
+            } catch (RuntimeException exc) {
+                if (defer) {
+                    state.deferred.add(pending);
+                } else {
+                    if (!(exc instanceof ErrorResultException))
+                        logger.error("Could not import " + pending.name, exc);
+                    state.failures.put(pending.name, exc.getMessage());
+                    state.delete(pending.file);
+                }
+            }
+        }
+    }
+
+    private LocalDateTime getTimestamp(PendingVersion pending) {
+        if (pending.record.timestamp == null)
+            return TimeUtil.getCurrentUTC();
+        return TimeUtil.fromUTCString(pending.record.timestamp);
+    }
+
+    private ExtensionProcessor openProcessor(PendingVersion pending) {
+        try (var stream = Files.newInputStream(pending.file)) {
+            var processor = new ExtensionProcessor(stream, Arrays.asList(detectedLicenseIds));
+            // Read the package while the stream is open
+            processor.getNamespace();
+            return processor;
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+    }
+
+    private static class PendingVersion {
+        final String name;
+        final SnapshotRecord record;
+        final Path file;
+
+        PendingVersion(String name, SnapshotRecord record, Path file) {
+            this.name = name;
+            this.record = record;
+            this.file = file;
+        }
+    }
+
+    private class ImportState {
+        final List<PendingVersion> batch = new ArrayList<>();
+        final List<PendingVersion> deferred = new ArrayList<>();
+        final Map<String, String> failures = new LinkedHashMap<>();
+        Path blobFile;
+        String blobHash;
+        int imported;
+        int skipped;
+        int memberships;
+        int reviews;
+
+        void deleteBlob() {
+            if (blobFile != null) {
+                delete(blobFile);
+                blobFile = null;
+                blobHash = null;
+            }
+        }
+
+        void delete(Path file) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException exc) {
+                logger.warn("Could not delete " + file, exc);
+            }
+        }
+
+        void deleteFiles() {
+            deleteBlob();
+            batch.forEach(pending -> delete(pending.file));
+            deferred.forEach(pending -> delete(pending.file));
+        }
+    }
+
+}
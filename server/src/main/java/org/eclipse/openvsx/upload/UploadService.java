@@ -0,0 +1,194 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.upload;
+
+import static org.eclipse.openvsx.util.UrlUtil.createApiUrl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.UUID;
+
+import javax.persistence.EntityManager;
+
+import com.google.common.io.ByteStreams;
+
+import org.eclipse.openvsx.LocalRegistryService;
+import org.eclipse.openvsx.UserService;
+import org.eclipse.openvsx.entities.UploadSession;
+import org.eclipse.openvsx.entities.UserData;
+import org.eclipse.openvsx.json.ExtensionJson;
+import org.eclipse.openvsx.json.UploadJson;
+import org.eclipse.openvsx.repositories.RepositoryService;
+import org.eclipse.openvsx.util.ErrorResultException;
+import org.eclipse.openvsx.util.TimeUtil;
+import org.eclipse.openvsx.util.UrlUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Receives extension packages in chunks, so an interrupted upload can be resumed. The
+ * sessions and their chunks are stored in the database, so the requests of an upload can
+ * be handled by any server instance; the package is assembled and published when the
+ * client finishes the upload. A chunk is read completely before it is stored, and the
+ * offset is checked again when the session is updated, so concurrent requests for the same
+ * session cannot hold locks while they wait for data. Sessions expire when no data is
+ * received for the configured timeout.
+ */
+@Component
+public class UploadService {
+
+    protected final Logger logger = LoggerFactory.getLogger(UploadService.class);
+
+    @Autowired
+    UserService users;
+
+    @Autowired
+    LocalRegistryService local;
+
+    @Autowired
+    RepositoryService repositories;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    /** Seconds after which an upload session without activity expires. */
+    @Value("${ovsx.upload.session-timeout:3600}")
+    long sessionTimeout;
+
+    @Value("${ovsx.upload.max-size:536870912}")
+    long maxSize;
+
+    public UploadJson createSession(String tokenValue) {
+        var user = getUser(tokenValue);
+        var session = new UploadSession();
+        session.setId(UUID.randomUUID().toString());
+        session.setUser(user);
+        session.setCreated(TimeUtil.getCurrentUTC());
+        session.setExpires(session.getCreated().plusSeconds(sessionTimeout));
+        new TransactionTemplate(transactionManager).execute(status -> {
+            entityManager.persist(session);
+            return null;
+        });
+        return toJson(session);
+    }
+
+    public UploadJson getSession(String id, String tokenValue) {
+        return toJson(getSession(id, getUser(tokenValue)));
+    }
+
+    /**
+     * Append a chunk at the given offset. If the offset does not match the number of bytes
+     * received so far, the chunk is rejected and the returned state contains an error.
+     */
+    public UploadJson appendChunk(String id, long offset, InputStream content, String tokenValue) {
+        var user = getUser(tokenValue);
+        var session = getSession(id, user);
+        if (offset != session.getSize())
+            return offsetMismatch(session, offset);
+        var remaining = maxSize - offset;
+        byte[] chunk;
+        try {
+            chunk = ByteStreams.toByteArray(ByteStreams.limit(content, remaining + 1));
+        } catch (IOException exc) {
+            // Nothing is stored, so the client can retry at the same offset
+            throw new ErrorResultException("Failed to receive chunk: " + exc.getMessage());
+        }
+        if (chunk.length > remaining)
+            throw new ErrorResultException("The extension package exceeds the size limit of " + maxSize + " bytes.");
+
+        var size = offset + chunk.length;
+        var expires = TimeUtil.getCurrentUTC().plusSeconds(sessionTimeout);
+        boolean appended = new TransactionTemplate(transactionManager).execute(status -> {
+            // Fails if another chunk was appended in the meantime
+            if (repositories.updateUploadSessionSize(id, offset, size, expires) == 0)
+                return false;
+            if (chunk.length > 0)
+                repositories.insertUploadChunk(id, offset, chunk);
+            return true;
+        });
+        if (!appended)
+            return offsetMismatch(getSession(id, user), offset);
+        session.setSize(size);
+        session.setExpires(expires);
+        return toJson(session);
+    }
+
+    private UploadJson offsetMismatch(UploadSession session, long offset) {
+        var json = toJson(session);
+        json.error = "Expected a chunk at offset " + session.getSize() + ", got " + offset + ".";
+        return json;
+    }
+
+    /**
+     * Publish the uploaded extension package and close the session.
+     */
+    public ExtensionJson finish(String id, String tokenValue) {
+        var user = getUser(tokenValue);
+        var content = new TransactionTemplate(transactionManager).execute(status -> {
+            var session = getSession(id, user);
+            var bytes = new ByteArrayOutputStream((int) session.getSize());
+            for (var chunk : repositories.findUploadChunks(id)) {
+                bytes.writeBytes(chunk);
+            }
+            // The session is closed even if publishing fails, and only one request can close it
+            if (repositories.deleteUploadSession(id) == 0)
+                throw new ErrorResultException("Upload session not found: " + id);
+            return bytes.toByteArray();
+        });
+        return local.publish(new ByteArrayInputStream(content), tokenValue);
+    }
+
+    @Scheduled(fixedDelayString = "${ovsx.upload.gc-interval:60000}")
+    public void collectGarbage() {
+        var now = TimeUtil.getCurrentUTC();
+        int count = new TransactionTemplate(transactionManager).execute(status ->
+            repositories.deleteUploadSessions(now)
+        );
+        if (count > 0)
+            logger.info("Removed " + count + " expired upload sessions");
+    }
+
+    private UserData getUser(String tokenValue) {
+        var token = users.useAccessToken(tokenValue);
+        if (token == null)
+            throw new ErrorResultException("Invalid access token.");
+        return token.getUser();
+    }
+
+    private UploadSession getSession(String id, UserData user) {
+        var session = repositories.findUploadSession(id);
+        // Sessions of other users and expired sessions are treated as nonexistent
+        if (session == null || session.getUser().getId() != user.getId()
+                || session.getExpires().isBefore(TimeUtil.getCurrentUTC()))
+            throw new ErrorResultException("Upload session not found: " + id);
+        return session;
+    }
+
+    private UploadJson toJson(UploadSession session) {
+        var json = new UploadJson();
+        json.id = session.getId();
+        json.offset = session.getSize();
+        json.expires = TimeUtil.toUTCString(session.getExpires());
+        json.url = createApiUrl(UrlUtil.getBaseUrl(), "api", "-", "publish", "upload", session.getId());
+        return json;
+    }
+
+}
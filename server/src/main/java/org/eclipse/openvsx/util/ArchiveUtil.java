@@ -11,6 +11,8 @@ package org.eclipse.openvsx.util;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
@@ -21,7 +23,9 @@ import com.google.common.io.ByteStreams;
 public final class ArchiveUtil {
 
     // Limit the size of fetched zip entries to 32 MB
-    private static final long MAX_ENTRY_SIZE = 33_554_432;
+    public static final long MAX_ENTRY_SIZE = 33_554_432;
+
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff };
 
     private ArchiveUtil() {}
 
@@ -59,4 +63,50 @@ public final class ArchiveUtil {
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Decompress the data of a deflated zip entry with the given uncompressed size. A
+     * {@link ZipException} is thrown if the data does not match the entry.
+     */
+    public static byte[] inflate(byte[] data, long size) throws ZipException {
+        if (size > MAX_ENTRY_SIZE)
+            throw new ZipException("entry exceeds the size limit of 32 MB");
+        var inflater = new Inflater(true);
+        try {
+            inflater.setInput(data);
+            var result = new byte[(int) size];
+            var length = 0;
+            while (length < result.length && !inflater.finished()) {
+                var count = inflater.inflate(result, length, result.length - length);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    break;
+                length += count;
+            }
+            if (length != result.length)
+                throw new ZipException("unexpected entry size");
+            return result;
+        } catch (DataFormatException exc) {
+            var zipException = new ZipException(exc.getMessage());
+            zipException.initCause(exc);
+            throw zipException;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Wrap the data of a deflated zip entry in the gzip format, which uses the same
+     * compression, so it can be sent to clients without decompressing it.
+     */
+    public static byte[] toGzip(byte[] data, long crc, long size) {
+        var result = new byte[GZIP_HEADER.length + data.length + 8];
+        System.arraycopy(GZIP_HEADER, 0, result, 0, GZIP_HEADER.length);
+        System.arraycopy(data, 0, result, GZIP_HEADER.length, data.length);
+        var trailer = GZIP_HEADER.length + data.length;
+        for (var i = 0; i < 4; i++) {
+            result[trailer + i] = (byte) (crc >>> (8 * i));
+            result[trailer + 4 + i] = (byte) (size >>> (8 * i));
+        }
+        return result;
+    }
+
+}
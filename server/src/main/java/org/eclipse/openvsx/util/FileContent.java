@@ -0,0 +1,105 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.util;
+
+/**
+ * The content of a file served by the registry, together with its content encoding.
+ */
+public class FileContent {
+
+    public static final String GZIP = "gzip";
+
+    private final byte[] bytes;
+    private final String encoding;
+    private final boolean provisional;
+    private final boolean thumbnail;
+
+    public FileContent(byte[] bytes, String encoding) {
+        this(bytes, encoding, false);
+    }
+
+    public FileContent(byte[] bytes, String encoding, boolean provisional) {
+        this(bytes, encoding, provisional, false);
+    }
+
+    private FileContent(byte[] bytes, String encoding, boolean provisional, boolean thumbnail) {
+        this.bytes = bytes;
+        this.encoding = encoding;
+        this.provisional = provisional;
+        this.thumbnail = thumbnail;
+    }
+
+    /**
+     * Create the content of an icon thumbnail, which is always a PNG image.
+     */
+    public static FileContent thumbnail(byte[] bytes) {
+        return new FileContent(bytes, null, false, true);
+    }
+
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    /**
+     * The content encoding, or {@code null} if the content is not encoded.
+     */
+    public String getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * Whether the content substitutes a variant that is not available yet, so it must
+     * not be cached for long.
+     */
+    public boolean isProvisional() {
+        return provisional;
+    }
+
+    /**
+     * Whether the content is an icon thumbnail in place of the requested file.
+     */
+    public boolean isThumbnail() {
+        return thumbnail;
+    }
+
+    /**
+     * Check whether the given {@code Accept-Encoding} header value admits gzip encoding.
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null)
+            return false;
+        var accepted = false;
+        for (var part : acceptEncoding.split(",")) {
+            var params = part.split(";");
+            var coding = params[0].trim().toLowerCase();
+            if (coding.equals(GZIP) || coding.equals("x-gzip")) {
+                return !isRejected(params);
+            } else if (coding.equals("*")) {
+                accepted = !isRejected(params);
+            }
+        }
+        return accepted;
+    }
+
+    private static boolean isRejected(String[] params) {
+        for (var i = 1; i < params.length; i++) {
+            var param = params[i].trim();
+            if (param.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(param.substring(2)) <= 0;
+                } catch (NumberFormatException exc) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+}
@@ -11,6 +11,7 @@ package org.eclipse.openvsx.util;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 
 public final class TimeUtil {
 
@@ -24,5 +25,9 @@ public final class TimeUtil {
     public static String toUTCString(LocalDateTime dateTime) {
         return dateTime.toString() + 'Z';
     }
+
+    public static LocalDateTime fromUTCString(String dateTime) {
+        return LocalDateTime.parse(dateTime, DateTimeFormatter.ISO_DATE_TIME);
+    }
     
 }
\ No newline at end of file
@@ -0,0 +1,147 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.util;
+
+import java.util.regex.Pattern;
+
+import com.google.common.base.Strings;
+
+/**
+ * A range of engine versions as specified in the {@code engines} property of an extension
+ * manifest, e.g. {@code ^1.40.0} or {@code >=1.30.0}. The matching rules follow those applied
+ * by VS Code when checking the compatibility of an extension.
+ *
+ * <p>Versions are encoded as {@code long} values that preserve their ordering, so a range
+ * can be stored as a pair of numbers and be matched in database queries.</p>
+ */
+public class VersionRange {
+
+    public static final long MIN_VERSION = 0;
+    public static final long MAX_VERSION = Long.MAX_VALUE;
+
+    /** Matches any engine version. */
+    public static final VersionRange ANY = new VersionRange(MIN_VERSION, MAX_VERSION);
+
+    private static final Pattern RANGE_PATTERN =
+            Pattern.compile("^(\\^|>=)?(\\d+|x)\\.(\\d+|x)\\.(\\d+|x)(-.*)?$");
+    private static final Pattern VERSION_PATTERN =
+            Pattern.compile("^(\\d+)\\.(\\d+)\\.(\\d+)(-.*)?$");
+
+    // Each version segment is encoded with 21 bits
+    private static final int SEGMENT_BITS = 21;
+    private static final long SEGMENT_MAX = (1L << SEGMENT_BITS) - 1;
+
+    /**
+     * Parse a version range. Returns {@link #ANY} if the range is missing or cannot be parsed.
+     */
+    public static VersionRange parse(String range) {
+        if (Strings.isNullOrEmpty(range))
+            return ANY;
+        range = range.trim();
+        if (range.equals("*"))
+            return ANY;
+        var matcher = RANGE_PATTERN.matcher(range);
+        if (!matcher.matches())
+            return ANY;
+
+        var prefix = matcher.group(1);
+        var major = parseSegment(matcher.group(2));
+        var minor = parseSegment(matcher.group(3));
+        var patch = parseSegment(matcher.group(4));
+        if (major < 0)
+            return ANY;
+        var min = encode(major, Math.max(minor, 0), Math.max(patch, 0));
+        if (">=".equals(prefix))
+            return new VersionRange(min, MAX_VERSION);
+        if ("^".equals(prefix) || minor < 0 || patch < 0) {
+            if (major == 0)
+                // Versions below 1.0.0 are regarded as compatible with all 1.x versions
+                return new VersionRange(min, encode(2, 0, 0));
+            if ("^".equals(prefix) || minor < 0)
+                return new VersionRange(min, encode(major + 1, 0, 0));
+            return new VersionRange(min, encode(major, minor + 1, 0));
+        }
+        // A version without prefix must match exactly
+        return new VersionRange(min, encode(major, minor, patch + 1));
+    }
+
+    /**
+     * Parse and encode a concrete engine version such as {@code 1.45.1}.
+     */
+    public static long parseVersion(String version) {
+        if (Strings.isNullOrEmpty(version))
+            throw new ErrorResultException("Missing engine version.");
+        var matcher = VERSION_PATTERN.matcher(version.trim());
+        if (!matcher.matches())
+            throw new ErrorResultException("Invalid engine version: " + version);
+        try {
+            return encode(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)),
+                    Integer.parseInt(matcher.group(3)));
+        } catch (NumberFormatException exc) {
+            throw new ErrorResultException("Invalid engine version: " + version);
+        }
+    }
+
+    private static int parseSegment(String segment) {
+        if (segment.equals("x"))
+            return -1;
+        try {
+            return Integer.parseInt(segment);
+        } catch (NumberFormatException exc) {
+            return -1;
+        }
+    }
+
+    private static long encode(long major, long minor, long patch) {
+        return (Math.min(major, SEGMENT_MAX) << (2 * SEGMENT_BITS))
+                | (Math.min(minor, SEGMENT_MAX) << SEGMENT_BITS)
+                | Math.min(patch, SEGMENT_MAX);
+    }
+
+    private final long min;
+    private final long max;
+
+    public VersionRange(long min, long max) {
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * The lowest matching version (inclusive).
+     */
+    public long getMin() {
+        return min;
+    }
+
+    /**
+     * The upper version limit (exclusive).
+     */
+    public long getMax() {
+        return max;
+    }
+
+    public boolean includes(long version) {
+        return min <= version && version < max;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof VersionRange))
+            return false;
+        var other = (VersionRange) obj;
+        return this.min == other.min && this.max == other.max;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(min) * 31 + Long.hashCode(max);
+    }
+
+}
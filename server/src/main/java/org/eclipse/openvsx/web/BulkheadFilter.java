@@ -0,0 +1,146 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.web;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.eclipse.openvsx.json.ResultJson;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Bounds the number of concurrent requests for each class of expensive endpoints, so
+ * that a burst of publishes or downloads cannot exhaust the heap or the connection pool
+ * for all other requests. Requests that cannot be admitted in time are answered with
+ * status 503 and a {@code Retry-After} header. A class is unbounded if its maximum
+ * concurrency is set to zero.
+ */
+@Component
+public class BulkheadFilter extends OncePerRequestFilter {
+
+    @Value("${ovsx.bulkhead.publish.max-concurrent:4}")
+    int publishConcurrency;
+
+    @Value("${ovsx.bulkhead.publish.max-wait:5000}")
+    long publishMaxWait;
+
+    @Value("${ovsx.bulkhead.download.max-concurrent:64}")
+    int downloadConcurrency;
+
+    @Value("${ovsx.bulkhead.download.max-wait:1000}")
+    long downloadMaxWait;
+
+    @Value("${ovsx.bulkhead.search.max-concurrent:32}")
+    int searchConcurrency;
+
+    @Value("${ovsx.bulkhead.search.max-wait:1000}")
+    long searchMaxWait;
+
+    @Value("${ovsx.bulkhead.query.max-concurrent:32}")
+    int queryConcurrency;
+
+    @Value("${ovsx.bulkhead.query.max-wait:1000}")
+    long queryMaxWait;
+
+    /** Seconds after which a rejected client should retry. */
+    @Value("${ovsx.bulkhead.retry-after:5}")
+    int retryAfter;
+
+    private final Map<RequestMatcher, Bulkhead> bulkheads = new LinkedHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        addBulkhead("publish", publishConcurrency, publishMaxWait,
+                new AntPathRequestMatcher("/api/-/publish", "POST"),
+                new AntPathRequestMatcher("/api/-/publish/async", "POST"),
+                new AntPathRequestMatcher("/api/-/publish/upload/*", "PUT"),
+                new AntPathRequestMatcher("/api/-/publish/upload/*/finish", "POST"));
+        addBulkhead("download", downloadConcurrency, downloadMaxWait,
+                new AntPathRequestMatcher("/api/*/*/*/file/**", "GET"),
+                new AntPathRequestMatcher("/vscode/asset/**", "GET"),
+                new AntPathRequestMatcher("/vscode/gallery/publishers/*/vsextensions/*/*/vspackage", "GET"));
+        addBulkhead("search", searchConcurrency, searchMaxWait,
+                new AntPathRequestMatcher("/api/-/search", "GET"));
+        addBulkhead("query", queryConcurrency, queryMaxWait,
+                new AntPathRequestMatcher("/api/-/query", "POST"),
+                new AntPathRequestMatcher("/vscode/gallery/extensionquery", "POST"));
+    }
+
+    private void addBulkhead(String name, int maxConcurrent, long maxWait, RequestMatcher... matchers) {
+        if (maxConcurrent > 0)
+            bulkheads.put(new OrRequestMatcher(matchers), new Bulkhead(name, maxConcurrent, maxWait));
+    }
+
+    public List<Bulkhead> getBulkheads() {
+        return new ArrayList<>(bulkheads.values());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        var bulkhead = findBulkhead(request);
+        if (bulkhead == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        boolean admitted;
+        try {
+            admitted = bulkhead.tryEnter();
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            reject(response);
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            bulkhead.exit();
+        }
+    }
+
+    private Bulkhead findBulkhead(HttpServletRequest request) {
+        for (var entry : bulkheads.entrySet()) {
+            if (entry.getKey().matches(request))
+                return entry.getValue();
+        }
+        return null;
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Integer.toString(retryAfter));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        var json = ResultJson.error("The server is too busy to handle this request. Please try again later.");
+        new ObjectMapper().writeValue(response.getOutputStream(), json);
+    }
+
+}
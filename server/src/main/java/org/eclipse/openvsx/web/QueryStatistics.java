@@ -0,0 +1,76 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.web;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Number and duration of the SQL statements executed by Hibernate. The statistics are
+ * collected per thread and reset at the start of each HTTP request by the
+ * {@link QueryStatisticsFilter}, so they reflect the statements of the current request.
+ */
+public final class QueryStatistics {
+
+    private static final ThreadLocal<QueryStatistics> CURRENT = ThreadLocal.withInitial(QueryStatistics::new);
+    private static final LongAdder SCOPED_COUNT = new LongAdder();
+
+    private int count;
+    private long nanos;
+    private int depth;
+
+    private QueryStatistics() {}
+
+    /**
+     * Return the statistics of the current thread.
+     */
+    public static QueryStatistics current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Return the number of statements that all threads executed between {@link #begin()}
+     * and {@link #end()} since the application started. Statements of background tasks,
+     * e.g. scheduled jobs, are not included.
+     */
+    public static long getScopedCount() {
+        return SCOPED_COUNT.sum();
+    }
+
+    void record(long nanos) {
+        this.count++;
+        this.nanos += nanos;
+        if (depth > 0)
+            SCOPED_COUNT.increment();
+    }
+
+    /**
+     * Reset the statistics of the current thread and start counting its statements
+     * in the scoped count. Scopes can be nested.
+     */
+    public void begin() {
+        count = 0;
+        nanos = 0;
+        depth++;
+    }
+
+    public void end() {
+        if (depth > 0)
+            depth--;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+}
@@ -0,0 +1,124 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.web;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+/**
+ * Records the number and duration of the SQL statements executed for each request as
+ * metrics, and logs a warning for requests that exceed the query budget. If enabled, the
+ * statistics are also sent in response headers, which requires buffering the response
+ * body, so this should not be done in production.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class QueryStatisticsFilter extends OncePerRequestFilter {
+
+    public static final String QUERY_COUNT_HEADER = "X-Query-Count";
+    public static final String QUERY_TIME_HEADER = "X-Query-Time";
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Value("${ovsx.querystats.headers:false}")
+    boolean headers;
+
+    /** Number of statements above which a request is logged. */
+    @Value("${ovsx.querystats.budget:50}")
+    int budget;
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        // The body of a streamed response must be copied after the async dispatch
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (isAsyncDispatch(request)) {
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                copyBodyToResponse(request, response);
+            }
+            return;
+        }
+
+        var stats = QueryStatistics.current();
+        stats.begin();
+        ContentCachingResponseWrapper responseWrapper = null;
+        if (headers)
+            response = responseWrapper = new ContentCachingResponseWrapper(response);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            stats.end();
+            var count = stats.getCount();
+            var nanos = stats.getNanos();
+            record(request, count, nanos);
+            if (responseWrapper != null) {
+                responseWrapper.setHeader(QUERY_COUNT_HEADER, Integer.toString(count));
+                responseWrapper.setHeader(QUERY_TIME_HEADER, Long.toString(TimeUnit.NANOSECONDS.toMillis(nanos)));
+                copyBodyToResponse(request, responseWrapper);
+            }
+        }
+    }
+
+    private void copyBodyToResponse(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (isAsyncStarted(request))
+            return;
+        var responseWrapper = WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class);
+        if (responseWrapper != null)
+            responseWrapper.copyBodyToResponse();
+    }
+
+    private void record(HttpServletRequest request, int count, long nanos) {
+        var uri = getUriPattern(request);
+        DistributionSummary.builder("ovsx.http.queries")
+                .tags("method", request.getMethod(), "uri", uri)
+                .register(meterRegistry)
+                .record(count);
+        meterRegistry.timer("ovsx.http.query.time", "method", request.getMethod(), "uri", uri)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        if (budget > 0 && count > budget) {
+            logger.warn(request.getMethod() + " " + request.getRequestURI() + " executed " + count
+                    + " SQL statements in " + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms (budget: " + budget + ")");
+        }
+    }
+
+    /**
+     * Use the mapping pattern instead of the actual URI to limit the number of metric tags.
+     */
+    private String getUriPattern(HttpServletRequest request) {
+        var pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : "UNKNOWN";
+    }
+
+}
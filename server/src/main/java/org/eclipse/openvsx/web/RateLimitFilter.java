@@ -0,0 +1,243 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.web;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.eclipse.openvsx.UserService;
+import org.eclipse.openvsx.json.ResultJson;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Limits the request rate of each client for the endpoints that are most expensive for
+ * the database. Clients are identified by their access token if it is known to be valid,
+ * and by their IP address otherwise; the address is taken from the {@code X-Forwarded-For}
+ * header when the request comes from a trusted proxy. Each client has a token bucket per
+ * group of endpoints; requests that find the bucket empty are answered with status 429.
+ * This filter runs before the {@link BulkheadFilter}, so rejected requests do not occupy
+ * a bulkhead permit.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    /** Private, loopback and link-local addresses, the same as Tomcat's {@code RemoteIpValve} trusts. */
+    static final String DEFAULT_TRUSTED_PROXIES = "10\\.\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}"
+            + "|192\\.168\\.\\d{1,3}\\.\\d{1,3}"
+            + "|169\\.254\\.\\d{1,3}\\.\\d{1,3}"
+            + "|127\\.\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}"
+            + "|172\\.(1[6-9]|2[0-9]|3[0-1])\\.\\d{1,3}\\.\\d{1,3}"
+            + "|0:0:0:0:0:0:0:1|::1";
+
+    /** Key of the bucket that is shared by new clients when the number of buckets reaches the limit. */
+    static final String OVERFLOW_KEY = "*";
+
+    @Autowired
+    UserService users;
+
+    @Value("${ovsx.ratelimit.enabled:true}")
+    boolean enabled;
+
+    @Value("${ovsx.ratelimit.query.capacity:100}")
+    long queryCapacity;
+
+    @Value("${ovsx.ratelimit.query.refill:10}")
+    double queryRefill;
+
+    @Value("${ovsx.ratelimit.search.capacity:100}")
+    long searchCapacity;
+
+    @Value("${ovsx.ratelimit.search.refill:10}")
+    double searchRefill;
+
+    @Value("${ovsx.ratelimit.sitemap.capacity:5}")
+    long sitemapCapacity;
+
+    @Value("${ovsx.ratelimit.sitemap.refill:0.1}")
+    double sitemapRefill;
+
+    /** Seconds after which the bucket of an inactive client is removed. */
+    @Value("${ovsx.ratelimit.idle-timeout:600}")
+    long idleTimeout;
+
+    /** Maximal number of buckets per group of endpoints. */
+    @Value("${ovsx.ratelimit.max-clients:100000}")
+    int maxClients;
+
+    /** Regular expression for the addresses of proxies whose X-Forwarded-For header is trusted. */
+    @Value("${ovsx.ratelimit.trusted-proxies:#{null}}")
+    String trustedProxies;
+
+    private Pattern trustedProxyPattern;
+
+    private final List<Group> groups = new ArrayList<>();
+
+    @PostConstruct
+    public void init() {
+        trustedProxyPattern = Pattern.compile(trustedProxies != null ? trustedProxies : DEFAULT_TRUSTED_PROXIES);
+        addGroup("query", queryCapacity, queryRefill,
+                new AntPathRequestMatcher("/api/-/query", "POST"),
+                new AntPathRequestMatcher("/vscode/gallery/extensionquery", "POST"));
+        addGroup("search", searchCapacity, searchRefill,
+                new AntPathRequestMatcher("/api/-/search", "GET"));
+        addGroup("sitemap", sitemapCapacity, sitemapRefill,
+                new AntPathRequestMatcher("/sitemap.xml", "GET"));
+    }
+
+    private void addGroup(String name, long capacity, double refill, RequestMatcher... matchers) {
+        if (capacity > 0 && refill > 0)
+            groups.add(new Group(name, capacity, refill, new OrRequestMatcher(matchers)));
+    }
+
+    List<Group> getGroups() {
+        return groups;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        var group = findGroup(request);
+        if (group == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        var now = System.nanoTime();
+        var key = getClientKey(request);
+        if (group.buckets.size() >= maxClients && !group.buckets.containsKey(key))
+            key = OVERFLOW_KEY;
+        var bucket = group.buckets.computeIfAbsent(key,
+                k -> new TokenBucket(group.capacity, group.refill, now));
+        var consumed = bucket.tryConsume(now);
+        response.setHeader("RateLimit-Limit", Long.toString(bucket.getCapacity()));
+        response.setHeader("RateLimit-Remaining", Long.toString(bucket.getRemaining(now)));
+        response.setHeader("RateLimit-Reset", Long.toString(toSeconds(bucket.getResetTime(now))));
+        if (consumed) {
+            chain.doFilter(request, response);
+        } else {
+            group.rejected.incrementAndGet();
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(toSeconds(bucket.getWaitTime(now)), 1)));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            var json = ResultJson.error("Too many requests. Please try again later.");
+            new ObjectMapper().writeValue(response.getOutputStream(), json);
+        }
+    }
+
+    private Group findGroup(HttpServletRequest request) {
+        for (var group : groups) {
+            if (group.matcher.matches(request))
+                return group;
+        }
+        return null;
+    }
+
+    private String getClientKey(HttpServletRequest request) {
+        // Only cached tokens are accepted, so made-up tokens neither query the database nor open a new bucket
+        var token = users.findCachedAccessToken(request.getParameter("token"));
+        if (token != null)
+            return "token:" + token.getId();
+        return getClientAddress(request);
+    }
+
+    /**
+     * Determine the address of the client. The {@code X-Forwarded-For} header is read from
+     * right to left as long as the addresses belong to trusted proxies, so clients cannot
+     * choose their address by sending the header themselves.
+     */
+    String getClientAddress(HttpServletRequest request) {
+        var address = request.getRemoteAddr();
+        if (!isTrustedProxy(address))
+            return address;
+        var forwardedFor = request.getHeaders("X-Forwarded-For");
+        var hops = new ArrayList<String>();
+        while (forwardedFor.hasMoreElements()) {
+            for (var hop : forwardedFor.nextElement().split(",")) {
+                if (!hop.isBlank())
+                    hops.add(hop.trim());
+            }
+        }
+        for (var i = hops.size() - 1; i >= 0; i--) {
+            address = hops.get(i);
+            if (!isTrustedProxy(address))
+                break;
+        }
+        return address;
+    }
+
+    private boolean isTrustedProxy(String address) {
+        return address != null && trustedProxyPattern.matcher(address).matches();
+    }
+
+    private long toSeconds(long nanos) {
+        return (nanos + 999_999_999) / 1_000_000_000;
+    }
+
+    @Scheduled(fixedDelayString = "${ovsx.ratelimit.gc-interval:60000}")
+    public void evictIdleBuckets() {
+        var now = System.nanoTime();
+        var idleTime = TimeUnit.SECONDS.toNanos(idleTimeout);
+        for (var group : groups) {
+            group.buckets.values().removeIf(bucket -> bucket.isIdle(now, idleTime));
+        }
+    }
+
+    int getBucketCount() {
+        return groups.stream().mapToInt(group -> group.buckets.size()).sum();
+    }
+
+    static class Group {
+        final String name;
+        final long capacity;
+        final double refill;
+        final RequestMatcher matcher;
+        final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+        final AtomicLong rejected = new AtomicLong();
+
+        Group(String name, long capacity, double refill, RequestMatcher matcher) {
+            this.name = name;
+            this.capacity = capacity;
+            this.refill = refill;
+            this.matcher = matcher;
+        }
+    }
+
+}
@@ -0,0 +1,81 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.web;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket that holds up to {@code capacity} tokens and is refilled at a constant
+ * rate. Instead of a token count, the bucket stores the time at which it will be full
+ * again, so its whole state fits into a single atomic value and can be updated without
+ * locking.
+ */
+public class TokenBucket {
+
+    private final long capacity;
+    /** Nanoseconds needed to refill one token. */
+    private final long interval;
+    /** Time in nanoseconds at which the bucket is full again. */
+    private final AtomicLong fullAt;
+
+    public TokenBucket(long capacity, double refillPerSecond, long now) {
+        this.capacity = capacity;
+        this.interval = Math.max((long) (1_000_000_000 / refillPerSecond), 1);
+        this.fullAt = new AtomicLong(now);
+    }
+
+    /**
+     * Take one token from the bucket. Returns {@code false} if the bucket is empty.
+     */
+    public boolean tryConsume(long now) {
+        while (true) {
+            var current = fullAt.get();
+            var next = Math.max(current, now) + interval;
+            if (next - now > capacity * interval)
+                return false;
+            if (fullAt.compareAndSet(current, next))
+                return true;
+        }
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Number of tokens that are currently available.
+     */
+    public long getRemaining(long now) {
+        var missing = Math.max(fullAt.get() - now, 0);
+        return capacity - (missing + interval - 1) / interval;
+    }
+
+    /**
+     * Nanoseconds until the next token is available.
+     */
+    public long getWaitTime(long now) {
+        return Math.max(fullAt.get() - now - (capacity - 1) * interval, 0);
+    }
+
+    /**
+     * Nanoseconds until the bucket is full again.
+     */
+    public long getResetTime(long now) {
+        return Math.max(fullAt.get() - now, 0);
+    }
+
+    /**
+     * Whether the bucket has been full for at least the given number of nanoseconds.
+     */
+    public boolean isIdle(long now, long idleTime) {
+        return now - fullAt.get() >= idleTime;
+    }
+
+}
@@ -0,0 +1,61 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.web;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the state of the bulkheads and rate limits as metrics.
+ */
+@Component
+public class WebMetrics implements MeterBinder {
+
+    @Autowired
+    BulkheadFilter bulkheadFilter;
+
+    @Autowired
+    RateLimitFilter rateLimitFilter;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (var bulkhead : bulkheadFilter.getBulkheads()) {
+            Gauge.builder("ovsx.bulkhead.active", bulkhead, Bulkhead::getActive)
+                    .tag("name", bulkhead.getName())
+                    .register(registry);
+            Gauge.builder("ovsx.bulkhead.waiting", bulkhead, Bulkhead::getWaiting)
+                    .tag("name", bulkhead.getName())
+                    .register(registry);
+            Gauge.builder("ovsx.bulkhead.max", bulkhead, Bulkhead::getMaxConcurrent)
+                    .tag("name", bulkhead.getName())
+                    .register(registry);
+            FunctionCounter.builder("ovsx.bulkhead.admitted", bulkhead, Bulkhead::getAdmitted)
+                    .tag("name", bulkhead.getName())
+                    .register(registry);
+            FunctionCounter.builder("ovsx.bulkhead.rejected", bulkhead, Bulkhead::getRejected)
+                    .tag("name", bulkhead.getName())
+                    .register(registry);
+        }
+        for (var group : rateLimitFilter.getGroups()) {
+            Gauge.builder("ovsx.ratelimit.clients", group, g -> g.buckets.size())
+                    .tag("group", group.name)
+                    .register(registry);
+            FunctionCounter.builder("ovsx.ratelimit.rejected", group.rejected, Number::doubleValue)
+                    .tag("group", group.name)
+                    .register(registry);
+        }
+    }
+
+}
@@ -0,0 +1,2 @@
+ALTER TABLE public.file_resource
+    ADD gzip_content bytea;
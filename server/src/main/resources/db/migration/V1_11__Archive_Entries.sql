@@ -0,0 +1,18 @@
+CREATE TABLE public.archive_entry (
+    id bigint NOT NULL,
+    extension_id bigint NOT NULL,
+    name character varying(1024) NOT NULL,
+    data_offset bigint NOT NULL,
+    compressed_size bigint NOT NULL,
+    size bigint NOT NULL,
+    method integer NOT NULL,
+    crc bigint NOT NULL
+);
+
+ALTER TABLE ONLY public.archive_entry
+    ADD CONSTRAINT archive_entry_pkey PRIMARY KEY (id);
+
+ALTER TABLE ONLY public.archive_entry
+    ADD CONSTRAINT archive_entry_extension_fkey FOREIGN KEY (extension_id) REFERENCES public.extension_version(id);
+
+CREATE UNIQUE INDEX archive_entry_name_idx ON public.archive_entry USING btree (extension_id, name);
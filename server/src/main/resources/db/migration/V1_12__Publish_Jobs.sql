@@ -0,0 +1,21 @@
+CREATE TABLE public.publish_job (
+    id character varying(36) NOT NULL,
+    namespace character varying(255) NOT NULL,
+    name character varying(255) NOT NULL,
+    version character varying(255) NOT NULL,
+    status character varying(32) NOT NULL,
+    token_id bigint NOT NULL,
+    content bytea,
+    stages character varying(2048),
+    error character varying(2048),
+    created timestamp without time zone NOT NULL,
+    finished timestamp without time zone
+);
+
+ALTER TABLE ONLY public.publish_job
+    ADD CONSTRAINT publish_job_pkey PRIMARY KEY (id);
+
+ALTER TABLE ONLY public.publish_job
+    ADD CONSTRAINT publish_job_token_fkey FOREIGN KEY (token_id) REFERENCES public.personal_access_token(id);
+
+CREATE INDEX publish_job_status_idx ON public.publish_job USING btree (status);
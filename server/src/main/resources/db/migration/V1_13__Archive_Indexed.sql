@@ -0,0 +1,5 @@
+ALTER TABLE public.extension_version
+    ADD archive_indexed boolean NOT NULL DEFAULT false;
+
+UPDATE public.extension_version SET archive_indexed = true
+    WHERE id IN (SELECT DISTINCT extension_id FROM public.archive_entry);
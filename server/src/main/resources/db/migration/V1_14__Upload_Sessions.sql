@@ -0,0 +1,27 @@
+CREATE TABLE public.upload_session (
+    id character varying(36) NOT NULL,
+    user_id bigint NOT NULL,
+    size bigint NOT NULL,
+    created timestamp without time zone NOT NULL,
+    expires timestamp without time zone NOT NULL
+);
+
+ALTER TABLE ONLY public.upload_session
+    ADD CONSTRAINT upload_session_pkey PRIMARY KEY (id);
+
+ALTER TABLE ONLY public.upload_session
+    ADD CONSTRAINT upload_session_user_fkey FOREIGN KEY (user_id) REFERENCES public.user_data(id);
+
+CREATE INDEX upload_session_expires_idx ON public.upload_session USING btree (expires);
+
+CREATE TABLE public.upload_chunk (
+    session_id character varying(36) NOT NULL,
+    chunk_offset bigint NOT NULL,
+    content bytea NOT NULL
+);
+
+ALTER TABLE ONLY public.upload_chunk
+    ADD CONSTRAINT upload_chunk_pkey PRIMARY KEY (session_id, chunk_offset);
+
+ALTER TABLE ONLY public.upload_chunk
+    ADD CONSTRAINT upload_chunk_session_fkey FOREIGN KEY (session_id) REFERENCES public.upload_session(id) ON DELETE CASCADE;
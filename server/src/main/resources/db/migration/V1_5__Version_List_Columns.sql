@@ -0,0 +1,19 @@
+ALTER TABLE public.extension_version
+    ADD engines jsonb,
+    ADD categories jsonb,
+    ADD tags jsonb;
+
+UPDATE public.extension_version ev
+    SET engines = (SELECT jsonb_agg(e.engines) FROM public.extension_version_engines e WHERE e.extension_version_id = ev.id);
+
+UPDATE public.extension_version ev
+    SET categories = (SELECT jsonb_agg(c.categories) FROM public.extension_version_categories c WHERE c.extension_version_id = ev.id);
+
+UPDATE public.extension_version ev
+    SET tags = (SELECT jsonb_agg(t.tags) FROM public.extension_version_tags t WHERE t.extension_version_id = ev.id);
+
+DROP TABLE public.extension_version_engines;
+
+DROP TABLE public.extension_version_categories;
+
+DROP TABLE public.extension_version_tags;
@@ -0,0 +1,5 @@
+ALTER TABLE public.extension_version
+    ADD vscode_engine_min bigint,
+    ADD vscode_engine_max bigint;
+
+CREATE INDEX extension_version_vscode_engine_idx ON public.extension_version (extension_id, vscode_engine_min);
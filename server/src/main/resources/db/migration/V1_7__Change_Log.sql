@@ -0,0 +1,11 @@
+CREATE TABLE public.change_log_entry (
+    id bigint NOT NULL,
+    "timestamp" timestamp without time zone,
+    type character varying(32),
+    namespace character varying(255),
+    extension character varying(255),
+    version character varying(255)
+);
+
+ALTER TABLE ONLY public.change_log_entry
+    ADD CONSTRAINT change_log_entry_pkey PRIMARY KEY (id);
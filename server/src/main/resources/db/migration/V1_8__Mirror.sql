@@ -0,0 +1,15 @@
+ALTER TABLE public.file_resource
+    ADD sha256 character varying(64);
+
+CREATE TABLE public.mirror_checkpoint (
+    id bigint NOT NULL,
+    url character varying(255),
+    cursor bigint NOT NULL,
+    "timestamp" timestamp without time zone
+);
+
+ALTER TABLE ONLY public.mirror_checkpoint
+    ADD CONSTRAINT mirror_checkpoint_pkey PRIMARY KEY (id);
+
+ALTER TABLE ONLY public.mirror_checkpoint
+    ADD CONSTRAINT mirror_checkpoint_url_key UNIQUE (url);
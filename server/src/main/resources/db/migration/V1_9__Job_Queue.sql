@@ -0,0 +1,20 @@
+CREATE TABLE public.queued_job (
+    id bigint NOT NULL,
+    type character varying(255) NOT NULL,
+    payload character varying(2048) NOT NULL,
+    priority integer NOT NULL,
+    status character varying(32) NOT NULL,
+    attempts integer NOT NULL,
+    max_attempts integer NOT NULL,
+    created timestamp without time zone NOT NULL,
+    scheduled timestamp without time zone NOT NULL,
+    started timestamp without time zone,
+    error character varying(2048)
+);
+
+ALTER TABLE ONLY public.queued_job
+    ADD CONSTRAINT queued_job_pkey PRIMARY KEY (id);
+
+CREATE INDEX queued_job_claim_idx ON public.queued_job USING btree (priority DESC, scheduled) WHERE status = 'pending';
+
+CREATE INDEX queued_job_payload_idx ON public.queued_job USING btree (type, payload) WHERE status = 'pending';
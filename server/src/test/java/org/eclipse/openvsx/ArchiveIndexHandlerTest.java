@@ -0,0 +1,126 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import javax.persistence.EntityManager;
+
+import com.google.common.io.ByteStreams;
+
+import org.eclipse.openvsx.entities.ArchiveEntry;
+import org.eclipse.openvsx.entities.ExtensionVersion;
+import org.eclipse.openvsx.util.ArchiveUtil;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+public class ArchiveIndexHandlerTest {
+
+    @Test
+    public void testTodoTree() throws Exception {
+        try (
+            var stream = getClass().getResourceAsStream("util/todo-tree.zip");
+        ) {
+            var bytes = ByteStreams.toByteArray(stream);
+            var entries = ArchiveIndexHandler.readCentralDirectory(bytes);
+            assertThat(entries).extracting(ArchiveEntry::getName)
+                    .contains("extension/package.json", "extension/resources/todo-tree.png")
+                    .noneMatch(name -> name.endsWith("/"));
+            for (var name : Arrays.asList("extension/package.json", "extension/resources/todo-tree.png")) {
+                var entry = entries.stream().filter(e -> e.getName().equals(name)).findFirst().get();
+                assertThat(readEntry(bytes, entry)).isEqualTo(ArchiveUtil.readEntry(bytes, name));
+            }
+        }
+    }
+
+    @Test
+    public void testStoredAndDeflated() throws Exception {
+        var text = "Please read me. ".repeat(100).getBytes();
+        var crc = new CRC32();
+        crc.update(text);
+        var bytes = new ByteArrayOutputStream();
+        try (var zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry("extension/"));
+            zip.closeEntry();
+            var stored = new ZipEntry("extension/images/logo.txt");
+            stored.setMethod(ZipEntry.STORED);
+            stored.setSize(text.length);
+            stored.setCrc(crc.getValue());
+            zip.putNextEntry(stored);
+            zip.write(text);
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("extension/README.md"));
+            zip.write(text);
+            zip.closeEntry();
+        }
+        var archive = bytes.toByteArray();
+
+        var entries = ArchiveIndexHandler.readCentralDirectory(archive);
+
+        assertThat(entries).extracting(ArchiveEntry::getName)
+                .containsExactly("extension/images/logo.txt", "extension/README.md");
+        var stored = entries.get(0);
+        assertThat(stored.getMethod()).isEqualTo(ArchiveEntry.METHOD_STORED);
+        assertThat(readEntry(archive, stored)).isEqualTo(text);
+        var deflated = entries.get(1);
+        assertThat(deflated.getMethod()).isEqualTo(ArchiveEntry.METHOD_DEFLATED);
+        assertThat(deflated.getCompressedSize()).isLessThan(text.length);
+        assertThat(readEntry(archive, deflated)).isEqualTo(text);
+        var gzip = ArchiveUtil.toGzip(slice(archive, deflated), deflated.getCrc(), deflated.getSize());
+        try (var stream = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            assertThat(ByteStreams.toByteArray(stream)).isEqualTo(text);
+        }
+    }
+
+    @Test
+    public void testInvalidArchive() throws Exception {
+        assertThat(ArchiveIndexHandler.readCentralDirectory("not a zip file".getBytes())).isEmpty();
+    }
+
+    @Test
+    public void testMarkIndexed() throws Exception {
+        var handler = new ArchiveIndexHandler();
+        handler.entityManager = Mockito.mock(EntityManager.class);
+        var extVersion = new ExtensionVersion();
+        handler.index(extVersion, "not a zip file".getBytes());
+        // Versions without readable entries must not be queued again
+        assertThat(extVersion.isArchiveIndexed()).isTrue();
+        Mockito.verifyNoInteractions(handler.entityManager);
+    }
+
+    @Test
+    public void testCorruptEntry() throws Exception {
+        assertThatThrownBy(() -> ArchiveUtil.inflate(new byte[] { -1, -1, -1, -1 }, 10))
+                .isInstanceOf(ZipException.class);
+    }
+
+    private byte[] readEntry(byte[] archive, ArchiveEntry entry) throws Exception {
+        var data = slice(archive, entry);
+        if (entry.getMethod() == ArchiveEntry.METHOD_STORED)
+            return data;
+        return ArchiveUtil.inflate(data, entry.getSize());
+    }
+
+    private byte[] slice(byte[] archive, ArchiveEntry entry) {
+        var start = (int) entry.getDataOffset();
+        return Arrays.copyOfRange(archive, start, start + (int) entry.getCompressedSize());
+    }
+
+}
@@ -0,0 +1,162 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.openvsx.entities.ExtensionVersion;
+import org.eclipse.openvsx.search.SearchService;
+import org.eclipse.openvsx.util.ErrorResultException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@ExtendWith(SpringExtension.class)
+@TestPropertySource(properties = { "ovsx.import.batch-size=2" })
+public class BulkImportServiceTest {
+
+    @MockBean
+    LocalRegistryService local;
+
+    @MockBean
+    AdminService admins;
+
+    @MockBean
+    SearchService search;
+
+    @MockBean
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    BulkImportService bulkImport;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testDependencyOrder() throws Exception {
+        writePackage("app.vsix", "foo", "app", "1.0.0", "foo.pack", "foo.lib");
+        writePackage("pack.vsix", "foo", "pack", "1.0.0", "foo.lib");
+        writePackage("lib-2.vsix", "foo", "lib", "2.0.0");
+        writePackage("lib-1.vsix", "foo", "lib", "1.0.0");
+        writePackage("other.vsix", "bar", "other", "1.0.0", "baz.external");
+        var imported = mockImport();
+        Mockito.when(search.isEnabled()).thenReturn(true);
+
+        var result = bulkImport.importExtensions(directory);
+
+        assertThat(result.success).isEqualTo("Imported 5 extension versions from " + directory);
+        assertThat(imported).hasSize(5);
+        assertThat(imported.indexOf("foo.lib@1.0.0")).isLessThan(imported.indexOf("foo.lib@2.0.0"));
+        assertThat(imported.indexOf("foo.lib@2.0.0")).isLessThan(imported.indexOf("foo.pack@1.0.0"));
+        assertThat(imported.indexOf("foo.pack@1.0.0")).isLessThan(imported.indexOf("foo.app@1.0.0"));
+        Mockito.verify(search, Mockito.times(1)).updateSearchIndex();
+        Mockito.verify(search, Mockito.never()).updateSearchEntry(any());
+    }
+
+    @Test
+    public void testCyclicReference() throws Exception {
+        writePackage("a.vsix", "foo", "a", "1.0.0", "foo.b");
+        writePackage("b.vsix", "foo", "b", "1.0.0", "foo.a");
+        writePackage("c.vsix", "foo", "c", "1.0.0");
+        var imported = mockImport();
+
+        var result = bulkImport.importExtensions(directory);
+
+        assertThat(result.success).isEqualTo("Imported 1 extension versions from " + directory
+                + " (2 failed: a.vsix, b.vsix)");
+        assertThat(imported).containsExactly("foo.c@1.0.0");
+    }
+
+    @Test
+    public void testFailingPackage() throws Exception {
+        writePackage("a.vsix", "foo", "a", "1.0.0");
+        writePackage("b.vsix", "foo", "b", "1.0.0");
+        Files.write(directory.resolve("broken.vsix"), "not a zip file".getBytes(StandardCharsets.UTF_8));
+        var imported = new ArrayList<String>();
+        Mockito.when(local.importExtension(any(ExtensionProcessor.class), any(ExtensionVersion.class), any(), any(LocalDateTime.class)))
+                .thenAnswer(invocation -> {
+                    ExtensionVersion metadata = invocation.getArgument(1);
+                    ExtensionProcessor processor = invocation.getArgument(0);
+                    if (processor.getExtensionName().equals("a"))
+                        throw new ErrorResultException("Extension foo.a version 1.0.0 is already published.");
+                    imported.add(processor.getNamespace() + "." + processor.getExtensionName() + "@" + metadata.getVersion());
+                    return metadata;
+                });
+
+        var result = bulkImport.importExtensions(directory);
+
+        // The batch is rolled back and imported one by one
+        assertThat(result.success).isEqualTo("Imported 1 extension versions from " + directory
+                + " (2 failed: broken.vsix, a.vsix)");
+        assertThat(imported).containsExactly("foo.b@1.0.0");
+        Mockito.verify(local).importExtension(any(ExtensionProcessor.class), any(ExtensionVersion.class), anyList(), any(LocalDateTime.class));
+    }
+
+    private List<String> mockImport() {
+        var imported = new ArrayList<String>();
+        Mockito.when(local.importExtension(any(ExtensionProcessor.class), any(ExtensionVersion.class), anyList(), any(LocalDateTime.class)))
+                .thenAnswer(invocation -> {
+                    ExtensionProcessor processor = invocation.getArgument(0);
+                    ExtensionVersion metadata = invocation.getArgument(1);
+                    imported.add(processor.getNamespace() + "." + processor.getExtensionName() + "@" + metadata.getVersion());
+                    return metadata;
+                });
+        return imported;
+    }
+
+    private void writePackage(String fileName, String namespace, String name, String version, String... dependencies)
+            throws Exception {
+        var packageJson = new StringBuilder();
+        packageJson.append("{\"publisher\":\"").append(namespace)
+                .append("\",\"name\":\"").append(name)
+                .append("\",\"version\":\"").append(version)
+                .append("\",\"extensionDependencies\":[");
+        for (var i = 0; i < dependencies.length; i++) {
+            if (i > 0)
+                packageJson.append(',');
+            packageJson.append('"').append(dependencies[i]).append('"');
+        }
+        packageJson.append("]}");
+        try (var zip = new ZipOutputStream(Files.newOutputStream(directory.resolve(fileName)))) {
+            zip.putNextEntry(new ZipEntry("extension/package.json"));
+            zip.write(packageJson.toString().getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+    }
+
+    @TestConfiguration
+    static class TestConfig {
+        @Bean
+        BulkImportService bulkImportService() {
+            return new BulkImportService();
+        }
+    }
+
+}
@@ -0,0 +1,115 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+
+import java.util.Arrays;
+
+import org.eclipse.openvsx.entities.Extension;
+import org.eclipse.openvsx.entities.ExtensionVersion;
+import org.eclipse.openvsx.repositories.IdPair;
+import org.eclipse.openvsx.repositories.RepositoryService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.util.Streamable;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+public class DependencyGraphTest {
+
+    @MockBean
+    RepositoryService repositories;
+
+    @Autowired
+    DependencyGraph dependencyGraph;
+
+    @Test
+    public void testLatestVersionFromOtherInstance() throws Exception {
+        var extension = mockExtension(1);
+        var dependency = mockExtension(2);
+        var transitive = mockExtension(3);
+        var root = mockVersion(10, extension, dependency);
+        var updatedDependency = mockVersion(21, dependency, transitive);
+        var transitiveVersion = mockVersion(30, transitive);
+
+        // The index knows version 20 as latest of the dependency, but another instance published version 21
+        Mockito.when(repositories.findAllVersionExtensionIds())
+                .thenReturn(Streamable.of(new IdPair(10, 1), new IdPair(20, 2)));
+        Mockito.when(repositories.findAllVersionDependencyIds())
+                .thenReturn(Streamable.of(new IdPair(10, 2)));
+        Mockito.when(repositories.findAllVersionBundledExtensionIds())
+                .thenReturn(Streamable.empty());
+        Mockito.when(repositories.findAllLatestVersionIds())
+                .thenReturn(Streamable.of(new IdPair(1, 10), new IdPair(2, 20)));
+        Mockito.when(repositories.findLatestVersionIds(anyCollection()))
+                .thenReturn(Streamable.of(new IdPair(1, 10), new IdPair(2, 21), new IdPair(3, 30)));
+        Mockito.when(repositories.findVersions(anyCollection()))
+                .thenReturn(Streamable.of(updatedDependency, transitiveVersion));
+
+        var resolution = dependencyGraph.resolve(root);
+
+        assertThat(resolution.versions.keySet()).containsExactly(30L, 21L, 10L);
+        assertThat(resolution.missingExtensions).isEmpty();
+        assertThat(resolution.cycles).isEmpty();
+    }
+
+    @Test
+    public void testLatestVersionDeletedByOtherInstance() throws Exception {
+        var extension = mockExtension(1);
+        var dependency = mockExtension(2);
+        var root = mockVersion(10, extension, dependency);
+
+        Mockito.when(repositories.findAllVersionExtensionIds())
+                .thenReturn(Streamable.of(new IdPair(10, 1), new IdPair(20, 2)));
+        Mockito.when(repositories.findAllVersionDependencyIds())
+                .thenReturn(Streamable.of(new IdPair(10, 2)));
+        Mockito.when(repositories.findAllVersionBundledExtensionIds())
+                .thenReturn(Streamable.empty());
+        Mockito.when(repositories.findAllLatestVersionIds())
+                .thenReturn(Streamable.of(new IdPair(1, 10), new IdPair(2, 20)));
+        Mockito.when(repositories.findLatestVersionIds(anyCollection()))
+                .thenReturn(Streamable.of(new IdPair(1, 10)));
+
+        var resolution = dependencyGraph.resolve(root);
+
+        assertThat(resolution.versions.keySet()).containsExactly(10L);
+        assertThat(resolution.missingExtensions).containsExactly(2L);
+    }
+
+    private Extension mockExtension(long id) {
+        var extension = new Extension();
+        extension.setId(id);
+        return extension;
+    }
+
+    private ExtensionVersion mockVersion(long id, Extension extension, Extension... dependencies) {
+        var extVersion = new ExtensionVersion();
+        extVersion.setId(id);
+        extVersion.setExtension(extension);
+        extVersion.setDependencies(Arrays.asList(dependencies));
+        return extVersion;
+    }
+
+    @TestConfiguration
+    static class TestConfig {
+        @Bean
+        DependencyGraph dependencyGraph() {
+            return new DependencyGraph();
+        }
+    }
+
+}
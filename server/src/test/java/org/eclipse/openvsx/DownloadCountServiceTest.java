@@ -0,0 +1,91 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+
+import org.eclipse.openvsx.entities.Extension;
+import org.eclipse.openvsx.repositories.RepositoryService;
+import org.eclipse.openvsx.search.SearchUpdateHandler;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@ExtendWith(SpringExtension.class)
+public class DownloadCountServiceTest {
+
+    @MockBean
+    RepositoryService repositories;
+
+    @MockBean
+    SearchUpdateHandler searchUpdates;
+
+    @MockBean
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    DownloadCountService downloadCounts;
+
+    @Test
+    public void testCoalesceDownloads() throws Exception {
+        Mockito.when(repositories.addDownloadCount(anyLong(), anyInt())).thenReturn(1);
+        var extension = new Extension();
+        extension.setId(3);
+        downloadCounts.increment(extension);
+        downloadCounts.increment(extension);
+        downloadCounts.increment(extension);
+
+        downloadCounts.flush();
+
+        Mockito.verify(repositories).addDownloadCount(3, 3);
+        Mockito.verify(searchUpdates).schedule(3);
+    }
+
+    @Test
+    public void testRetryFailedFlush() throws Exception {
+        Mockito.when(repositories.addDownloadCount(anyLong(), anyInt()))
+                .thenThrow(new IllegalStateException("database unavailable"))
+                .thenReturn(1);
+        var extension = new Extension();
+        extension.setId(3);
+        downloadCounts.increment(extension);
+        downloadCounts.flush();
+        downloadCounts.increment(extension);
+
+        downloadCounts.flush();
+
+        Mockito.verify(repositories).addDownloadCount(3, 1);
+        Mockito.verify(repositories).addDownloadCount(3, 2);
+        Mockito.verify(searchUpdates).schedule(3);
+    }
+
+    @Test
+    public void testNoDownloads() throws Exception {
+        downloadCounts.flush();
+
+        Mockito.verifyNoInteractions(repositories, searchUpdates);
+    }
+
+    @TestConfiguration
+    static class TestConfig {
+        @Bean
+        DownloadCountService downloadCountService() {
+            return new DownloadCountService();
+        }
+    }
+
+}
@@ -11,9 +11,14 @@ package org.eclipse.openvsx;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.nio.file.Path;
 import java.util.Arrays;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 public class ExtensionProcessorTest {
 
@@ -42,4 +47,28 @@ public class ExtensionProcessorTest {
         }
     }
 
+    @Test
+    public void testPublishStageEvents(@TempDir Path directory) throws Exception {
+        var file = directory.resolve("recording.jfr");
+        try (var recording = new Recording()) {
+            recording.enable("org.eclipse.openvsx.PublishStage");
+            recording.start();
+            try (
+                var stream = getClass().getResourceAsStream("util/todo-tree.zip");
+                var processor = new ExtensionProcessor(stream);
+            ) {
+                processor.getResources(processor.getMetadata());
+            }
+            recording.stop();
+            recording.dump(file);
+        }
+
+        var events = RecordingFile.readAllEvents(file);
+        assertThat(events).extracting(event -> event.getString("stage"))
+                .containsExactly("read", "parse", "license");
+        assertThat(events).extracting(event -> event.getString("extension"))
+                .containsExactly(null, "todo-tree", "todo-tree");
+        assertThat(events.get(0).getLong("size")).isGreaterThan(0);
+    }
+
 }
\ No newline at end of file
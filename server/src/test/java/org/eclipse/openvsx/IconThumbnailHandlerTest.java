@@ -0,0 +1,210 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+
+import javax.imageio.ImageIO;
+import javax.persistence.EntityManager;
+
+import org.eclipse.openvsx.db.LeaderElection;
+import org.eclipse.openvsx.entities.Extension;
+import org.eclipse.openvsx.entities.ExtensionVersion;
+import org.eclipse.openvsx.entities.FileResource;
+import org.eclipse.openvsx.entities.Namespace;
+import org.eclipse.openvsx.jobs.JobQueue;
+import org.eclipse.openvsx.repositories.RepositoryService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.util.Streamable;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+public class IconThumbnailHandlerTest {
+
+    @MockBean
+    RepositoryService repositories;
+
+    @MockBean
+    EntityManager entityManager;
+
+    @MockBean
+    LeaderElection leaderElection;
+
+    @MockBean
+    JobQueue jobs;
+
+    @Autowired
+    IconThumbnailHandler handler;
+
+    @Test
+    public void testThumbnailType() throws Exception {
+        assertThat(IconThumbnailHandler.getThumbnailType(16)).isEqualTo("icon-64");
+        assertThat(IconThumbnailHandler.getThumbnailType(64)).isEqualTo("icon-64");
+        assertThat(IconThumbnailHandler.getThumbnailType(100)).isEqualTo("icon-128");
+        assertThat(IconThumbnailHandler.getThumbnailType(256)).isNull();
+    }
+
+    @Test
+    public void testGenerateThumbnails() throws Exception {
+        var extVersion = mockIcon(createPng(512, 256));
+        var persisted = new ArrayList<FileResource>();
+        Mockito.doAnswer(invocation -> persisted.add(invocation.getArgument(0)))
+                .when(entityManager).persist(any(FileResource.class));
+
+        handler.handle(extVersion.getId());
+
+        assertThat(persisted).hasSize(2);
+        assertThat(persisted.get(0).getType()).isEqualTo("icon-64");
+        var small = ImageIO.read(new ByteArrayInputStream(persisted.get(0).getContent()));
+        assertThat(small.getWidth()).isEqualTo(64);
+        assertThat(small.getHeight()).isEqualTo(32);
+        assertThat(persisted.get(1).getType()).isEqualTo("icon-128");
+        var large = ImageIO.read(new ByteArrayInputStream(persisted.get(1).getContent()));
+        assertThat(large.getWidth()).isEqualTo(128);
+        assertThat(large.getHeight()).isEqualTo(64);
+    }
+
+    @Test
+    public void testSmallIcon() throws Exception {
+        var content = createPng(32, 32);
+        var extVersion = mockIcon(content);
+        var persisted = new ArrayList<FileResource>();
+        Mockito.doAnswer(invocation -> persisted.add(invocation.getArgument(0)))
+                .when(entityManager).persist(any(FileResource.class));
+
+        handler.handle(extVersion.getId());
+
+        assertThat(persisted).hasSize(2);
+        assertThat(persisted).allSatisfy(resource -> assertThat(resource.getContent()).isEqualTo(content));
+    }
+
+    @Test
+    public void testConvertToPng() throws Exception {
+        var image = new BufferedImage(32, 32, BufferedImage.TYPE_INT_RGB);
+        var bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", bytes);
+        var extVersion = mockIcon(bytes.toByteArray());
+        var persisted = new ArrayList<FileResource>();
+        Mockito.doAnswer(invocation -> persisted.add(invocation.getArgument(0)))
+                .when(entityManager).persist(any(FileResource.class));
+
+        handler.handle(extVersion.getId());
+
+        assertThat(persisted).hasSize(2);
+        for (var thumbnail : persisted) {
+            var reader = ImageIO.getImageReaders(ImageIO.createImageInputStream(
+                    new ByteArrayInputStream(thumbnail.getContent()))).next();
+            assertThat(reader.getFormatName()).isEqualToIgnoringCase("png");
+        }
+    }
+
+    @Test
+    public void testUnsupportedIcon() throws Exception {
+        var content = "<svg xmlns=\"http://www.w3.org/2000/svg\"/>".getBytes();
+        var extVersion = mockIcon(content);
+        var persisted = new ArrayList<FileResource>();
+        Mockito.doAnswer(invocation -> persisted.add(invocation.getArgument(0)))
+                .when(entityManager).persist(any(FileResource.class));
+
+        handler.handle(extVersion.getId());
+
+        // Empty thumbnails mark the icon as processed
+        assertThat(persisted).extracting(FileResource::getType).containsExactly("icon-64", "icon-128");
+        assertThat(persisted).allSatisfy(thumbnail -> assertThat(thumbnail.getContent()).isEmpty());
+    }
+
+    @Test
+    public void testOversizedIcon() throws Exception {
+        // A binary image compresses to a small file, but would be decoded with one int per pixel
+        var image = new BufferedImage(4097, 4097, BufferedImage.TYPE_BYTE_BINARY);
+        var bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bytes);
+        var extVersion = mockIcon(bytes.toByteArray());
+        var persisted = new ArrayList<FileResource>();
+        Mockito.doAnswer(invocation -> persisted.add(invocation.getArgument(0)))
+                .when(entityManager).persist(any(FileResource.class));
+
+        handler.handle(extVersion.getId());
+
+        assertThat(persisted).hasSize(2);
+        assertThat(persisted).allSatisfy(thumbnail -> assertThat(thumbnail.getContent()).isEmpty());
+    }
+
+    @Test
+    public void testInitThumbnails() throws Exception {
+        Mockito.when(leaderElection.runExclusively(eq(IconThumbnailHandler.TYPE), any(Runnable.class)))
+                .thenAnswer(invocation -> {
+                    invocation.getArgument(1, Runnable.class).run();
+                    return true;
+                });
+        Mockito.when(repositories.findVersionIdsWithoutThumbnails(anyCollection()))
+                .thenReturn(Streamable.of(3L, 5L));
+
+        handler.initThumbnails(null);
+
+        Mockito.verify(repositories).findVersionIdsWithoutThumbnails(IconThumbnailHandler.getThumbnailTypes());
+        Mockito.verify(jobs).enqueue(IconThumbnailHandler.TYPE, 3L);
+        Mockito.verify(jobs).enqueue(IconThumbnailHandler.TYPE, 5L);
+    }
+
+    private ExtensionVersion mockIcon(byte[] content) {
+        var namespace = new Namespace();
+        namespace.setName("foo");
+        var extension = new Extension();
+        extension.setName("bar");
+        extension.setNamespace(namespace);
+        var extVersion = new ExtensionVersion();
+        extVersion.setId(7);
+        extVersion.setVersion("1.0.0");
+        extVersion.setExtension(extension);
+        Mockito.when(entityManager.find(ExtensionVersion.class, 7L)).thenReturn(extVersion);
+        var icon = new FileResource();
+        icon.setExtension(extVersion);
+        icon.setType(FileResource.ICON);
+        icon.setContent(content);
+        Mockito.when(repositories.findFile(extVersion, FileResource.ICON)).thenReturn(icon);
+        return extVersion;
+    }
+
+    private byte[] createPng(int width, int height) throws Exception {
+        var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        var graphics = image.createGraphics();
+        graphics.setColor(Color.ORANGE);
+        graphics.fillOval(0, 0, width, height);
+        graphics.dispose();
+        var bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bytes);
+        return bytes.toByteArray();
+    }
+
+    @TestConfiguration
+    static class TestConfig {
+        @Bean
+        IconThumbnailHandler iconThumbnailHandler() {
+            return new IconThumbnailHandler();
+        }
+    }
+
+}
@@ -19,6 +19,8 @@ import org.eclipse.openvsx.json.ExtensionJson;
 import org.eclipse.openvsx.json.NamespaceJson;
 import org.eclipse.openvsx.json.ResultJson;
 import org.eclipse.openvsx.json.SearchResultJson;
+import org.eclipse.openvsx.web.QueryBudget;
+import org.eclipse.openvsx.web.QueryStatisticsFilter;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -26,6 +28,7 @@ import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.web.server.LocalServerPort;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.ActiveProfiles;
 
 @SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
@@ -46,6 +49,7 @@ public class IntegrationTest {
     }
 
     @Test
+    @QueryBudget(200)
     public void testPublishExtension() throws Exception {
         testService.createUser();
         createNamespace();
@@ -85,6 +89,7 @@ public class IntegrationTest {
         var response = restTemplate.getForEntity(apiCall("/api/Equinusocio/vsc-material-theme"), ExtensionJson.class);
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
         assertThat(response.getBody().description).isEqualTo("The most epic theme now for Visual Studio Code");
+        assertQueryCount(response, 20);
     }
 
     private void searchExtension() {
@@ -93,6 +98,13 @@ public class IntegrationTest {
         assertThat(response.getBody().extensions.size()).isEqualTo(1);
         assertThat(response.getBody().extensions.get(0).description)
                 .isEqualTo("The most epic theme now for Visual Studio Code");
+        assertQueryCount(response, 20);
     }
-    
+
+    private void assertQueryCount(ResponseEntity<?> response, int budget) {
+        var count = response.getHeaders().getFirst(QueryStatisticsFilter.QUERY_COUNT_HEADER);
+        assertThat(count).isNotNull();
+        assertThat(Integer.parseInt(count)).isLessThanOrEqualTo(budget);
+    }
+
 }
\ No newline at end of file
@@ -9,24 +9,39 @@
  ********************************************************************************/
 package org.eclipse.openvsx;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.TreeMap;
 import java.util.function.Consumer;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import javax.persistence.EntityManager;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 import org.eclipse.openvsx.UserAPITest.MockPrincipal;
+import org.eclipse.openvsx.db.LeaderElection;
+import org.eclipse.openvsx.entities.ArchiveEntry;
 import org.eclipse.openvsx.entities.Extension;
 import org.eclipse.openvsx.entities.ExtensionReview;
 import org.eclipse.openvsx.entities.ExtensionVersion;
@@ -34,18 +49,34 @@ import org.eclipse.openvsx.entities.FileResource;
 import org.eclipse.openvsx.entities.Namespace;
 import org.eclipse.openvsx.entities.NamespaceMembership;
 import org.eclipse.openvsx.entities.PersonalAccessToken;
+import org.eclipse.openvsx.entities.UploadSession;
 import org.eclipse.openvsx.entities.UserData;
+import org.eclipse.openvsx.jobs.JobQueue;
+import org.eclipse.openvsx.json.ChangeJson;
+import org.eclipse.openvsx.json.ChangeListJson;
+import org.eclipse.openvsx.json.DependencyClosureJson;
 import org.eclipse.openvsx.json.ExtensionJson;
+import org.eclipse.openvsx.json.ExtensionReferenceJson;
 import org.eclipse.openvsx.json.NamespaceJson;
+import org.eclipse.openvsx.json.PublishJobJson;
+import org.eclipse.openvsx.json.QueryResultJson;
 import org.eclipse.openvsx.json.ResultJson;
 import org.eclipse.openvsx.json.ReviewJson;
 import org.eclipse.openvsx.json.ReviewListJson;
 import org.eclipse.openvsx.json.SearchEntryJson;
 import org.eclipse.openvsx.json.SearchResultJson;
+import org.eclipse.openvsx.json.UploadJson;
 import org.eclipse.openvsx.json.UserJson;
+import org.eclipse.openvsx.repositories.IdHash;
+import org.eclipse.openvsx.repositories.IdPair;
 import org.eclipse.openvsx.repositories.RepositoryService;
 import org.eclipse.openvsx.search.ExtensionSearch;
+import org.eclipse.openvsx.publish.PublishService;
 import org.eclipse.openvsx.search.SearchService;
+import org.eclipse.openvsx.search.SearchUpdateHandler;
+import org.eclipse.openvsx.upload.UploadService;
+import org.eclipse.openvsx.util.NotFoundException;
+import org.eclipse.openvsx.util.VersionRange;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -59,8 +90,10 @@ import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.util.Streamable;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpSession;
 import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -68,7 +101,9 @@ import com.google.common.collect.Lists;
 
 @WebMvcTest(RegistryAPI.class)
 @AutoConfigureWebClient
-@MockBean({ ClientRegistrationRepository.class, UpstreamRegistryService.class })
+@MockBean({ ClientRegistrationRepository.class, UpstreamRegistryService.class, ChangeLogService.class, PublishService.class,
+        SearchUpdateHandler.class, IconThumbnailHandler.class, ArchiveIndexHandler.class, DownloadCountService.class,
+        LeaderElection.class, JobQueue.class, PlatformTransactionManager.class })
 public class RegistryAPITest {
 
     @SpyBean
@@ -83,9 +118,28 @@ public class RegistryAPITest {
     @MockBean
     EntityManager entityManager;
 
+    @Autowired
+    ChangeLogService changeLog;
+
+    @Autowired
+    PublishService publishJobs;
+
     @Autowired
     MockMvc mockMvc;
 
+    @Test
+    public void testPublicApiIsStateless() throws Exception {
+        mockNamespace();
+        var session = new TrackingSession();
+        mockMvc.perform(get("/api/{namespace}", "foobar").session(session))
+                .andExpect(status().isOk());
+        assertThat(session.accessCount).isEqualTo(0);
+
+        // Requests that may need the user principal still load the session
+        mockMvc.perform(post("/api/{namespace}/{extension}/review/delete", "foobar", "baz").session(session).with(csrf()));
+        assertThat(session.accessCount).isGreaterThan(0);
+    }
+
     @Test
     public void testPublicNamespace() throws Exception {
         var namespace = mockNamespace();
@@ -185,6 +239,170 @@ public class RegistryAPITest {
                 .andExpect(content().json(errorJson("Extension not found: foo.bar version 2")));
     }
 
+    @Test
+    public void testCompatibleExtension() throws Exception {
+        var extVersion = mockExtension();
+        Mockito.when(repositories.findCompatibleVersions(extVersion.getExtension(), VersionRange.parseVersion("1.45.1")))
+                .thenReturn(Streamable.of(extVersion));
+        mockMvc.perform(get("/api/{namespace}/{extension}/compatible?engineVersion={engineVersion}", "foo", "bar", "1.45.1"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(extensionJson(e -> {
+                    e.namespace = "foo";
+                    e.name = "bar";
+                    e.version = "1";
+                    e.namespaceAccess = "public";
+                    e.timestamp = "2000-01-01T10:00Z";
+                    e.displayName = "Foo Bar";
+                })));
+    }
+
+    @Test
+    public void testIncompatibleExtension() throws Exception {
+        var extVersion = mockExtension();
+        Mockito.when(repositories.findCompatibleVersions(extVersion.getExtension(), VersionRange.parseVersion("1.20.0")))
+                .thenReturn(Streamable.empty());
+        mockMvc.perform(get("/api/{namespace}/{extension}/compatible?engineVersion={engineVersion}", "foo", "bar", "1.20.0"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(errorJson("No version of foo.bar is compatible with engine version 1.20.0")));
+    }
+
+    @Test
+    public void testInvalidEngineVersion() throws Exception {
+        mockExtension();
+        mockMvc.perform(get("/api/{namespace}/{extension}/compatible?engineVersion={engineVersion}", "foo", "bar", "latest"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(errorJson("Invalid engine version: latest")));
+    }
+
+    @Test
+    public void testResolveDependencies() throws Exception {
+        var extVersion = mockExtension();
+        var extension = extVersion.getExtension();
+        extension.setId(1);
+        extVersion.setId(2);
+        extVersion.setExtensionFileName("foo.bar-1.vsix");
+        var dependency = new Extension();
+        dependency.setId(3);
+        dependency.setName("baz");
+        dependency.setNamespace(extension.getNamespace());
+        var depVersion = new ExtensionVersion();
+        depVersion.setId(4);
+        depVersion.setExtension(dependency);
+        depVersion.setVersion("2");
+        depVersion.setExtensionFileName("foo.baz-2.vsix");
+        dependency.setLatest(depVersion);
+        extVersion.setDependencies(Lists.newArrayList(dependency));
+        depVersion.setBundledExtensions(Lists.newArrayList(extension));
+
+        Mockito.when(repositories.findAllVersionExtensionIds())
+                .thenReturn(Streamable.of(new IdPair(2, 1), new IdPair(4, 3)));
+        Mockito.when(repositories.findAllVersionDependencyIds())
+                .thenReturn(Streamable.of(new IdPair(2, 3)));
+        Mockito.when(repositories.findAllVersionBundledExtensionIds())
+                .thenReturn(Streamable.of(new IdPair(4, 1)));
+        Mockito.when(repositories.findAllLatestVersionIds())
+                .thenReturn(Streamable.of(new IdPair(1, 2), new IdPair(3, 4)));
+        Mockito.when(repositories.findLatestVersionIds(anyCollection()))
+                .thenReturn(Streamable.of(new IdPair(1, 2), new IdPair(3, 4)));
+        Mockito.when(repositories.findVersions(anyCollection()))
+                .thenReturn(Streamable.of(extVersion, depVersion));
+
+        mockMvc.perform(get("/api/{namespace}/{extension}/{version}/resolve", "foo", "bar", "1"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(dependencyClosureJson(c -> {
+                    var dep = new DependencyClosureJson.Entry();
+                    dep.namespace = "foo";
+                    dep.name = "baz";
+                    dep.version = "2";
+                    dep.url = "http://localhost/api/foo/baz/2";
+                    var bundled = new ExtensionReferenceJson();
+                    bundled.namespace = "foo";
+                    bundled.extension = "bar";
+                    bundled.url = "http://localhost/api/foo/bar";
+                    dep.bundledExtensions = Lists.newArrayList(bundled);
+                    var root = new DependencyClosureJson.Entry();
+                    root.namespace = "foo";
+                    root.name = "bar";
+                    root.version = "1";
+                    root.url = "http://localhost/api/foo/bar/1";
+                    var depRef = new ExtensionReferenceJson();
+                    depRef.namespace = "foo";
+                    depRef.extension = "baz";
+                    depRef.url = "http://localhost/api/foo/baz";
+                    root.dependencies = Lists.newArrayList(depRef);
+                    c.extensions = Lists.newArrayList(dep, root);
+                    c.cycles = Lists.newArrayList("foo.baz -> foo.bar");
+                })));
+    }
+
+    @Test
+    public void testQuery() throws Exception {
+        var extVersion = mockExtension();
+        var extension = extVersion.getExtension();
+        Mockito.when(repositories.findExtensions(anyCollection(), anyCollection()))
+                .thenReturn(Streamable.of(extension));
+        Mockito.when(repositories.findVersionsByExtensions(anyCollection()))
+                .thenReturn(Streamable.of(extVersion));
+        Mockito.when(repositories.countActiveReviews(anyCollection()))
+                .thenReturn(Streamable.empty());
+        Mockito.when(repositories.countMemberships(anyCollection(), eq(NamespaceMembership.ROLE_OWNER)))
+                .thenReturn(Streamable.empty());
+        Mockito.when(repositories.findFileHashes(anyCollection(), eq(FileResource.DOWNLOAD)))
+                .thenReturn(Streamable.of(new IdHash(extVersion.getId(), "0123abcd")));
+        mockMvc.perform(post("/api/-/query")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{ \"extensions\": [\"foo.bar\", \"foo.bar@2\", \"foo.baz\"] }"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(queryResultJson(r -> {
+                    var found = new ExtensionJson();
+                    found.namespace = "foo";
+                    found.name = "bar";
+                    found.version = "1";
+                    found.namespaceAccess = "public";
+                    found.timestamp = "2000-01-01T10:00Z";
+                    found.displayName = "Foo Bar";
+                    found.downloadSha256 = "0123abcd";
+                    r.extensions = Lists.newArrayList(found,
+                            ExtensionJson.error("Extension not found: foo.bar version 2"),
+                            ExtensionJson.error("Extension not found: foo.baz"));
+                })));
+    }
+
+    @Test
+    public void testQueryInvalidIdentifier() throws Exception {
+        mockMvc.perform(post("/api/-/query")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{ \"extensions\": [\"foo\"] }"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(errorJson("Invalid extension identifier: foo\n"
+                        + "Expected format: 'namespace.extension' or 'namespace.extension@version'")));
+    }
+
+    @Test
+    public void testChanges() throws Exception {
+        var changes = new ChangeListJson();
+        var change = new ChangeJson();
+        change.id = 5;
+        change.type = "publish";
+        change.namespace = "foo";
+        change.extension = "bar";
+        change.version = "1";
+        changes.changes = Lists.newArrayList(change);
+        changes.cursor = 5;
+        Mockito.when(changeLog.getChanges(3, 10))
+                .thenReturn(changes);
+        mockMvc.perform(get("/api/-/changes?since={since}&limit={limit}", "3", "10"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(new ObjectMapper().writeValueAsString(changes)));
+    }
+
+    @Test
+    public void testChangesInvalidLimit() throws Exception {
+        mockMvc.perform(get("/api/-/changes?limit={limit}", "5000"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(errorJson("The parameter 'limit' must be between 1 and 1000.")));
+    }
+
     @Test
     public void testReadme() throws Exception {
         mockReadme();
@@ -193,6 +411,84 @@ public class RegistryAPITest {
                 .andExpect(content().string("Please read me"));
     }
 
+    @Test
+    public void testCompressedReadme() throws Exception {
+        var resource = mockReadme();
+        var gzipContent = new byte[] { 31, -117, 8 };
+        Mockito.when(repositories.findGzipContent(resource))
+                .thenReturn(gzipContent);
+        mockMvc.perform(get("/api/{namespace}/{extension}/{version}/file/{fileName}", "foo", "bar", "1", "README")
+                    .header("Accept-Encoding", "br, gzip;q=0.8"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(result -> assertThat(result.getResponse().getHeaders("Vary")).contains("Accept-Encoding"))
+                .andExpect(content().bytes(gzipContent));
+        mockMvc.perform(get("/api/{namespace}/{extension}/{version}/file/{fileName}", "foo", "bar", "1", "README")
+                    .header("Accept-Encoding", "gzip;q=0, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(content().string("Please read me"));
+    }
+
+    @Test
+    public void testIconThumbnail() throws Exception {
+        var extVersion = mockExtension();
+        extVersion.setIconFileName("icon.jpg");
+        var icon = new FileResource();
+        icon.setExtension(extVersion);
+        icon.setType(FileResource.ICON);
+        icon.setContent(new byte[] { 1, 2, 3, 4 });
+        Mockito.when(repositories.findFile(extVersion, FileResource.ICON))
+                .thenReturn(icon);
+        var thumbnail = new FileResource();
+        thumbnail.setExtension(extVersion);
+        thumbnail.setType("icon-64");
+        thumbnail.setContent(new byte[] { 1, 2 });
+        Mockito.when(repositories.findFile(extVersion, "icon-64"))
+                .thenReturn(thumbnail);
+        mockMvc.perform(get("/api/{namespace}/{extension}/{version}/file/{fileName}?size={size}", "foo", "bar", "1", "icon.jpg", "48"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "image/png"))
+                .andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"))
+                .andExpect(content().bytes(thumbnail.getContent()));
+        mockMvc.perform(get("/api/{namespace}/{extension}/{version}/file/{fileName}?size={size}", "foo", "bar", "1", "icon.jpg", "128"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "image/jpeg"))
+                .andExpect(header().string("Cache-Control", "max-age=3600"))
+                .andExpect(content().bytes(icon.getContent()));
+    }
+
+    @Test
+    public void testUnscalableIcon() throws Exception {
+        var extVersion = mockExtension();
+        extVersion.setIconFileName("icon.svg");
+        var icon = new FileResource();
+        icon.setExtension(extVersion);
+        icon.setType(FileResource.ICON);
+        icon.setContent("<svg/>".getBytes());
+        Mockito.when(repositories.findFile(extVersion, FileResource.ICON))
+                .thenReturn(icon);
+        var thumbnail = new FileResource();
+        thumbnail.setExtension(extVersion);
+        thumbnail.setType("icon-64");
+        thumbnail.setContent(new byte[0]);
+        Mockito.when(repositories.findFile(extVersion, "icon-64"))
+                .thenReturn(thumbnail);
+        mockMvc.perform(get("/api/{namespace}/{extension}/{version}/file/{fileName}?size={size}", "foo", "bar", "1", "icon.svg", "48"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "max-age=2592000"))
+                .andExpect(content().bytes(icon.getContent()));
+    }
+
+    @Test
+    public void testSizeOfOtherFile() throws Exception {
+        mockReadme();
+        mockMvc.perform(get("/api/{namespace}/{extension}/{version}/file/{fileName}?size={size}", "foo", "bar", "1", "README", "64"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "max-age=2592000"))
+                .andExpect(content().string("Please read me"));
+    }
+
     @Test
     public void testLicense() throws Exception {
         mockLicense();
@@ -208,6 +504,47 @@ public class RegistryAPITest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    public void testPackagedFile() throws Exception {
+        var extVersion = mockExtension();
+        var entry = new ArchiveEntry();
+        entry.setExtension(extVersion);
+        entry.setName("extension/images/logo.png");
+        entry.setDataOffset(100);
+        entry.setCompressedSize(4);
+        entry.setSize(4);
+        entry.setMethod(ArchiveEntry.METHOD_STORED);
+        Mockito.when(repositories.findArchiveEntry(extVersion, "extension/images/logo.png"))
+                .thenReturn(entry);
+        Mockito.when(repositories.findFileRange(extVersion, FileResource.DOWNLOAD, 100, 4))
+                .thenReturn(new byte[] { 1, 2, 3, 4 });
+        mockMvc.perform(get("/api/{namespace}/{extension}/{version}/file/images/logo.png", "foo", "bar", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "image/png"))
+                .andExpect(header().string("Content-Security-Policy", "sandbox"))
+                .andExpect(content().bytes(new byte[] { 1, 2, 3, 4 }));
+        mockMvc.perform(get("/api/{namespace}/{extension}/{version}/file/images/unknown.png", "foo", "bar", "1"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testCorruptPackagedFile() throws Exception {
+        var extVersion = mockExtension();
+        var entry = new ArchiveEntry();
+        entry.setExtension(extVersion);
+        entry.setName("extension/README.txt");
+        entry.setDataOffset(100);
+        entry.setCompressedSize(4);
+        entry.setSize(10);
+        entry.setMethod(ArchiveEntry.METHOD_DEFLATED);
+        Mockito.when(repositories.findArchiveEntry(extVersion, "extension/README.txt"))
+                .thenReturn(entry);
+        Mockito.when(repositories.findFileRange(extVersion, FileResource.DOWNLOAD, 100, 4))
+                .thenReturn(new byte[] { -1, -1, -1, -1 });
+        mockMvc.perform(get("/api/{namespace}/{extension}/{version}/file/{fileName}", "foo", "bar", "1", "README.txt"))
+                .andExpect(status().isInternalServerError());
+    }
+
     @Test
     public void testReviews() throws Exception {
         mockReviews();
@@ -325,6 +662,69 @@ public class RegistryAPITest {
                 })));
     }
     
+    @Test
+    public void testPublishAsync() throws Exception {
+        var job = new PublishJobJson();
+        job.id = "1234";
+        job.status = "queued";
+        job.url = "http://localhost/api/-/publish/1234";
+        Mockito.when(publishJobs.submit(any(), eq("my_token"))).thenReturn(job);
+        mockMvc.perform(post("/api/-/publish/async?token={token}", "my_token")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .content(createExtensionPackage("bar", "1")))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "http://localhost/api/-/publish/1234"))
+                .andExpect(content().json("{\"id\":\"1234\",\"status\":\"queued\"}"));
+    }
+
+    @Test
+    public void testPublishJobNotFound() throws Exception {
+        Mockito.when(publishJobs.getJob("1234")).thenThrow(new NotFoundException());
+        mockMvc.perform(get("/api/-/publish/{jobId}", "1234"))
+                .andExpect(status().isNotFound())
+                .andExpect(content().json(errorJson("Publish job not found: 1234")));
+    }
+
+    @Test
+    public void testChunkedUpload() throws Exception {
+        mockForPublish("public");
+        mockUploadSessions();
+        var bytes = createExtensionPackage("bar", "1");
+        var split = bytes.length / 2;
+        var response = mockMvc.perform(post("/api/-/publish/upload?token={token}", "my_token"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        var upload = new ObjectMapper().readValue(response, UploadJson.class);
+        assertThat(upload.offset).isEqualTo(0);
+
+        mockMvc.perform(put("/api/-/publish/upload/{id}?token={token}&offset={offset}", upload.id, "my_token", 0)
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .content(Arrays.copyOfRange(bytes, 0, split)))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"offset\":" + split + "}"));
+        // A repeated chunk is rejected with the offset to resume from
+        mockMvc.perform(put("/api/-/publish/upload/{id}?token={token}&offset={offset}", upload.id, "my_token", 0)
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .content(Arrays.copyOfRange(bytes, 0, split)))
+                .andExpect(status().isConflict())
+                .andExpect(content().json("{\"offset\":" + split + "}"));
+        mockMvc.perform(put("/api/-/publish/upload/{id}?token={token}&offset={offset}", upload.id, "my_token", split)
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .content(Arrays.copyOfRange(bytes, split, bytes.length)))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"offset\":" + bytes.length + "}"));
+
+        mockMvc.perform(post("/api/-/publish/upload/{id}/finish?token={token}", upload.id, "my_token"))
+                .andExpect(status().isCreated())
+                .andExpect(content().json(extensionJson(e -> {
+                    e.namespace = "foo";
+                    e.name = "bar";
+                    e.version = "1";
+                })));
+        mockMvc.perform(get("/api/-/publish/upload/{id}?token={token}", upload.id, "my_token"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     public void testPublishInactiveToken() throws Exception {
         mockForPublish("invalid");
@@ -618,6 +1018,18 @@ public class RegistryAPITest {
         return extVersion;
     }
 
+    private String dependencyClosureJson(Consumer<DependencyClosureJson> content) throws JsonProcessingException {
+        var json = new DependencyClosureJson();
+        content.accept(json);
+        return new ObjectMapper().writeValueAsString(json);
+    }
+
+    private String queryResultJson(Consumer<QueryResultJson> content) throws JsonProcessingException {
+        var json = new QueryResultJson();
+        content.accept(json);
+        return new ObjectMapper().writeValueAsString(json);
+    }
+
     private String extensionJson(Consumer<ExtensionJson> content) throws JsonProcessingException {
         var json = new ExtensionJson();
         content.accept(json);
@@ -704,6 +1116,7 @@ public class RegistryAPITest {
 
     private PersonalAccessToken mockAccessToken() {
         var userData = new UserData();
+        userData.setId(1);
         userData.setLoginName("test_user");
         var token = new PersonalAccessToken();
         token.setUser(userData);
@@ -715,6 +1128,35 @@ public class RegistryAPITest {
         return token;
     }
     
+    private void mockUploadSessions() {
+        var sessions = new HashMap<String, UploadSession>();
+        var chunks = new HashMap<String, TreeMap<Long, byte[]>>();
+        Mockito.doAnswer(invocation -> {
+            UploadSession session = invocation.getArgument(0);
+            sessions.put(session.getId(), session);
+            chunks.put(session.getId(), new TreeMap<>());
+            return null;
+        }).when(entityManager).persist(any(UploadSession.class));
+        Mockito.when(repositories.findUploadSession(anyString()))
+                .thenAnswer(invocation -> sessions.get(invocation.getArgument(0)));
+        Mockito.when(repositories.updateUploadSessionSize(anyString(), anyLong(), anyLong(), any(LocalDateTime.class)))
+                .thenAnswer(invocation -> {
+                    var session = sessions.get(invocation.getArgument(0));
+                    if (session == null || session.getSize() != invocation.getArgument(1, Long.class))
+                        return 0;
+                    session.setSize(invocation.getArgument(2));
+                    session.setExpires(invocation.getArgument(3));
+                    return 1;
+                });
+        Mockito.doAnswer(invocation -> chunks.get(invocation.getArgument(0))
+                    .put(invocation.getArgument(1), invocation.getArgument(2)))
+                .when(repositories).insertUploadChunk(anyString(), anyLong(), any(byte[].class));
+        Mockito.when(repositories.findUploadChunks(anyString()))
+                .thenAnswer(invocation -> new ArrayList<>(chunks.get(invocation.getArgument(0)).values()));
+        Mockito.when(repositories.deleteUploadSession(anyString()))
+                .thenAnswer(invocation -> sessions.remove(invocation.getArgument(0)) != null ? 1 : 0);
+    }
+
     private void mockForPublish(String mode) {
         var token = mockAccessToken();
         if (mode.equals("invalid")) {
@@ -754,6 +1196,7 @@ public class RegistryAPITest {
                     .thenReturn(1l);
         } else if (mode.equals("contributor")) {
             var otherUser = new UserData();
+            otherUser.setId(2);
             otherUser.setLoginName("other_user");
             var ownerMem = new NamespaceMembership();
             ownerMem.setUser(otherUser);
@@ -773,6 +1216,7 @@ public class RegistryAPITest {
                     .thenReturn(1l);
         } else if (mode.equals("privileged") || mode.equals("unrelated")) {
             var otherUser = new UserData();
+            otherUser.setId(2);
             otherUser.setLoginName("other_user");
             var ownerMem = new NamespaceMembership();
             ownerMem.setUser(otherUser);
@@ -834,6 +1278,23 @@ public class RegistryAPITest {
         return bytes.toByteArray();
     }
     
+    static class TrackingSession extends MockHttpSession {
+        int accessCount;
+
+        @Override
+        public Object getAttribute(String name) {
+            accessCount++;
+            return super.getAttribute(name);
+        }
+
+        @Override
+        public String getId() {
+            // A session store loads the session when its id is resolved
+            accessCount++;
+            return super.getId();
+        }
+    }
+
     @TestConfiguration
     static class TestConfig {
         @Bean
@@ -841,10 +1302,30 @@ public class RegistryAPITest {
             return new LocalRegistryService();
         }
 
+        @Bean
+        ResourceCompressionHandler resourceCompressionHandler() {
+            return new ResourceCompressionHandler();
+        }
+
         @Bean
         ExtensionValidator extensionValidator() {
             return new ExtensionValidator();
         }
+
+        @Bean
+        DependencyGraph dependencyGraph() {
+            return new DependencyGraph();
+        }
+
+        @Bean
+        UploadService uploadService() {
+            return new UploadService();
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
     }
     
 }
\ No newline at end of file
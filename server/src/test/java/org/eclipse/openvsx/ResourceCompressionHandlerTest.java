@@ -0,0 +1,122 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.zip.GZIPInputStream;
+
+import javax.persistence.EntityManager;
+
+import com.google.common.base.Strings;
+
+import org.eclipse.openvsx.db.LeaderElection;
+import org.eclipse.openvsx.entities.ExtensionVersion;
+import org.eclipse.openvsx.entities.FileResource;
+import org.eclipse.openvsx.jobs.JobQueue;
+import org.eclipse.openvsx.repositories.RepositoryService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.util.Streamable;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+public class ResourceCompressionHandlerTest {
+
+    @MockBean
+    RepositoryService repositories;
+
+    @MockBean
+    EntityManager entityManager;
+
+    @MockBean
+    LeaderElection leaderElection;
+
+    @MockBean
+    JobQueue jobs;
+
+    @Autowired
+    ResourceCompressionHandler handler;
+
+    @Test
+    public void testCompressResources() throws Exception {
+        var readme = resource(FileResource.README, Strings.repeat("Please read me. ", 100));
+        var license = resource(FileResource.LICENSE, "MIT");
+        var extVersion = mockVersion(readme, license);
+        var stored = mockUpdate();
+
+        handler.handle(extVersion.getId());
+
+        assertThat(stored).containsOnlyKeys(readme, license);
+        assertThat(stored.get(readme).length).isLessThan(readme.getContent().length);
+        try (var gzip = new GZIPInputStream(new ByteArrayInputStream(stored.get(readme)))) {
+            assertThat(gzip.readAllBytes()).isEqualTo(readme.getContent());
+        }
+        // Small resources are marked with an empty variant, so they are not processed again
+        assertThat(stored.get(license)).isEmpty();
+    }
+
+    @Test
+    public void testCompressedContent() throws Exception {
+        var readme = resource(FileResource.README, "Please read me");
+        var gzipContent = new byte[] { 31, -117, 8 };
+        Mockito.when(repositories.findGzipContent(readme)).thenReturn(gzipContent);
+        assertThat(handler.getCompressedContent(readme)).isEqualTo(gzipContent);
+
+        var license = resource(FileResource.LICENSE, "MIT");
+        Mockito.when(repositories.findGzipContent(license)).thenReturn(new byte[0]);
+        assertThat(handler.getCompressedContent(license)).isNull();
+
+        var icon = resource(FileResource.ICON, "icon");
+        assertThat(handler.getCompressedContent(icon)).isNull();
+        Mockito.verify(repositories, Mockito.never()).findGzipContent(icon);
+    }
+
+    private FileResource resource(String type, String content) {
+        var resource = new FileResource();
+        resource.setType(type);
+        resource.setContent(content.getBytes(StandardCharsets.UTF_8));
+        return resource;
+    }
+
+    private ExtensionVersion mockVersion(FileResource... resources) {
+        var extVersion = new ExtensionVersion();
+        extVersion.setId(7);
+        Mockito.when(entityManager.find(ExtensionVersion.class, 7L)).thenReturn(extVersion);
+        Mockito.when(repositories.findUncompressedFiles(extVersion, ResourceCompressionHandler.TYPES))
+                .thenReturn(Streamable.of(resources));
+        return extVersion;
+    }
+
+    private LinkedHashMap<FileResource, byte[]> mockUpdate() {
+        var stored = new LinkedHashMap<FileResource, byte[]>();
+        Mockito.doAnswer(invocation -> stored.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(repositories).updateGzipContent(any(FileResource.class), any(byte[].class));
+        return stored;
+    }
+
+    @TestConfiguration
+    static class TestConfig {
+        @Bean
+        ResourceCompressionHandler resourceCompressionHandler() {
+            return new ResourceCompressionHandler();
+        }
+    }
+
+}
@@ -0,0 +1,148 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.EntityManager;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.eclipse.openvsx.entities.Namespace;
+import org.eclipse.openvsx.entities.NamespaceMembership;
+import org.eclipse.openvsx.entities.PersonalAccessToken;
+import org.eclipse.openvsx.entities.UserData;
+import org.eclipse.openvsx.repositories.RepositoryService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.util.Streamable;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+@TestPropertySource(properties = { "ovsx.auth.cache-ttl=60" })
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class UserServiceTest {
+
+    @MockBean
+    RepositoryService repositories;
+
+    @MockBean
+    EntityManager entityManager;
+
+    @MockBean
+    ChangeLogService changeLog;
+
+    @Autowired
+    UserService users;
+
+    @Test
+    public void testCachedAccessToken() throws Exception {
+        var token = mockAccessToken();
+
+        assertThat(users.useAccessToken("my_token")).isSameAs(token);
+        assertThat(users.useAccessToken("my_token")).isSameAs(token);
+        assertThat(users.useAccessToken("other_token")).isNull();
+
+        Mockito.verify(repositories, Mockito.times(1)).findAccessToken("my_token");
+        // Access timestamps are only written when flushed
+        Mockito.verify(repositories, Mockito.never()).updateAccessedTimestamp(anyLong(), any());
+        users.flushAccessTimestamps();
+        Mockito.verify(repositories, Mockito.times(1)).updateAccessedTimestamp(eq(3L), any(LocalDateTime.class));
+        users.flushAccessTimestamps();
+        Mockito.verify(repositories, Mockito.times(1)).updateAccessedTimestamp(anyLong(), any());
+    }
+
+    @Test
+    public void testDeletedAccessToken() throws Exception {
+        var token = mockAccessToken();
+        assertThat(users.useAccessToken("my_token")).isSameAs(token);
+
+        token.setActive(false);
+        users.invalidateAccessToken("my_token");
+
+        assertThat(users.useAccessToken("my_token")).isNull();
+    }
+
+    @Test
+    public void testCachedPermission() throws Exception {
+        var user = new UserData();
+        user.setId(1);
+        user.setLoginName("test_user");
+        var owner = new UserData();
+        owner.setId(2);
+        owner.setLoginName("owner");
+        var namespace = new Namespace();
+        namespace.setId(4);
+        namespace.setName("foo");
+        var ownerMem = new NamespaceMembership();
+        ownerMem.setUser(owner);
+        ownerMem.setNamespace(namespace);
+        ownerMem.setRole(NamespaceMembership.ROLE_OWNER);
+        Mockito.when(repositories.findMemberships(namespace, NamespaceMembership.ROLE_OWNER))
+                .thenReturn(Streamable.of(ownerMem));
+
+        assertThat(users.hasPublishPermission(user, namespace)).isFalse();
+        assertThat(users.hasPublishPermission(user, namespace)).isFalse();
+        Mockito.verify(repositories, Mockito.times(1)).findMembership(user, namespace);
+
+        // A copy of the owner loaded in another session is recognized by its id
+        var ownerCopy = new UserData();
+        ownerCopy.setId(2);
+        assertThat(users.hasPublishPermission(ownerCopy, namespace)).isTrue();
+
+        users.addNamespaceMember(namespace, user, NamespaceMembership.ROLE_CONTRIBUTOR);
+        var contribMem = new NamespaceMembership();
+        contribMem.setUser(user);
+        contribMem.setNamespace(namespace);
+        contribMem.setRole(NamespaceMembership.ROLE_CONTRIBUTOR);
+        Mockito.when(repositories.findMembership(user, namespace)).thenReturn(contribMem);
+
+        assertThat(users.hasPublishPermission(user, namespace)).isTrue();
+    }
+
+    private PersonalAccessToken mockAccessToken() {
+        var user = new UserData();
+        user.setLoginName("test_user");
+        var token = new PersonalAccessToken();
+        token.setId(3);
+        token.setUser(user);
+        token.setValue("my_token");
+        token.setActive(true);
+        Mockito.when(repositories.findAccessToken("my_token")).thenReturn(token);
+        return token;
+    }
+
+    @TestConfiguration
+    static class TestConfig {
+        @Bean
+        UserService userService() {
+            return new UserService();
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+}
@@ -9,9 +9,13 @@
  ********************************************************************************/
 package org.eclipse.openvsx.adapter;
 
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.io.IOException;
@@ -24,20 +28,32 @@ import javax.persistence.EntityManager;
 import com.google.common.collect.Lists;
 import com.google.common.io.CharStreams;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.eclipse.openvsx.DownloadCountService;
+import org.eclipse.openvsx.ResourceCompressionHandler;
+import org.eclipse.openvsx.UserService;
+import org.eclipse.openvsx.db.LeaderElection;
 import org.eclipse.openvsx.entities.Extension;
 import org.eclipse.openvsx.entities.ExtensionVersion;
 import org.eclipse.openvsx.entities.FileResource;
 import org.eclipse.openvsx.entities.Namespace;
 import org.eclipse.openvsx.entities.NamespaceMembership;
+import org.eclipse.openvsx.jobs.JobQueue;
 import org.eclipse.openvsx.repositories.RepositoryService;
+import org.eclipse.openvsx.repositories.VersionRef;
 import org.eclipse.openvsx.search.ExtensionSearch;
 import org.eclipse.openvsx.search.SearchService;
+import org.eclipse.openvsx.util.VersionRange;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.client.AutoConfigureWebClient;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.util.Streamable;
@@ -47,7 +63,8 @@ import org.springframework.test.web.servlet.MockMvc;
 
 @WebMvcTest(VSCodeAdapter.class)
 @AutoConfigureWebClient
-@MockBean({ ClientRegistrationRepository.class })
+@MockBean({ ClientRegistrationRepository.class, DownloadCountService.class, LeaderElection.class, JobQueue.class,
+        UserService.class })
 public class VSCodeAdapterTest {
 
     @MockBean
@@ -92,6 +109,52 @@ public class VSCodeAdapterTest {
                 .andExpect(content().json(file("findname-yaml-response.json")));
     }
 
+    @Test
+    public void testCompatibleVersion() throws Exception {
+        mockSearch();
+        var latest = repositories.findVersion("0.5.2", "vscode-yaml", "redhat");
+        latest.setVscodeEngineMin(VersionRange.parseVersion("1.31.0"));
+        latest.setVscodeEngineMax(VersionRange.parseVersion("2.0.0"));
+        var extension = latest.getExtension();
+        var compatible = new ExtensionVersion();
+        compatible.setId(5);
+        compatible.setExtension(extension);
+        compatible.setVersion("0.4.1");
+        compatible.setTimestamp(LocalDateTime.parse("1999-12-01T10:00"));
+        compatible.setDependencies(Lists.newArrayList());
+        compatible.setBundledExtensions(Lists.newArrayList());
+        var engineVersion = VersionRange.parseVersion("1.20.0");
+        Mockito.when(repositories.findCompatibleVersionRefs(Lists.newArrayList(1L), engineVersion))
+                .thenReturn(Streamable.of(
+                    new VersionRef(4, 1, "0.4.0", false, LocalDateTime.parse("1999-11-01T10:00")),
+                    new VersionRef(5, 1, "0.4.1", false, LocalDateTime.parse("1999-12-01T10:00")),
+                    new VersionRef(3, 1, "0.3.0", false, LocalDateTime.parse("1999-10-01T10:00"))));
+        Mockito.when(repositories.findVersions(Lists.newArrayList(5L)))
+                .thenReturn(Streamable.of(compatible));
+        mockMvc.perform(post("/vscode/gallery/extensionquery")
+                .content(file("findid-yaml-query.json"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("X-Market-Client-Id", "VSCode 1.20.0"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].extensions[0].versions[0].version").value("0.4.1"));
+    }
+
+    @Test
+    public void testLatestVersionCompatible() throws Exception {
+        mockSearch();
+        var latest = repositories.findVersion("0.5.2", "vscode-yaml", "redhat");
+        latest.setVscodeEngineMin(VersionRange.parseVersion("1.31.0"));
+        latest.setVscodeEngineMax(VersionRange.parseVersion("2.0.0"));
+        mockMvc.perform(post("/vscode/gallery/extensionquery")
+                .content(file("findid-yaml-query.json"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("X-Market-Client-Id", "VSCode 1.45.1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].extensions[0].versions[0].version").value("0.5.2"));
+        // No versions are loaded if the latest version is compatible
+        Mockito.verify(repositories, Mockito.never()).findCompatibleVersionRefs(anyCollection(), anyLong());
+    }
+
     @Test
     public void testAsset() throws Exception {
         mockAsset();
@@ -109,6 +172,40 @@ public class VSCodeAdapterTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    public void testIconThumbnail() throws Exception {
+        var extVersion = mockExtension();
+        extVersion.setIconFileName("icon128.svg");
+        var thumbnail = new FileResource();
+        thumbnail.setExtension(extVersion);
+        thumbnail.setType("icon-64");
+        thumbnail.setContent(new byte[] { 1, 2 });
+        var icon = new FileResource();
+        icon.setExtension(extVersion);
+        icon.setType(FileResource.ICON);
+        icon.setContent("<svg/>".getBytes());
+        Mockito.when(repositories.findFile(extVersion, FileResource.ICON))
+                .thenReturn(icon);
+        Mockito.when(repositories.findFile(extVersion, "icon-64"))
+                .thenReturn(thumbnail);
+        mockMvc.perform(get("/vscode/asset/{namespace}/{extensionName}/{version}/{assetType}?size={size}",
+                    "redhat", "vscode-yaml", "0.5.2", "Microsoft.VisualStudio.Services.Icons.Default", "64"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "image/png"))
+                .andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"))
+                .andExpect(content().bytes(thumbnail.getContent()));
+    }
+
+    @Test
+    public void testSizeOfOtherAsset() throws Exception {
+        mockAsset();
+        mockMvc.perform(get("/vscode/asset/{namespace}/{extensionName}/{version}/{assetType}?size={size}",
+                    "redhat", "vscode-yaml", "0.5.2", "Microsoft.VisualStudio.Code.Manifest", "64"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "max-age=2592000"))
+                .andExpect(content().string("{\"foo\":\"bar\"}"));
+    }
+
     // ---------- UTILITY ----------//
 
     private void mockSearch() {
@@ -183,4 +280,17 @@ public class VSCodeAdapterTest {
         }
     }
 
-}
\ No newline at end of file
+    @TestConfiguration
+    static class TestConfig {
+        @Bean
+        ResourceCompressionHandler resourceCompressionHandler() {
+            return new ResourceCompressionHandler();
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+}
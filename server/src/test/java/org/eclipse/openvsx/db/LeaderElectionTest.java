@@ -0,0 +1,103 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.db;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.DockerClientFactory;
+
+public class LeaderElectionTest {
+
+    private static final String URL = "jdbc:tc:postgresql:12:///leader_election";
+
+    private DriverManagerDataSource dataSource;
+    private LeaderElection node1;
+    private LeaderElection node2;
+
+    @BeforeAll
+    public static void checkDocker() {
+        Assumptions.assumeTrue(DockerClientFactory.instance().isDockerAvailable(), "Docker is not available");
+    }
+
+    @BeforeEach
+    public void setup() {
+        dataSource = new DriverManagerDataSource(URL);
+        dataSource.setDriverClassName("org.testcontainers.jdbc.ContainerDatabaseDriver");
+        node1 = createNode();
+        node2 = createNode();
+    }
+
+    @AfterEach
+    public void teardown() {
+        node1.release();
+        node2.release();
+    }
+
+    @Test
+    public void testSingleLeader() {
+        assertThat(node1.isLeader("foo")).isTrue();
+        assertThat(node2.isLeader("foo")).isFalse();
+        assertThat(node1.isLeader("foo")).isTrue();
+        // Other tasks can be led by other nodes
+        assertThat(node2.isLeader("bar")).isTrue();
+        assertThat(node1.isLeader("bar")).isFalse();
+        assertThat(node1.getTasks()).containsExactly("foo");
+    }
+
+    @Test
+    public void testFailover() {
+        assertThat(node1.isLeader("foo")).isTrue();
+        node1.release();
+
+        assertThat(node2.isLeader("foo")).isTrue();
+        assertThat(node1.isLeader("foo")).isFalse();
+    }
+
+    @Test
+    public void testConnectionLost() {
+        assertThat(node1.isLeader("foo")).isTrue();
+        new JdbcTemplate(dataSource).queryForList("SELECT pg_terminate_backend(pid) FROM pg_locks"
+                + " WHERE locktype = 'advisory' AND pid <> pg_backend_pid()");
+
+        node1.renew();
+
+        assertThat(node1.getTasks()).isEmpty();
+        assertThat(node2.isLeader("foo")).isTrue();
+    }
+
+    @Test
+    public void testRunExclusively() {
+        var runs = new int[1];
+        assertThat(node1.runExclusively("foo", () -> {
+            // The task is locked while it runs
+            assertThat(node2.runExclusively("foo", () -> runs[0]++)).isFalse();
+            runs[0]++;
+        })).isTrue();
+        // The lock is released when the task is finished
+        assertThat(node2.runExclusively("foo", () -> runs[0]++)).isTrue();
+        assertThat(runs[0]).isEqualTo(2);
+        assertThat(node1.getTasks()).isEmpty();
+    }
+
+    private LeaderElection createNode() {
+        var node = new LeaderElection();
+        node.dataSource = dataSource;
+        node.enabled = true;
+        return node;
+    }
+
+}
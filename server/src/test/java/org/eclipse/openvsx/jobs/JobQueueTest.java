@@ -0,0 +1,208 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.jobs;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.eclipse.openvsx.entities.QueuedJob;
+import org.eclipse.openvsx.repositories.RepositoryService;
+import org.eclipse.openvsx.util.TimeUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@ExtendWith(SpringExtension.class)
+public class JobQueueTest {
+
+    @MockBean
+    RepositoryService repositories;
+
+    @MockBean
+    EntityManager entityManager;
+
+    @MockBean
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    JobQueue jobs;
+
+    @Autowired
+    TestHandler handler;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setup() {
+        handler.handled.clear();
+        handler.fail = false;
+    }
+
+    @Test
+    public void testEnqueue() throws Exception {
+        var persisted = new ArrayList<QueuedJob>();
+        Mockito.doAnswer(invocation -> persisted.add(invocation.getArgument(0)))
+                .when(entityManager).persist(any(QueuedJob.class));
+
+        jobs.enqueue(TestHandler.TYPE, 42L, 5);
+
+        assertThat(persisted).hasSize(1);
+        var job = persisted.get(0);
+        assertThat(job.getType()).isEqualTo(TestHandler.TYPE);
+        assertThat(job.getPayload()).isEqualTo("42");
+        assertThat(job.getPriority()).isEqualTo(5);
+        assertThat(job.getStatus()).isEqualTo(QueuedJob.STATUS_PENDING);
+        assertThat(job.getMaxAttempts()).isEqualTo(5);
+    }
+
+    @Test
+    public void testEnqueueDuplicate() throws Exception {
+        Mockito.when(repositories.hasPendingJob(TestHandler.TYPE, "42")).thenReturn(true);
+
+        jobs.enqueue(TestHandler.TYPE, 42L);
+
+        Mockito.verify(entityManager, Mockito.never()).persist(any());
+    }
+
+    @Test
+    public void testProcess() throws Exception {
+        var job = mockJob(TestHandler.TYPE, 1);
+
+        jobs.process(job);
+
+        assertThat(handler.handled).containsExactly(42L);
+        Mockito.verify(entityManager).remove(job);
+        assertThat(meterRegistry.timer("ovsx.jobs.execution", "type", TestHandler.TYPE, "outcome", "succeeded").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void testRetry() throws Exception {
+        var job = mockJob(TestHandler.TYPE, 2);
+        handler.fail = true;
+
+        var before = TimeUtil.getCurrentUTC();
+        jobs.process(job);
+
+        Mockito.verify(entityManager, Mockito.never()).remove(any());
+        assertThat(job.getStatus()).isEqualTo(QueuedJob.STATUS_PENDING);
+        assertThat(job.getError()).contains("Handler failed");
+        // The retry delay is doubled with every attempt
+        assertThat(job.getScheduled()).isAfterOrEqualTo(before.plusSeconds(20));
+        assertThat(job.getScheduled()).isBefore(before.plusSeconds(30));
+    }
+
+    @Test
+    public void testDeadLetter() throws Exception {
+        var job = mockJob(TestHandler.TYPE, 5);
+        handler.fail = true;
+
+        jobs.process(job);
+
+        assertThat(job.getStatus()).isEqualTo(QueuedJob.STATUS_DEAD);
+        assertThat(meterRegistry.timer("ovsx.jobs.execution", "type", TestHandler.TYPE, "outcome", "dead").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void testUnknownType() throws Exception {
+        var job = mockJob("unknown", 1);
+
+        jobs.process(job);
+
+        assertThat(handler.handled).isEmpty();
+        assertThat(job.getStatus()).isEqualTo(QueuedJob.STATUS_DEAD);
+        assertThat(job.getError()).isEqualTo("No handler for job type unknown");
+    }
+
+    @Test
+    public void testRetryDelay() throws Exception {
+        assertThat(jobs.getRetryDelay(1)).isEqualTo(Duration.ofSeconds(10));
+        assertThat(jobs.getRetryDelay(3)).isEqualTo(Duration.ofSeconds(40));
+        assertThat(jobs.getRetryDelay(100)).isEqualTo(Duration.ofHours(1));
+    }
+
+    private QueuedJob mockJob(String type, int attempts) {
+        var now = TimeUtil.getCurrentUTC();
+        var job = new QueuedJob();
+        job.setId(attempts);
+        job.setType(type);
+        job.setPayload("42");
+        job.setStatus(QueuedJob.STATUS_RUNNING);
+        job.setAttempts(attempts);
+        job.setMaxAttempts(5);
+        job.setCreated(now);
+        job.setScheduled(now);
+        job.setStarted(now);
+        Mockito.when(repositories.findQueuedJob(job.getId())).thenReturn(job);
+        return job;
+    }
+
+    static class TestHandler implements JobHandler<Long> {
+
+        static final String TYPE = "test";
+
+        final List<Long> handled = new ArrayList<>();
+        boolean fail;
+
+        @Override
+        public String getType() {
+            return TYPE;
+        }
+
+        @Override
+        public Class<Long> getPayloadType() {
+            return Long.class;
+        }
+
+        @Override
+        public void handle(Long payload) {
+            if (fail)
+                throw new IllegalStateException("Handler failed");
+            handled.add(payload);
+        }
+    }
+
+    @TestConfiguration
+    static class TestConfig {
+        @Bean
+        JobQueue jobQueue() {
+            return new JobQueue();
+        }
+
+        @Bean
+        TestHandler testHandler() {
+            return new TestHandler();
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+}
@@ -0,0 +1,289 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.mirror;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
+
+import org.eclipse.openvsx.AdminService;
+import org.eclipse.openvsx.ChangeLogService;
+import org.eclipse.openvsx.LocalRegistryService;
+import org.eclipse.openvsx.db.LeaderElection;
+import org.eclipse.openvsx.entities.ChangeLogEntry;
+import org.eclipse.openvsx.entities.ExtensionVersion;
+import org.eclipse.openvsx.entities.MirrorCheckpoint;
+import org.eclipse.openvsx.json.ChangeJson;
+import org.eclipse.openvsx.json.ChangeListJson;
+import org.eclipse.openvsx.json.ExtensionJson;
+import org.eclipse.openvsx.repositories.RepositoryService;
+import org.eclipse.openvsx.search.SearchService;
+import org.eclipse.openvsx.util.ErrorResultException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.client.RestTemplate;
+
+@ExtendWith(SpringExtension.class)
+@TestPropertySource(properties = { "ovsx.mirror.enabled=true", "ovsx.upstream.url=https://upstream.test" })
+public class MirrorServiceTest {
+
+    @MockBean
+    LocalRegistryService local;
+
+    @MockBean
+    AdminService admins;
+
+    @MockBean
+    ChangeLogService changeLog;
+
+    @MockBean
+    RepositoryService repositories;
+
+    @MockBean
+    SearchService search;
+
+    @MockBean
+    EntityManager entityManager;
+
+    @MockBean
+    PlatformTransactionManager transactionManager;
+
+    @MockBean
+    LeaderElection leaderElection;
+
+    @Autowired
+    RestTemplate restTemplate;
+
+    @Autowired
+    MirrorService mirror;
+
+    MockRestServiceServer upstream;
+
+    ObjectMapper mapper = new ObjectMapper();
+
+    @BeforeEach
+    public void setup() {
+        upstream = MockRestServiceServer.bindTo(restTemplate).ignoreExpectOrder(true).build();
+    }
+
+    @Test
+    public void testPublish() throws Exception {
+        var content = "extension package".getBytes(StandardCharsets.UTF_8);
+        expectChanges(0, change(1, ChangeLogEntry.PUBLISH, "foo", "bar", "1.0.0"));
+        expectVersion("foo", "bar", "1.0.0", Hashing.sha256().hashBytes(content).toString());
+        upstream.expect(requestTo("https://upstream.test/api/foo/bar/1.0.0/file/foo.bar-1.0.0.vsix"))
+                .andRespond(withSuccess(content, MediaType.APPLICATION_OCTET_STREAM));
+        var imported = mockImport();
+        var checkpoints = mockCheckpoint(null);
+
+        assertThat(mirror.sync()).isEqualTo(1);
+        upstream.verify();
+        assertThat(imported).containsExactly(new String(content, StandardCharsets.UTF_8));
+        assertThat(checkpoints).hasSize(1);
+        assertThat(checkpoints.get(0).getUrl()).isEqualTo("https://upstream.test");
+        assertThat(checkpoints.get(0).getCursor()).isEqualTo(1);
+    }
+
+    @Test
+    public void testHashMismatch() throws Exception {
+        var content = "extension package".getBytes(StandardCharsets.UTF_8);
+        expectChanges(0,
+                change(1, ChangeLogEntry.PUBLISH, "foo", "bar", "1.0.0"),
+                change(2, ChangeLogEntry.PUBLISH, "foo", "bar", "1.0.1"));
+        expectVersion("foo", "bar", "1.0.0", Hashing.sha256().hashBytes(new byte[0]).toString());
+        upstream.expect(requestTo("https://upstream.test/api/foo/bar/1.0.0/file/foo.bar-1.0.0.vsix"))
+                .andRespond(withSuccess("tampered".getBytes(StandardCharsets.UTF_8), MediaType.APPLICATION_OCTET_STREAM));
+        expectVersion("foo", "bar", "1.0.1", Hashing.sha256().hashBytes(content).toString());
+        upstream.expect(requestTo("https://upstream.test/api/foo/bar/1.0.1/file/foo.bar-1.0.1.vsix"))
+                .andRespond(withSuccess(content, MediaType.APPLICATION_OCTET_STREAM));
+        var imported = mockImport();
+        var checkpoints = mockCheckpoint(null);
+
+        // The rejected version is skipped and the following change is still applied
+        assertThat(mirror.sync()).isEqualTo(2);
+        upstream.verify();
+        assertThat(imported).containsExactly(new String(content, StandardCharsets.UTF_8));
+        assertThat(checkpoints).hasSize(1);
+        assertThat(checkpoints.get(0).getCursor()).isEqualTo(2);
+    }
+
+    @Test
+    public void testMissingDownloadUrl() throws Exception {
+        expectChanges(0, change(1, ChangeLogEntry.PUBLISH, "foo", "bar", "1.0.0"));
+        var json = new ExtensionJson();
+        json.namespace = "foo";
+        json.name = "bar";
+        json.version = "1.0.0";
+        upstream.expect(requestTo("https://upstream.test/api/foo/bar/1.0.0"))
+                .andRespond(withSuccess(mapper.writeValueAsString(json), MediaType.APPLICATION_JSON));
+        var imported = mockImport();
+        var checkpoints = mockCheckpoint(null);
+
+        assertThat(mirror.sync()).isEqualTo(1);
+        assertThat(imported).isEmpty();
+        assertThat(checkpoints).hasSize(1);
+        assertThat(checkpoints.get(0).getCursor()).isEqualTo(1);
+    }
+
+    @Test
+    public void testResumeFromCheckpoint() throws Exception {
+        var checkpoint = new MirrorCheckpoint();
+        checkpoint.setUrl("https://upstream.test");
+        checkpoint.setCursor(5);
+        mockCheckpoint(checkpoint);
+        expectChanges(5, change(6, ChangeLogEntry.DELETE, "foo", "bar", "1.0.0"));
+        Mockito.when(repositories.findVersion("1.0.0", "bar", "foo"))
+                .thenReturn(new ExtensionVersion());
+
+        assertThat(mirror.sync()).isEqualTo(1);
+        upstream.verify();
+        Mockito.verify(admins).deleteExtension("foo", "bar", "1.0.0", null);
+        assertThat(checkpoint.getCursor()).isEqualTo(6);
+    }
+
+    @Test
+    public void testSkipDeletedVersion() throws Exception {
+        // No download is expected because the version is deleted by a later change
+        expectChanges(0,
+                change(1, ChangeLogEntry.PUBLISH, "foo", "bar", "1.0.0"),
+                change(2, ChangeLogEntry.DELETE, "foo", "bar", null));
+        var imported = mockImport();
+        var checkpoints = mockCheckpoint(null);
+
+        assertThat(mirror.sync()).isEqualTo(2);
+        upstream.verify();
+        assertThat(imported).isEmpty();
+        assertThat(checkpoints).hasSize(1);
+        assertThat(checkpoints.get(0).getCursor()).isEqualTo(2);
+    }
+
+    @Test
+    public void testSkipRejectedChange() throws Exception {
+        expectChanges(0, change(1, ChangeLogEntry.NAMESPACE, "foo", null, null));
+        Mockito.when(local.importNamespace("foo"))
+                .thenThrow(new ErrorResultException("Invalid namespace name: foo"));
+        var checkpoints = mockCheckpoint(null);
+
+        assertThat(mirror.sync()).isEqualTo(1);
+        assertThat(checkpoints).hasSize(1);
+        assertThat(checkpoints.get(0).getCursor()).isEqualTo(1);
+    }
+
+    @Test
+    public void testDeletedUpstream() throws Exception {
+        expectChanges(0, change(1, ChangeLogEntry.PUBLISH, "foo", "bar", "1.0.0"));
+        upstream.expect(requestTo("https://upstream.test/api/foo/bar/1.0.0"))
+                .andRespond(withStatus(HttpStatus.NOT_FOUND));
+        var imported = mockImport();
+        var checkpoints = mockCheckpoint(null);
+
+        assertThat(mirror.sync()).isEqualTo(1);
+        assertThat(imported).isEmpty();
+        assertThat(checkpoints).hasSize(1);
+    }
+
+    private ChangeJson change(long id, String type, String namespace, String extension, String version) {
+        var change = new ChangeJson();
+        change.id = id;
+        change.type = type;
+        change.namespace = namespace;
+        change.extension = extension;
+        change.version = version;
+        return change;
+    }
+
+    private void expectChanges(long since, ChangeJson... changes) throws Exception {
+        var json = new ChangeListJson();
+        json.changes = Arrays.asList(changes);
+        json.cursor = changes[changes.length - 1].id;
+        upstream.expect(requestTo("https://upstream.test/api/-/changes?since=" + since + "&limit=100"))
+                .andRespond(withSuccess(mapper.writeValueAsString(json), MediaType.APPLICATION_JSON));
+    }
+
+    private void expectVersion(String namespace, String extension, String version, String hash) throws Exception {
+        var json = new ExtensionJson();
+        json.namespace = namespace;
+        json.name = extension;
+        json.version = version;
+        json.timestamp = "2020-05-01T10:00:00Z";
+        json.downloadSha256 = hash;
+        json.files = new LinkedHashMap<>();
+        json.files.put("download", "https://upstream.test/api/" + namespace + "/" + extension + "/" + version
+                + "/file/" + namespace + "." + extension + "-" + version + ".vsix");
+        upstream.expect(requestTo("https://upstream.test/api/" + namespace + "/" + extension + "/" + version))
+                .andRespond(withSuccess(mapper.writeValueAsString(json), MediaType.APPLICATION_JSON));
+    }
+
+    private List<String> mockImport() {
+        var imported = new ArrayList<String>();
+        Mockito.when(local.importExtension(any(InputStream.class), any(LocalDateTime.class)))
+                .thenAnswer(invocation -> {
+                    InputStream stream = invocation.getArgument(0);
+                    imported.add(new String(stream.readAllBytes(), StandardCharsets.UTF_8));
+                    return new ExtensionJson();
+                });
+        return imported;
+    }
+
+    private List<MirrorCheckpoint> mockCheckpoint(MirrorCheckpoint checkpoint) {
+        Mockito.when(repositories.findMirrorCheckpoint("https://upstream.test"))
+                .thenReturn(checkpoint);
+        var persisted = new ArrayList<MirrorCheckpoint>();
+        Mockito.doAnswer(invocation -> {
+            MirrorCheckpoint persistedCheckpoint = invocation.getArgument(0);
+            persisted.add(persistedCheckpoint);
+            Mockito.when(repositories.findMirrorCheckpoint("https://upstream.test"))
+                    .thenReturn(persistedCheckpoint);
+            return null;
+        }).when(entityManager).persist(any(MirrorCheckpoint.class));
+        return persisted;
+    }
+
+    @TestConfiguration
+    static class TestConfig {
+        @Bean
+        MirrorService mirrorService() {
+            return new MirrorService();
+        }
+
+        @Bean
+        RestTemplate restTemplate() {
+            return new RestTemplate();
+        }
+    }
+
+}
@@ -0,0 +1,229 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.publish;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.persistence.EntityManager;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.eclipse.openvsx.ExtensionProcessor;
+import org.eclipse.openvsx.LocalRegistryService;
+import org.eclipse.openvsx.entities.ExtensionVersion;
+import org.eclipse.openvsx.entities.PersonalAccessToken;
+import org.eclipse.openvsx.entities.PublishJob;
+import org.eclipse.openvsx.jobs.JobQueue;
+import org.eclipse.openvsx.repositories.RepositoryService;
+import org.eclipse.openvsx.util.ErrorResultException;
+import org.eclipse.openvsx.util.NotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+@ExtendWith(SpringExtension.class)
+public class PublishServiceTest {
+
+    @MockBean
+    LocalRegistryService local;
+
+    @MockBean
+    RepositoryService repositories;
+
+    @MockBean
+    EntityManager entityManager;
+
+    @MockBean
+    JobQueue jobs;
+
+    @MockBean
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    PublishService publishJobs;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    PersonalAccessToken token;
+
+    Map<String, PublishJob> persisted = new HashMap<>();
+
+    Map<String, byte[]> contents = new HashMap<>();
+
+    List<String> queued = new ArrayList<>();
+
+    @BeforeEach
+    public void setup() throws Exception {
+        var request = new MockHttpServletRequest();
+        request.setServerName("localhost");
+        request.setServerPort(8080);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        token = new PersonalAccessToken();
+        token.setActive(true);
+        Mockito.when(local.checkPublish(any(ExtensionProcessor.class), eq("my_token")))
+                .thenReturn(token);
+        Mockito.doAnswer(invocation -> {
+            PublishJob job = invocation.getArgument(0);
+            persisted.put(job.getId(), job);
+            return null;
+        }).when(entityManager).persist(any(PublishJob.class));
+        Mockito.when(repositories.findPublishJob(anyString()))
+                .thenAnswer(invocation -> persisted.get(invocation.getArgument(0)));
+        Mockito.doAnswer(invocation -> contents.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(repositories).updatePublishJobContent(anyString(), any(byte[].class));
+        Mockito.when(repositories.findPublishJobContent(anyString()))
+                .thenAnswer(invocation -> contents.get(invocation.getArgument(0)));
+        Mockito.doAnswer(invocation -> contents.remove(invocation.getArgument(0)))
+                .when(repositories).deletePublishJobContent(anyString());
+        Mockito.doAnswer(invocation -> queued.add(invocation.getArgument(1)))
+                .when(jobs).enqueue(eq(PublishService.TYPE), anyString(), anyInt());
+    }
+
+    @AfterEach
+    public void teardown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void testPublish() throws Exception {
+        Mockito.when(local.publish(any(ExtensionProcessor.class), any(ExtensionVersion.class), anyList(), eq(token)))
+                .thenAnswer(invocation -> invocation.getArgument(1));
+
+        var json = publishJobs.submit(createPackage(), "my_token");
+        assertThat(json.status).isEqualTo(PublishJob.STATUS_QUEUED);
+        assertThat(json.namespace).isEqualTo("foo");
+        assertThat(json.name).isEqualTo("bar");
+        assertThat(json.version).isEqualTo("1.0.0");
+        assertThat(json.url).isEqualTo("http://localhost:8080/api/-/publish/" + json.id);
+        assertThat(queued).containsExactly(json.id);
+        assertThat(contents).containsKey(json.id);
+
+        publishJobs.handle(json.id);
+
+        json = publishJobs.getJob(json.id);
+        assertThat(json.status).isEqualTo(PublishJob.STATUS_SUCCEEDED);
+        assertThat(json.error).isNull();
+        assertThat(json.extensionUrl).isEqualTo("http://localhost:8080/api/foo/bar/1.0.0");
+        assertThat(json.stages).containsOnlyKeys("validate", "queue", "extract", "persist");
+        assertThat(contents).isEmpty();
+        assertThat(meterRegistry.get("ovsx.publish.stage").tags("mode", "async", "stage", "persist").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void testPublishFailure() throws Exception {
+        Mockito.when(local.publish(any(ExtensionProcessor.class), any(ExtensionVersion.class), anyList(), eq(token)))
+                .thenThrow(new ErrorResultException("Extension foo.bar version 1.0.0 is already published."));
+
+        var id = publishJobs.submit(createPackage(), "my_token").id;
+        publishJobs.handle(id);
+
+        var json = publishJobs.getJob(id);
+        assertThat(json.status).isEqualTo(PublishJob.STATUS_FAILED);
+        assertThat(json.error).isEqualTo("Extension foo.bar version 1.0.0 is already published.");
+        assertThat(json.extensionUrl).isNull();
+        assertThat(contents).isEmpty();
+    }
+
+    @Test
+    public void testFinishedJob() throws Exception {
+        Mockito.when(local.publish(any(ExtensionProcessor.class), any(ExtensionVersion.class), anyList(), eq(token)))
+                .thenAnswer(invocation -> invocation.getArgument(1));
+
+        var id = publishJobs.submit(createPackage(), "my_token").id;
+        publishJobs.handle(id);
+        // A job that is delivered again is not published twice
+        publishJobs.handle(id);
+
+        Mockito.verify(local, Mockito.times(1)).publish(any(), any(), any(), any());
+    }
+
+    @Test
+    public void testRejectedPackage() throws Exception {
+        Mockito.doThrow(new ErrorResultException("Invalid access token."))
+                .when(local).checkPublish(any(ExtensionProcessor.class), eq("my_token"));
+
+        assertThatThrownBy(() -> publishJobs.submit(createPackage(), "my_token"))
+                .isInstanceOf(ErrorResultException.class)
+                .hasMessage("Invalid access token.");
+        assertThat(persisted).isEmpty();
+        assertThat(queued).isEmpty();
+    }
+
+    @Test
+    public void testFullQueue() throws Exception {
+        Mockito.when(repositories.countPublishJobs(PublishJob.STATUS_QUEUED)).thenReturn(100l);
+
+        assertThatThrownBy(() -> publishJobs.submit(createPackage(), "my_token"))
+                .isInstanceOf(ErrorResultException.class)
+                .hasMessage("Too many extensions are being published. Please try again later.");
+        assertThat(queued).isEmpty();
+    }
+
+    @Test
+    public void testUnknownJob() throws Exception {
+        assertThatThrownBy(() -> publishJobs.getJob("unknown"))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    private ByteArrayInputStream createPackage() throws Exception {
+        var bytes = new ByteArrayOutputStream();
+        try (var zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry("extension/package.json"));
+            zip.write("{\"publisher\":\"foo\",\"name\":\"bar\",\"version\":\"1.0.0\"}".getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        return new ByteArrayInputStream(bytes.toByteArray());
+    }
+
+    @TestConfiguration
+    static class TestConfig {
+        @Bean
+        PublishService publishService() {
+            return new PublishService();
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+}
@@ -11,11 +11,20 @@ package org.eclipse.openvsx.search;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.eclipse.openvsx.db.LeaderElection;
+import org.eclipse.openvsx.entities.ChangeLogEntry;
 import org.eclipse.openvsx.entities.Extension;
 import org.eclipse.openvsx.entities.ExtensionVersion;
 import org.eclipse.openvsx.entities.Namespace;
@@ -31,7 +40,10 @@ import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.query.GetQuery;
 import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.SearchQuery;
+import org.springframework.data.util.Streamable;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 @ExtendWith(SpringExtension.class)
@@ -43,6 +55,9 @@ public class SearchServiceTest {
     @MockBean
     ElasticsearchOperations searchOperations;
 
+    @MockBean
+    LeaderElection leaderElection;
+
     @Autowired
     SearchService search;
 
@@ -130,9 +145,77 @@ public class SearchServiceTest {
         assertThat(index.get(0).relevance).isLessThan(index.get(1).relevance);
     }
 
+    @Test
+    public void testInitWithoutIndexState() throws Exception {
+        mockStats();
+        var ext1 = mockExtension("foo", 4.0, 2, 0, LocalDateTime.parse("2020-01-01T00:00"), false, false);
+        Mockito.when(repositories.getMaxChangeId()).thenReturn(42L);
+        Mockito.when(repositories.findAllExtensions()).thenReturn(Streamable.of(ext1));
+        Mockito.when(searchOperations.indexExists(SearchIndexState.class)).thenReturn(false);
+        var states = mockIndexState();
+        mockLeader(true);
+
+        search.initSearchIndex(null);
+
+        Mockito.verify(searchOperations).createIndex(ExtensionSearch.class);
+        Mockito.verify(searchOperations).bulkIndex(anyList());
+        assertThat(states).extracting(state -> state.changeId).containsExactly(42L);
+    }
+
+    @Test
+    public void testInitReplaysChanges() throws Exception {
+        mockStats();
+        var ext1 = mockExtension("foo", 4.0, 2, 0, LocalDateTime.parse("2020-01-01T00:00"), false, false);
+        var state = new SearchIndexState();
+        state.version = SearchService.INDEX_VERSION;
+        state.changeId = 10;
+        Mockito.when(searchOperations.indexExists(SearchIndexState.class)).thenReturn(true);
+        Mockito.when(searchOperations.indexExists(ExtensionSearch.class)).thenReturn(true);
+        Mockito.when(searchOperations.queryForObject(any(GetQuery.class), eq(SearchIndexState.class))).thenReturn(state);
+        Mockito.when(repositories.findChangesAfter(eq(10L), anyInt())).thenReturn(Streamable.of(
+                mockChange(11, ChangeLogEntry.PUBLISH, "foo", "1.0.0"),
+                mockChange(12, ChangeLogEntry.DELETE, "bar", null),
+                mockChange(13, ChangeLogEntry.NAMESPACE, null, null)));
+        Mockito.when(repositories.findChangesAfter(eq(13L), anyInt())).thenReturn(Streamable.empty());
+        Mockito.when(repositories.findExtension("foo", "test")).thenReturn(ext1);
+        var staleEntry = new ExtensionSearch();
+        staleEntry.id = 7;
+        staleEntry.namespace = "test";
+        staleEntry.name = "bar";
+        Mockito.when(searchOperations.queryForList(any(SearchQuery.class), eq(ExtensionSearch.class)))
+                .thenReturn(List.of(staleEntry));
+        var states = mockIndexState();
+        mockLeader(true);
+
+        search.initSearchIndex(null);
+
+        Mockito.verify(searchOperations, Mockito.never()).deleteIndex(ExtensionSearch.class);
+        Mockito.verify(searchOperations).bulkIndex(argThat(queries -> queries.size() == 1
+                && ((ExtensionSearch) queries.get(0).getObject()).name.equals("foo")));
+        Mockito.verify(searchOperations).delete(ExtensionSearch.class, "7");
+        assertThat(states).extracting(s -> s.changeId).containsExactly(13L);
+    }
+
+    @Test
+    public void testInitOnOtherNode() throws Exception {
+        mockLeader(false);
+
+        search.initSearchIndex(null);
+
+        Mockito.verifyNoInteractions(searchOperations);
+    }
 
     //---------- UTILITY ----------//
 
+    private void mockLeader(boolean leader) {
+        Mockito.when(leaderElection.runExclusively(eq("search-index"), any(Runnable.class)))
+                .thenAnswer(invocation -> {
+                    if (leader)
+                        invocation.getArgument(1, Runnable.class).run();
+                    return leader;
+                });
+    }
+
     private void mockStats() {
         Mockito.when(repositories.getMaxExtensionDownloadCount())
                 .thenReturn(10);
@@ -152,6 +235,27 @@ public class SearchServiceTest {
         return entryList;
     }
 
+    private List<SearchIndexState> mockIndexState() {
+        var states = new ArrayList<SearchIndexState>();
+        Mockito.when(searchOperations.index(argThat(query -> query.getObject() instanceof SearchIndexState)))
+                .then(invocation -> {
+                    var query = invocation.getArgument(0, IndexQuery.class);
+                    states.add((SearchIndexState) query.getObject());
+                    return SearchIndexState.ID;
+                });
+        return states;
+    }
+
+    private ChangeLogEntry mockChange(long id, String type, String extension, String version) {
+        var entry = new ChangeLogEntry();
+        entry.setId(id);
+        entry.setType(type);
+        entry.setNamespace("test");
+        entry.setExtension(extension);
+        entry.setVersion(version);
+        return entry;
+    }
+
     private Extension mockExtension(String name, double averageRating, int ratingCount, int downloadCount,
             LocalDateTime timestamp, boolean isPublic, boolean isUnrelated) {
         var extension = new Extension();
@@ -184,6 +288,11 @@ public class SearchServiceTest {
         SearchService searchService() {
             return new SearchService();
         }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
     }
     
 }
\ No newline at end of file
@@ -0,0 +1,260 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.snapshot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.persistence.EntityManager;
+
+import com.google.common.hash.Hashing;
+
+import org.eclipse.openvsx.AdminService;
+import org.eclipse.openvsx.ExtensionProcessor;
+import org.eclipse.openvsx.LocalRegistryService;
+import org.eclipse.openvsx.UserService;
+import org.eclipse.openvsx.entities.Extension;
+import org.eclipse.openvsx.entities.ExtensionReview;
+import org.eclipse.openvsx.entities.ExtensionVersion;
+import org.eclipse.openvsx.entities.FileResource;
+import org.eclipse.openvsx.entities.Namespace;
+import org.eclipse.openvsx.entities.NamespaceMembership;
+import org.eclipse.openvsx.entities.UserData;
+import org.eclipse.openvsx.repositories.RepositoryService;
+import org.eclipse.openvsx.search.SearchService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.util.Streamable;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@ExtendWith(SpringExtension.class)
+public class SnapshotServiceTest {
+
+    @MockBean
+    RepositoryService repositories;
+
+    @MockBean
+    LocalRegistryService local;
+
+    @MockBean
+    AdminService admins;
+
+    @MockBean
+    UserService users;
+
+    @MockBean
+    SearchService search;
+
+    @MockBean
+    EntityManager entityManager;
+
+    @MockBean
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    SnapshotService snapshots;
+
+    @Test
+    public void testExport() throws Exception {
+        var content = mockCatalog();
+
+        var output = new ByteArrayOutputStream();
+        snapshots.exportSnapshot(output, false);
+
+        var lines = readLines(output.toByteArray());
+        var hash = Hashing.sha256().hashBytes(content).toString();
+        assertThat(lines).containsExactly(
+            "{\"type\":\"namespace\",\"namespace\":\"foo\"}",
+            "{\"type\":\"membership\",\"namespace\":\"foo\",\"provider\":\"github\",\"providerId\":\"123\",\"loginName\":\"test_user\",\"role\":\"owner\"}",
+            "{\"type\":\"version\",\"namespace\":\"foo\",\"extension\":\"bar\",\"version\":\"1.0.0\",\"timestamp\":\"2020-05-01T10:00Z\",\"sha256\":\"" + hash + "\"}",
+            "{\"type\":\"extension\",\"namespace\":\"foo\",\"extension\":\"bar\",\"downloadCount\":42,\"averageRating\":4.5}",
+            "{\"type\":\"review\",\"namespace\":\"foo\",\"extension\":\"bar\",\"timestamp\":\"2020-05-02T10:00Z\",\"provider\":\"github\",\"providerId\":\"123\",\"loginName\":\"test_user\",\"active\":true,\"title\":\"Great\",\"rating\":5}"
+        );
+    }
+
+    @Test
+    public void testExportAndImport() throws Exception {
+        mockCatalog();
+        var output = new ByteArrayOutputStream();
+        snapshots.exportSnapshot(output, true);
+
+        var imported = new ArrayList<String>();
+        Mockito.when(local.importExtension(any(ExtensionProcessor.class), any(ExtensionVersion.class), any(), any(LocalDateTime.class)))
+                .thenAnswer(invocation -> {
+                    ExtensionProcessor processor = invocation.getArgument(0);
+                    LocalDateTime timestamp = invocation.getArgument(3);
+                    imported.add(processor.getNamespace() + "." + processor.getExtensionName() + "@" + processor.getVersion()
+                            + " " + timestamp);
+                    return invocation.getArgument(1);
+                });
+        var namespace = new Namespace();
+        namespace.setName("foo");
+        Mockito.when(repositories.findNamespace("foo")).thenReturn(namespace);
+        var extension = new Extension();
+        Mockito.when(repositories.findExtension("bar", "foo")).thenReturn(extension);
+        Mockito.when(repositories.findAllReviews(extension)).thenReturn(Streamable.empty());
+        var persisted = new ArrayList<Object>();
+        Mockito.doAnswer(invocation -> persisted.add(invocation.getArgument(0)))
+                .when(entityManager).persist(any());
+        Mockito.when(repositories.findUserByProviderId("github", "123"))
+                .thenAnswer(invocation -> persisted.stream().filter(UserData.class::isInstance).findFirst().orElse(null));
+
+        var result = snapshots.importSnapshot(new ByteArrayInputStream(output.toByteArray()));
+
+        assertThat(result.success).isEqualTo("Imported 1 extension versions, 1 namespace memberships, 1 reviews from snapshot");
+        Mockito.verify(local).importNamespace("foo");
+        assertThat(imported).containsExactly("foo.bar@1.0.0 2020-05-01T10:00");
+        assertThat(extension.getDownloadCount()).isEqualTo(42);
+        assertThat(extension.getAverageRating()).isEqualTo(4.5);
+
+        // The user is created once and found by its provider id afterwards
+        var user = (UserData) persisted.get(0);
+        assertThat(user.getLoginName()).isEqualTo("test_user");
+        assertThat(user.getEmail()).isNull();
+        var membership = (NamespaceMembership) persisted.get(1);
+        assertThat(membership.getNamespace()).isSameAs(namespace);
+        assertThat(membership.getUser()).isSameAs(user);
+        assertThat(membership.getRole()).isEqualTo(NamespaceMembership.ROLE_OWNER);
+        Mockito.verify(users).invalidatePermissions(namespace);
+        var review = (ExtensionReview) persisted.get(2);
+        assertThat(review.getExtension()).isSameAs(extension);
+        assertThat(review.getUser()).isSameAs(user);
+        assertThat(review.getRating()).isEqualTo(5);
+        assertThat(review.getTimestamp()).isEqualTo(LocalDateTime.parse("2020-05-02T10:00"));
+        assertThat(persisted).hasSize(3);
+    }
+
+    @Test
+    public void testImportExistingReview() throws Exception {
+        mockCatalog();
+        var output = new ByteArrayOutputStream();
+        snapshots.exportSnapshot(output, false);
+        var extension = new Extension();
+        Mockito.when(repositories.findExtension("bar", "foo")).thenReturn(extension);
+        var user = new UserData();
+        user.setId(7);
+        Mockito.when(repositories.findUserByProviderId("github", "123")).thenReturn(user);
+        var review = new ExtensionReview();
+        review.setUser(user);
+        review.setTimestamp(LocalDateTime.parse("2020-05-02T10:00"));
+        Mockito.when(repositories.findAllReviews(extension)).thenReturn(Streamable.of(review));
+
+        snapshots.importSnapshot(new ByteArrayInputStream(output.toByteArray()));
+
+        Mockito.verify(entityManager, Mockito.never()).persist(any(ExtensionReview.class));
+    }
+
+    @Test
+    public void testImportWithoutBlobs() throws Exception {
+        mockCatalog();
+        var output = new ByteArrayOutputStream();
+        snapshots.exportSnapshot(output, false);
+
+        var result = snapshots.importSnapshot(new ByteArrayInputStream(output.toByteArray()));
+
+        assertThat(result.success).isEqualTo("Imported 0 extension versions from snapshot (1 failed: foo.bar@1.0.0)");
+        Mockito.verify(local, Mockito.never()).importExtension(any(), any(), any(), any());
+    }
+
+    private byte[] mockCatalog() throws Exception {
+        var namespace = new Namespace();
+        namespace.setId(1);
+        namespace.setName("foo");
+        var extension = new Extension();
+        extension.setId(2);
+        extension.setName("bar");
+        extension.setNamespace(namespace);
+        extension.setDownloadCount(42);
+        extension.setAverageRating(4.5);
+        var extVersion = new ExtensionVersion();
+        extVersion.setId(3);
+        extVersion.setExtension(extension);
+        extVersion.setVersion("1.0.0");
+        extVersion.setTimestamp(LocalDateTime.parse("2020-05-01T10:00"));
+        var resource = new FileResource();
+        resource.setExtension(extVersion);
+        resource.setType(FileResource.DOWNLOAD);
+        resource.setContent(createPackage());
+        var user = new UserData();
+        user.setProvider("github");
+        user.setProviderId("123");
+        user.setLoginName("test_user");
+        user.setEmail("test@example.com");
+        var membership = new NamespaceMembership();
+        membership.setId(4);
+        membership.setNamespace(namespace);
+        membership.setUser(user);
+        membership.setRole(NamespaceMembership.ROLE_OWNER);
+        var review = new ExtensionReview();
+        review.setId(5);
+        review.setExtension(extension);
+        review.setUser(user);
+        review.setTimestamp(LocalDateTime.parse("2020-05-02T10:00"));
+        review.setActive(true);
+        review.setTitle("Great");
+        review.setRating(5);
+
+        Mockito.when(repositories.findNamespacesAfter(anyLong(), anyInt())).thenReturn(Streamable.empty());
+        Mockito.when(repositories.findNamespacesAfter(eq(0L), anyInt())).thenReturn(Streamable.of(namespace));
+        Mockito.when(repositories.findVersionsAfter(anyLong(), anyInt())).thenReturn(Streamable.empty());
+        Mockito.when(repositories.findVersionsAfter(eq(0L), anyInt())).thenReturn(Streamable.of(extVersion));
+        Mockito.when(repositories.findExtensionsAfter(anyLong(), anyInt())).thenReturn(Streamable.empty());
+        Mockito.when(repositories.findExtensionsAfter(eq(0L), anyInt())).thenReturn(Streamable.of(extension));
+        Mockito.when(repositories.findMembershipsAfter(anyLong(), anyInt())).thenReturn(Streamable.empty());
+        Mockito.when(repositories.findMembershipsAfter(eq(0L), anyInt())).thenReturn(Streamable.of(membership));
+        Mockito.when(repositories.findReviewsAfter(anyLong(), anyInt())).thenReturn(Streamable.empty());
+        Mockito.when(repositories.findReviewsAfter(eq(0L), anyInt())).thenReturn(Streamable.of(review));
+        Mockito.when(repositories.findFile(extVersion, FileResource.DOWNLOAD)).thenReturn(resource);
+        return resource.getContent();
+    }
+
+    private byte[] createPackage() throws Exception {
+        var bytes = new ByteArrayOutputStream();
+        try (var zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry("extension/package.json"));
+            zip.write("{\"publisher\":\"foo\",\"name\":\"bar\",\"version\":\"1.0.0\"}".getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        return bytes.toByteArray();
+    }
+
+    private String[] readLines(byte[] snapshot) throws Exception {
+        try (var stream = new GZIPInputStream(new ByteArrayInputStream(snapshot))) {
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8).split("\n");
+        }
+    }
+
+    @TestConfiguration
+    static class TestConfig {
+        @Bean
+        SnapshotService snapshotService() {
+            return new SnapshotService();
+        }
+    }
+
+}
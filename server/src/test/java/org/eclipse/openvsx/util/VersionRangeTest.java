@@ -0,0 +1,68 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+public class VersionRangeTest {
+
+    @Test
+    public void testCaret() {
+        var range = VersionRange.parse("^1.40.0");
+        assertThat(range.includes(VersionRange.parseVersion("1.39.9"))).isFalse();
+        assertThat(range.includes(VersionRange.parseVersion("1.40.0"))).isTrue();
+        assertThat(range.includes(VersionRange.parseVersion("1.45.1"))).isTrue();
+        assertThat(range.includes(VersionRange.parseVersion("2.0.0"))).isFalse();
+    }
+
+    @Test
+    public void testGreaterOrEqual() {
+        var range = VersionRange.parse(">=1.30.0");
+        assertThat(range.includes(VersionRange.parseVersion("1.29.0"))).isFalse();
+        assertThat(range.includes(VersionRange.parseVersion("1.30.0"))).isTrue();
+        assertThat(range.includes(VersionRange.parseVersion("3.0.0"))).isTrue();
+    }
+
+    @Test
+    public void testWildcards() {
+        assertThat(VersionRange.parse("1.x.x")).isEqualTo(VersionRange.parse("^1.0.0"));
+        var range = VersionRange.parse("1.40.x");
+        assertThat(range.includes(VersionRange.parseVersion("1.40.7"))).isTrue();
+        assertThat(range.includes(VersionRange.parseVersion("1.41.0"))).isFalse();
+        assertThat(VersionRange.parse("*")).isEqualTo(VersionRange.ANY);
+    }
+
+    @Test
+    public void testMajorZero() {
+        var range = VersionRange.parse("^0.10.0");
+        assertThat(range.includes(VersionRange.parseVersion("0.10.5"))).isTrue();
+        assertThat(range.includes(VersionRange.parseVersion("1.45.0"))).isTrue();
+        assertThat(range.includes(VersionRange.parseVersion("2.0.0"))).isFalse();
+    }
+
+    @Test
+    public void testExact() {
+        var range = VersionRange.parse("1.45.1");
+        assertThat(range.includes(VersionRange.parseVersion("1.45.1"))).isTrue();
+        assertThat(range.includes(VersionRange.parseVersion("1.45.2"))).isFalse();
+    }
+
+    @Test
+    public void testInvalid() {
+        assertThat(VersionRange.parse(null)).isEqualTo(VersionRange.ANY);
+        assertThat(VersionRange.parse("latest")).isEqualTo(VersionRange.ANY);
+        assertThatThrownBy(() -> VersionRange.parseVersion("1.45"))
+                .isInstanceOf(ErrorResultException.class);
+    }
+
+}
@@ -0,0 +1,82 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class BulkheadFilterTest {
+
+    private BulkheadFilter filter;
+
+    @BeforeEach
+    public void setup() {
+        filter = new BulkheadFilter();
+        filter.publishConcurrency = 1;
+        filter.publishMaxWait = 0;
+        filter.downloadConcurrency = 0;
+        filter.searchConcurrency = 2;
+        filter.searchMaxWait = 0;
+        filter.queryConcurrency = 2;
+        filter.queryMaxWait = 0;
+        filter.retryAfter = 10;
+        filter.init();
+    }
+
+    @Test
+    public void testAdmitted() throws Exception {
+        var response = perform("POST", "/api/-/publish");
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        var publish = filter.getBulkheads().get(0);
+        assertThat(publish.getName()).isEqualTo("publish");
+        assertThat(publish.getAdmitted()).isEqualTo(1);
+        assertThat(publish.getActive()).isEqualTo(0);
+    }
+
+    @Test
+    public void testRejected() throws Exception {
+        var publish = filter.getBulkheads().get(0);
+        assertThat(publish.tryEnter()).isTrue();
+
+        var response = perform("POST", "/api/-/publish/async");
+
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(response.getHeader("Retry-After")).isEqualTo("10");
+        assertThat(response.getContentAsString()).contains("\"error\"");
+        assertThat(publish.getRejected()).isEqualTo(1);
+        // Other classes of requests are not affected
+        assertThat(perform("GET", "/api/-/search").getStatus()).isEqualTo(200);
+        assertThat(perform("GET", "/api/-/publish/1234").getStatus()).isEqualTo(200);
+        publish.exit();
+        assertThat(perform("POST", "/api/-/publish/async").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        assertThat(filter.getBulkheads()).extracting(Bulkhead::getName)
+                .containsExactly("publish", "search", "query");
+        assertThat(perform("GET", "/api/foo/bar/1.0.0/file/foo.bar-1.0.0.vsix").getStatus()).isEqualTo(200);
+    }
+
+    private MockHttpServletResponse perform(String method, String path) throws Exception {
+        var request = new MockHttpServletRequest(method, path);
+        request.setServletPath(path);
+        var response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+}
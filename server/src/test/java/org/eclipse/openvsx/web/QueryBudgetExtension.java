@@ -0,0 +1,49 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.web;
+
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.platform.commons.support.AnnotationSupport;
+import org.opentest4j.AssertionFailedError;
+
+public class QueryBudgetExtension implements BeforeEachCallback, AfterEachCallback {
+
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(QueryBudgetExtension.class);
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        context.getStore(NAMESPACE).put(context.getUniqueId(), QueryStatistics.getScopedCount());
+        QueryStatistics.current().begin();
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        QueryStatistics.current().end();
+        var start = context.getStore(NAMESPACE).remove(context.getUniqueId(), Long.class);
+        var budget = getBudget(context);
+        if (start == null || budget == null)
+            return;
+        var count = QueryStatistics.getScopedCount() - start;
+        if (count > budget.value()) {
+            throw new AssertionFailedError(context.getDisplayName() + " executed " + count
+                    + " SQL statements, which exceeds the budget of " + budget.value());
+        }
+    }
+
+    private QueryBudget getBudget(ExtensionContext context) {
+        var budget = AnnotationSupport.findAnnotation(context.getTestMethod(), QueryBudget.class);
+        if (budget.isEmpty())
+            budget = AnnotationSupport.findAnnotation(context.getTestClass(), QueryBudget.class);
+        return budget.orElse(null);
+    }
+
+}
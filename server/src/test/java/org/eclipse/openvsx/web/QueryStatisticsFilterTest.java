@@ -0,0 +1,117 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+public class QueryStatisticsFilterTest {
+
+    private QueryStatisticsFilter filter;
+
+    @BeforeEach
+    public void setup() {
+        filter = new QueryStatisticsFilter();
+        filter.meterRegistry = new SimpleMeterRegistry();
+        filter.headers = true;
+        filter.budget = 2;
+    }
+
+    @Test
+    @QueryBudget(4)
+    public void testCountStatements() throws Exception {
+        // Statements outside of a request are not counted for the request
+        QueryStatistics.current().record(1000);
+
+        var response = perform(3, "{}");
+
+        assertThat(response.getHeader(QueryStatisticsFilter.QUERY_COUNT_HEADER)).isEqualTo("3");
+        assertThat(response.getHeader(QueryStatisticsFilter.QUERY_TIME_HEADER)).isNotNull();
+        assertThat(response.getContentAsString()).isEqualTo("{}");
+        var summary = filter.meterRegistry.get("ovsx.http.queries")
+                .tags("method", "GET", "uri", "/api/{namespace}").summary();
+        assertThat(summary.count()).isEqualTo(1);
+        assertThat(summary.totalAmount()).isEqualTo(3);
+    }
+
+    @Test
+    public void testHeadersDisabled() throws Exception {
+        filter.headers = false;
+
+        var response = perform(1, "{}");
+
+        assertThat(response.getHeader(QueryStatisticsFilter.QUERY_COUNT_HEADER)).isNull();
+        assertThat(response.getContentAsString()).isEqualTo("{}");
+        assertThat(filter.meterRegistry.get("ovsx.http.queries").summary().totalAmount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testStreamedResponse() throws Exception {
+        var mockMvc = MockMvcBuilders.standaloneSetup(new StreamingController()).addFilters(filter).build();
+
+        var result = mockMvc.perform(get("/stream")).andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string("streamed"));
+    }
+
+    private MockHttpServletResponse perform(int statements, String body) throws Exception {
+        var request = new MockHttpServletRequest("GET", "/api/foo");
+        var response = new MockHttpServletResponse();
+        var servlet = new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/{namespace}");
+                var listener = new QueryStatisticsListener();
+                for (var i = 0; i < statements; i++) {
+                    listener.jdbcExecuteStatementStart();
+                    listener.jdbcExecuteStatementEnd();
+                }
+                resp.getWriter().write(body);
+            }
+        };
+        filter.doFilter(request, response, new MockFilterChain(servlet));
+        return response;
+    }
+
+    @RestController
+    static class StreamingController {
+        @GetMapping("/stream")
+        public ResponseEntity<StreamingResponseBody> stream() {
+            return ResponseEntity.ok(out -> out.write("streamed".getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+}
@@ -0,0 +1,171 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.eclipse.openvsx.UserService;
+import org.eclipse.openvsx.entities.PersonalAccessToken;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class RateLimitFilterTest {
+
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    public void setup() {
+        filter = createFilter();
+        filter.enabled = true;
+        filter.queryCapacity = 2;
+        filter.queryRefill = 0.001;
+        filter.searchCapacity = 1;
+        filter.searchRefill = 0.001;
+        filter.idleTimeout = 0;
+        filter.maxClients = 100;
+        filter.init();
+    }
+
+    private RateLimitFilter createFilter() {
+        var filter = new RateLimitFilter();
+        filter.users = Mockito.mock(UserService.class);
+        return filter;
+    }
+
+    @Test
+    public void testLimit() throws Exception {
+        var response = perform("POST", "/vscode/gallery/extensionquery", "10.0.0.1", null);
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader("RateLimit-Limit")).isEqualTo("2");
+        assertThat(response.getHeader("RateLimit-Remaining")).isEqualTo("1");
+
+        // The two query endpoints share a bucket
+        response = perform("POST", "/api/-/query", "10.0.0.1", null);
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader("RateLimit-Remaining")).isEqualTo("0");
+
+        response = perform("POST", "/vscode/gallery/extensionquery", "10.0.0.1", null);
+        assertThat(response.getStatus()).isEqualTo(429);
+        assertThat(response.getHeader("Retry-After")).isNotNull();
+        assertThat(response.getContentAsString()).contains("\"error\"");
+
+        // Other clients, other groups and other endpoints are not affected
+        assertThat(perform("POST", "/api/-/query", "10.0.0.2", null).getStatus()).isEqualTo(200);
+        assertThat(perform("GET", "/api/-/search", "10.0.0.1", null).getStatus()).isEqualTo(200);
+        assertThat(perform("GET", "/api/foo/bar", "10.0.0.1", null).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    public void testAccessToken() throws Exception {
+        var token = new PersonalAccessToken();
+        token.setId(7);
+        Mockito.when(filter.users.findCachedAccessToken("valid")).thenReturn(token);
+
+        assertThat(perform("GET", "/api/-/search", "10.0.0.1", "unknown").getStatus()).isEqualTo(200);
+        // Unknown tokens must not open a new bucket
+        assertThat(perform("GET", "/api/-/search", "10.0.0.1", "made-up").getStatus()).isEqualTo(429);
+        assertThat(perform("GET", "/api/-/search", "10.0.0.1", null).getStatus()).isEqualTo(429);
+        // Valid tokens have their own bucket, also when they are used from a shared address
+        assertThat(perform("GET", "/api/-/search", "10.0.0.1", "valid").getStatus()).isEqualTo(200);
+        assertThat(perform("GET", "/api/-/search", "10.0.0.2", "valid").getStatus()).isEqualTo(429);
+        assertThat(filter.getBucketCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testForwardedFor() throws Exception {
+        var request = new MockHttpServletRequest("GET", "/api/-/search");
+        request.setRemoteAddr("10.0.0.1");
+        request.addHeader("X-Forwarded-For", "198.51.100.7, 203.0.113.5, 10.0.0.2");
+        // The rightmost address that is not a trusted proxy is the client
+        assertThat(filter.getClientAddress(request)).isEqualTo("203.0.113.5");
+
+        request = new MockHttpServletRequest("GET", "/api/-/search");
+        request.setRemoteAddr("203.0.113.5");
+        request.addHeader("X-Forwarded-For", "198.51.100.7");
+        // The header is ignored if it is not sent by a trusted proxy
+        assertThat(filter.getClientAddress(request)).isEqualTo("203.0.113.5");
+
+        request = new MockHttpServletRequest("GET", "/api/-/search");
+        request.setRemoteAddr("127.0.0.1");
+        assertThat(filter.getClientAddress(request)).isEqualTo("127.0.0.1");
+    }
+
+    @Test
+    public void testProxiedClients() throws Exception {
+        assertThat(perform("GET", "/api/-/search", "10.0.0.1", null, "203.0.113.5").getStatus()).isEqualTo(200);
+        assertThat(perform("GET", "/api/-/search", "10.0.0.1", null, "203.0.113.5").getStatus()).isEqualTo(429);
+        // Clients behind the same proxy do not share a bucket
+        assertThat(perform("GET", "/api/-/search", "10.0.0.1", null, "203.0.113.6").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    public void testMaxClients() throws Exception {
+        filter.maxClients = 2;
+        assertThat(perform("POST", "/api/-/query", "203.0.113.1", null).getStatus()).isEqualTo(200);
+        assertThat(perform("POST", "/api/-/query", "203.0.113.2", null).getStatus()).isEqualTo(200);
+        // Further clients share one bucket
+        assertThat(perform("POST", "/api/-/query", "203.0.113.3", null).getStatus()).isEqualTo(200);
+        assertThat(perform("POST", "/api/-/query", "203.0.113.4", null).getStatus()).isEqualTo(200);
+        assertThat(perform("POST", "/api/-/query", "203.0.113.5", null).getStatus()).isEqualTo(429);
+        assertThat(filter.getBucketCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        filter.enabled = false;
+        for (var i = 0; i < 3; i++) {
+            assertThat(perform("GET", "/api/-/search", "10.0.0.1", null).getStatus()).isEqualTo(200);
+        }
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        filter = createFilter();
+        filter.enabled = true;
+        filter.queryCapacity = 2;
+        filter.queryRefill = 0.001;
+        filter.searchCapacity = 2;
+        filter.searchRefill = 1_000_000;
+        filter.idleTimeout = 0;
+        filter.maxClients = 100;
+        filter.init();
+        perform("GET", "/api/-/search", "10.0.0.1", null);
+        perform("POST", "/api/-/query", "10.0.0.1", null);
+        assertThat(filter.getBucketCount()).isEqualTo(2);
+
+        Thread.sleep(10);
+        filter.evictIdleBuckets();
+        // Only buckets that are full again are evicted
+        assertThat(filter.getBucketCount()).isEqualTo(1);
+    }
+
+    private MockHttpServletResponse perform(String method, String path, String address, String token) throws Exception {
+        return perform(method, path, address, token, null);
+    }
+
+    private MockHttpServletResponse perform(String method, String path, String address, String token,
+            String forwardedFor) throws Exception {
+        var request = new MockHttpServletRequest(method, path);
+        request.setServletPath(path);
+        request.setRemoteAddr(address);
+        if (token != null)
+            request.addParameter("token", token);
+        if (forwardedFor != null)
+            request.addHeader("X-Forwarded-For", forwardedFor);
+        var response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+}
@@ -0,0 +1,78 @@
+/********************************************************************************
+ * Copyright (c) 2020 TypeFox and others
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ ********************************************************************************/
+package org.eclipse.openvsx.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testBurst() throws Exception {
+        var bucket = new TokenBucket(3, 1, 0);
+        assertThat(bucket.getRemaining(0)).isEqualTo(3);
+        assertThat(bucket.tryConsume(0)).isTrue();
+        assertThat(bucket.tryConsume(0)).isTrue();
+        assertThat(bucket.tryConsume(0)).isTrue();
+        assertThat(bucket.getRemaining(0)).isEqualTo(0);
+        assertThat(bucket.tryConsume(0)).isFalse();
+        assertThat(bucket.getWaitTime(0)).isEqualTo(SECOND);
+        assertThat(bucket.getResetTime(0)).isEqualTo(3 * SECOND);
+    }
+
+    @Test
+    public void testRefill() throws Exception {
+        var bucket = new TokenBucket(2, 2, 0);
+        assertThat(bucket.tryConsume(0)).isTrue();
+        assertThat(bucket.tryConsume(0)).isTrue();
+        assertThat(bucket.tryConsume(SECOND / 4)).isFalse();
+        assertThat(bucket.tryConsume(SECOND / 2)).isTrue();
+        assertThat(bucket.tryConsume(SECOND / 2)).isFalse();
+        // The bucket never holds more than its capacity
+        assertThat(bucket.getRemaining(10 * SECOND)).isEqualTo(2);
+        assertThat(bucket.tryConsume(10 * SECOND)).isTrue();
+        assertThat(bucket.tryConsume(10 * SECOND)).isTrue();
+        assertThat(bucket.tryConsume(10 * SECOND)).isFalse();
+    }
+
+    @Test
+    public void testIdle() throws Exception {
+        var bucket = new TokenBucket(2, 1, 0);
+        assertThat(bucket.tryConsume(0)).isTrue();
+        assertThat(bucket.isIdle(SECOND, 5 * SECOND)).isFalse();
+        assertThat(bucket.isIdle(6 * SECOND, 5 * SECOND)).isTrue();
+    }
+
+    @Test
+    public void testConcurrentConsumers() throws Exception {
+        var bucket = new TokenBucket(1000, 0.001, 0);
+        var consumed = new AtomicInteger();
+        var executor = Executors.newFixedThreadPool(8);
+        for (var i = 0; i < 8; i++) {
+            executor.execute(() -> {
+                for (var j = 0; j < 500; j++) {
+                    if (bucket.tryConsume(0))
+                        consumed.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(consumed.get()).isEqualTo(1000);
+    }
+
+}